@@ -0,0 +1,214 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission Controller Class
+ * Bounds the number of in-flight requests per endpoint lane so that a burst
+ * of listing or search traffic cannot exhaust the database connection,
+ * worker threads or heap. Each lane has its own concurrency limit and a
+ * bounded wait queue; anything beyond that is rejected straight away so the
+ * server can answer 503 with a Retry-After hint instead of piling up work.
+ *
+ * Limits can be tuned at startup with system properties, e.g.
+ * -Dpayroll.admission.list.limit=4 -Dpayroll.admission.list.queue=8
+ * -Dpayroll.admission.list.waitMs=2000 -Dpayroll.admission.list.timeoutMs=15000
+ *
+ * The timeout is the lane's request deadline (see QueryDeadline), counted
+ * from arrival, so time spent queueing is part of it.
+ */
+public class AdmissionController {
+
+    /**
+     * Request lanes with their default limit, queue length, max wait and
+     * request deadline (0 = none).
+     * LOOKUP is the priority lane for GET /employees/{id}: it owns its own
+     * permits, and on MySQL the lookup runs on its own connection
+     * (DatabaseConnection.getLookupConnection), so interactive lookups
+     * never queue behind bulk work.
+     * BULK covers mass mutations of employee pay: salary revisions, arrears
+     * and starting payroll runs; these commit in chunks and have no deadline.
+     * JOB covers other long payroll work (period diffs, projections,
+     * attendance uploads) so it neither waits for nor holds up BULK. Status
+     * polls of runs and ingestion are plain lookups.
+     */
+    public enum Lane {
+        LOOKUP(16, 32, 50, 2000),
+        LIST(4, 8, 2000, 15000),
+        SEARCH(4, 8, 2000, 5000),
+        MUTATION(8, 16, 1000, 5000),
+        BULK(1, 2, 5000, 0),
+        JOB(2, 4, 2000, 0);
+
+        private final int defaultLimit;
+        private final int defaultQueue;
+        private final long defaultWaitMillis;
+        private final long defaultTimeoutMillis;
+
+        Lane(int defaultLimit, int defaultQueue, long defaultWaitMillis, long defaultTimeoutMillis) {
+            this.defaultLimit = defaultLimit;
+            this.defaultQueue = defaultQueue;
+            this.defaultWaitMillis = defaultWaitMillis;
+            this.defaultTimeoutMillis = defaultTimeoutMillis;
+        }
+    }
+
+    // Runtime state of a single lane
+    private static class LaneState {
+        final int limit;
+        final int maxQueue;
+        final long maxWaitMillis;
+        final long timeoutMillis;
+        final Semaphore permits;
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong timedOut = new AtomicLong();
+        volatile double avgServiceMillis = 10.0;
+
+        LaneState(int limit, int maxQueue, long maxWaitMillis, long timeoutMillis) {
+            this.limit = limit;
+            this.maxQueue = maxQueue;
+            this.maxWaitMillis = maxWaitMillis;
+            this.timeoutMillis = timeoutMillis;
+            this.permits = new Semaphore(limit, true); // fair, so waiters are served FIFO
+        }
+    }
+
+    private static final int MAX_RETRY_AFTER_SECONDS = 30;
+
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+
+    public AdmissionController() {
+        for (Lane lane : Lane.values()) {
+            String prefix = "payroll.admission." + lane.name().toLowerCase() + ".";
+            int limit = Integer.getInteger(prefix + "limit", lane.defaultLimit);
+            int queue = Integer.getInteger(prefix + "queue", lane.defaultQueue);
+            long waitMillis = Long.getLong(prefix + "waitMs", lane.defaultWaitMillis);
+            long timeoutMillis = Long.getLong(prefix + "timeoutMs", lane.defaultTimeoutMillis);
+            lanes.put(lane, new LaneState(Math.max(1, limit), Math.max(0, queue), Math.max(0, waitMillis),
+                Math.max(0, timeoutMillis)));
+        }
+    }
+
+    /**
+     * Tries to admit a request into the given lane
+     * Takes a free permit immediately if one exists, otherwise joins the
+     * bounded wait queue for at most the lane's max wait.
+     * @param lane Lane the request belongs to
+     * @return true if admitted (caller must call release), false if rejected
+     */
+    public boolean tryAdmit(Lane lane) {
+        LaneState state = lanes.get(lane);
+
+        if (state.permits.tryAcquire()) {
+            state.admitted.incrementAndGet();
+            return true;
+        }
+
+        // Queue is full - reject without waiting
+        if (state.waiting.incrementAndGet() > state.maxQueue) {
+            state.waiting.decrementAndGet();
+            state.rejected.incrementAndGet();
+            return false;
+        }
+
+        try {
+            if (state.permits.tryAcquire(state.maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                state.admitted.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            state.waiting.decrementAndGet();
+        }
+        state.rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Releases a permit taken by tryAdmit and records the service time
+     * @param lane Lane the request was admitted into
+     * @param serviceNanos Time spent serving the request
+     */
+    public void release(Lane lane, long serviceNanos) {
+        LaneState state = lanes.get(lane);
+        double millis = serviceNanos / 1_000_000.0;
+        // Exponentially weighted moving average; races only lose a sample
+        state.avgServiceMillis = state.avgServiceMillis * 0.9 + millis * 0.1;
+        state.permits.release();
+    }
+
+    /**
+     * Request deadline of a lane
+     * @param lane Lane the request belongs to
+     * @return Timeout in milliseconds, 0 for none
+     */
+    public long timeoutMillis(Lane lane) {
+        return lanes.get(lane).timeoutMillis;
+    }
+
+    /**
+     * Counts a request of the lane that was cut off by its deadline or by
+     * its client disconnecting
+     * @param lane Lane the request was admitted into
+     */
+    public void recordTimeout(Lane lane) {
+        lanes.get(lane).timedOut.incrementAndGet();
+    }
+
+    /**
+     * Estimates how long a rejected client should back off
+     * @param lane Lane that rejected the request
+     * @return Seconds until the current backlog is expected to drain
+     */
+    public int retryAfterSeconds(Lane lane) {
+        LaneState state = lanes.get(lane);
+        double backlog = state.limit + state.waiting.get();
+        double drainMillis = backlog * state.avgServiceMillis / state.limit;
+        int seconds = (int) Math.ceil(drainMillis / 1000.0);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    /**
+     * Number of worker threads needed so that every admitted or queued
+     * request has a thread and lanes cannot starve each other
+     * @return Sum of limit and queue length over all lanes
+     */
+    public int workerThreadsRequired() {
+        int total = 0;
+        for (LaneState state : lanes.values()) {
+            total += state.limit + state.maxQueue;
+        }
+        return total;
+    }
+
+    /**
+     * Per-lane counters in JSON form, for monitoring
+     * @return JSON object keyed by lane name
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<Lane, LaneState> entry : lanes.entrySet()) {
+            LaneState state = entry.getValue();
+            if (!first) {
+                json.append(",");
+            }
+            first = false;
+            json.append("\"").append(entry.getKey().name().toLowerCase()).append("\":{")
+                .append("\"limit\":").append(state.limit).append(",")
+                .append("\"inFlight\":").append(state.limit - state.permits.availablePermits()).append(",")
+                .append("\"waiting\":").append(state.waiting.get()).append(",")
+                .append("\"admitted\":").append(state.admitted.get()).append(",")
+                .append("\"rejected\":").append(state.rejected.get()).append(",")
+                .append("\"timedOut\":").append(state.timedOut.get())
+                .append("}");
+        }
+        return json.append("}").toString();
+    }
+}
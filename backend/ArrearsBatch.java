@@ -0,0 +1,75 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Arrears Batch Class
+ * One recorded arrears computation: the revision it pays out, the periods
+ * and chunk size it was split by, and the period/id-range chunks that have
+ * committed. Resuming a batch computes only the chunks not yet committed,
+ * with the same boundaries.
+ */
+public class ArrearsBatch {
+    private final int batchId;
+    private final String description;       // the revision and effective month
+    private final String effectiveFrom;
+    private final String throughPeriod;
+    private final int chunkSize;
+    private final Set<String> committedChunks = new HashSet<>();
+
+    public ArrearsBatch(int batchId, String description, String effectiveFrom, String throughPeriod, int chunkSize) {
+        this.batchId = batchId;
+        this.description = description;
+        this.effectiveFrom = effectiveFrom;
+        this.throughPeriod = throughPeriod;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getBatchId() {
+        return batchId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getEffectiveFrom() {
+        return effectiveFrom;
+    }
+
+    public String getThroughPeriod() {
+        return throughPeriod;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void markCommitted(String period, int fromId) {
+        committedChunks.add(period + "/" + fromId);
+    }
+
+    /**
+     * @param period Pay period of the chunk
+     * @param fromId First employee id of the chunk
+     * @return true if the chunk's lines have been committed
+     */
+    public boolean isCommitted(String period, int fromId) {
+        return committedChunks.contains(period + "/" + fromId);
+    }
+
+    public int getCommittedChunks() {
+        return committedChunks.size();
+    }
+
+    public ArrearsBatch copy() {
+        ArrearsBatch copy = new ArrearsBatch(batchId, description, effectiveFrom, throughPeriod, chunkSize);
+        copy.committedChunks.addAll(committedChunks);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ArrearsBatch [Batch=%d, %s, Through=%s, ChunkSize=%d, Committed=%d]",
+            batchId, description, throughPeriod, chunkSize, committedChunks.size());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Arrears Line Class
+ * Difference between what an employee was paid for a period and what a
+ * back-dated revision says they should have been paid, per pay component.
+ * Positive amounts are owed to the employee.
+ */
+public class ArrearsLine {
+    private final String period;
+    private final int employeeId;
+    private final double basicSalaryDelta;
+    private final double hraDelta;
+    private final double allowancesDelta;
+    private final double taxDelta;
+    private final double netSalaryDelta;
+
+    public ArrearsLine(String period, int employeeId, double basicSalaryDelta, double hraDelta,
+                       double allowancesDelta, double taxDelta, double netSalaryDelta) {
+        this.period = period;
+        this.employeeId = employeeId;
+        this.basicSalaryDelta = basicSalaryDelta;
+        this.hraDelta = hraDelta;
+        this.allowancesDelta = allowancesDelta;
+        this.taxDelta = taxDelta;
+        this.netSalaryDelta = netSalaryDelta;
+    }
+
+    /**
+     * Compares a paid payslip line with its recomputed version
+     * @param period Pay period of the line
+     * @param paid Line as paid (including earlier arrears)
+     * @param revised Recomputed line
+     * @return Per-component differences rounded to paise
+     */
+    public static ArrearsLine between(String period, Employee paid, Employee revised) {
+        return new ArrearsLine(period, paid.getId(),
+            round2(revised.getBasicSalary() - paid.getBasicSalary()),
+            round2(revised.getHra() - paid.getHra()),
+            round2(revised.getAllowances() - paid.getAllowances()),
+            round2(revised.getTax() - paid.getTax()),
+            round2(revised.getNetSalary() - paid.getNetSalary()));
+    }
+
+    // True if nothing changed (e.g. the revision did not move this line)
+    public boolean isZero() {
+        return basicSalaryDelta == 0 && hraDelta == 0 && allowancesDelta == 0 && taxDelta == 0 && netSalaryDelta == 0;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public double getBasicSalaryDelta() {
+        return basicSalaryDelta;
+    }
+
+    public double getHraDelta() {
+        return hraDelta;
+    }
+
+    public double getAllowancesDelta() {
+        return allowancesDelta;
+    }
+
+    public double getTaxDelta() {
+        return taxDelta;
+    }
+
+    public double getNetSalaryDelta() {
+        return netSalaryDelta;
+    }
+
+    private static double round2(double value) {
+        // + 0.0 turns -0.0 into 0.0
+        return Math.round(value * 100.0) / 100.0 + 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ArrearsLine [Period=%s, ID=%d, Basic=%+.2f, HRA=%+.2f, Allowances=%+.2f, Tax=%+.2f, Net=%+.2f]",
+            period, employeeId, basicSalaryDelta, hraDelta, allowancesDelta, taxDelta, netSalaryDelta);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Arrears Result Class
+ * Outcome (or dry-run preview) of an arrears computation for a back-dated
+ * salary revision
+ */
+public class ArrearsResult {
+    private final int batchId;              // 0 for a dry run
+    private final boolean dryRun;
+    private final String effectiveFrom;
+    private final int periods;
+    private final int employeePeriods;      // paid lines the revision applies to
+    private final int arrearsLines;         // lines that actually changed
+    private final double totalNetArrears;
+    private final int chunks;               // computed by this attempt
+    private final int skippedChunks;        // committed by an earlier attempt of the batch
+    private final int failedChunks;
+    private final long elapsedMillis;
+
+    public ArrearsResult(int batchId, boolean dryRun, String effectiveFrom, int periods, int employeePeriods,
+                         int arrearsLines, double totalNetArrears, int chunks, int skippedChunks, int failedChunks,
+                         long elapsedMillis) {
+        this.batchId = batchId;
+        this.dryRun = dryRun;
+        this.effectiveFrom = effectiveFrom;
+        this.periods = periods;
+        this.employeePeriods = employeePeriods;
+        this.arrearsLines = arrearsLines;
+        this.totalNetArrears = totalNetArrears;
+        this.chunks = chunks;
+        this.skippedChunks = skippedChunks;
+        this.failedChunks = failedChunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getBatchId() {
+        return batchId;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public String getEffectiveFrom() {
+        return effectiveFrom;
+    }
+
+    public int getPeriods() {
+        return periods;
+    }
+
+    public int getEmployeePeriods() {
+        return employeePeriods;
+    }
+
+    public int getArrearsLines() {
+        return arrearsLines;
+    }
+
+    public double getTotalNetArrears() {
+        return totalNetArrears;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getSkippedChunks() {
+        return skippedChunks;
+    }
+
+    public int getFailedChunks() {
+        return failedChunks;
+    }
+
+    public boolean isCompleted() {
+        return failedChunks == 0;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ArrearsResult [Batch=%d, DryRun=%s, From=%s, Periods=%d, Lines=%d/%d, Net=₹%.2f, Chunks=%d (%d failed, %d skipped), %d ms]",
+            batchId, dryRun, effectiveFrom, periods, arrearsLines, employeePeriods, totalNetArrears,
+            chunks, failedChunks, skippedChunks, elapsedMillis);
+    }
+}
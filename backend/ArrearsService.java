@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Arrears Service Class
+ * Pays out back-dated salary revisions. For every period from the
+ * revision's effective month that has a completed payroll run, the paid
+ * payslip lines (plus arrears already issued for them) are recomputed
+ * with the revised basic and HRA: overtime from that period's attendance,
+ * deductions under the current tax rules. The differences are written as
+ * arrears lines of one batch.
+ *
+ * Only employee-periods the revision applies to are touched: each task is
+ * one period and id-range chunk of the revision's range, and reads just
+ * that slice of history. Tasks run in parallel and commit independently;
+ * a chunk replaces its own lines and is marked committed with them.
+ *
+ * A batch with failed chunks is completed by resuming it: only the chunks
+ * not yet committed are computed, with the boundaries the batch was
+ * created with, against what was paid plus the arrears of other batches.
+ * The batch's own earlier lines are left out, so a revision is never
+ * applied on top of itself. For the same reason a revision that already
+ * has a batch is refused rather than issued again.
+ *
+ * Tuning: -Dpayroll.arrears.chunkSize=5000 -Dpayroll.arrears.threads=4
+ */
+public class ArrearsService {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("payroll.arrears.chunkSize", 5000);
+    private static final int THREADS = Integer.getInteger("payroll.arrears.threads", 4);
+
+    private final PayrollService payrollService;
+    private final PayrollRunStore store;
+    private final AttendanceStore attendanceStore;
+    private final ExecutorService executor;
+    private final Object batchLock = new Object();
+
+    public ArrearsService(PayrollService payrollService, PayrollRunStore store, AttendanceStore attendanceStore) {
+        this.payrollService = payrollService;
+        this.store = store;
+        this.attendanceStore = attendanceStore;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "payroll-arrears-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Computes (and unless dry-run, records as a new batch) the arrears of a
+     * back-dated revision
+     * @param revision Revision as it should have applied
+     * @param effectiveFrom First period it applies to, e.g. "2026-04"
+     * @param throughPeriod Last period to recompute (inclusive)
+     * @return Outcome, or null if the batch could not be created
+     * @throws IllegalStateException if the revision already has a batch
+     * @throws InterruptedException if interrupted while waiting for the chunks
+     */
+    public ArrearsResult computeArrears(SalaryRevision revision, String effectiveFrom, String throughPeriod)
+            throws InterruptedException {
+        if (revision.isDryRun()) {
+            return compute(revision, effectiveFrom, throughPeriod, CHUNK_SIZE, 0, null);
+        }
+        String description = describe(revision, effectiveFrom);
+        int batchId;
+        synchronized (batchLock) {
+            ArrearsBatch existing = store.findArrearsBatch(description);
+            if (existing != null) {
+                throw new IllegalStateException("Arrears for this revision were already recorded as batch "
+                    + existing.getBatchId() + "; post it again with \"batchId\":" + existing.getBatchId()
+                    + " to complete failed chunks");
+            }
+            batchId = store.createArrearsBatch(description, effectiveFrom, throughPeriod, CHUNK_SIZE);
+        }
+        if (batchId == 0) {
+            return null;
+        }
+        return compute(revision, effectiveFrom, throughPeriod, CHUNK_SIZE, batchId, null);
+    }
+
+    /**
+     * Completes a batch: computes and records the chunks that have not
+     * committed yet
+     * @param batchId Batch to resume
+     * @param revision The revision the batch was created for
+     * @param effectiveFrom Its effective month, as given when the batch was created
+     * @return Outcome of this attempt, or null if the batch could not be read
+     * @throws IllegalArgumentException if there is no such batch
+     * @throws IllegalStateException if the batch is for another revision
+     * @throws InterruptedException if interrupted while waiting for the chunks
+     */
+    public ArrearsResult resumeArrears(int batchId, SalaryRevision revision, String effectiveFrom)
+            throws InterruptedException {
+        ArrearsBatch batch = store.findArrearsBatch(batchId);
+        if (batch == null) {
+            throw new IllegalArgumentException("Arrears batch " + batchId + " not found");
+        }
+        if (!batch.getDescription().equals(describe(revision, effectiveFrom))) {
+            throw new IllegalStateException("Arrears batch " + batchId + " was recorded for another revision: "
+                + batch.getDescription());
+        }
+        return compute(revision, batch.getEffectiveFrom(), batch.getThroughPeriod(), batch.getChunkSize(),
+            batchId, batch);
+    }
+
+    private static String describe(SalaryRevision revision, String effectiveFrom) {
+        return revision + " from " + effectiveFrom;
+    }
+
+    // resumed is null for a new batch or dry run; its committed chunks are skipped
+    private ArrearsResult compute(SalaryRevision revision, String effectiveFrom, String throughPeriod, int chunkSize,
+                                  int batchId, ArrearsBatch resumed) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        List<PayrollRun> runs = store.findCompletedRuns(effectiveFrom, throughPeriod);
+
+        List<Future<double[]>> chunks = new ArrayList<>();
+        int skipped = 0;
+        for (PayrollRun run : runs) {
+            long last = Math.min(revision.getToId(), run.getMaxEmployeeId());
+            for (long chunkStart = revision.getFromId(); chunkStart <= last; chunkStart += chunkSize) {
+                int from = (int) chunkStart;
+                int to = (int) Math.min(last, chunkStart + chunkSize - 1);
+                if (resumed != null && resumed.isCommitted(run.getPeriod(), from)) {
+                    skipped++;
+                    continue;
+                }
+                chunks.add(executor.submit(() -> computeChunk(batchId, revision, run.getPeriod(), from, to)));
+            }
+        }
+
+        int employeePeriods = 0;
+        int lines = 0;
+        double totalNet = 0;
+        int failed = 0;
+        try {
+            for (Future<double[]> chunk : chunks) {
+                double[] outcome;
+                try {
+                    outcome = chunk.get();
+                } catch (ExecutionException e) {
+                    System.err.println("✗ Arrears chunk failed: " + e.getCause());
+                    outcome = null;
+                }
+                if (outcome == null) {
+                    failed++;
+                    continue;
+                }
+                employeePeriods += (int) outcome[0];
+                lines += (int) outcome[1];
+                totalNet += outcome[2];
+            }
+        } finally {
+            for (Future<double[]> chunk : chunks) {
+                chunk.cancel(true);
+            }
+        }
+
+        ArrearsResult result = new ArrearsResult(batchId, revision.isDryRun(), effectiveFrom, runs.size(),
+            employeePeriods, lines, Math.round(totalNet * 100) / 100.0, chunks.size(), skipped, failed,
+            System.currentTimeMillis() - start);
+        System.out.println((failed == 0 ? "✓ " : "✗ ") + result);
+        return result;
+    }
+
+    // One period and id range: {matching lines, arrears lines, net arrears}, or null if it failed
+    private double[] computeChunk(int batchId, SalaryRevision revision, String period, int from, int to) {
+        Map<Integer, AttendanceSummary> attendance = attendanceStore.findSummaries(period, from, to);
+        if (attendance == null) {
+            return null;
+        }
+        TaxRules taxRules = payrollService.getTaxRules();
+        List<ArrearsLine> arrears = new ArrayList<>();
+        int[] matching = new int[1];
+        // Paid plus other batches' arrears; this batch's own lines are what is being replaced
+        boolean read = store.scanHistory(period, from, to, true, batchId, paid -> {
+            if (!revision.appliesTo(paid)) {
+                return;
+            }
+            matching[0]++;
+            Employee revised = new Employee(paid.getId(), paid.getName(), paid.getDesignation(),
+                revision.revisedBasicSalary(paid.getBasicSalary()), revision.revisedHra(paid.getHra()), paid.getTax(), 0);
+            AttendanceSummary summary = attendance.get(paid.getId());
+            revised.setAllowances(summary != null ? summary.allowanceFor(revised.getBasicSalary()) : paid.getAllowances());
+            if (taxRules != null) {
+                revised.applyTaxRules(taxRules);
+            }
+            ArrearsLine line = ArrearsLine.between(period, paid, revised);
+            if (!line.isZero()) {
+                arrears.add(line);
+            }
+        });
+        if (!read) {
+            return null;
+        }
+        if (batchId != 0 && !store.commitArrears(batchId, period, from, to, arrears)) {
+            return null;
+        }
+        double net = 0;
+        for (ArrearsLine line : arrears) {
+            net += line.getNetSalaryDelta();
+        }
+        return new double[]{matching[0], arrears.size(), net};
+    }
+}
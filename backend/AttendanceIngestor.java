@@ -0,0 +1,457 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Attendance Ingestor Class
+ * Streams punch events from attendance terminals into per employee, per
+ * period summaries (see AttendanceSummary) that payroll runs consume.
+ *
+ * Input is one punch per line, either CSV
+ *   employee_id,time,direction          e.g. 1042,2026-10-01T05:58:12,IN
+ * or NDJSON
+ *   {"employeeId":1042,"time":"2026-10-01T05:58:12","direction":"IN"}
+ * where time is plant-local (ISO, a space instead of T is fine) or epoch
+ * milliseconds, and direction is IN or OUT. Lines come from files, an
+ * HTTP upload or a loopback socket feed; streams are parsed line by line
+ * and never held in memory.
+ *
+ * Per employee only the open in-punch and the latest punch are kept:
+ * a punch at or before the latest one is a duplicate (terminal resends,
+ * overlapping files) and is dropped, an out-punch closes the open shift,
+ * and an in-punch without out-punch (or a shift over 16 hours) is counted
+ * as unpaired. The latest punches already stored for a period are loaded
+ * the first time the period is seen, so re-ingesting a file after a
+ * restart does not count it twice. Punches must therefore arrive in time
+ * order per employee, which terminals and their export files guarantee.
+ *
+ * Completed shifts are added to in-memory summaries, which are written as
+ * batched upserts once payroll.attendance.batchSize employee-periods are
+ * pending, every payroll.attendance.flushMs, and at the end of each
+ * stream. Memory is bounded by the number of employees, not by the
+ * number of punches.
+ */
+public class AttendanceIngestor {
+
+    public enum Outcome { ACCEPTED, SHIFT, DUPLICATE, UNPAIRED, MALFORMED }
+
+    private static final int BATCH_SIZE = Integer.getInteger("payroll.attendance.batchSize", 2000);
+    private static final int FLUSH_MS = Integer.getInteger("payroll.attendance.flushMs", 2000);
+    private static final int RETRY_MS = 5000;
+    private static final long MAX_SHIFT_SECONDS = 16 * 3600;
+    private static final ZoneId PLANT_ZONE = ZoneId.systemDefault();
+
+    /**
+     * Punch counters of one stream, or of everything ingested so far
+     */
+    public static final class Counts {
+        private long lines;
+        private long shifts;
+        private long duplicates;
+        private long unpaired;
+        private long malformed;
+        private boolean written;
+
+        void record(Outcome outcome) {
+            lines++;
+            switch (outcome) {
+                case SHIFT: shifts++; break;
+                case DUPLICATE: duplicates++; break;
+                case UNPAIRED: unpaired++; break;
+                case MALFORMED: malformed++; break;
+                default: break;
+            }
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getShifts() {
+            return shifts;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getUnpaired() {
+            return unpaired;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        // false if the summaries are still pending (database unavailable), they are retried in the background
+        public boolean isWritten() {
+            return written;
+        }
+
+        public String toJson() {
+            return "{\"punches\":" + lines + ",\"shifts\":" + shifts + ",\"duplicates\":" + duplicates
+                + ",\"unpaired\":" + unpaired + ",\"malformed\":" + malformed + ",\"written\":" + written + "}";
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d punches, %d shifts, %d duplicates, %d unpaired, %d malformed",
+                lines, shifts, duplicates, unpaired, malformed);
+        }
+    }
+
+    // Pairing and dedupe state of one employee
+    private static final class PunchState {
+        long latestPunch = Long.MIN_VALUE;
+        long openIn = Long.MIN_VALUE;
+        long lastShiftDay = Long.MIN_VALUE;
+    }
+
+    private final AttendanceStore store;
+    private final Map<Integer, PunchState> states = new HashMap<>();
+    private final Map<Long, AttendanceSummary> pending = new HashMap<>();  // (period index << 32 | id) -> summary
+    private final Set<String> loadedPeriods = new HashSet<>();
+    private final Counts totals = new Counts();
+    private long flushedRows;
+    private long failedFlushes;
+    private long nextFlushAttempt;
+
+    // Most punches fall on the same day as the previous one
+    private long cachedDay = Long.MIN_VALUE;
+    private int cachedPeriodIndex;
+    private String cachedPeriod;
+
+    private final AtomicInteger feedConnections = new AtomicInteger();
+
+    public AttendanceIngestor(AttendanceStore store) {
+        this.store = store;
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payroll-attendance-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the attendance store matching the payroll.repository system property
+     * @return In-memory store for "memory"/"demo"/"embedded", MySQL otherwise
+     */
+    public static AttendanceStore createStore() {
+        String kind = System.getProperty("payroll.repository", "mysql");
+        if ("memory".equalsIgnoreCase(kind) || "demo".equalsIgnoreCase(kind)
+                || "embedded".equalsIgnoreCase(kind)) {
+            return new InMemoryAttendanceStore();
+        }
+        return new MySqlAttendanceStore();
+    }
+
+    /**
+     * Ingests a stream of CSV and/or NDJSON punch lines, then writes out
+     * what it aggregated
+     * @param reader Punch lines
+     * @return Counters for this stream
+     * @throws IOException if reading fails
+     */
+    public Counts ingest(Reader reader) throws IOException {
+        Counts counts = new Counts();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        boolean first = true;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            // A CSV header line
+            if (first && Character.isLetter(line.charAt(0))) {
+                first = false;
+                continue;
+            }
+            first = false;
+            counts.record(parseAndAccept(line));
+        }
+        counts.written = flush();
+        return counts;
+    }
+
+    private Outcome parseAndAccept(String line) {
+        int employeeId;
+        long time;
+        boolean in;
+        try {
+            String id;
+            String timeText;
+            String direction;
+            if (line.charAt(0) == '{') {
+                Map<String, Object> punch = JsonParser.parseObject(line);
+                Object idValue = punch.get("employeeId");
+                Object timeValue = punch.get("time");
+                id = idValue instanceof Double ? String.valueOf(((Double) idValue).longValue()) : (String) idValue;
+                timeText = timeValue instanceof Double ? String.valueOf(((Double) timeValue).longValue()) : (String) timeValue;
+                direction = (String) punch.get("direction");
+            } else {
+                int firstComma = line.indexOf(',');
+                int secondComma = line.indexOf(',', firstComma + 1);
+                if (firstComma < 0 || secondComma < 0) {
+                    return malformed();
+                }
+                int end = line.indexOf(',', secondComma + 1);
+                id = line.substring(0, firstComma).trim();
+                timeText = line.substring(firstComma + 1, secondComma).trim();
+                direction = line.substring(secondComma + 1, end < 0 ? line.length() : end).trim();
+            }
+            if (id == null || timeText == null || direction == null) {
+                return malformed();
+            }
+            employeeId = Integer.parseInt(id);
+            time = parseTime(timeText);
+            if ("IN".equalsIgnoreCase(direction) || "I".equalsIgnoreCase(direction)) {
+                in = true;
+            } else if ("OUT".equalsIgnoreCase(direction) || "O".equalsIgnoreCase(direction)) {
+                in = false;
+            } else {
+                return malformed();
+            }
+        } catch (IllegalArgumentException | ClassCastException | DateTimeException e) {
+            return malformed();
+        }
+        return accept(employeeId, time, in);
+    }
+
+    // Plant-local epoch seconds from ISO local time or epoch millis
+    private static long parseTime(String text) {
+        if (text.indexOf('-') < 0) {
+            LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(text)), PLANT_ZONE);
+            return local.toEpochSecond(ZoneOffset.UTC);
+        }
+        // Fast path for what terminals export: yyyy-MM-ddTHH:mm:ss
+        if (text.length() == 19 && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(13) == ':'
+                && text.charAt(16) == ':') {
+            LocalDate date = LocalDate.of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10));
+            int hour = digits(text, 11, 13);
+            int minute = digits(text, 14, 16);
+            int second = digits(text, 17, 19);
+            if (hour < 24 && minute < 60 && second < 60) {
+                return date.toEpochDay() * 86400 + hour * 3600 + minute * 60 + second;
+            }
+        }
+        return LocalDateTime.parse(text.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("not a digit: " + c);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Applies one punch
+     * @param employeeId Employee id
+     * @param time Plant-local epoch seconds
+     * @param in true for an in-punch, false for an out-punch
+     * @return What became of the punch
+     */
+    public synchronized Outcome accept(int employeeId, long time, boolean in) {
+        long day = Math.floorDiv(time, 86400);
+        int periodIndex = periodIndexOf(day);
+        if (!loadedPeriods.contains(cachedPeriod)) {
+            loadLatestPunches(cachedPeriod);
+        }
+        PunchState state = states.get(employeeId);
+        if (state == null) {
+            state = new PunchState();
+            states.put(employeeId, state);
+        }
+
+        Outcome outcome;
+        if (time <= state.latestPunch) {
+            outcome = Outcome.DUPLICATE;
+        } else if (in) {
+            outcome = state.openIn != Long.MIN_VALUE ? Outcome.UNPAIRED : Outcome.ACCEPTED;
+            state.openIn = time;
+            state.latestPunch = time;
+        } else if (state.openIn == Long.MIN_VALUE || time - state.openIn > MAX_SHIFT_SECONDS) {
+            outcome = Outcome.UNPAIRED;
+            state.openIn = Long.MIN_VALUE;
+            state.latestPunch = time;
+        } else {
+            // The shift belongs to the day (and period) it started on
+            long startDay = Math.floorDiv(state.openIn, 86400);
+            int startHour = (int) Math.floorMod(state.openIn, 86400L) / 3600;
+            int shiftPeriod = startDay == day ? periodIndex : periodIndexOf(startDay);
+            long key = ((long) shiftPeriod << 32) | (employeeId & 0xFFFFFFFFL);
+            AttendanceSummary summary = pending.get(key);
+            if (summary == null) {
+                summary = new AttendanceSummary(employeeId, periodName(shiftPeriod));
+                pending.put(key, summary);
+            }
+            summary.addShift((time - state.openIn) / 60, startDay != state.lastShiftDay,
+                startHour >= 20 || startHour < 4, time);
+            state.lastShiftDay = startDay;
+            state.openIn = Long.MIN_VALUE;
+            state.latestPunch = time;
+            outcome = Outcome.SHIFT;
+        }
+        totals.record(outcome);
+
+        if (pending.size() >= BATCH_SIZE) {
+            flush();
+        }
+        return outcome;
+    }
+
+    private synchronized Outcome malformed() {
+        totals.record(Outcome.MALFORMED);
+        return Outcome.MALFORMED;
+    }
+
+    /**
+     * Writes all pending summaries in one batch; on failure they stay
+     * pending and are retried after a pause
+     * @return true if nothing is left pending
+     */
+    public synchronized boolean flush() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        if (System.currentTimeMillis() < nextFlushAttempt) {
+            return false;
+        }
+        List<AttendanceSummary> batch = new ArrayList<>(pending.values());
+        if (!store.upsert(batch)) {
+            failedFlushes++;
+            nextFlushAttempt = System.currentTimeMillis() + RETRY_MS;
+            return false;
+        }
+        pending.clear();
+        flushedRows += batch.size();
+        return true;
+    }
+
+    // Period index (year * 12 + month - 1) of a plant-local day
+    private int periodIndexOf(long day) {
+        if (day != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            cachedDay = day;
+            cachedPeriodIndex = date.getYear() * 12 + date.getMonthValue() - 1;
+            cachedPeriod = periodName(cachedPeriodIndex);
+        }
+        return cachedPeriodIndex;
+    }
+
+    private static String periodName(int periodIndex) {
+        return String.format("%04d-%02d", periodIndex / 12, periodIndex % 12 + 1);
+    }
+
+    private void loadLatestPunches(String period) {
+        for (Map.Entry<Integer, Long> stored : store.findLastPunches(period).entrySet()) {
+            PunchState state = states.get(stored.getKey());
+            if (state == null) {
+                state = new PunchState();
+                states.put(stored.getKey(), state);
+            }
+            state.latestPunch = Math.max(state.latestPunch, stored.getValue());
+        }
+        loadedPeriods.add(period);
+    }
+
+    /**
+     * Accepts punch feeds on a loopback port, one line per punch, one
+     * thread per connected terminal or concentrator
+     * @param port Local port
+     * @throws IOException if the port cannot be bound
+     */
+    public void startSocketFeed(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread feed = new Thread(() -> readFeed(socket),
+                        "payroll-attendance-feed-" + feedConnections.incrementAndGet());
+                    feed.setDaemon(true);
+                    feed.start();
+                } catch (IOException e) {
+                    System.err.println("✗ Attendance feed accept failed: " + e.getMessage());
+                }
+            }
+        }, "payroll-attendance-feed");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("✓ Attendance feed listening on 127.0.0.1:" + port);
+    }
+
+    private void readFeed(Socket socket) {
+        try (Socket connection = socket) {
+            Counts counts = ingest(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            System.out.println("ℹ Attendance feed " + connection.getRemoteSocketAddress() + " closed: " + counts);
+        } catch (IOException e) {
+            System.err.println("✗ Attendance feed error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Totals since startup plus writer state, as JSON
+     */
+    public synchronized String statsToJson() {
+        totals.written = pending.isEmpty();
+        return "{\"totals\":" + totals.toJson()
+            + ",\"employeesTracked\":" + states.size()
+            + ",\"pendingSummaries\":" + pending.size()
+            + ",\"flushedSummaries\":" + flushedRows
+            + ",\"failedFlushes\":" + failedFlushes + "}";
+    }
+
+    /**
+     * Ingests punch files: java AttendanceIngestor punches.csv punches.ndjson ...
+     * @param args Files to ingest, in time order
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java AttendanceIngestor <punch file>...");
+            return;
+        }
+        AttendanceIngestor ingestor = new AttendanceIngestor(createStore());
+        for (String file : args) {
+            long start = System.currentTimeMillis();
+            try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                Counts counts = ingestor.ingest(reader);
+                System.out.println("✓ " + file + ": " + counts + " in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        if (!ingestor.flush()) {
+            System.err.println("✗ Some attendance summaries could not be written.");
+        }
+    }
+}
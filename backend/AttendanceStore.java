@@ -0,0 +1,36 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attendance Store Interface
+ * Per employee, per period attendance summaries written by the attendance
+ * ingestor and read by payroll runs.
+ */
+public interface AttendanceStore {
+
+    /**
+     * Adds summaries to the stored ones (inserting rows that do not exist
+     * yet), all or nothing
+     * @param summaries Summaries covering punches not stored before
+     * @return true if all were written
+     */
+    boolean upsert(List<AttendanceSummary> summaries);
+
+    /**
+     * Reads the summaries of a period for an id range (one payroll chunk)
+     * @param period Pay period, e.g. "2026-10"
+     * @param fromId First employee id (inclusive)
+     * @param toId Last employee id (inclusive)
+     * @return Summaries by employee id (employees without attendance are
+     *         absent), or null if they could not be read
+     */
+    Map<Integer, AttendanceSummary> findSummaries(String period, int fromId, int toId);
+
+    /**
+     * Latest punch already counted per employee in a period, so punches
+     * sent again after a restart are recognised as duplicates
+     * @param period Pay period
+     * @return Plant-local epoch seconds by employee id
+     */
+    Map<Integer, Long> findLastPunches(String period);
+}
@@ -0,0 +1,136 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Attendance Summary Class
+ * Shift attendance of one employee in one pay period, aggregated from
+ * punch events: days present, regular and overtime minutes, night shifts.
+ * Payroll runs turn it into overtime pay and night shift allowance.
+ *
+ * Times are plant-local, kept as epoch seconds of the LocalDateTime
+ * (LocalDateTime.toEpochSecond(ZoneOffset.UTC)), so day and hour are plain
+ * arithmetic.
+ *
+ * Allowance rules: -Dpayroll.attendance.shiftMinutes=480
+ * -Dpayroll.attendance.workingDays=26 -Dpayroll.attendance.overtimePercent=200
+ * -Dpayroll.attendance.nightAllowance=150
+ */
+public class AttendanceSummary {
+
+    // Minutes of a regular shift; anything beyond is overtime
+    public static final int SHIFT_MINUTES = Integer.getInteger("payroll.attendance.shiftMinutes", 480);
+    // Paid days per month used to derive the hourly rate from basic salary
+    private static final int WORKING_DAYS = Integer.getInteger("payroll.attendance.workingDays", 26);
+    // Overtime pay as a percent of the ordinary hourly rate (Factories Act: twice)
+    private static final int OVERTIME_PERCENT = Integer.getInteger("payroll.attendance.overtimePercent", 200);
+    // Flat allowance per night shift, in rupees
+    private static final int NIGHT_ALLOWANCE = Integer.getInteger("payroll.attendance.nightAllowance", 150);
+
+    private final int employeeId;
+    private final String period;        // YYYY-MM
+    private int daysPresent;
+    private long regularMinutes;
+    private long overtimeMinutes;
+    private int nightShifts;
+    private int punches;
+    private long lastPunchAt;           // plant-local epoch seconds
+
+    public AttendanceSummary(int employeeId, String period) {
+        this.employeeId = employeeId;
+        this.period = period;
+    }
+
+    public AttendanceSummary(int employeeId, String period, int daysPresent, long regularMinutes,
+                             long overtimeMinutes, int nightShifts, int punches, long lastPunchAt) {
+        this.employeeId = employeeId;
+        this.period = period;
+        this.daysPresent = daysPresent;
+        this.regularMinutes = regularMinutes;
+        this.overtimeMinutes = overtimeMinutes;
+        this.nightShifts = nightShifts;
+        this.punches = punches;
+        this.lastPunchAt = lastPunchAt;
+    }
+
+    /**
+     * Adds one completed shift
+     * @param minutes Minutes between the in and out punch
+     * @param newDay true if it is the employee's first shift on that day
+     * @param night true for a night shift
+     * @param outPunch Time of the out punch
+     */
+    public void addShift(long minutes, boolean newDay, boolean night, long outPunch) {
+        regularMinutes += Math.min(minutes, SHIFT_MINUTES);
+        overtimeMinutes += Math.max(0, minutes - SHIFT_MINUTES);
+        daysPresent += newDay ? 1 : 0;
+        nightShifts += night ? 1 : 0;
+        punches += 2;
+        lastPunchAt = Math.max(lastPunchAt, outPunch);
+    }
+
+    /**
+     * Adds another summary of the same employee and period
+     * @param other Summary to fold in
+     */
+    public void merge(AttendanceSummary other) {
+        daysPresent += other.daysPresent;
+        regularMinutes += other.regularMinutes;
+        overtimeMinutes += other.overtimeMinutes;
+        nightShifts += other.nightShifts;
+        punches += other.punches;
+        lastPunchAt = Math.max(lastPunchAt, other.lastPunchAt);
+    }
+
+    /**
+     * Overtime pay plus night shift allowance for the period
+     * @param basicSalary Monthly basic salary the hourly rate is based on
+     * @return Allowances in rupees, rounded to paise
+     */
+    public double allowanceFor(double basicSalary) {
+        double hourlyRate = basicSalary / (WORKING_DAYS * SHIFT_MINUTES / 60.0);
+        double overtimePay = overtimeMinutes / 60.0 * hourlyRate * OVERTIME_PERCENT / 100.0;
+        return Math.round((overtimePay + (double) nightShifts * NIGHT_ALLOWANCE) * 100) / 100.0;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getDaysPresent() {
+        return daysPresent;
+    }
+
+    public long getRegularMinutes() {
+        return regularMinutes;
+    }
+
+    public long getOvertimeMinutes() {
+        return overtimeMinutes;
+    }
+
+    public int getNightShifts() {
+        return nightShifts;
+    }
+
+    public int getPunches() {
+        return punches;
+    }
+
+    public long getLastPunchAt() {
+        return lastPunchAt;
+    }
+
+    public LocalDateTime getLastPunchTime() {
+        return LocalDateTime.ofEpochSecond(lastPunchAt, 0, ZoneOffset.UTC);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AttendanceSummary [ID=%d, Period=%s, Days=%d, Regular=%dh, Overtime=%dh%02dm, Nights=%d]",
+            employeeId, period, daysPresent, regularMinutes / 60, overtimeMinutes / 60, overtimeMinutes % 60, nightShifts);
+    }
+}
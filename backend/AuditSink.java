@@ -0,0 +1,20 @@
+import java.util.List;
+
+/**
+ * Audit Sink Interface
+ * Durable destination for batches of audit records
+ */
+public interface AuditSink {
+
+    /**
+     * Writes a batch durably; returns only once the batch is persisted
+     * @param batch Records in commit order
+     * @throws Exception if the batch could not be persisted (it will be retried)
+     */
+    void write(List<PayrollChange> batch) throws Exception;
+
+    /**
+     * Releases files or connections held by the sink
+     */
+    void close();
+}
@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change Journal Class
+ * Bounded ring of the last payroll.delta.journalSize (100000) changes,
+ * fed by PayrollService change events, from which /employees/delta tells
+ * a client cache what changed since the version it last saw.
+ *
+ * Every change gets the next version. Versions start at the startup time
+ * in microseconds, so they keep growing across restarts and stay within
+ * the integers JavaScript represents exactly. A version from before this
+ * process, or older than the oldest retained change, gets a reset delta.
+ *
+ * The journal keeps only which employees changed (or the revision that
+ * changed them). Their rows are read when the delta is asked for, so a
+ * client always gets the current row even when two updates of the same
+ * employee reported their events out of order. An employee that is no
+ * longer there is sent as a tombstone.
+ */
+public class ChangeJournal implements PayrollChangeListener {
+
+    public static final int CAPACITY = Integer.getInteger("payroll.delta.journalSize", 100_000);
+
+    // Sorted ids closer than this are read with one range scan
+    private static final int SCAN_GAP = 64;
+    private static final int MIN_SCAN_IDS = 8;
+
+    private final PayrollService payrollService;
+    private final long base = System.currentTimeMillis() * 1000L;
+    private final int[] employeeIds = new int[CAPACITY];                       // 0 for a revision
+    private final SalaryRevision[] revisions = new SalaryRevision[CAPACITY];  // null for single changes
+    private long version = base;
+
+    public ChangeJournal(PayrollService payrollService) {
+        this.payrollService = payrollService;
+    }
+
+    @Override
+    public synchronized void onPayrollChange(PayrollChange change) {
+        if (change.getType() == PayrollChange.Type.REVISION && change.getRevision() == null) {
+            return;
+        }
+        version++;
+        int slot = (int) (version % CAPACITY);
+        employeeIds[slot] = change.getEmployeeId();
+        revisions[slot] = change.getRevision();
+    }
+
+    /**
+     * Changes since a version the client has seen
+     * @param since Version from the client's last delta, or 0 for none
+     * @return Delta up to the current version; a reset delta if since is
+     *         unknown or older than the journal reaches
+     */
+    public EmployeeDelta changesSince(long since) {
+        long upTo;
+        int[] ids;
+        List<SalaryRevision> revised = new ArrayList<>();
+        synchronized (this) {
+            upTo = version;
+            long oldest = Math.max(base + 1, version - CAPACITY + 1);
+            if (since < oldest - 1 || since > version) {
+                return new EmployeeDelta(upTo, true, Collections.emptyList(), new int[0]);
+            }
+            ids = new int[(int) (version - since)];
+            int count = 0;
+            for (long v = since + 1; v <= version; v++) {
+                int slot = (int) (v % CAPACITY);
+                if (revisions[slot] != null) {
+                    revised.add(revisions[slot]);
+                } else {
+                    ids[count++] = employeeIds[slot];
+                }
+            }
+            ids = Arrays.copyOf(ids, count);
+        }
+
+        // Rows are read after the version was taken: every change up to it
+        // is already committed, and later ones are simply sent again next time
+        Arrays.sort(ids);
+        ids = distinct(ids);
+        List<Employee> employees = new ArrayList<>();
+        int[] deleted = new int[ids.length];
+        int deletedCount = 0;
+        boolean[] found = new boolean[ids.length];
+        int start = 0;
+        while (start < ids.length) {
+            int end = start;
+            while (end + 1 < ids.length && ids[end + 1] - ids[end] <= SCAN_GAP) {
+                end++;
+            }
+            if (end - start + 1 >= MIN_SCAN_IDS) {
+                final int first = start;
+                final int[] segment = ids;
+                final int last = end;
+                payrollService.scanEmployees(ids[start], ids[end], employee -> {
+                    int at = Arrays.binarySearch(segment, first, last + 1, employee.getId());
+                    if (at >= 0) {
+                        found[at] = true;
+                        employees.add(employee);
+                    }
+                });
+            } else {
+                for (int i = start; i <= end; i++) {
+                    Employee employee = payrollService.getEmployeeById(ids[i]);
+                    if (employee != null) {
+                        found[i] = true;
+                        employees.add(employee);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (!found[i]) {
+                deleted[deletedCount++] = ids[i];
+            }
+        }
+
+        // A revision sends everyone it covered
+        for (SalaryRevision revision : revised) {
+            int toId = Math.min(revision.getToId(), payrollService.getMaxEmployeeId());
+            payrollService.scanEmployees(revision.getFromId(), toId, employee -> {
+                if (revision.appliesTo(employee)) {
+                    employees.add(employee);
+                }
+            });
+        }
+        // Revisions can overlap single changes and each other; send each employee once, in id order
+        employees.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        List<Employee> unique = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            if (unique.isEmpty() || unique.get(unique.size() - 1).getId() != employee.getId()) {
+                unique.add(employee);
+            }
+        }
+        return new EmployeeDelta(upTo, false, unique, Arrays.copyOf(deleted, deletedCount));
+    }
+
+    private static int[] distinct(int[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}
@@ -14,10 +14,17 @@ private static final String URL = "jdbc:mysql://localhost:3306/employee_payroll_
 private static final String USERNAME = "root";  // Your MySQL username
 private static final String PASSWORD = "admin"; // Your MySQL password
 
+    // Driver options added by the server itself (slow-query capture)
+    private static final String CONNECTION_URL = URL + SlowQueryLog.connectionProperties();
+
     
     // Single connection instance (Singleton pattern)
     private static Connection connection = null;
     
+    // Second long-lived connection reserved for lookups by id, guarded by LOOKUP_LOCK
+    private static final Object LOOKUP_LOCK = new Object();
+    private static Connection lookupConnection = null;
+    
     // Private constructor to prevent instantiation
     private DatabaseConnection() {
     }
@@ -26,7 +33,7 @@ private static final String PASSWORD = "admin"; // Your MySQL password
      * Establishes and returns database connection
      * @return Connection object
      */
-    public static Connection getConnection() {
+    public static synchronized Connection getConnection() {
         try {
             // Check if connection exists and is valid
             if (connection == null || connection.isClosed()) {
@@ -34,7 +41,8 @@ private static final String PASSWORD = "admin"; // Your MySQL password
                 Class.forName("com.mysql.cj.jdbc.Driver");
                 
                 // Establish connection
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+                connection = DriverManager.getConnection(CONNECTION_URL, USERNAME, PASSWORD);
+                PayrollTelemetryHandler.instrument(connection);
                 System.out.println("✓ Database connection established successfully!");
             }
         } catch (ClassNotFoundException e) {
@@ -49,10 +57,53 @@ private static final String PASSWORD = "admin"; // Your MySQL password
         return connection;
     }
     
+    /**
+     * Returns the connection reserved for single-row lookups by id. The
+     * driver serializes the statements of one connection, so a slow search
+     * or report on the shared connection would otherwise hold up every
+     * lookup behind it.
+     * @return Connection object, or null if it cannot be established
+     */
+    public static Connection getLookupConnection() {
+        synchronized (LOOKUP_LOCK) {
+            try {
+                if (lookupConnection == null || lookupConnection.isClosed()) {
+                    lookupConnection = openConnection();
+                }
+            } catch (SQLException e) {
+                System.err.println("✗ Lookup database connection failed: " + e.getMessage());
+                lookupConnection = null;
+            }
+            return lookupConnection;
+        }
+    }
+    
+    /**
+     * Opens a separate connection for work that must not tie up the shared
+     * one, such as streaming scans or multi-statement transactions
+     * @return New connection; the caller is responsible for closing it
+     * @throws SQLException if the connection cannot be established
+     */
+    public static Connection openConnection() throws SQLException {
+        Connection dedicated = DriverManager.getConnection(CONNECTION_URL, USERNAME, PASSWORD);
+        PayrollTelemetryHandler.instrument(dedicated);
+        return dedicated;
+    }
+    
     /**
      * Closes the database connection
      */
     public static void closeConnection() {
+        synchronized (LOOKUP_LOCK) {
+            try {
+                if (lookupConnection != null) {
+                    lookupConnection.close();
+                    lookupConnection = null;
+                }
+            } catch (SQLException e) {
+                System.err.println("✗ Error closing lookup database connection: " + e.getMessage());
+            }
+        }
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Designation Dictionary Class
+ * Process-wide dictionary of designation strings. A plant has a few dozen
+ * designations shared by thousands of employees, so every designation is
+ * stored once and referred to by a small integer code. Employee interns its
+ * designation here, so rows read from the database or parsed from requests
+ * share one String per designation instead of one per row.
+ *
+ * Codes are assigned in order of first use and never reused; lookups are
+ * lock-free, only a new designation takes the lock. Codes are only asked
+ * for stored designations (rosters, history). intern() also sees unchecked
+ * request input, so it registers new designations only while the dictionary
+ * holds fewer than payroll.designations.maxInterned (4096); past that an
+ * unknown designation is returned as given.
+ */
+public final class DesignationDictionary {
+
+    private static final int MAX_INTERNED = Integer.getInteger("payroll.designations.maxInterned", 4096);
+
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int count;  // guarded by the class lock
+
+    private DesignationDictionary() {
+    }
+
+    /**
+     * Code of a designation, registering it on first use
+     * @param designation Designation text (exact, case-sensitive)
+     * @return Code, 0 or greater
+     */
+    public static int code(String designation) {
+        Integer code = CODES.get(designation);
+        if (code != null) {
+            return code;
+        }
+        synchronized (DesignationDictionary.class) {
+            code = CODES.get(designation);
+            if (code == null) {
+                if (count == names.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                }
+                code = count;
+                names[count++] = designation;
+                // Published after the name is in place, so a reader that finds
+                // the code always finds the name
+                CODES.put(designation, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Designation text of a code
+     * @param code Code returned by code()
+     * @return The shared designation String
+     */
+    public static String name(int code) {
+        return names[code];
+    }
+
+    /**
+     * Canonical instance of a designation
+     * @param designation Designation text, may be null
+     * @return The shared String equal to designation, or designation itself
+     *         if it is new and the dictionary is full; null for null
+     */
+    public static String intern(String designation) {
+        if (designation == null) {
+            return null;
+        }
+        Integer code = CODES.get(designation);
+        if (code != null) {
+            return names[code];
+        }
+        return CODES.size() < MAX_INTERNED ? names[code(designation)] : designation;
+    }
+
+    /**
+     * @return Number of distinct designations seen
+     */
+    public static int size() {
+        return CODES.size();
+    }
+}
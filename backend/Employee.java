@@ -6,11 +6,14 @@
 public class Employee {
     private int id;
     private String name;
-    private String designation;
+    private String designation;  // interned, shared by every employee with it
     private double basicSalary;
     private double hra;  // House Rent Allowance
     private double tax;
     private double netSalary;
+    private double allowances;  // overtime and night shift pay of a payslip line, not stored with the employee
+    private long createdAt;  // epoch millis, 0 if unknown
+    private long updatedAt;  // epoch millis, 0 if unknown
 
     // Default Constructor
     public Employee() {
@@ -19,7 +22,7 @@ public class Employee {
     // Parameterized Constructor (without id - for new employees)
     public Employee(String name, String designation, double basicSalary, double hra, double tax) {
         this.name = name;
-        this.designation = designation;
+        this.designation = DesignationDictionary.intern(designation);
         this.basicSalary = basicSalary;
         this.hra = hra;
         this.tax = tax;
@@ -30,7 +33,7 @@ public class Employee {
     public Employee(int id, String name, String designation, double basicSalary, double hra, double tax, double netSalary) {
         this.id = id;
         this.name = name;
-        this.designation = designation;
+        this.designation = DesignationDictionary.intern(designation);
         this.basicSalary = basicSalary;
         this.hra = hra;
         this.tax = tax;
@@ -38,9 +41,19 @@ public class Employee {
     }
 
     // Method to calculate net salary
-    // Formula: Net Salary = Basic Salary + HRA - Tax
+    // Formula: Net Salary = Basic Salary + HRA + Allowances - Tax
     public double calculateNetSalary() {
-        return basicSalary + hra - tax;
+        return basicSalary + hra + allowances - tax;
+    }
+
+    /**
+     * Replaces the entered tax with the statutory deductions (income tax,
+     * PF and ESI) for the current basic salary and HRA
+     * @param rules Compiled tax rules
+     */
+    public void applyTaxRules(TaxRules rules) {
+        this.tax = rules.monthlyDeductions(basicSalary, hra);
+        this.netSalary = calculateNetSalary();
     }
 
     // Getters and Setters
@@ -65,7 +78,7 @@ public class Employee {
     }
 
     public void setDesignation(String designation) {
-        this.designation = designation;
+        this.designation = DesignationDictionary.intern(designation);
     }
 
     public double getBasicSalary() {
@@ -103,6 +116,31 @@ public class Employee {
         this.netSalary = netSalary;
     }
 
+    public double getAllowances() {
+        return allowances;
+    }
+
+    public void setAllowances(double allowances) {
+        this.allowances = allowances;
+        this.netSalary = calculateNetSalary(); // Recalculate when allowances change
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     // toString method for easy printing
     @Override
     public String toString() {
@@ -114,6 +152,11 @@ public class Employee {
 
     // Method to display detailed payslip
     public void displayPayslip() {
+        displayPayslip(null);
+    }
+
+    // Payslip with the deductions broken down when statutory rules are in use
+    public void displayPayslip(TaxRules rules) {
         System.out.println("\n╔════════════════════════════════════════════════════════╗");
         System.out.println("║              EMPLOYEE MONTHLY PAYSLIP                  ║");
         System.out.println("║           SAIL Salem Steel Plant System                ║");
@@ -124,9 +167,18 @@ public class Employee {
         System.out.println("╠════════════════════════════════════════════════════════╣");
         System.out.printf("║ Basic Salary      : ₹%-32.2f  ║%n", basicSalary);
         System.out.printf("║ HRA               : ₹%-32.2f  ║%n", hra);
+        if (allowances > 0) {
+            System.out.printf("║ OT / Night Shift  : ₹%-32.2f  ║%n", allowances);
+        }
         System.out.println("║                     ─────────────────────────────────  ║");
-        System.out.printf("║ Gross Salary      : ₹%-32.2f  ║%n", (basicSalary + hra));
+        System.out.printf("║ Gross Salary      : ₹%-32.2f  ║%n", (basicSalary + hra + allowances));
         System.out.println("╠════════════════════════════════════════════════════════╣");
+        if (rules != null) {
+            System.out.printf("║ Income Tax (%-3s)  : ₹%-32.2f  ║%n", rules.getRegime(), rules.monthlyIncomeTax(basicSalary, hra));
+            System.out.printf("║ Provident Fund    : ₹%-32.2f  ║%n", rules.providentFund(basicSalary));
+            System.out.printf("║ ESI               : ₹%-32.2f  ║%n", rules.esi(basicSalary, hra));
+            System.out.println("║                     ─────────────────────────────────  ║");
+        }
         System.out.printf("║ Tax Deduction     : ₹%-32.2f  ║%n", tax);
         System.out.println("╠════════════════════════════════════════════════════════╣");
         System.out.printf("║ NET SALARY        : ₹%-32.2f  ║%n", netSalary);
@@ -0,0 +1,40 @@
+import java.util.List;
+
+/**
+ * Employee Delta Class
+ * What a client cache needs to catch up from one change version to the
+ * next: current rows of the employees added or changed since then, and
+ * tombstone ids of those deleted. A reset delta carries no rows; the
+ * client must reload everything and continue from its version.
+ */
+public class EmployeeDelta {
+
+    private final long version;
+    private final boolean reset;
+    private final List<Employee> employees;
+    private final int[] deletedIds;
+
+    public EmployeeDelta(long version, boolean reset, List<Employee> employees, int[] deletedIds) {
+        this.version = version;
+        this.reset = reset;
+        this.employees = employees;
+        this.deletedIds = deletedIds;
+    }
+
+    // Version to send as ?since= next time
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public int[] getDeletedIds() {
+        return deletedIds;
+    }
+}
@@ -0,0 +1,186 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Employee Roster Class
+ * Compact, read-only list of employees for listing and export. Instead of
+ * one Employee object (plus its name and designation Strings) per row, each
+ * field is a primitive column: ids, designation codes from the
+ * DesignationDictionary, salary components, and all names packed into one
+ * UTF-8 byte array. A row costs about 50 bytes plus its name, several times
+ * less than a List of Employee, and there is nothing for the GC to trace.
+ *
+ * Rows are read by index (flyweight style); toEmployee() materializes one
+ * when an Employee object is really needed.
+ */
+public final class EmployeeRoster {
+
+    private final int size;
+    private final int[] ids;
+    private final int[] designationCodes;
+    private final double[] basicSalaries;
+    private final double[] hras;
+    private final double[] taxes;
+    private final double[] netSalaries;
+    private final int[] nameOffsets;   // size + 1 entries; row i is [offsets[i], offsets[i + 1])
+    private final byte[] names;
+
+    private EmployeeRoster(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.designationCodes = Arrays.copyOf(builder.designationCodes, size);
+        this.basicSalaries = Arrays.copyOf(builder.basicSalaries, size);
+        this.hras = Arrays.copyOf(builder.hras, size);
+        this.taxes = Arrays.copyOf(builder.taxes, size);
+        this.netSalaries = Arrays.copyOf(builder.netSalaries, size);
+        this.nameOffsets = Arrays.copyOf(builder.nameOffsets, size + 1);
+        this.names = Arrays.copyOf(builder.names, builder.nameOffsets[size]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        int start = nameOffsets[row];
+        return new String(names, start, nameOffsets[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    public int getDesignationCode(int row) {
+        return designationCodes[row];
+    }
+
+    public String getDesignation(int row) {
+        return DesignationDictionary.name(designationCodes[row]);
+    }
+
+    public double getBasicSalary(int row) {
+        return basicSalaries[row];
+    }
+
+    public double getHra(int row) {
+        return hras[row];
+    }
+
+    public double getTax(int row) {
+        return taxes[row];
+    }
+
+    public double getNetSalary(int row) {
+        return netSalaries[row];
+    }
+
+    /**
+     * Finds an employee's row; rows are in id order
+     * @param id Employee id
+     * @return Row index, or a negative number if the id is not in the roster
+     */
+    public int indexOf(int id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    /**
+     * Materializes one row as an Employee
+     * @param row Row index
+     * @return New Employee with the row's values
+     */
+    public Employee toEmployee(int row) {
+        return new Employee(ids[row], getName(row), getDesignation(row),
+            basicSalaries[row], hras[row], taxes[row], netSalaries[row]);
+    }
+
+    /**
+     * Materializes every row in turn, in id order
+     * @param consumer Receives each employee
+     * @return Number of employees visited
+     */
+    public int forEachEmployee(Consumer<Employee> consumer) {
+        for (int row = 0; row < size; row++) {
+            consumer.accept(toEmployee(row));
+        }
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint of the column arrays
+     * @return Bytes
+     */
+    public long estimatedBytes() {
+        return 16L * 9 + (long) size * (4 + 4 + 8 * 4 + 4) + names.length;
+    }
+
+    /**
+     * Appends rows column by column; not thread-safe
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids;
+        private int[] designationCodes;
+        private double[] basicSalaries;
+        private double[] hras;
+        private double[] taxes;
+        private double[] netSalaries;
+        private int[] nameOffsets;
+        private byte[] names;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            ids = new int[capacity];
+            designationCodes = new int[capacity];
+            basicSalaries = new double[capacity];
+            hras = new double[capacity];
+            taxes = new double[capacity];
+            netSalaries = new double[capacity];
+            nameOffsets = new int[capacity + 1];
+            names = new byte[capacity * 16];
+        }
+
+        public Builder add(int id, String name, String designation,
+                           double basicSalary, double hra, double tax, double netSalary) {
+            if (size == ids.length) {
+                grow();
+            }
+            byte[] nameBytes = (name != null ? name : "").getBytes(StandardCharsets.UTF_8);
+            int nameStart = nameOffsets[size];
+            if (nameStart + nameBytes.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameStart + nameBytes.length));
+            }
+            System.arraycopy(nameBytes, 0, names, nameStart, nameBytes.length);
+
+            ids[size] = id;
+            designationCodes[size] = DesignationDictionary.code(designation != null ? designation : "");
+            basicSalaries[size] = basicSalary;
+            hras[size] = hra;
+            taxes[size] = tax;
+            netSalaries[size] = netSalary;
+            nameOffsets[size + 1] = nameStart + nameBytes.length;
+            size++;
+            return this;
+        }
+
+        public Builder add(Employee e) {
+            return add(e.getId(), e.getName(), e.getDesignation(),
+                e.getBasicSalary(), e.getHra(), e.getTax(), e.getNetSalary());
+        }
+
+        public EmployeeRoster build() {
+            return new EmployeeRoster(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            designationCodes = Arrays.copyOf(designationCodes, capacity);
+            basicSalaries = Arrays.copyOf(basicSalaries, capacity);
+            hras = Arrays.copyOf(hras, capacity);
+            taxes = Arrays.copyOf(taxes, capacity);
+            netSalaries = Arrays.copyOf(netSalaries, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Employee Search Class
+ * Criteria of a composite employee search. Every criterion is optional and
+ * all given criteria must match: name prefix, designation (exact, case
+ * insensitive), net salary range, tax band and created/updated time ranges.
+ * Ranges are inclusive; a null bound is open.
+ */
+public class EmployeeSearch {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private String namePrefix;
+    private String designation;
+    private Double minNetSalary;
+    private Double maxNetSalary;
+    private Double minTax;
+    private Double maxTax;
+    private Long createdFrom;   // epoch millis
+    private Long createdTo;
+    private Long updatedFrom;
+    private Long updatedTo;
+    private int limit = DEFAULT_LIMIT;
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public EmployeeSearch setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix == null || namePrefix.isEmpty() ? null : namePrefix;
+        return this;
+    }
+
+    public String getDesignation() {
+        return designation;
+    }
+
+    public EmployeeSearch setDesignation(String designation) {
+        this.designation = designation == null || designation.isEmpty() ? null : designation;
+        return this;
+    }
+
+    public Double getMinNetSalary() {
+        return minNetSalary;
+    }
+
+    public Double getMaxNetSalary() {
+        return maxNetSalary;
+    }
+
+    public EmployeeSearch setNetSalaryRange(Double min, Double max) {
+        this.minNetSalary = min;
+        this.maxNetSalary = max;
+        return this;
+    }
+
+    public Double getMinTax() {
+        return minTax;
+    }
+
+    public Double getMaxTax() {
+        return maxTax;
+    }
+
+    public EmployeeSearch setTaxRange(Double min, Double max) {
+        this.minTax = min;
+        this.maxTax = max;
+        return this;
+    }
+
+    public Long getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public Long getCreatedTo() {
+        return createdTo;
+    }
+
+    public EmployeeSearch setCreatedRange(Long from, Long to) {
+        this.createdFrom = from;
+        this.createdTo = to;
+        return this;
+    }
+
+    public Long getUpdatedFrom() {
+        return updatedFrom;
+    }
+
+    public Long getUpdatedTo() {
+        return updatedTo;
+    }
+
+    public EmployeeSearch setUpdatedRange(Long from, Long to) {
+        this.updatedFrom = from;
+        this.updatedTo = to;
+        return this;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public EmployeeSearch setLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public boolean hasNetSalaryRange() {
+        return minNetSalary != null || maxNetSalary != null;
+    }
+
+    public boolean hasTaxRange() {
+        return minTax != null || maxTax != null;
+    }
+
+    public boolean hasCreatedRange() {
+        return createdFrom != null || createdTo != null;
+    }
+
+    public boolean hasUpdatedRange() {
+        return updatedFrom != null || updatedTo != null;
+    }
+
+    /**
+     * Checks an employee against every criterion
+     * @param employee Employee to test
+     * @return true if all given criteria match
+     */
+    public boolean matches(Employee employee) {
+        String name = employee.getName();
+        if (namePrefix != null
+                && (name == null || !name.regionMatches(true, 0, namePrefix, 0, namePrefix.length()))) {
+            return false;
+        }
+        if (designation != null && !designation.equalsIgnoreCase(employee.getDesignation())) {
+            return false;
+        }
+        return inRange(employee.getNetSalary(), minNetSalary, maxNetSalary)
+            && inRange(employee.getTax(), minTax, maxTax)
+            && inRange(employee.getCreatedAt(), createdFrom, createdTo)
+            && inRange(employee.getUpdatedAt(), updatedFrom, updatedTo);
+    }
+
+    private static boolean inRange(double value, Double min, Double max) {
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    private static boolean inRange(long value, Long from, Long to) {
+        return (from == null || value >= from) && (to == null || value <= to);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EmployeeSearch [Name=%s*, Designation=%s, Net=%s-%s, Tax=%s-%s, Created=%s-%s, Updated=%s-%s, Limit=%d]",
+            namePrefix, designation, minNetSalary, maxNetSalary, minTax, maxTax,
+            createdFrom, createdTo, updatedFrom, updatedTo, limit);
+    }
+}
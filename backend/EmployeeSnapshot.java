@@ -0,0 +1,32 @@
+import java.util.function.Consumer;
+
+/**
+ * Employee Snapshot Interface
+ * One consistent version of the employee records, readable for as long as
+ * a long operation (a payroll run) needs it. Writes carry on meanwhile and
+ * are not seen by the snapshot. Close it when done: it may hold a database
+ * connection and an open read view.
+ */
+public interface EmployeeSnapshot extends AutoCloseable {
+
+    /**
+     * @return Snapshot id: the salary history high-water mark the snapshot
+     *         sees. Passing it to PayrollRepository.openSnapshot re-opens
+     *         the same version.
+     */
+    long getId();
+
+    /**
+     * Streams employees with ids in [fromId, toId] in id order, as of the
+     * snapshot
+     * @param fromId First id (inclusive)
+     * @param toId Last id (inclusive)
+     * @param consumer Receives each employee
+     * @return Number of employees visited, or -1 if the snapshot could not
+     *         be read
+     */
+    int scanEmployees(int fromId, int toId, Consumer<Employee> consumer);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * File Audit Sink Class
+ * Appends audit records as NDJSON (one JSON object per line) to segment
+ * files named audit-yyyyMMdd-HHmmss.ndjson. Each batch is one write followed
+ * by one fsync; a segment is closed and a new one started once it passes
+ * the size limit (-Dpayroll.audit.segmentMb=64). Segments are never
+ * rewritten, so they can be shipped or archived as soon as they roll.
+ */
+public class FileAuditSink implements AuditSink {
+
+    private static final long SEGMENT_BYTES = Long.getLong("payroll.audit.segmentMb", 64) * 1024 * 1024;
+
+    private final Path directory;
+    private FileChannel segment;
+    private long segmentSize;
+
+    public FileAuditSink(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        System.out.println("ℹ Audit log: appending to " + this.directory.toAbsolutePath());
+    }
+
+    @Override
+    public void write(List<PayrollChange> batch) throws IOException {
+        StringBuilder lines = new StringBuilder(batch.size() * 256);
+        for (PayrollChange change : batch) {
+            lines.append(change.toJson()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        if (segment == null || segmentSize >= SEGMENT_BYTES) {
+            rollSegment();
+        }
+        while (buffer.hasRemaining()) {
+            segmentSize += segment.write(buffer);
+        }
+        segment.force(false);
+    }
+
+    private void rollSegment() throws IOException {
+        close();
+        String name = "audit-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".ndjson";
+        segment = FileChannel.open(directory.resolve(name),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = segment.size();
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                System.out.println("✗ Error closing audit segment: " + e.getMessage());
+            }
+            segment = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-Memory Attendance Store Class
+ * Attendance summaries for the in-memory repository (demo mode, tests,
+ * benchmarks). Not durable across restarts.
+ */
+public class InMemoryAttendanceStore implements AttendanceStore {
+
+    // period -> employee id -> summary
+    private final Map<String, TreeMap<Integer, AttendanceSummary>> periods = new HashMap<>();
+
+    @Override
+    public synchronized boolean upsert(List<AttendanceSummary> summaries) {
+        for (AttendanceSummary summary : summaries) {
+            TreeMap<Integer, AttendanceSummary> period =
+                periods.computeIfAbsent(summary.getPeriod(), p -> new TreeMap<>());
+            AttendanceSummary stored = period.get(summary.getEmployeeId());
+            if (stored == null) {
+                stored = new AttendanceSummary(summary.getEmployeeId(), summary.getPeriod());
+                period.put(summary.getEmployeeId(), stored);
+            }
+            stored.merge(summary);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized Map<Integer, AttendanceSummary> findSummaries(String period, int fromId, int toId) {
+        Map<Integer, AttendanceSummary> found = new HashMap<>();
+        TreeMap<Integer, AttendanceSummary> stored = periods.get(period);
+        if (stored != null) {
+            for (AttendanceSummary summary : stored.subMap(fromId, true, toId, true).values()) {
+                found.put(summary.getEmployeeId(), copyOf(summary));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized Map<Integer, Long> findLastPunches(String period) {
+        Map<Integer, Long> lastPunches = new HashMap<>();
+        TreeMap<Integer, AttendanceSummary> stored = periods.get(period);
+        if (stored != null) {
+            for (AttendanceSummary summary : stored.values()) {
+                lastPunches.put(summary.getEmployeeId(), summary.getLastPunchAt());
+            }
+        }
+        return lastPunches;
+    }
+
+    private static AttendanceSummary copyOf(AttendanceSummary summary) {
+        AttendanceSummary copy = new AttendanceSummary(summary.getEmployeeId(), summary.getPeriod());
+        copy.merge(summary);
+        return copy;
+    }
+}
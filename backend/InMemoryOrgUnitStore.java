@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * In-Memory Org Unit Store Class
+ * Organisation hierarchy for the in-memory repository (demo mode, tests,
+ * benchmarks). Not durable across restarts.
+ */
+public class InMemoryOrgUnitStore implements OrgUnitStore {
+
+    private final TreeMap<Integer, OrgUnit> units = new TreeMap<>();
+    private final Map<Integer, Integer> assignments = new HashMap<>();
+    private int nextId = 1;
+
+    /**
+     * Creates a store with a sample hierarchy matching the demo employees
+     * @return Store with a plant, its divisions, departments and cost centers
+     */
+    public static InMemoryOrgUnitStore withSampleData() {
+        InMemoryOrgUnitStore store = new InMemoryOrgUnitStore();
+        int plant = store.addUnit(0, "Salem Steel Plant", OrgUnit.Kind.PLANT).getId();
+        int melting = store.addUnit(plant, "Steel Melting Shop", OrgUnit.Kind.DIVISION).getId();
+        int rolling = store.addUnit(plant, "Cold Rolling Mill", OrgUnit.Kind.DIVISION).getId();
+        int services = store.addUnit(plant, "Services", OrgUnit.Kind.DIVISION).getId();
+        int production = store.addUnit(rolling, "Production", OrgUnit.Kind.DEPARTMENT).getId();
+        int maintenance = store.addUnit(rolling, "Maintenance", OrgUnit.Kind.DEPARTMENT).getId();
+        int hr = store.addUnit(services, "Human Resources", OrgUnit.Kind.DEPARTMENT).getId();
+        int safety = store.addUnit(services, "Safety", OrgUnit.Kind.DEPARTMENT).getId();
+        int design = store.addUnit(melting, "Design Engineering", OrgUnit.Kind.DEPARTMENT).getId();
+        int zMill = store.addUnit(production, "CC-3110 Z-Mill Operations", OrgUnit.Kind.COST_CENTER).getId();
+        int mechanical = store.addUnit(maintenance, "CC-3150 Mechanical Maintenance", OrgUnit.Kind.COST_CENTER).getId();
+        int[] unitOfSample = {design, hr, zMill, safety, mechanical};
+        for (int i = 0; i < unitOfSample.length; i++) {
+            store.assignments.put(i + 1, unitOfSample[i]);
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized List<OrgUnit> loadUnits() {
+        // Ids grow, and a parent always exists before its children
+        return new ArrayList<>(units.values());
+    }
+
+    @Override
+    public boolean loadAssignments(BiConsumer<Integer, Integer> consumer) {
+        Map<Integer, Integer> copy;
+        synchronized (this) {
+            copy = new HashMap<>(assignments);
+        }
+        copy.forEach(consumer);
+        return true;
+    }
+
+    @Override
+    public synchronized OrgUnit addUnit(int parentId, String name, OrgUnit.Kind kind) {
+        if (parentId != 0 && !units.containsKey(parentId)) {
+            return null;
+        }
+        OrgUnit unit = new OrgUnit(nextId++, parentId, name, kind);
+        units.put(unit.getId(), unit);
+        return unit;
+    }
+
+    @Override
+    public synchronized boolean assign(List<Integer> employeeIds, int unitId) {
+        for (Integer employeeId : employeeIds) {
+            if (unitId == 0) {
+                assignments.remove(employeeId);
+            } else {
+                assignments.put(employeeId, unitId);
+            }
+        }
+        return true;
+    }
+}
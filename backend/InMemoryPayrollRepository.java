@@ -0,0 +1,763 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * In-Memory Payroll Repository Class
+ * Concurrent, database-free PayrollRepository for unit tests, benchmarks
+ * and the embedded demo mode.
+ *
+ * - Employees live in an int-keyed open-addressing table (no boxed keys)
+ *   split into lock stripes; reads are optimistic and normally take no lock
+ * - Writes lock only the stripe that owns the id
+ * - A secondary index maps each designation to its employee ids, so a
+ *   designation search touches the few dozen distinct designations rather
+ *   than every employee
+ * - Per-designation totals are kept in cents and adjusted on every write,
+ *   so aggregates never scan
+ * - Sorted secondary indexes on designation, name prefix, net salary, tax
+ *   and the created/updated times let a composite search start from
+ *   whichever criterion matches the fewest employees
+ * - Every write also appends a version to a SalaryHistoryIndex holding
+ *   the complete history, for as-of queries and payroll run snapshots
+ *
+ * Stored records are private copies; callers always get their own copy.
+ */
+public class InMemoryPayrollRepository implements PayrollRepository {
+
+    private static final int STRIPES = 64; // power of two
+    private static final int NAME_CHARS = 12;  // 38^12 still fits in a positive long
+    private static final int NAME_RADIX = 38;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentHashMap<String, Set<Integer>> designationIndex = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Totals> totalsByDesignation = new ConcurrentHashMap<>();
+    // Keyed by (designation number << 32 | id), so one designation reads in id order
+    private final SortedLongIndex designationIdIndex = new SortedLongIndex("designation");
+    private final ConcurrentHashMap<String, Integer> designationNumbers = new ConcurrentHashMap<>();
+    private final AtomicInteger nextDesignationNumber = new AtomicInteger();
+    private final SortedLongIndex nameIndex = new SortedLongIndex("name");
+    private final SortedLongIndex netSalaryIndex = new SortedLongIndex("net_salary");
+    private final SortedLongIndex taxIndex = new SortedLongIndex("tax");
+    private final SortedLongIndex createdIndex = new SortedLongIndex("created_at");
+    private final SortedLongIndex updatedIndex = new SortedLongIndex("updated_at");
+    private final SalaryHistoryIndex history = new SalaryHistoryIndex(Long.MIN_VALUE);
+
+    public InMemoryPayrollRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Creates a repository pre-loaded with the sample employees from
+     * payroll_db_setup.sql, for the embedded demo mode
+     * @return Seeded repository
+     */
+    public static InMemoryPayrollRepository withSampleData() {
+        InMemoryPayrollRepository repository = new InMemoryPayrollRepository();
+        repository.addEmployee(new Employee("Rajesh Kumar", "Senior Engineer", 50000.00, 15000.00, 8000.00));
+        repository.addEmployee(new Employee("Priya Sharma", "HR Manager", 45000.00, 13500.00, 7000.00));
+        repository.addEmployee(new Employee("Amit Singh", "Production Supervisor", 38000.00, 11400.00, 5500.00));
+        repository.addEmployee(new Employee("Sneha Reddy", "Safety Officer", 35000.00, 10500.00, 5000.00));
+        repository.addEmployee(new Employee("Vikram Patel", "Maintenance Technician", 28000.00, 8400.00, 3500.00));
+        return repository;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    @Override
+    public boolean addEmployee(Employee employee) {
+        int id = nextId.getAndIncrement();
+        Employee stored = copyOf(employee);
+        stored.setId(id);
+        stored.setNetSalary(stored.calculateNetSalary());
+        long now = System.currentTimeMillis();
+        stored.setCreatedAt(now);
+        stored.setUpdatedAt(now);
+
+        Stripe stripe = stripeFor(id);
+        long stamp = stripe.lock.writeLock();
+        try {
+            stripe.put(id, stored);
+            indexAdd(stored);
+            history.record(id, now, stored);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        size.incrementAndGet();
+        employee.setId(id);
+        return true;
+    }
+
+    @Override
+    public boolean updateEmployee(Employee employee) {
+        int id = employee.getId();
+        Employee stored = copyOf(employee);
+        stored.setNetSalary(stored.calculateNetSalary());
+
+        Stripe stripe = stripeFor(id);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Employee previous = stripe.get(id);
+            if (previous == null) {
+                return false;
+            }
+            stored.setCreatedAt(previous.getCreatedAt());
+            stored.setUpdatedAt(System.currentTimeMillis());
+            stripe.put(id, stored);
+            indexRemove(previous);
+            indexAdd(stored);
+            history.record(id, stored.getUpdatedAt(), stored);
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean deleteEmployee(int employeeId) {
+        Stripe stripe = stripeFor(employeeId);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Employee previous = stripe.remove(employeeId);
+            if (previous == null) {
+                return false;
+            }
+            indexRemove(previous);
+            history.record(employeeId, System.currentTimeMillis(), null);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    @Override
+    public Employee getEmployeeById(int employeeId) {
+        Employee stored = read(employeeId);
+        return stored != null ? copyOf(stored) : null;
+    }
+
+    @Override
+    public List<Employee> getAllEmployees() {
+        List<Employee> result = new ArrayList<>(size.get());
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                stripe.collect(result);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        result.sort(Comparator.comparingInt(Employee::getId));
+        return result;
+    }
+
+    @Override
+    public List<Employee> searchByDesignation(String designation) {
+        // Same semantics as SQL "designation LIKE %x%" with a case-insensitive collation,
+        // but matched against distinct designations only
+        String needle = designation.toLowerCase();
+        List<Employee> result = new ArrayList<>();
+        for (Map.Entry<String, Set<Integer>> entry : designationIndex.entrySet()) {
+            if (!entry.getKey().toLowerCase().contains(needle)) {
+                continue;
+            }
+            for (Integer id : entry.getValue()) {
+                Employee stored = read(id);
+                // The index may briefly lag a concurrent update; re-check
+                if (stored != null && stored.getDesignation().equals(entry.getKey())) {
+                    result.add(copyOf(stored));
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(Employee::getId));
+        return result;
+    }
+
+    @Override
+    public double calculateTotalPayrollExpense() {
+        long cents = 0;
+        for (Totals totals : totalsByDesignation.values()) {
+            cents += totals.netCents.get();
+        }
+        return cents / 100.0;
+    }
+
+    @Override
+    public int countEmployees() {
+        return size.get();
+    }
+
+    @Override
+    public int getMaxEmployeeId() {
+        // Ids are never reused, so the last assigned id bounds every live one
+        return nextId.get() - 1;
+    }
+
+    @Override
+    public List<PayrollAggregate> aggregateByDesignation() {
+        Map<String, PayrollAggregate> sorted = new TreeMap<>();
+        for (Map.Entry<String, Totals> entry : totalsByDesignation.entrySet()) {
+            Totals totals = entry.getValue();
+            int count = totals.count.get();
+            if (count > 0) {
+                sorted.put(entry.getKey(), new PayrollAggregate(entry.getKey(), count,
+                    totals.basicCents.get() / 100.0, totals.hraCents.get() / 100.0,
+                    totals.taxCents.get() / 100.0, totals.netCents.get() / 100.0));
+            }
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    @Override
+    public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+        return visitStored(fromId, toId, stored -> consumer.accept(copyOf(stored)));
+    }
+
+    @Override
+    public EmployeeRoster loadRoster() {
+        EmployeeRoster.Builder roster = new EmployeeRoster.Builder(size.get());
+        // Straight from the stored records; no per-row copies
+        visitStored(1, getMaxEmployeeId(), roster::add);
+        return roster.build();
+    }
+
+    @Override
+    public Employee getEmployeeAsOf(int employeeId, long asOf) {
+        return history.find(employeeId, asOf);
+    }
+
+    @Override
+    public EmployeeRoster loadRosterAsOf(long asOf) {
+        return history.rosterAsOf(asOf);
+    }
+
+    @Override
+    public long getChangeVersion() {
+        return history.version();
+    }
+
+    @Override
+    public boolean writeBatch(List<Employee> updates, List<Integer> deletedIds) {
+        for (Employee employee : updates) {
+            updateEmployee(employee);
+        }
+        for (Integer employeeId : deletedIds) {
+            deleteEmployee(employeeId);
+        }
+        return true;
+    }
+
+    /**
+     * A snapshot is a version count of the history index: it reads each
+     * employee's newest version recorded before that count. Writers append
+     * versions as usual, so they never wait for a snapshot.
+     */
+    @Override
+    public EmployeeSnapshot openSnapshot(long snapshotId) {
+        int current = history.version();
+        int version = snapshotId > 0 && snapshotId <= current ? (int) snapshotId : current;
+        return new EmployeeSnapshot() {
+            @Override
+            public long getId() {
+                return version;
+            }
+
+            @Override
+            public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+                List<Employee> employees = history.scanAtVersion(version, fromId, toId);
+                employees.forEach(consumer);
+                return employees.size();
+            }
+
+            @Override
+            public void close() {
+                // Nothing held
+            }
+        };
+    }
+
+    // Visits the stored records (not copies) with ids in [fromId, toId] in id order
+    private int visitStored(int fromId, int toId, Consumer<Employee> consumer) {
+        if (fromId > toId) {
+            return 0;
+        }
+        int visited = 0;
+        long span = (long) toId - fromId + 1;
+
+        if (span <= 2L * size.get()) {
+            // Narrow range: probe ids directly, already in order
+            for (long id = fromId; id <= toId; id++) {
+                Employee stored = read((int) id);
+                if (stored != null) {
+                    consumer.accept(stored);
+                    visited++;
+                }
+            }
+            return visited;
+        }
+
+        // Wide, sparse range: sort the matching ids once, then visit in order
+        int[] ids = new int[size.get() + 16];
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                int[] keys = stripe.keys;
+                for (int key : keys) {
+                    if (key > 0 && key >= fromId && key <= toId) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = key;
+                    }
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        for (int i = 0; i < count; i++) {
+            Employee stored = read(ids[i]);
+            if (stored != null) {
+                consumer.accept(stored);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public RevisionResult applyRevision(SalaryRevision revision) {
+        long start = System.currentTimeMillis();
+        List<Employee> matching = new ArrayList<>();
+        scanEmployees(revision.getFromId(), revision.getToId(), e -> {
+            if (revision.appliesTo(e)) {
+                matching.add(e);
+            }
+        });
+
+        long beforeCents = 0;
+        long afterCents = 0;
+        int updated = 0;
+        for (Employee e : matching) {
+            if (revision.isDryRun()) {
+                Employee revised = copyOf(e);
+                revision.revise(revised);
+                beforeCents += toCents(e.getNetSalary());
+                afterCents += toCents(revised.getNetSalary());
+                updated++;
+                continue;
+            }
+            // Re-read under the stripe lock so a concurrent edit is not lost
+            Stripe stripe = stripeFor(e.getId());
+            long stamp = stripe.lock.writeLock();
+            try {
+                Employee current = stripe.get(e.getId());
+                if (current == null || !revision.appliesTo(current)) {
+                    continue;
+                }
+                Employee revised = copyOf(current);
+                revision.revise(revised);
+                revised.setUpdatedAt(System.currentTimeMillis());
+                stripe.put(revised.getId(), revised);
+                indexRemove(current);
+                indexAdd(revised);
+                history.record(revised.getId(), revised.getUpdatedAt(), revised);
+                beforeCents += toCents(current.getNetSalary());
+                afterCents += toCents(revised.getNetSalary());
+                updated++;
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+
+        int chunks = matching.isEmpty() ? 0
+            : (matching.get(matching.size() - 1).getId() - matching.get(0).getId()) / SalaryRevision.CHUNK_SIZE + 1;
+        return new RevisionResult(revision.isDryRun(), updated, chunks, beforeCents / 100.0, afterCents / 100.0,
+            System.currentTimeMillis() - start, true, revision.isDryRun() ? 0 : revision.getToId());
+    }
+
+    /**
+     * Plans and runs a composite search. Each given criterion that has an
+     * index is a candidate access path; the one with the fewest estimated
+     * ids is read (in id order) and every employee found is checked against
+     * the full criteria until the limit is reached.
+     * @param search Search criteria
+     * @return Matching employees in id order, with the chosen plan
+     */
+    @Override
+    public SearchResult search(EmployeeSearch search) {
+        long start = System.nanoTime();
+        AccessPath best = null;
+        if (search.getDesignation() != null) {
+            Integer number = designationNumbers.get(normalizeDesignation(search.getDesignation()));
+            if (number == null) {
+                return new SearchResult(new ArrayList<>(), "designation index", 0, (System.nanoTime() - start) / 1000);
+            }
+            best = cheaper(best, designationIdIndex, (long) number << 32, ((long) number << 32) | 0xFFFFFFFFL);
+        }
+        if (search.getNamePrefix() != null) {
+            best = cheaper(best, nameIndex, nameKey(search.getNamePrefix(), 0),
+                nameKey(search.getNamePrefix(), NAME_RADIX - 1));
+        }
+        if (search.hasNetSalaryRange()) {
+            best = cheaper(best, netSalaryIndex, lowerKey(search.getMinNetSalary()),
+                upperKey(search.getMaxNetSalary()));
+        }
+        if (search.hasTaxRange()) {
+            best = cheaper(best, taxIndex, lowerKey(search.getMinTax()), upperKey(search.getMaxTax()));
+        }
+        if (search.hasCreatedRange()) {
+            best = cheaper(best, createdIndex, lowerKey(search.getCreatedFrom()), upperKey(search.getCreatedTo()));
+        }
+        if (search.hasUpdatedRange()) {
+            best = cheaper(best, updatedIndex, lowerKey(search.getUpdatedFrom()), upperKey(search.getUpdatedTo()));
+        }
+
+        List<Employee> result = new ArrayList<>();
+        int examined = 0;
+        String plan;
+        if (best == null) {
+            // No criteria: walk ids in order until the limit is reached
+            plan = "id scan";
+            int maxId = getMaxEmployeeId();
+            for (int id = 1; id <= maxId && result.size() < search.getLimit(); id++) {
+                Employee stored = read(id);
+                if (stored != null) {
+                    examined++;
+                    if (search.matches(stored)) {
+                        result.add(copyOf(stored));
+                    }
+                }
+            }
+        } else if (best.index == designationIdIndex) {
+            // Already in id order: stop as soon as the limit is reached
+            plan = "designation index";
+            int[] counter = new int[1];
+            best.index.scan(best.from, best.to, id -> {
+                Employee stored = read(id);
+                counter[0]++;
+                if (stored != null && search.matches(stored)) {
+                    result.add(copyOf(stored));
+                }
+                return result.size() < search.getLimit();
+            });
+            examined = counter[0];
+        } else {
+            plan = best.index.getName() + " index";
+            int[] ids = best.index.range(best.from, best.to);
+            Arrays.sort(ids);
+            for (int i = 0; i < ids.length && result.size() < search.getLimit(); i++) {
+                Employee stored = read(ids[i]);
+                examined++;
+                // Every criterion is re-checked, including the one the index served,
+                // since an index may briefly lag a concurrent update
+                if (stored != null && search.matches(stored)) {
+                    result.add(copyOf(stored));
+                }
+            }
+        }
+        return new SearchResult(result, plan, examined, (System.nanoTime() - start) / 1000);
+    }
+
+    // Lock-free read when no writer is active on the stripe
+    private Employee read(int id) {
+        Stripe stripe = stripeFor(id);
+        long stamp = stripe.lock.tryOptimisticRead();
+        Employee stored = stripe.get(id);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                stored = stripe.get(id);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return stored;
+    }
+
+    private Stripe stripeFor(int id) {
+        return stripes[mix(id) & (STRIPES - 1)];
+    }
+
+    private void indexAdd(Employee e) {
+        designationIndex.computeIfAbsent(e.getDesignation(), k -> ConcurrentHashMap.newKeySet()).add(e.getId());
+        totalsFor(e.getDesignation()).add(e, 1);
+        int number = designationNumbers.computeIfAbsent(normalizeDesignation(e.getDesignation()),
+            k -> nextDesignationNumber.incrementAndGet());
+        designationIdIndex.put(e.getId(), ((long) number << 32) | e.getId());
+        nameIndex.put(e.getId(), nameKey(e.getName(), 0));
+        netSalaryIndex.put(e.getId(), toCents(e.getNetSalary()));
+        taxIndex.put(e.getId(), toCents(e.getTax()));
+        createdIndex.put(e.getId(), e.getCreatedAt());
+        updatedIndex.put(e.getId(), e.getUpdatedAt());
+    }
+
+    private void indexRemove(Employee e) {
+        Set<Integer> ids = designationIndex.get(e.getDesignation());
+        if (ids != null) {
+            ids.remove(e.getId());
+        }
+        totalsFor(e.getDesignation()).add(e, -1);
+        designationIdIndex.remove(e.getId());
+        nameIndex.remove(e.getId());
+        netSalaryIndex.remove(e.getId());
+        taxIndex.remove(e.getId());
+        createdIndex.remove(e.getId());
+        updatedIndex.remove(e.getId());
+    }
+
+    private Totals totalsFor(String designation) {
+        return totalsByDesignation.computeIfAbsent(designation, k -> new Totals());
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static Employee copyOf(Employee e) {
+        Employee copy = new Employee(e.getId(), e.getName(), e.getDesignation(),
+            e.getBasicSalary(), e.getHra(), e.getTax(), e.getNetSalary());
+        copy.setCreatedAt(e.getCreatedAt());
+        copy.setUpdatedAt(e.getUpdatedAt());
+        return copy;
+    }
+
+    /**
+     * Orders names by their first NAME_CHARS characters, case-insensitively,
+     * as base-38 digits (0 = past the end, 1 = any other character, then
+     * digits and letters). All names starting with a prefix fall between the
+     * prefix padded with 0 and the prefix padded with 37.
+     */
+    private static long nameKey(String name, int pad) {
+        long key = 0;
+        for (int i = 0; i < NAME_CHARS; i++) {
+            int digit = pad;
+            if (name != null && i < name.length()) {
+                char c = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+                if (c >= '0' && c <= '9') {
+                    digit = 2 + (c - '0');
+                } else if (c >= 'a' && c <= 'z') {
+                    digit = 12 + (c - 'a');
+                } else {
+                    digit = 1;
+                }
+            }
+            key = key * NAME_RADIX + digit;
+        }
+        return key;
+    }
+
+    // Index bounds in cents; slightly wide, since matches() has the final say
+    private static long lowerKey(Double amount) {
+        return amount != null ? (long) Math.floor(amount * 100.0) : Long.MIN_VALUE + 1;
+    }
+
+    private static long upperKey(Double amount) {
+        return amount != null ? (long) Math.ceil(amount * 100.0) : Long.MAX_VALUE;
+    }
+
+    private static long lowerKey(Long millis) {
+        return millis != null ? millis : Long.MIN_VALUE + 1;
+    }
+
+    private static long upperKey(Long millis) {
+        return millis != null ? millis : Long.MAX_VALUE;
+    }
+
+    private static String normalizeDesignation(String designation) {
+        return designation.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private static AccessPath cheaper(AccessPath best, SortedLongIndex index, long from, long to) {
+        int estimate = index.estimate(from, to);
+        return best == null || estimate < best.estimate ? new AccessPath(index, from, to, estimate) : best;
+    }
+
+    // A candidate way into the data for a search: a key range of one index
+    private static final class AccessPath {
+        final SortedLongIndex index;
+        final long from;
+        final long to;
+        final int estimate;
+
+        AccessPath(SortedLongIndex index, long from, long to, int estimate) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.estimate = estimate;
+        }
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    // Running totals for one designation, in cents to avoid floating point drift
+    private static final class Totals {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong basicCents = new AtomicLong();
+        final AtomicLong hraCents = new AtomicLong();
+        final AtomicLong taxCents = new AtomicLong();
+        final AtomicLong netCents = new AtomicLong();
+
+        void add(Employee e, int sign) {
+            count.addAndGet(sign);
+            basicCents.addAndGet(sign * toCents(e.getBasicSalary()));
+            hraCents.addAndGet(sign * toCents(e.getHra()));
+            taxCents.addAndGet(sign * toCents(e.getTax()));
+            netCents.addAndGet(sign * toCents(e.getNetSalary()));
+        }
+    }
+
+    /**
+     * One lock stripe: an open-addressing int -> Employee table with linear
+     * probing. Key 0 marks an empty slot (ids start at 1), -1 a deleted one.
+     * Mutated only under the write lock; the arrays are swapped as a pair
+     * on resize so an optimistic reader never indexes past either array.
+     */
+    private static final class Stripe {
+        private static final int EMPTY = 0;
+        private static final int DELETED = -1;
+
+        final StampedLock lock = new StampedLock();
+        volatile int[] keys = new int[16];
+        volatile Employee[] values = new Employee[16];
+        int live;
+        int used; // live + deleted slots
+
+        Employee get(int id) {
+            int[] k = keys;
+            Employee[] v = values;
+            int mask = Math.min(k.length, v.length) - 1;
+            int slot = slotOf(id, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                int key = k[slot];
+                if (key == id) {
+                    return v[slot];
+                }
+                if (key == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void put(int id, Employee employee) {
+            int[] k = keys;
+            int mask = k.length - 1;
+            int slot = slotOf(id, mask);
+            int firstDeleted = -1;
+            while (true) {
+                int key = k[slot];
+                if (key == id) {
+                    values[slot] = employee;
+                    return;
+                }
+                if (key == DELETED && firstDeleted < 0) {
+                    firstDeleted = slot;
+                }
+                if (key == EMPTY) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (firstDeleted >= 0) {
+                slot = firstDeleted;
+            } else {
+                used++;
+            }
+            values[slot] = employee;
+            k[slot] = id;
+            live++;
+            if (used * 4 >= k.length * 3) {
+                rehash(live * 2 >= k.length ? k.length * 2 : k.length);
+            }
+        }
+
+        Employee remove(int id) {
+            int[] k = keys;
+            int mask = k.length - 1;
+            int slot = slotOf(id, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                int key = k[slot];
+                if (key == id) {
+                    Employee previous = values[slot];
+                    k[slot] = DELETED;
+                    values[slot] = null;
+                    live--;
+                    return previous;
+                }
+                if (key == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void collect(List<Employee> out) {
+            int[] k = keys;
+            Employee[] v = values;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] > 0) {
+                    out.add(copyOf(v[i]));
+                }
+            }
+        }
+
+        private static int slotOf(int id, int mask) {
+            int h = id * 0x85EBCA6B;
+            return (h ^ (h >>> 13)) & mask;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            Employee[] oldValues = values;
+            int[] newKeys = new int[capacity];
+            Employee[] newValues = new Employee[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                int id = oldKeys[i];
+                if (id > 0) {
+                    int slot = slotOf(id, mask);
+                    while (newKeys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = id;
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            // Values first: a racing optimistic reader sees either the old or the
+            // new pair and the stamp check discards whatever it read meanwhile
+            values = newValues;
+            keys = newKeys;
+            used = live;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * In-Memory Payroll Run Store Class
+ * Run state for the in-memory repository (demo mode, tests, benchmarks).
+ * Not durable across restarts, but follows the same chunk/checkpoint rules
+ * as the MySQL store.
+ */
+public class InMemoryPayrollRunStore implements PayrollRunStore {
+
+    private final Map<Integer, PayrollRun> runs = new TreeMap<>();
+    // run id -> employee id -> payslip line
+    private final Map<Integer, TreeMap<Integer, Employee>> lines = new TreeMap<>();
+    // batch id -> period -> employee id -> arrears line
+    private final Map<Integer, Map<String, TreeMap<Integer, ArrearsLine>>> arrears = new TreeMap<>();
+    private final Map<Integer, ArrearsBatch> batches = new TreeMap<>();
+    private int nextRunId = 1;
+    private int nextBatchId = 1;
+
+    @Override
+    public synchronized PayrollRun createRun(String period, int chunkSize, int maxEmployeeId) {
+        PayrollRun run = new PayrollRun(nextRunId++, period, PayrollRun.Status.RUNNING, chunkSize, maxEmployeeId, 0, 0, 0.0);
+        runs.put(run.getRunId(), run);
+        lines.put(run.getRunId(), new TreeMap<>());
+        return copyOf(run);
+    }
+
+    @Override
+    public synchronized PayrollRun findRun(int runId) {
+        PayrollRun run = runs.get(runId);
+        return run != null ? copyOf(run) : null;
+    }
+
+    @Override
+    public synchronized PayrollRun findRunByPeriod(String period) {
+        for (PayrollRun run : runs.values()) {
+            if (run.getPeriod().equals(period)) {
+                return copyOf(run);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<PayrollRun> findUnfinishedRuns() {
+        List<PayrollRun> unfinished = new ArrayList<>();
+        for (PayrollRun run : runs.values()) {
+            if (run.getStatus() == PayrollRun.Status.RUNNING) {
+                unfinished.add(copyOf(run));
+            }
+        }
+        return unfinished;
+    }
+
+    @Override
+    public synchronized boolean commitChunk(PayrollRun run, int chunkStart, int chunkEnd, List<Employee> chunkLines) {
+        PayrollRun stored = runs.get(run.getRunId());
+        if (stored == null) {
+            return false;
+        }
+        TreeMap<Integer, Employee> runLines = lines.get(run.getRunId());
+        runLines.subMap(chunkStart, true, chunkEnd, true).clear();
+        double chunkNet = 0;
+        for (Employee line : chunkLines) {
+            runLines.put(line.getId(), line);
+            chunkNet += line.getNetSalary();
+        }
+        if (chunkEnd > stored.getCheckpointedId()) {
+            stored.advance(chunkEnd, chunkLines.size(), chunkNet);
+        }
+        run.advance(chunkEnd, chunkLines.size(), chunkNet);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean recordSnapshot(PayrollRun run, long snapshotId) {
+        PayrollRun stored = runs.get(run.getRunId());
+        if (stored == null) {
+            return false;
+        }
+        stored.setSnapshotId(snapshotId);
+        run.setSnapshotId(snapshotId);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateStatus(PayrollRun run, PayrollRun.Status status) {
+        PayrollRun stored = runs.get(run.getRunId());
+        if (stored == null) {
+            return false;
+        }
+        stored.setStatus(status);
+        run.setStatus(status);
+        return true;
+    }
+
+    @Override
+    public synchronized List<PayrollRun> findCompletedRuns(String fromPeriod, String toPeriod) {
+        TreeMap<String, PayrollRun> completed = new TreeMap<>();
+        for (PayrollRun run : runs.values()) {
+            if (run.getStatus() == PayrollRun.Status.COMPLETED
+                    && run.getPeriod().compareTo(fromPeriod) >= 0 && run.getPeriod().compareTo(toPeriod) <= 0) {
+                completed.put(run.getPeriod(), copyOf(run));
+            }
+        }
+        return new ArrayList<>(completed.values());
+    }
+
+    @Override
+    public boolean scanHistory(String period, int fromId, int toId, boolean includeArrears, int exceptBatchId,
+                               Consumer<Employee> consumer) {
+        // Copy under the lock, hand out without it
+        List<Employee> history = new ArrayList<>();
+        synchronized (this) {
+            PayrollRun run = null;
+            for (PayrollRun candidate : runs.values()) {
+                if (candidate.getPeriod().equals(period)) {
+                    run = candidate;
+                    break;
+                }
+            }
+            if (run == null) {
+                return true;
+            }
+            Map<Integer, double[]> issued = includeArrears
+                ? arrearsTotals(period, fromId, toId, exceptBatchId) : new HashMap<>();
+            for (Employee line : lines.get(run.getRunId()).subMap(fromId, true, toId, true).values()) {
+                Employee copy = new Employee(line.getId(), line.getName(), line.getDesignation(),
+                    line.getBasicSalary(), line.getHra(), line.getTax(), line.getNetSalary());
+                copy.setAllowances(line.getAllowances());
+                double[] totals = issued.get(line.getId());
+                if (totals != null) {
+                    copy.setBasicSalary(round2(copy.getBasicSalary() + totals[0]));
+                    copy.setHra(round2(copy.getHra() + totals[1]));
+                    copy.setAllowances(round2(copy.getAllowances() + totals[2]));
+                    copy.setTax(round2(copy.getTax() + totals[3]));
+                }
+                copy.setNetSalary(round2(line.getNetSalary() + (totals != null ? totals[4] : 0)));
+                history.add(copy);
+            }
+        }
+        history.forEach(consumer);
+        return true;
+    }
+
+    // employee id -> summed basic, HRA, allowances, tax and net deltas over all other batches
+    private Map<Integer, double[]> arrearsTotals(String period, int fromId, int toId, int exceptBatchId) {
+        Map<Integer, double[]> totals = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, TreeMap<Integer, ArrearsLine>>> batch : arrears.entrySet()) {
+            if (batch.getKey() == exceptBatchId) {
+                continue;
+            }
+            TreeMap<Integer, ArrearsLine> periodLines = batch.getValue().get(period);
+            if (periodLines == null) {
+                continue;
+            }
+            for (ArrearsLine line : periodLines.subMap(fromId, true, toId, true).values()) {
+                double[] sum = totals.computeIfAbsent(line.getEmployeeId(), id -> new double[5]);
+                sum[0] += line.getBasicSalaryDelta();
+                sum[1] += line.getHraDelta();
+                sum[2] += line.getAllowancesDelta();
+                sum[3] += line.getTaxDelta();
+                sum[4] += line.getNetSalaryDelta();
+            }
+        }
+        return totals;
+    }
+
+    @Override
+    public synchronized int createArrearsBatch(String description, String effectiveFrom, String throughPeriod,
+                                               int chunkSize) {
+        int batchId = nextBatchId++;
+        arrears.put(batchId, new HashMap<>());
+        batches.put(batchId, new ArrearsBatch(batchId, description, effectiveFrom, throughPeriod, chunkSize));
+        return batchId;
+    }
+
+    @Override
+    public synchronized ArrearsBatch findArrearsBatch(int batchId) {
+        ArrearsBatch batch = batches.get(batchId);
+        return batch != null ? batch.copy() : null;
+    }
+
+    @Override
+    public synchronized ArrearsBatch findArrearsBatch(String description) {
+        ArrearsBatch latest = null;
+        for (ArrearsBatch batch : batches.values()) {
+            if (batch.getDescription().equals(description)) {
+                latest = batch;
+            }
+        }
+        return latest != null ? latest.copy() : null;
+    }
+
+    @Override
+    public synchronized boolean commitArrears(int batchId, String period, int fromId, int toId, List<ArrearsLine> chunkLines) {
+        Map<String, TreeMap<Integer, ArrearsLine>> batch = arrears.get(batchId);
+        if (batch == null) {
+            return false;
+        }
+        TreeMap<Integer, ArrearsLine> periodLines = batch.computeIfAbsent(period, p -> new TreeMap<>());
+        periodLines.subMap(fromId, true, toId, true).clear();
+        for (ArrearsLine line : chunkLines) {
+            periodLines.put(line.getEmployeeId(), line);
+        }
+        batches.get(batchId).markCommitted(period, fromId);
+        return true;
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static PayrollRun copyOf(PayrollRun run) {
+        PayrollRun copy = new PayrollRun(run.getRunId(), run.getPeriod(), run.getStatus(), run.getChunkSize(),
+            run.getMaxEmployeeId(), run.getCheckpointedId(), run.getEmployeesProcessed(), run.getTotalNetSalary());
+        copy.setSnapshotId(run.getSnapshotId());
+        return copy;
+    }
+}
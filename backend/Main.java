@@ -15,11 +15,14 @@ public class Main {
     private static PayrollService payrollService = new PayrollService();
     
     public static void main(String[] args) {
+        // Flush and close the store however the console exits
+        Runtime.getRuntime().addShutdownHook(new Thread(payrollService::close, "payroll-shutdown"));
+        
         // Display welcome banner
         displayWelcomeBanner();
         
         // Test database connection
-        if (!DatabaseConnection.testConnection()) {
+        if (!payrollService.isRepositoryAvailable()) {
             System.err.println("\n⚠ Unable to connect to database. Please check your configuration.");
             System.err.println("Ensure MySQL server is running and credentials in DatabaseConnection.java are correct.\n");
             return;
@@ -236,11 +239,20 @@ public class Main {
     double hra = getDoubleInput("Enter HRA (₹): ");
     scanner.nextLine(); // Consume leftover newline
     
-    double tax = getDoubleInput("Enter Tax Deduction (₹): ");
-    scanner.nextLine(); // Consume leftover newline
+    // Statutory deductions are computed; only manual mode asks for the tax
+    TaxRules taxRules = payrollService.getTaxRules();
+    double tax = 0;
+    if (taxRules == null) {
+        tax = getDoubleInput("Enter Tax Deduction (₹): ");
+        scanner.nextLine(); // Consume leftover newline
+    }
     
     // Create employee object
     Employee employee = new Employee(name, designation, basicSalary, hra, tax);
+    if (taxRules != null) {
+        employee.applyTaxRules(taxRules);
+        System.out.printf("🧾 Deductions (%s regime, incl. PF/ESI): ₹%.2f\n", taxRules.getRegime(), employee.getTax());
+    }
     
     // Display calculated net salary
     System.out.printf("\n💼 Calculated Net Salary: ₹%.2f\n", employee.calculateNetSalary());
@@ -303,10 +315,12 @@ public class Main {
             employee.setHra(hra);
         }
         
-        System.out.print("Enter New Tax (or 0 to keep current): ");
-        double tax = scanner.nextDouble();
-        if (tax > 0) {
-            employee.setTax(tax);
+        if (payrollService.getTaxRules() == null) {
+            System.out.print("Enter New Tax (or 0 to keep current): ");
+            double tax = scanner.nextDouble();
+            if (tax > 0) {
+                employee.setTax(tax);
+            }
         }
         
         scanner.nextLine(); // Clear buffer
@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Mapped Employee File Class
+ * Employee records of the embedded store, one fixed-width 256-byte slot
+ * per id, in a file mapped into memory with FileChannel.map. The store
+ * hands out ids itself, densely from 1, so a record's position is its id
+ * times the record size: the file is its own id index, and a lookup is
+ * one multiplication and a read of mapped memory. Slot 0 holds the header.
+ *
+ * The file is mapped in chunks of 65536 records (16 MB), so it can grow
+ * past the 2 GB a single mapping allows; mapping a new chunk extends the
+ * file. Changes reach the disk whenever the OS writes them back, or at
+ * force(); crash safety comes from the write-ahead log, which is always
+ * written before a slot changes.
+ *
+ * Record layout (big-endian): state, id, created and updated time, basic
+ * salary, HRA, tax, net salary, then the name (up to 127 bytes of UTF-8)
+ * and designation (up to 71 bytes), each after a length byte.
+ */
+public final class MappedEmployeeFile {
+
+    public static final int RECORD_SIZE = 256;
+    public static final int MAX_NAME_BYTES = 127;
+    public static final int MAX_DESIGNATION_BYTES = 71;
+
+    // Slot states
+    public static final byte EMPTY = 0;
+    public static final byte LIVE = 1;
+    public static final byte DELETED = 2;
+
+    private static final int MAGIC = 0x50454D46;  // "PEMF"
+    private static final int FORMAT = 1;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_SIZE;
+
+    // Record fields
+    private static final int STATE = 0;
+    private static final int ID = 4;
+    private static final int CREATED_AT = 8;
+    private static final int UPDATED_AT = 16;
+    private static final int BASIC_SALARY = 24;
+    private static final int HRA = 32;
+    private static final int TAX = 40;
+    private static final int NET_SALARY = 48;
+    private static final int NAME = 56;
+    private static final int DESIGNATION = NAME + 1 + MAX_NAME_BYTES;
+
+    // Header fields (slot 0)
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_FORMAT = 4;
+    private static final int HEADER_RECORD_SIZE = 8;
+    private static final int HEADER_NEXT_ID = 12;
+    private static final int HEADER_COUNT = 16;
+    private static final int HEADER_CHANGE_VERSION = 24;
+    private static final int HEADER_HISTORY_LENGTH = 32;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] chunks;
+
+    public MappedEmployeeFile(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        int count = (int) Math.max(1, (channel.size() + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * CHUNK_BYTES, CHUNK_BYTES);
+        }
+        chunks = mapped;
+        MappedByteBuffer header = mapped[0];
+        if (created) {
+            header.putInt(HEADER_MAGIC, MAGIC);
+            header.putInt(HEADER_FORMAT, FORMAT);
+            header.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+            header.putInt(HEADER_NEXT_ID, 1);
+            header.force();
+        } else if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_FORMAT) != FORMAT
+                || header.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+            channel.close();
+            throw new IOException(file + " is not an employee store of this version");
+        }
+    }
+
+    public int getNextId() {
+        return chunks[0].getInt(HEADER_NEXT_ID);
+    }
+
+    public int getCount() {
+        return chunks[0].getInt(HEADER_COUNT);
+    }
+
+    public long getChangeVersion() {
+        return chunks[0].getLong(HEADER_CHANGE_VERSION);
+    }
+
+    public long getHistoryLength() {
+        return chunks[0].getLong(HEADER_HISTORY_LENGTH);
+    }
+
+    /**
+     * Forces every record to disk, then records the header and forces it
+     * too; the log entries up to changeVersion are no longer needed after
+     * this returns
+     * @param nextId Next id to hand out
+     * @param count Live records
+     * @param changeVersion Last change contained in the records
+     * @param historyLength Bytes of the history log written by then
+     */
+    public void checkpoint(int nextId, int count, long changeVersion, long historyLength) {
+        MappedByteBuffer[] mapped = chunks;
+        for (MappedByteBuffer chunk : mapped) {
+            chunk.force();
+        }
+        MappedByteBuffer header = mapped[0];
+        header.putInt(HEADER_NEXT_ID, nextId);
+        header.putInt(HEADER_COUNT, count);
+        header.putLong(HEADER_CHANGE_VERSION, changeVersion);
+        header.putLong(HEADER_HISTORY_LENGTH, historyLength);
+        header.force();
+    }
+
+    /**
+     * @param id Employee id
+     * @return State of the id's slot (EMPTY if beyond the file)
+     */
+    public byte state(int id) {
+        MappedByteBuffer[] mapped = chunks;
+        int chunk = id >>> CHUNK_SHIFT;
+        if (id <= 0 || chunk >= mapped.length) {
+            return EMPTY;
+        }
+        return mapped[chunk].get((id & (CHUNK_RECORDS - 1)) * RECORD_SIZE + STATE);
+    }
+
+    /**
+     * Reads a record. Not synchronized: callers use the store's stripe locks,
+     * and a read torn by a concurrent write decodes to garbage, never fails.
+     * @param id Employee id
+     * @return Employee, or null if the slot holds no live record
+     */
+    public Employee read(int id) {
+        MappedByteBuffer[] mapped = chunks;
+        int chunk = id >>> CHUNK_SHIFT;
+        if (id <= 0 || chunk >= mapped.length) {
+            return null;
+        }
+        return decode(mapped[chunk], (id & (CHUNK_RECORDS - 1)) * RECORD_SIZE);
+    }
+
+    /**
+     * Copies a slot's raw bytes
+     * @param id Employee id
+     * @return Record image, all zeros (EMPTY) if beyond the file
+     */
+    public byte[] image(int id) {
+        byte[] image = new byte[RECORD_SIZE];
+        MappedByteBuffer[] mapped = chunks;
+        int chunk = id >>> CHUNK_SHIFT;
+        if (id > 0 && chunk < mapped.length) {
+            ByteBuffer slot = mapped[chunk].duplicate();
+            slot.position((id & (CHUNK_RECORDS - 1)) * RECORD_SIZE);
+            slot.get(image);
+        }
+        return image;
+    }
+
+    /**
+     * Overwrites a slot, growing the file if needed
+     * @param id Employee id
+     * @param image Record image from encode()
+     */
+    public void write(int id, byte[] image) {
+        int chunk = id >>> CHUNK_SHIFT;
+        MappedByteBuffer[] mapped = chunks;
+        if (chunk >= mapped.length) {
+            mapped = grow(chunk);
+        }
+        ByteBuffer slot = mapped[chunk].duplicate();
+        slot.position((id & (CHUNK_RECORDS - 1)) * RECORD_SIZE);
+        slot.put(image);
+    }
+
+    private synchronized MappedByteBuffer[] grow(int chunk) {
+        MappedByteBuffer[] mapped = chunks;
+        if (chunk < mapped.length) {
+            return mapped;
+        }
+        MappedByteBuffer[] larger = Arrays.copyOf(mapped, chunk + 1);
+        try {
+            for (int i = mapped.length; i <= chunk; i++) {
+                larger[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * CHUNK_BYTES, CHUNK_BYTES);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("employee store could not grow: " + e.getMessage(), e);
+        }
+        chunks = larger;
+        return larger;
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error closing employee store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes a record
+     * @param employee Employee (id, times and net salary already set)
+     * @param state LIVE, or DELETED for a deletion
+     * @return RECORD_SIZE bytes
+     * @throws IllegalArgumentException if the name or designation is too long
+     */
+    public static byte[] encode(Employee employee, byte state) {
+        byte[] name = utf8(employee.getName());
+        byte[] designation = utf8(employee.getDesignation());
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("name is longer than " + MAX_NAME_BYTES + " bytes");
+        }
+        if (designation.length > MAX_DESIGNATION_BYTES) {
+            throw new IllegalArgumentException("designation is longer than " + MAX_DESIGNATION_BYTES + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(STATE, state);
+        record.putInt(ID, employee.getId());
+        record.putLong(CREATED_AT, employee.getCreatedAt());
+        record.putLong(UPDATED_AT, employee.getUpdatedAt());
+        record.putDouble(BASIC_SALARY, employee.getBasicSalary());
+        record.putDouble(HRA, employee.getHra());
+        record.putDouble(TAX, employee.getTax());
+        record.putDouble(NET_SALARY, employee.getNetSalary());
+        record.put(NAME, (byte) name.length);
+        record.position(NAME + 1);
+        record.put(name);
+        record.put(DESIGNATION, (byte) designation.length);
+        record.position(DESIGNATION + 1);
+        record.put(designation);
+        return record.array();
+    }
+
+    /**
+     * @param image Record image
+     * @return Id stored in the image
+     */
+    public static int idOf(byte[] image) {
+        return ByteBuffer.wrap(image).getInt(ID);
+    }
+
+    /**
+     * @param image Record image
+     * @return State stored in the image
+     */
+    public static byte stateOf(byte[] image) {
+        return image[STATE];
+    }
+
+    /**
+     * @param image Record image
+     * @return Time of the change that wrote the image
+     */
+    public static long updatedAtOf(byte[] image) {
+        return ByteBuffer.wrap(image).getLong(UPDATED_AT);
+    }
+
+    /**
+     * Decodes a record image
+     * @param image Record image
+     * @return Employee, or null if the image holds no live record
+     */
+    public static Employee decode(byte[] image) {
+        return decode(ByteBuffer.wrap(image), 0);
+    }
+
+    // Absolute reads only, so a shared buffer can be read by many threads
+    private static Employee decode(ByteBuffer buffer, int offset) {
+        if (buffer.get(offset + STATE) != LIVE) {
+            return null;
+        }
+        Employee employee = new Employee(buffer.getInt(offset + ID),
+            string(buffer, offset + NAME, MAX_NAME_BYTES), string(buffer, offset + DESIGNATION, MAX_DESIGNATION_BYTES),
+            buffer.getDouble(offset + BASIC_SALARY), buffer.getDouble(offset + HRA),
+            buffer.getDouble(offset + TAX), buffer.getDouble(offset + NET_SALARY));
+        employee.setCreatedAt(buffer.getLong(offset + CREATED_AT));
+        employee.setUpdatedAt(buffer.getLong(offset + UPDATED_AT));
+        return employee;
+    }
+
+    private static String string(ByteBuffer buffer, int at, int maxBytes) {
+        int length = Math.min(buffer.get(at) & 0xFF, maxBytes);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(at + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String text) {
+        return (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,841 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Mapped Payroll Repository Class
+ * Embedded, persistent PayrollRepository for single-node and offline use
+ * (-Dpayroll.repository=embedded): no database server, just three files in
+ * payroll.embedded.dir (default payroll-data).
+ *
+ * - employees.dat: fixed-width records in a memory-mapped file, addressed
+ *   by id (MappedEmployeeFile). A lookup by id reads mapped memory under an
+ *   optimistic stripe lock, and opening the store maps the file without
+ *   reading it, so startup does not grow with the number of employees
+ * - employees.wal: redo log (WriteAheadLog). Every change is logged and
+ *   fsynced before its record is overwritten; concurrent writers share
+ *   fsyncs. Entries newer than the last checkpoint are replayed on open
+ * - history.dat: every record image ever written, in order, for as-of
+ *   queries; loaded into a SalaryHistoryIndex on the first such query
+ *
+ * A checkpoint (every payroll.embedded.checkpointBytes of log, default
+ * 64 MB, and on close) forces the records and history to disk, records the
+ * header and empties the log. Totals per designation are computed with one
+ * scan on first use and kept up to date from then on. Searches scan the
+ * records in id order and stop at the limit.
+ *
+ * Writers of a stripe are queued on their own lock and wait for the fsync
+ * holding only that; the stripe's StampedLock, which readers check, is
+ * taken just to write the record.
+ *
+ * Snapshots are copy-on-write: while one is open, a writer saves the
+ * record it replaces for the snapshot to read. A change that is logged
+ * but not yet written is read from its log image by snapshots that
+ * include it. A snapshot lives only as
+ * long as the process; re-opening an older id after a restart reads the
+ * current data.
+ */
+public class MappedPayrollRepository implements PayrollRepository {
+
+    private static final int STRIPES = 64; // power of two
+    private static final long CHECKPOINT_BYTES = Long.getLong("payroll.embedded.checkpointBytes", 64L << 20);
+    private static final int HISTORY_ENTRY_SIZE = 8 + MappedEmployeeFile.RECORD_SIZE;
+
+    private final MappedEmployeeFile records;
+    private final WriteAheadLog log;
+    private final FileChannel historyLog;
+    private long historyLength;  // guarded by historyLog
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+    // Orders writers of a stripe, so an id's changes are logged and written in one order
+    private final ReentrantLock[] writers = new ReentrantLock[STRIPES];
+    // Changes logged but not yet written to their record, by id
+    private final ConcurrentHashMap<Integer, Logged> inFlight = new ConcurrentHashMap<>();
+    // Writers share it; checkpoints, bulk writes and the lazy builds below take it exclusively
+    private final ReentrantReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private final AtomicInteger nextId;
+    private final AtomicInteger size;
+    private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+    private volatile Map<String, Totals> totalsByDesignation;  // null until first used
+    private volatile SalaryHistoryIndex history;               // null until first used
+    private volatile boolean failed;                           // the log could not be written
+    private boolean closed;                                    // guarded by storeLock
+
+    /**
+     * Opens (or creates) the store and replays what the log holds beyond
+     * the last checkpoint
+     * @param directory Directory of the store's files
+     */
+    public MappedPayrollRepository(String directory) throws IOException {
+        long start = System.currentTimeMillis();
+        Path root = Paths.get(directory);
+        Files.createDirectories(root);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+            writers[i] = new ReentrantLock();
+        }
+        records = new MappedEmployeeFile(root.resolve("employees.dat"));
+        nextId = new AtomicInteger(records.getNextId());
+        size = new AtomicInteger(records.getCount());
+
+        // History written after the checkpoint is rewritten from the log
+        historyLog = FileChannel.open(root.resolve("history.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        historyLength = records.getHistoryLength();
+        historyLog.truncate(historyLength);
+
+        log = new WriteAheadLog(root.resolve("employees.wal"), records.getChangeVersion());
+        int replayed = log.replay((version, image) -> {
+            int id = MappedEmployeeFile.idOf(image);
+            records.write(id, image);
+            if (id >= nextId.get()) {
+                nextId.set(id + 1);
+            }
+            appendHistory(version, image);
+        });
+        if (replayed > 0) {
+            // The OS may have written some of these records back before the
+            // crash, so the count is taken from the records, not from the replay
+            int live = 0;
+            for (int id = 1; id < nextId.get(); id++) {
+                if (records.state(id) == MappedEmployeeFile.LIVE) {
+                    live++;
+                }
+            }
+            size.set(live);
+            System.out.println("↻ Embedded store: replayed " + replayed + " logged changes");
+            checkpoint();
+        }
+        System.out.println("ℹ Using embedded payroll store in " + root.toAbsolutePath() + " ("
+            + size.get() + " employees, opened in " + (System.currentTimeMillis() - start) + " ms)");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !failed;
+    }
+
+    @Override
+    public boolean addEmployee(Employee employee) {
+        Employee stored = copyOf(employee);
+        stored.setNetSalary(stored.calculateNetSalary());
+        long now = System.currentTimeMillis();
+        stored.setCreatedAt(now);
+        stored.setUpdatedAt(now);
+
+        boolean added;
+        storeLock.readLock().lock();
+        try {
+            int id = nextId.getAndIncrement();
+            stored.setId(id);
+            ReentrantLock writer = writerFor(id);
+            writer.lock();
+            try {
+                added = commit(new Change(id, null, stored));
+            } finally {
+                writer.unlock();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ Error adding employee: " + e.getMessage());
+            return false;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        if (added) {
+            employee.setId(stored.getId());
+            checkpointIfDue();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean updateEmployee(Employee employee) {
+        int id = employee.getId();
+        Employee stored = copyOf(employee);
+        stored.setNetSalary(stored.calculateNetSalary());
+
+        boolean updated;
+        storeLock.readLock().lock();
+        try {
+            ReentrantLock writer = writerFor(id);
+            writer.lock();
+            try {
+                Employee previous = records.read(id);
+                if (previous == null) {
+                    return false;
+                }
+                stored.setCreatedAt(previous.getCreatedAt());
+                stored.setUpdatedAt(System.currentTimeMillis());
+                updated = commit(new Change(id, previous, stored));
+            } finally {
+                writer.unlock();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ Error updating employee: " + e.getMessage());
+            return false;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        checkpointIfDue();
+        return updated;
+    }
+
+    @Override
+    public boolean deleteEmployee(int employeeId) {
+        boolean deleted;
+        storeLock.readLock().lock();
+        try {
+            ReentrantLock writer = writerFor(employeeId);
+            writer.lock();
+            try {
+                Employee previous = records.read(employeeId);
+                if (previous == null) {
+                    return false;
+                }
+                deleted = commit(new Change(employeeId, previous, null));
+            } finally {
+                writer.unlock();
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        checkpointIfDue();
+        return deleted;
+    }
+
+    // Logs one change, waits for its fsync, then writes the record under the
+    // stripe lock, so readers of the stripe never wait for the fsync.
+    // Caller holds storeLock shared and the id's writer lock.
+    private boolean commit(Change change) {
+        if (failed) {
+            return false;
+        }
+        long version;
+        // Under the log's lock, like openSnapshot: a snapshot that includes
+        // the version also sees the change in flight
+        synchronized (log) {
+            version = log.append(change.image);
+            inFlight.put(change.id, new Logged(version, change.image));
+        }
+        try {
+            log.sync(version);
+        } catch (IOException e) {
+            inFlight.remove(change.id);
+            fail(e);
+            return false;
+        }
+        StampedLock lock = stripeFor(change.id);
+        long stamp = lock.writeLock();
+        try {
+            apply(change, version);
+            inFlight.remove(change.id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    // Logs a batch with one fsync, then writes the records.
+    // Caller holds storeLock exclusively, so nothing changes in between.
+    private boolean commitAll(List<Change> changes) {
+        if (failed) {
+            return false;
+        }
+        if (changes.isEmpty()) {
+            return true;
+        }
+        long[] versions = new long[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            versions[i] = log.append(changes.get(i).image);
+        }
+        try {
+            log.sync(versions[versions.length - 1]);
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            StampedLock lock = stripeFor(change.id);
+            long stamp = lock.writeLock();
+            try {
+                apply(change, versions[i]);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        return true;
+    }
+
+    // Caller holds the id's stripe write lock; the change is already durable in the log
+    private void apply(Change change, long version) {
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.version < version) {
+                snapshot.saved.computeIfAbsent(change.id, records::image);
+            }
+        }
+        records.write(change.id, change.image);
+        appendHistory(version, change.image);
+
+        if (change.before == null) {
+            size.incrementAndGet();
+        } else if (change.after == null) {
+            size.decrementAndGet();
+        }
+        Map<String, Totals> totals = totalsByDesignation;
+        if (totals != null) {
+            if (change.before != null) {
+                totalsFor(totals, change.before.getDesignation()).add(change.before, -1);
+            }
+            if (change.after != null) {
+                totalsFor(totals, change.after.getDesignation()).add(change.after, 1);
+            }
+        }
+        SalaryHistoryIndex index = history;
+        if (index != null) {
+            index.record(change.id, MappedEmployeeFile.updatedAtOf(change.image), change.after);
+        }
+    }
+
+    private void appendHistory(long version, byte[] image) {
+        ByteBuffer entry = ByteBuffer.allocate(HISTORY_ENTRY_SIZE);
+        entry.putLong(version).put(image).flip();
+        synchronized (historyLog) {
+            try {
+                while (entry.hasRemaining()) {
+                    historyLength += historyLog.write(entry, historyLength);
+                }
+            } catch (IOException e) {
+                // The log still holds the change, and the next open rewrites the history from it
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            System.err.println("✗ Embedded store is read-only until restarted; writing its log failed: "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Forces the records and history to disk and empties the log
+     */
+    public void checkpoint() {
+        storeLock.writeLock().lock();
+        try {
+            checkpointLocked();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds storeLock exclusively: every logged change is applied
+    private void checkpointLocked() {
+        if (failed) {
+            return;  // keep the log; the next open replays it
+        }
+        try {
+            long length;
+            synchronized (historyLog) {
+                historyLog.force(false);
+                length = historyLength;
+            }
+            records.checkpoint(nextId.get(), size.get(), log.lastVersion(), length);
+            log.truncate();
+        } catch (IOException e) {
+            System.err.println("✗ Error checkpointing embedded store: " + e.getMessage());
+        }
+    }
+
+    private void checkpointIfDue() {
+        // Skipped if writers are busy; a later write tries again
+        if (log.size() >= CHECKPOINT_BYTES && storeLock.writeLock().tryLock()) {
+            try {
+                checkpointLocked();
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Checkpoints and closes the files (call at shutdown)
+     */
+    @Override
+    public void close() {
+        storeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            checkpointLocked();
+            failed = true;  // no writes after this
+            log.close();
+            try {
+                historyLog.close();
+            } catch (IOException e) {
+                System.err.println("✗ Error closing embedded store history: " + e.getMessage());
+            }
+            records.close();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Employee getEmployeeById(int employeeId) {
+        return read(employeeId);
+    }
+
+    @Override
+    public List<Employee> getAllEmployees() {
+        List<Employee> result = new ArrayList<>(size.get());
+        scanEmployees(1, getMaxEmployeeId(), result::add);
+        return result;
+    }
+
+    @Override
+    public List<Employee> searchByDesignation(String designation) {
+        // Same semantics as SQL "designation LIKE %x%" with a case-insensitive collation
+        String needle = designation.toLowerCase();
+        List<Employee> result = new ArrayList<>();
+        scanEmployees(1, getMaxEmployeeId(), employee -> {
+            if (employee.getDesignation().toLowerCase().contains(needle)) {
+                result.add(employee);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public SearchResult search(EmployeeSearch search) {
+        long start = System.nanoTime();
+        List<Employee> result = new ArrayList<>();
+        int examined = 0;
+        int maxId = getMaxEmployeeId();
+        for (int id = 1; id <= maxId && result.size() < search.getLimit(); id++) {
+            Employee employee = read(id);
+            if (employee != null) {
+                examined++;
+                if (search.matches(employee)) {
+                    result.add(employee);
+                }
+            }
+        }
+        return new SearchResult(result, "record scan", examined, (System.nanoTime() - start) / 1000);
+    }
+
+    @Override
+    public double calculateTotalPayrollExpense() {
+        long cents = 0;
+        for (Totals totals : totals().values()) {
+            cents += totals.netCents.get();
+        }
+        return cents / 100.0;
+    }
+
+    @Override
+    public int countEmployees() {
+        return size.get();
+    }
+
+    @Override
+    public int getMaxEmployeeId() {
+        // Ids are never reused, so the last assigned id bounds every live one
+        return nextId.get() - 1;
+    }
+
+    @Override
+    public List<PayrollAggregate> aggregateByDesignation() {
+        Map<String, PayrollAggregate> sorted = new TreeMap<>();
+        for (Map.Entry<String, Totals> entry : totals().entrySet()) {
+            Totals totals = entry.getValue();
+            int count = totals.count.get();
+            if (count > 0) {
+                sorted.put(entry.getKey(), new PayrollAggregate(entry.getKey(), count,
+                    totals.basicCents.get() / 100.0, totals.hraCents.get() / 100.0,
+                    totals.taxCents.get() / 100.0, totals.netCents.get() / 100.0));
+            }
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    @Override
+    public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+        int visited = 0;
+        int last = Math.min(toId, getMaxEmployeeId());
+        for (int id = Math.max(fromId, 1); id <= last; id++) {
+            Employee employee = read(id);
+            if (employee != null) {
+                consumer.accept(employee);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public EmployeeRoster loadRoster() {
+        EmployeeRoster.Builder roster = new EmployeeRoster.Builder(Math.max(16, size.get()));
+        scanEmployees(1, getMaxEmployeeId(), roster::add);
+        return roster.build();
+    }
+
+    @Override
+    public Employee getEmployeeAsOf(int employeeId, long asOf) {
+        return history().find(employeeId, asOf);
+    }
+
+    @Override
+    public EmployeeRoster loadRosterAsOf(long asOf) {
+        return history().rosterAsOf(asOf);
+    }
+
+    @Override
+    public long getChangeVersion() {
+        return log.lastVersion();
+    }
+
+    @Override
+    public EmployeeSnapshot openSnapshot(long snapshotId) {
+        // Not in the middle of a batch, whose records are written only after all
+        // of it is logged; and under the log's lock, so no change gets a version
+        // while the snapshot is registered
+        storeLock.readLock().lock();
+        try {
+            synchronized (log) {
+                long current = log.lastVersion();
+                if (snapshotId > 0 && snapshotId != current) {
+                    System.out.println("ℹ Embedded store: snapshot " + snapshotId
+                        + " is no longer available, reading change version " + current);
+                }
+                Snapshot snapshot = new Snapshot(current);
+                snapshots.add(snapshot);
+                return snapshot;
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean writeBatch(List<Employee> updates, List<Integer> deletedIds) {
+        long now = System.currentTimeMillis();
+        storeLock.writeLock().lock();
+        try {
+            List<Change> changes = new ArrayList<>(updates.size());
+            for (Employee employee : updates) {
+                Employee previous = records.read(employee.getId());
+                if (previous == null) {
+                    continue;
+                }
+                Employee stored = copyOf(employee);
+                stored.setNetSalary(stored.calculateNetSalary());
+                stored.setCreatedAt(previous.getCreatedAt());
+                stored.setUpdatedAt(now);
+                changes.add(new Change(stored.getId(), previous, stored));
+            }
+            if (!commitAll(changes)) {
+                return false;
+            }
+            changes.clear();
+            for (Integer employeeId : deletedIds) {
+                Employee previous = records.read(employeeId);
+                if (previous != null) {
+                    changes.add(new Change(employeeId, previous, null));
+                }
+            }
+            return commitAll(changes);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ Error writing employee batch: " + e.getMessage());
+            return false;
+        } finally {
+            storeLock.writeLock().unlock();
+            checkpointIfDue();
+        }
+    }
+
+    @Override
+    public RevisionResult applyRevision(SalaryRevision revision) {
+        long start = System.currentTimeMillis();
+        long beforeCents = 0;
+        long afterCents = 0;
+        int updated = 0;
+        int chunks = 0;
+        int lastCommittedId = 0;
+        boolean completed = true;
+
+        // Other writers wait for each chunk; readers never do
+        int last = Math.min(revision.getToId(), getMaxEmployeeId());
+        for (int chunkStart = Math.max(revision.getFromId(), 1); chunkStart <= last && completed;
+                chunkStart += SalaryRevision.CHUNK_SIZE) {
+            int chunkEnd = (int) Math.min(last, (long) chunkStart + SalaryRevision.CHUNK_SIZE - 1);
+            List<Change> changes = new ArrayList<>();
+            storeLock.writeLock().lock();
+            try {
+                long now = System.currentTimeMillis();
+                for (int id = chunkStart; id <= chunkEnd; id++) {
+                    Employee current = records.read(id);
+                    if (current == null || !revision.appliesTo(current)) {
+                        continue;
+                    }
+                    Employee revised = copyOf(current);
+                    revision.revise(revised);
+                    revised.setUpdatedAt(now);
+                    beforeCents += toCents(current.getNetSalary());
+                    afterCents += toCents(revised.getNetSalary());
+                    if (!revision.isDryRun()) {
+                        changes.add(new Change(id, current, revised));
+                    }
+                    updated++;
+                }
+                if (!revision.isDryRun()) {
+                    completed = commitAll(changes);
+                    if (completed) {
+                        lastCommittedId = chunkEnd;
+                    }
+                }
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+            chunks++;
+            checkpointIfDue();
+        }
+        return new RevisionResult(revision.isDryRun(), updated, chunks, beforeCents / 100.0, afterCents / 100.0,
+            System.currentTimeMillis() - start, completed, revision.isDryRun() ? 0 : lastCommittedId);
+    }
+
+    // Lock-free read when no writer is active on the stripe
+    private Employee read(int id) {
+        StampedLock lock = stripeFor(id);
+        long stamp = lock.tryOptimisticRead();
+        Employee employee = records.read(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                employee = records.read(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return employee;
+    }
+
+    private StampedLock stripeFor(int id) {
+        return stripes[id & (STRIPES - 1)];
+    }
+
+    private ReentrantLock writerFor(int id) {
+        return writers[id & (STRIPES - 1)];
+    }
+
+    // Totals per designation, built with one scan on first use
+    private Map<String, Totals> totals() {
+        Map<String, Totals> totals = totalsByDesignation;
+        if (totals != null) {
+            return totals;
+        }
+        storeLock.writeLock().lock();
+        try {
+            if (totalsByDesignation == null) {
+                Map<String, Totals> fresh = new ConcurrentHashMap<>();
+                scanEmployees(1, getMaxEmployeeId(), employee ->
+                    totalsFor(fresh, employee.getDesignation()).add(employee, 1));
+                totalsByDesignation = fresh;
+            }
+            return totalsByDesignation;
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    private static Totals totalsFor(Map<String, Totals> totals, String designation) {
+        return totals.computeIfAbsent(designation, k -> new Totals());
+    }
+
+    // Complete salary history, read from history.dat on first use
+    private SalaryHistoryIndex history() {
+        SalaryHistoryIndex index = history;
+        if (index != null) {
+            return index;
+        }
+        storeLock.writeLock().lock();
+        try {
+            if (history == null) {
+                history = loadHistory();
+            }
+            return history;
+        } catch (IOException e) {
+            System.err.println("✗ Error reading embedded store history: " + e.getMessage());
+            return new SalaryHistoryIndex(Long.MIN_VALUE);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    private SalaryHistoryIndex loadHistory() throws IOException {
+        long start = System.currentTimeMillis();
+        SalaryHistoryIndex index = new SalaryHistoryIndex(Long.MIN_VALUE);
+        ByteBuffer entries = ByteBuffer.allocate(HISTORY_ENTRY_SIZE * 4096);
+        byte[] image = new byte[MappedEmployeeFile.RECORD_SIZE];
+        long length;
+        synchronized (historyLog) {
+            length = historyLength;
+        }
+        long position = 0;
+        int versions = 0;
+        while (position < length) {
+            entries.clear();
+            entries.limit((int) Math.min(entries.capacity(), length - position));
+            while (entries.hasRemaining()) {
+                if (historyLog.read(entries, position + entries.position()) < 0) {
+                    throw new IOException("history.dat is shorter than recorded");
+                }
+            }
+            entries.flip();
+            while (entries.remaining() >= HISTORY_ENTRY_SIZE) {
+                entries.getLong();
+                entries.get(image);
+                index.record(MappedEmployeeFile.idOf(image), MappedEmployeeFile.updatedAtOf(image),
+                    MappedEmployeeFile.decode(image));
+                versions++;
+            }
+            position += entries.position();
+        }
+        System.out.println("📊 Embedded store history loaded: " + versions + " versions in "
+            + (System.currentTimeMillis() - start) + " ms");
+        return index;
+    }
+
+    private static Employee copyOf(Employee e) {
+        Employee copy = new Employee(e.getId(), e.getName(), e.getDesignation(),
+            e.getBasicSalary(), e.getHra(), e.getTax(), e.getNetSalary());
+        copy.setCreatedAt(e.getCreatedAt());
+        copy.setUpdatedAt(e.getUpdatedAt());
+        return copy;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    // One record change: before is null for an add, after for a delete
+    private static final class Change {
+        final int id;
+        final Employee before;
+        final Employee after;
+        final byte[] image;
+
+        Change(int id, Employee before, Employee after) {
+            this.id = id;
+            this.before = before;
+            this.after = after;
+            if (after != null) {
+                image = MappedEmployeeFile.encode(after, MappedEmployeeFile.LIVE);
+            } else {
+                // A deletion keeps the last values, stamped with the time of the delete
+                Employee tombstone = copyOf(before);
+                tombstone.setUpdatedAt(System.currentTimeMillis());
+                image = MappedEmployeeFile.encode(tombstone, MappedEmployeeFile.DELETED);
+            }
+        }
+    }
+
+    // A change in the log whose record is not written yet
+    private static final class Logged {
+        final long version;
+        final byte[] image;
+
+        Logged(long version, byte[] image) {
+            this.version = version;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Reads the records as they were at a change version: records changed
+     * since are read from the copies writers saved for it
+     */
+    private final class Snapshot implements EmployeeSnapshot {
+        final long version;
+        final ConcurrentHashMap<Integer, byte[]> saved = new ConcurrentHashMap<>();
+
+        Snapshot(long version) {
+            this.version = version;
+        }
+
+        @Override
+        public long getId() {
+            return version;
+        }
+
+        @Override
+        public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+            int visited = 0;
+            int last = Math.min(toId, getMaxEmployeeId());
+            for (int id = Math.max(fromId, 1); id <= last; id++) {
+                Employee employee;
+                StampedLock lock = stripeFor(id);
+                long stamp = lock.readLock();
+                try {
+                    byte[] image = saved.get(id);
+                    if (image == null) {
+                        Logged logged = inFlight.get(id);
+                        if (logged != null && logged.version <= version) {
+                            image = logged.image;
+                        }
+                    }
+                    employee = image != null ? MappedEmployeeFile.decode(image) : records.read(id);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+                if (employee != null) {
+                    consumer.accept(employee);
+                    visited++;
+                }
+            }
+            return visited;
+        }
+
+        @Override
+        public void close() {
+            snapshots.remove(this);
+        }
+    }
+
+    // Running totals for one designation, in cents to avoid floating point drift
+    private static final class Totals {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong basicCents = new AtomicLong();
+        final AtomicLong hraCents = new AtomicLong();
+        final AtomicLong taxCents = new AtomicLong();
+        final AtomicLong netCents = new AtomicLong();
+
+        void add(Employee e, int sign) {
+            count.addAndGet(sign);
+            basicCents.addAndGet(sign * toCents(e.getBasicSalary()));
+            hraCents.addAndGet(sign * toCents(e.getHra()));
+            taxCents.addAndGet(sign * toCents(e.getTax()));
+            netCents.addAndGet(sign * toCents(e.getNetSalary()));
+        }
+    }
+}
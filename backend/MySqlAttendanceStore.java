@@ -0,0 +1,147 @@
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MySQL Attendance Store Class
+ * Keeps attendance summaries in employee_attendance, one row per period
+ * and employee. Batches are written as multi-row upserts that add to the
+ * stored totals, in one transaction on a connection owned by the
+ * ingestor so punch traffic never contends with request traffic.
+ */
+public class MySqlAttendanceStore implements AttendanceStore {
+
+    // Rows per INSERT statement; keeps packets well below max_allowed_packet
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO employee_attendance (period, employee_id, days_present, regular_minutes, "
+        + "overtime_minutes, night_shifts, punches, last_punch_at) VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?,?)";
+    private static final String UPSERT_SUFFIX =
+        " ON DUPLICATE KEY UPDATE days_present = days_present + VALUES(days_present), "
+        + "regular_minutes = regular_minutes + VALUES(regular_minutes), "
+        + "overtime_minutes = overtime_minutes + VALUES(overtime_minutes), "
+        + "night_shifts = night_shifts + VALUES(night_shifts), "
+        + "punches = punches + VALUES(punches), "
+        + "last_punch_at = GREATEST(last_punch_at, VALUES(last_punch_at))";
+
+    private Connection connection;
+
+    @Override
+    public synchronized boolean upsert(List<AttendanceSummary> summaries) {
+        try {
+            if (connection == null || !connection.isValid(2)) {
+                close();
+                connection = DatabaseConnection.openConnection();
+                connection.setAutoCommit(false);
+            }
+            try {
+                for (int from = 0; from < summaries.size(); from += ROWS_PER_STATEMENT) {
+                    upsertRows(summaries.subList(from, Math.min(summaries.size(), from + ROWS_PER_STATEMENT)));
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error writing " + summaries.size() + " attendance summaries!");
+            e.printStackTrace();
+            close();
+            return false;
+        }
+    }
+
+    private void upsertRows(List<AttendanceSummary> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + rows.size() * (ROW.length() + 1)
+            + UPSERT_SUFFIX.length());
+        sql.append(UPSERT_PREFIX);
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ",").append(ROW);
+        }
+        sql.append(UPSERT_SUFFIX);
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (AttendanceSummary row : rows) {
+                pstmt.setString(index++, row.getPeriod());
+                pstmt.setInt(index++, row.getEmployeeId());
+                pstmt.setInt(index++, row.getDaysPresent());
+                pstmt.setLong(index++, row.getRegularMinutes());
+                pstmt.setLong(index++, row.getOvertimeMinutes());
+                pstmt.setInt(index++, row.getNightShifts());
+                pstmt.setInt(index++, row.getPunches());
+                pstmt.setTimestamp(index++, Timestamp.valueOf(row.getLastPunchTime()));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public Map<Integer, AttendanceSummary> findSummaries(String period, int fromId, int toId) {
+        String query = "SELECT employee_id, days_present, regular_minutes, overtime_minutes, night_shifts, punches, "
+                     + "last_punch_at FROM employee_attendance WHERE period = ? AND employee_id BETWEEN ? AND ?";
+        Map<Integer, AttendanceSummary> summaries = new HashMap<>();
+
+        try (Connection readConnection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = readConnection.prepareStatement(query)) {
+            pstmt.setString(1, period);
+            pstmt.setInt(2, fromId);
+            pstmt.setInt(3, toId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int employeeId = rs.getInt("employee_id");
+                    summaries.put(employeeId, new AttendanceSummary(employeeId, period,
+                        rs.getInt("days_present"), rs.getLong("regular_minutes"), rs.getLong("overtime_minutes"),
+                        rs.getInt("night_shifts"), rs.getInt("punches"), toLocalSeconds(rs.getTimestamp("last_punch_at"))));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error reading attendance for " + period + " ids " + fromId + "-" + toId + "!");
+            e.printStackTrace();
+            return null;
+        }
+        return summaries;
+    }
+
+    @Override
+    public Map<Integer, Long> findLastPunches(String period) {
+        String query = "SELECT employee_id, last_punch_at FROM employee_attendance WHERE period = ?";
+        Map<Integer, Long> lastPunches = new HashMap<>();
+
+        try (Connection readConnection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = readConnection.prepareStatement(query)) {
+            pstmt.setString(1, period);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lastPunches.put(rs.getInt("employee_id"), toLocalSeconds(rs.getTimestamp("last_punch_at")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error reading last punches for " + period + "!");
+            e.printStackTrace();
+        }
+        return lastPunches;
+    }
+
+    private static long toLocalSeconds(Timestamp timestamp) {
+        LocalDateTime time = timestamp.toLocalDateTime();
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("✗ Error closing attendance connection: " + e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * MySQL Audit Sink Class
+ * Writes each batch of audit records into the payroll_audit table with a
+ * single multi-row INSERT in one transaction, on a connection owned by the
+ * audit writer so it never contends with request traffic.
+ */
+public class MySqlAuditSink implements AuditSink {
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO payroll_audit (employee_id, change_type, actor, changed_at, "
+        + "old_name, old_designation, old_basic_salary, old_hra, old_tax, old_net_salary, "
+        + "new_name, new_designation, new_basic_salary, new_hra, new_tax, new_net_salary, details) VALUES ";
+    private static final String ROW = "(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private Connection connection;
+
+    @Override
+    public void write(List<PayrollChange> batch) throws SQLException {
+        if (connection == null || !connection.isValid(2)) {
+            close();
+            connection = DatabaseConnection.openConnection();
+            connection.setAutoCommit(false);
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW.length() + 1));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ",").append(ROW);
+        }
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (PayrollChange change : batch) {
+                pstmt.setInt(index++, change.getEmployeeId());
+                pstmt.setString(index++, change.getType().name());
+                pstmt.setString(index++, change.getActor());
+                pstmt.setTimestamp(index++, new Timestamp(change.getTimestamp()));
+                index = bindEmployee(pstmt, index, change.getBefore());
+                index = bindEmployee(pstmt, index, change.getAfter());
+                pstmt.setString(index++, change.getDetails());
+            }
+            pstmt.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // connection is re-opened on the next attempt
+            }
+            throw e;
+        }
+    }
+
+    private static int bindEmployee(PreparedStatement pstmt, int index, Employee employee) throws SQLException {
+        if (employee == null) {
+            pstmt.setNull(index++, Types.VARCHAR);
+            pstmt.setNull(index++, Types.VARCHAR);
+            for (int i = 0; i < 4; i++) {
+                pstmt.setNull(index++, Types.DECIMAL);
+            }
+            return index;
+        }
+        pstmt.setString(index++, employee.getName());
+        pstmt.setString(index++, employee.getDesignation());
+        pstmt.setDouble(index++, employee.getBasicSalary());
+        pstmt.setDouble(index++, employee.getHra());
+        pstmt.setDouble(index++, employee.getTax());
+        pstmt.setDouble(index++, employee.getNetSalary());
+        return index;
+    }
+
+    @Override
+    public void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("✗ Error closing audit connection: " + e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
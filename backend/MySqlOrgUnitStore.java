@@ -0,0 +1,140 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * MySQL Org Unit Store Class
+ * Keeps the hierarchy in org_unit (adjacency list: each unit points at its
+ * parent) and assignments in employee_org_unit, one row per assigned
+ * employee. Assignments are written as multi-row upserts.
+ */
+public class MySqlOrgUnitStore implements OrgUnitStore {
+
+    // Rows per INSERT statement; keeps packets well below max_allowed_packet
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    @Override
+    public List<OrgUnit> loadUnits() {
+        String query = "SELECT unit_id, parent_id, name, kind FROM org_unit ORDER BY unit_id";
+        List<OrgUnit> units = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = connection.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                units.add(new OrgUnit(rs.getInt("unit_id"), rs.getInt("parent_id"), rs.getString("name"),
+                    OrgUnit.Kind.valueOf(rs.getString("kind"))));
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading org units!");
+            e.printStackTrace();
+        }
+        return units;
+    }
+
+    @Override
+    public boolean loadAssignments(BiConsumer<Integer, Integer> consumer) {
+        String query = "SELECT employee_id, unit_id FROM employee_org_unit";
+
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = connection.prepareStatement(query,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading org unit assignments!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public OrgUnit addUnit(int parentId, String name, OrgUnit.Kind kind) {
+        String query = "INSERT INTO org_unit (parent_id, name, kind) VALUES (?, ?, ?)";
+
+        try (Connection connection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            if (parentId == 0) {
+                pstmt.setNull(1, Types.INTEGER);
+            } else {
+                pstmt.setInt(1, parentId);
+            }
+            pstmt.setString(2, name);
+            pstmt.setString(3, kind.name());
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return new OrgUnit(keys.getInt(1), parentId, name, kind);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error adding org unit " + name + "!");
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean assign(List<Integer> employeeIds, int unitId) {
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (int from = 0; from < employeeIds.size(); from += ROWS_PER_STATEMENT) {
+                    List<Integer> rows = employeeIds.subList(from, Math.min(employeeIds.size(), from + ROWS_PER_STATEMENT));
+                    if (unitId == 0) {
+                        unassignRows(connection, rows);
+                    } else {
+                        assignRows(connection, rows, unitId);
+                    }
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error assigning " + employeeIds.size() + " employees to org unit " + unitId + "!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static void assignRows(Connection connection, List<Integer> rows, int unitId) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO employee_org_unit (employee_id, unit_id) VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ",").append("(?,?)");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE unit_id = VALUES(unit_id)");
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Integer employeeId : rows) {
+                pstmt.setInt(index++, employeeId);
+                pstmt.setInt(index++, unitId);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void unassignRows(Connection connection, List<Integer> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("DELETE FROM employee_org_unit WHERE employee_id IN (");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < rows.size(); i++) {
+                pstmt.setInt(i + 1, rows.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+}
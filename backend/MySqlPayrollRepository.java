@@ -0,0 +1,1206 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * MySQL Payroll Repository Class
+ * JDBC implementation of PayrollRepository over the employee_payroll table,
+ * using the shared connection from DatabaseConnection. Statements are bound
+ * to the calling request's QueryDeadline, so they time out with it. Revision
+ * chunks are not bound, because each chunk must commit once started.
+ *
+ * Triggers on employee_payroll append every version to
+ * employee_payroll_history, so as-of queries see all changes, including
+ * mass revisions and edits made outside the server. As-of queries within
+ * the last payroll.history.recentDays (120) days are answered from a
+ * SalaryHistoryIndex. It is loaded in the background on first use and
+ * caught up by tailing the history table before each lookup. Older dates
+ * go to the (id, valid_from) index.
+ */
+public class MySqlPayrollRepository implements PayrollRepository {
+    
+    private static final int RECENT_DAYS = Integer.getInteger("payroll.history.recentDays", 120);
+    
+    // Rows per batched UPDATE/DELETE statement; keeps packets well below max_allowed_packet
+    private static final int ROWS_PER_STATEMENT = 500;
+    
+    private static final String HISTORY_COLUMNS =
+        "history_id, id, name, designation, basic_salary, hra, tax, net_salary, valid_from, deleted";
+    
+    private volatile RecentHistory recentHistory;  // null until first loaded
+    private final AtomicBoolean historyLoading = new AtomicBoolean();
+    
+    @Override
+    public boolean isAvailable() {
+        return DatabaseConnection.testConnection();
+    }
+    
+    @Override
+    public void close() {
+        // Writes are committed as they happen; the shared connection is
+        // also used by the run and audit stores and goes with the process
+    }
+    
+    /**
+     * Adds a new employee to the payroll system
+     * @param employee Employee object to be added
+     * @return true if employee added successfully, false otherwise
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        String query = "INSERT INTO employee_payroll (name, designation, basic_salary, hra, tax, net_salary) VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement pstmt = prepare(query, Statement.RETURN_GENERATED_KEYS)) {
+            // Calculate net salary before inserting
+            double netSalary = employee.calculateNetSalary();
+            
+            // Set parameters
+            pstmt.setString(1, employee.getName());
+            pstmt.setString(2, employee.getDesignation());
+            pstmt.setDouble(3, employee.getBasicSalary());
+            pstmt.setDouble(4, employee.getHra());
+            pstmt.setDouble(5, employee.getTax());
+            pstmt.setDouble(6, netSalary);
+            
+            // Execute update
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                // Hand the generated id back to the caller
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        employee.setId(keys.getInt(1));
+                    }
+                }
+                System.out.println("✓ Employee added successfully to payroll system!");
+                return true;
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error adding employee to database!");
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Updates existing employee details
+     * @param employee Employee object with updated information
+     * @return true if update successful, false otherwise
+     */
+    @Override
+    public boolean updateEmployee(Employee employee) {
+        String query = "UPDATE employee_payroll SET name=?, designation=?, basic_salary=?, hra=?, tax=?, net_salary=? WHERE id=?";
+        
+        try (PreparedStatement pstmt = prepare(query)) {
+            // Calculate net salary before updating
+            double netSalary = employee.calculateNetSalary();
+            
+            // Set parameters
+            pstmt.setString(1, employee.getName());
+            pstmt.setString(2, employee.getDesignation());
+            pstmt.setDouble(3, employee.getBasicSalary());
+            pstmt.setDouble(4, employee.getHra());
+            pstmt.setDouble(5, employee.getTax());
+            pstmt.setDouble(6, netSalary);
+            pstmt.setInt(7, employee.getId());
+            
+            // Execute update
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                System.out.println("✓ Employee details updated successfully!");
+                return true;
+            } else {
+                System.out.println("✗ Employee ID not found in database!");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error updating employee details!");
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Deletes an employee from the payroll system
+     * @param employeeId ID of the employee to be deleted
+     * @return true if deletion successful, false otherwise
+     */
+    @Override
+    public boolean deleteEmployee(int employeeId) {
+        String query = "DELETE FROM employee_payroll WHERE id=?";
+        
+        try (PreparedStatement pstmt = prepare(query)) {
+            pstmt.setInt(1, employeeId);
+            
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                System.out.println("✓ Employee removed from payroll system!");
+                return true;
+            } else {
+                System.out.println("✗ Employee ID not found in database!");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error deleting employee from database!");
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Retrieves a single employee by ID
+     * @param employeeId ID of the employee
+     * @return Employee object if found, null otherwise
+     */
+    @Override
+    public Employee getEmployeeById(int employeeId) {
+        String query = "SELECT * FROM employee_payroll WHERE id=?";
+        
+        // Own connection, so a lookup never waits for a search or report to finish
+        try (PreparedStatement pstmt = prepareLookup(query)) {
+            pstmt.setInt(1, employeeId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return extractEmployeeFromResultSet(rs);
+            } else {
+                System.out.println("✗ Employee ID not found!");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error fetching employee details!");
+            e.printStackTrace();
+        }
+        return null;
+    }
+    
+    /**
+     * Retrieves all employees from the payroll system
+     * @return List of all employees
+     */
+    @Override
+    public List<Employee> getAllEmployees() {
+        List<Employee> employees = new ArrayList<>();
+        String query = "SELECT * FROM employee_payroll ORDER BY id";
+        
+        try (Statement stmt = createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                employees.add(extractEmployeeFromResultSet(rs));
+            }
+            
+            if (employees.isEmpty()) {
+                System.out.println("ℹ No employees found in the payroll system.");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error fetching employee list!");
+            e.printStackTrace();
+        }
+        return employees;
+    }
+    
+    /**
+     * Searches employees by designation
+     * @param designation Designation to search for
+     * @return List of employees with matching designation
+     */
+    @Override
+    public List<Employee> searchByDesignation(String designation) {
+        List<Employee> employees = new ArrayList<>();
+        String query = "SELECT * FROM employee_payroll WHERE designation LIKE ?";
+        
+        try (PreparedStatement pstmt = prepare(query)) {
+            pstmt.setString(1, "%" + designation + "%");
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                employees.add(extractEmployeeFromResultSet(rs));
+            }
+            
+            if (employees.isEmpty()) {
+                System.out.println("ℹ No employees found with designation: " + designation);
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error searching employees!");
+            e.printStackTrace();
+        }
+        return employees;
+    }
+    
+    /**
+     * Composite search. Every criterion becomes a sargable predicate (name
+     * prefix as LIKE 'x%', ranges as >= / <=) and the statement is limited
+     * to the indexes that serve a given criterion. That keeps MySQL off the
+     * "walk the primary key in ORDER BY id order" plan, while its index
+     * statistics still pick the most selective of those candidates. The
+     * reported plan is what EXPLAIN says the server chose for the same
+     * statement and values, and "examined" is its row estimate.
+     * @param search Search criteria
+     * @return Matching employees in id order, with the server's access path
+     */
+    @Override
+    public SearchResult search(EmployeeSearch search) {
+        long start = System.nanoTime();
+        List<String> indexes = new ArrayList<>();
+        List<Object> binds = new ArrayList<>();
+        StringBuilder where = new StringBuilder();
+        
+        if (search.getDesignation() != null) {
+            // Equality first, so (designation, net_salary) can also serve a salary range
+            indexes.add("idx_employee_designation_net");
+            where.append(" AND designation = ?");
+            binds.add(search.getDesignation());
+        }
+        if (search.getNamePrefix() != null) {
+            indexes.add("idx_employee_name");
+            where.append(" AND name LIKE ?");
+            binds.add(escapeLike(search.getNamePrefix()) + "%");
+        }
+        if (search.hasNetSalaryRange()) {
+            indexes.add("idx_employee_net_salary");
+            appendRange(where, binds, "net_salary", search.getMinNetSalary(), search.getMaxNetSalary());
+        }
+        if (search.hasTaxRange()) {
+            indexes.add("idx_employee_tax");
+            appendRange(where, binds, "tax", search.getMinTax(), search.getMaxTax());
+        }
+        if (search.hasCreatedRange()) {
+            indexes.add("idx_employee_created");
+            appendRange(where, binds, "created_at", toTimestamp(search.getCreatedFrom()),
+                toTimestamp(search.getCreatedTo()));
+        }
+        if (search.hasUpdatedRange()) {
+            indexes.add("idx_employee_updated");
+            appendRange(where, binds, "updated_at", toTimestamp(search.getUpdatedFrom()),
+                toTimestamp(search.getUpdatedTo()));
+        }
+        
+        String hint = indexes.isEmpty() ? "" : " USE INDEX (" + String.join(", ", indexes) + ")";
+        String filter = where.length() == 0 ? "" : " WHERE" + where.substring(4);
+        String query = "SELECT * FROM employee_payroll" + hint + filter + " ORDER BY id LIMIT ?";
+        List<Employee> employees = new ArrayList<>();
+        String plan = "unknown";
+        int examined = 0;
+        
+        try (PreparedStatement pstmt = prepare(query)) {
+            bindSearch(pstmt, binds, search.getLimit());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    employees.add(extractEmployeeFromResultSet(rs));
+                }
+            }
+            // Planning only, nothing is read: the access path MySQL picked among the candidates
+            try (PreparedStatement explain = prepare("EXPLAIN " + query)) {
+                bindSearch(explain, binds, search.getLimit());
+                try (ResultSet rs = explain.executeQuery()) {
+                    if (rs.next()) {
+                        String key = rs.getString("key");
+                        plan = key != null ? key : "full scan";
+                        examined = (int) Math.min(Integer.MAX_VALUE, rs.getLong("rows"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error searching employees!");
+            e.printStackTrace();
+        }
+        return new SearchResult(employees, plan, examined, (System.nanoTime() - start) / 1000);
+    }
+    
+    private static void bindSearch(PreparedStatement pstmt, List<Object> binds, int limit) throws SQLException {
+        int index = 1;
+        for (Object value : binds) {
+            pstmt.setObject(index++, value);
+        }
+        pstmt.setInt(index, limit);
+    }
+    
+    /**
+     * Helper method to extract Employee object from ResultSet
+     * @param rs ResultSet from database query
+     * @return Employee object
+     * @throws SQLException if database access error occurs
+     */
+    private Employee extractEmployeeFromResultSet(ResultSet rs) throws SQLException {
+        Employee employee = new Employee(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getString("designation"),
+            rs.getDouble("basic_salary"),
+            rs.getDouble("hra"),
+            rs.getDouble("tax"),
+            rs.getDouble("net_salary")
+        );
+        Timestamp created = rs.getTimestamp("created_at");
+        Timestamp updated = rs.getTimestamp("updated_at");
+        employee.setCreatedAt(created != null ? created.getTime() : 0);
+        employee.setUpdatedAt(updated != null ? updated.getTime() : 0);
+        return employee;
+    }
+    
+    // column >= ? AND column <= ? for whichever bounds are set
+    private static void appendRange(StringBuilder where, List<Object> binds, String column, Object min, Object max) {
+        if (min != null) {
+            where.append(" AND ").append(column).append(" >= ?");
+            binds.add(min);
+        }
+        if (max != null) {
+            where.append(" AND ").append(column).append(" <= ?");
+            binds.add(max);
+        }
+    }
+    
+    private static Timestamp toTimestamp(Long millis) {
+        return millis != null ? new Timestamp(millis) : null;
+    }
+    
+    // Prefix text taken literally by LIKE
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    /**
+     * Calculates total payroll expense (for management reporting)
+     * @return Total net salary of all employees
+     */
+    @Override
+    public double calculateTotalPayrollExpense() {
+        String query = "SELECT SUM(net_salary) as total FROM employee_payroll";
+        
+        try (Statement stmt = createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next()) {
+                return rs.getDouble("total");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error calculating payroll expense!");
+            e.printStackTrace();
+        }
+        return 0.0;
+    }
+    
+    /**
+     * Counts all employees
+     * @return Number of employees
+     */
+    @Override
+    public int countEmployees() {
+        String query = "SELECT COUNT(*) AS total FROM employee_payroll";
+        
+        try (Statement stmt = createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next()) {
+                return rs.getInt("total");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error counting employees!");
+            e.printStackTrace();
+        }
+        return 0;
+    }
+    
+    /**
+     * Highest employee id currently in use
+     * @return Largest id, 0 if there are no employees
+     */
+    @Override
+    public int getMaxEmployeeId() {
+        String query = "SELECT COALESCE(MAX(id), 0) AS max_id FROM employee_payroll";
+        
+        try (Statement stmt = createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next()) {
+                return rs.getInt("max_id");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error fetching highest employee id!");
+            e.printStackTrace();
+        }
+        return 0;
+    }
+    
+    /**
+     * Salary totals grouped by designation
+     * @return One aggregate per designation
+     */
+    @Override
+    public List<PayrollAggregate> aggregateByDesignation() {
+        List<PayrollAggregate> aggregates = new ArrayList<>();
+        String query = "SELECT designation, COUNT(*) AS employees, SUM(basic_salary) AS basic, SUM(hra) AS hra, "
+                     + "SUM(tax) AS tax, SUM(net_salary) AS net FROM employee_payroll GROUP BY designation ORDER BY designation";
+        
+        try (Statement stmt = createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                aggregates.add(new PayrollAggregate(
+                    rs.getString("designation"),
+                    rs.getInt("employees"),
+                    rs.getDouble("basic"),
+                    rs.getDouble("hra"),
+                    rs.getDouble("tax"),
+                    rs.getDouble("net")
+                ));
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error aggregating payroll by designation!");
+            e.printStackTrace();
+        }
+        return aggregates;
+    }
+    
+    /**
+     * Streams an id range row by row on a dedicated connection, so the
+     * shared connection stays usable while a long scan is running
+     * @param fromId First id (inclusive)
+     * @param toId Last id (inclusive)
+     * @param consumer Receives each employee
+     * @return Number of employees visited
+     */
+    @Override
+    public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+        String query = "SELECT * FROM employee_payroll WHERE id BETWEEN ? AND ? ORDER BY id";
+        int visited = 0;
+        
+        try (Connection scanConnection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = scanConnection.prepareStatement(query,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Integer.MIN_VALUE makes Connector/J stream rows instead of buffering the result
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            QueryDeadline.apply(pstmt);
+            pstmt.setInt(1, fromId);
+            pstmt.setInt(2, toId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(extractEmployeeFromResultSet(rs));
+                    visited++;
+                }
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error scanning employee records!");
+            e.printStackTrace();
+        }
+        return visited;
+    }
+    
+    /**
+     * Streams the whole table into a compact roster on a dedicated
+     * connection. Rows go straight into the roster's columns, so no
+     * Employee objects are created and designations are stored as codes.
+     * @return Roster of all employees in id order
+     */
+    @Override
+    public EmployeeRoster loadRoster() {
+        String query = "SELECT id, name, designation, basic_salary, hra, tax, net_salary FROM employee_payroll ORDER BY id";
+        EmployeeRoster.Builder roster = new EmployeeRoster.Builder(1024);
+        
+        try (Connection rosterConnection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = rosterConnection.prepareStatement(query,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            QueryDeadline.apply(pstmt);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    roster.add(rs.getInt(1), rs.getString(2), rs.getString(3),
+                        rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(7));
+                }
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error loading employee roster!");
+            e.printStackTrace();
+        }
+        return roster.build();
+    }
+    
+    @Override
+    public Employee getEmployeeAsOf(int employeeId, long asOf) {
+        SalaryHistoryIndex recent = recentHistory(asOf);
+        if (recent != null) {
+            return recent.find(employeeId, asOf);
+        }
+        String query = "SELECT " + HISTORY_COLUMNS + " FROM employee_payroll_history "
+                     + "WHERE id = ? AND valid_from <= ? ORDER BY valid_from DESC, history_id DESC LIMIT 1";
+        
+        try (PreparedStatement pstmt = prepare(query)) {
+            pstmt.setInt(1, employeeId);
+            pstmt.setTimestamp(2, new Timestamp(asOf));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && !rs.getBoolean("deleted")) {
+                    Employee employee = new Employee(rs.getInt("id"), rs.getString("name"), rs.getString("designation"),
+                        rs.getDouble("basic_salary"), rs.getDouble("hra"), rs.getDouble("tax"), rs.getDouble("net_salary"));
+                    employee.setUpdatedAt(rs.getTimestamp("valid_from").getTime());
+                    return employee;
+                }
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error reading salary history of employee " + employeeId + "!");
+            e.printStackTrace();
+        }
+        return null;
+    }
+    
+    @Override
+    public EmployeeRoster loadRosterAsOf(long asOf) {
+        SalaryHistoryIndex recent = recentHistory(asOf);
+        if (recent != null) {
+            return recent.rosterAsOf(asOf);
+        }
+        // Latest version per employee at asOf; history_id breaks ties within one millisecond
+        String query = "SELECT h.id, h.name, h.designation, h.basic_salary, h.hra, h.tax, h.net_salary "
+                     + "FROM employee_payroll_history h JOIN (SELECT MAX(history_id) AS history_id "
+                     + "FROM employee_payroll_history WHERE valid_from <= ? GROUP BY id) v "
+                     + "ON v.history_id = h.history_id WHERE h.deleted = FALSE ORDER BY h.id";
+        EmployeeRoster.Builder roster = new EmployeeRoster.Builder(1024);
+        
+        try (Connection rosterConnection = DatabaseConnection.openConnection();
+             PreparedStatement pstmt = rosterConnection.prepareStatement(query,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            QueryDeadline.apply(pstmt);
+            pstmt.setTimestamp(1, new Timestamp(asOf));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    roster.add(rs.getInt(1), rs.getString(2), rs.getString(3),
+                        rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(7));
+                }
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error loading employee roster as of " + new Timestamp(asOf) + "!");
+            e.printStackTrace();
+        }
+        return roster.build();
+    }
+    
+    // The recent-history index if it covers asOf, caught up with the table; null to ask the database
+    private SalaryHistoryIndex recentHistory(long asOf) {
+        RecentHistory recent = recentHistory;
+        // (Re)load when missing, or when so much was appended that moving the horizon pays off
+        if (recent == null || recent.index.size() > 2 * recent.loadedVersions + 100_000) {
+            loadRecentHistoryInBackground();
+        }
+        if (recent == null || !recent.index.covers(asOf)) {
+            return null;
+        }
+        synchronized (recent) {
+            String query = "SELECT " + HISTORY_COLUMNS + " FROM employee_payroll_history "
+                         + "WHERE history_id > ? ORDER BY history_id";
+            try (PreparedStatement pstmt = prepare(query)) {
+                pstmt.setLong(1, recent.lowWater);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (recent.seen.add(rs.getLong(1))) {
+                            recordVersion(recent.index, rs);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                QueryDeadline.rethrowIfCancelled(e);
+                System.err.println("✗ Error reading new salary history: " + e.getMessage());
+                return null;
+            }
+            recent.advance(System.currentTimeMillis());
+        }
+        return recent.index;
+    }
+    
+    private void loadRecentHistoryInBackground() {
+        if (!historyLoading.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                loadRecentHistory();
+            } finally {
+                historyLoading.set(false);
+            }
+        }, "payroll-history-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    /**
+     * Loads the versions in effect at the horizon (now - recentDays) and
+     * every later one into a fresh index, then swaps it in
+     */
+    private void loadRecentHistory() {
+        long start = System.currentTimeMillis();
+        long horizon = start - TimeUnit.DAYS.toMillis(RECENT_DAYS);
+        SalaryHistoryIndex index = new SalaryHistoryIndex(horizon);
+        long lastHistoryId = 0;
+        String atHorizon = "SELECT h.history_id, h.id, h.name, h.designation, h.basic_salary, h.hra, h.tax, "
+                         + "h.net_salary, h.valid_from, h.deleted FROM employee_payroll_history h "
+                         + "JOIN (SELECT MAX(history_id) AS history_id FROM employee_payroll_history "
+                         + "WHERE valid_from < ? GROUP BY id) v ON v.history_id = h.history_id WHERE h.deleted = FALSE";
+        String sinceHorizon = "SELECT " + HISTORY_COLUMNS + " FROM employee_payroll_history "
+                            + "WHERE valid_from >= ? ORDER BY history_id";
+        
+        try (Connection historyConnection = DatabaseConnection.openConnection()) {
+            for (String query : new String[]{atHorizon, sinceHorizon}) {
+                try (PreparedStatement pstmt = historyConnection.prepareStatement(query,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    pstmt.setFetchSize(Integer.MIN_VALUE);
+                    pstmt.setTimestamp(1, new Timestamp(horizon));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            recordVersion(index, rs);
+                            lastHistoryId = Math.max(lastHistoryId, rs.getLong(1));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading recent salary history!");
+            e.printStackTrace();
+            return;
+        }
+        recentHistory = new RecentHistory(index, lastHistoryId);
+        System.out.println("📊 Salary history since " + new Timestamp(horizon) + " indexed: " + index.size()
+            + " versions in " + (System.currentTimeMillis() - start) + " ms");
+    }
+    
+    private static void recordVersion(SalaryHistoryIndex index, ResultSet rs) throws SQLException {
+        Employee state = null;
+        if (!rs.getBoolean(10)) {
+            state = new Employee(rs.getInt(2), rs.getString(3), rs.getString(4),
+                rs.getDouble(5), rs.getDouble(6), rs.getDouble(7), rs.getDouble(8));
+        }
+        index.record(rs.getInt(2), rs.getTimestamp(9).getTime(), state);
+    }
+    
+    /**
+     * Recent-history index plus how far the history table has been tailed.
+     * History ids are allocated when a row is inserted but become visible
+     * at commit, so a revision chunk still in flight shows up as a gap
+     * below rows already read. Everything above lowWater is re-read until
+     * the gap fills. Rows already seen are skipped, and a gap older than
+     * payroll.history.gapTimeoutMs (a rolled-back insert) is given up on.
+     */
+    private static final class RecentHistory {
+        private static final long GAP_TIMEOUT_MS = Long.getLong("payroll.history.gapTimeoutMs", 30_000L);
+        
+        final SalaryHistoryIndex index;
+        final int loadedVersions;
+        final TreeSet<Long> seen = new TreeSet<>();  // history ids read above lowWater
+        long lowWater;                                // every id up to here is read or abandoned
+        long gapSince;                                // when the gap at lowWater + 1 was first seen
+        
+        RecentHistory(SalaryHistoryIndex index, long lowWater) {
+            this.index = index;
+            this.loadedVersions = index.size();
+            this.lowWater = lowWater;
+        }
+        
+        void advance(long now) {
+            while (!seen.isEmpty()) {
+                if (seen.first() == lowWater + 1) {
+                    lowWater = seen.pollFirst();
+                    gapSince = 0;
+                    continue;
+                }
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < GAP_TIMEOUT_MS) {
+                    break;
+                }
+                lowWater = seen.first() - 1;
+                gapSince = 0;
+            }
+        }
+    }
+    
+    /**
+     * The highest history_id: every insert, update and delete appends one
+     * history row through the triggers
+     */
+    @Override
+    public long getChangeVersion() {
+        try (PreparedStatement pstmt = prepare("SELECT COALESCE(MAX(history_id), 0) FROM employee_payroll_history");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error reading employee change version: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Writes the batch in one transaction on a dedicated connection. Updates
+     * go 500 rows per statement as an UPDATE joined to the new values, so
+     * ids deleted meanwhile are skipped rather than inserted again.
+     */
+    @Override
+    public boolean writeBatch(List<Employee> updates, List<Integer> deletedIds) {
+        try (Connection batchConnection = DatabaseConnection.openConnection()) {
+            batchConnection.setAutoCommit(false);
+            try {
+                for (int from = 0; from < updates.size(); from += ROWS_PER_STATEMENT) {
+                    updateRows(batchConnection, updates.subList(from, Math.min(updates.size(), from + ROWS_PER_STATEMENT)));
+                }
+                for (int from = 0; from < deletedIds.size(); from += ROWS_PER_STATEMENT) {
+                    deleteRows(batchConnection, deletedIds.subList(from, Math.min(deletedIds.size(), from + ROWS_PER_STATEMENT)));
+                }
+                batchConnection.commit();
+                return true;
+            } catch (SQLException e) {
+                batchConnection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error writing batch of " + updates.size() + " updates and "
+                + deletedIds.size() + " deletes!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    private static void updateRows(Connection connection, List<Employee> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE employee_payroll e JOIN (");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0
+                ? "SELECT ? AS id, ? AS name, ? AS designation, ? AS basic_salary, ? AS hra, ? AS tax, ? AS net_salary"
+                : " UNION ALL SELECT ?, ?, ?, ?, ?, ?, ?");
+        }
+        sql.append(") v ON v.id = e.id SET e.name = v.name, e.designation = v.designation, ")
+           .append("e.basic_salary = v.basic_salary, e.hra = v.hra, e.tax = v.tax, e.net_salary = v.net_salary");
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Employee employee : rows) {
+                pstmt.setInt(index++, employee.getId());
+                pstmt.setString(index++, employee.getName());
+                pstmt.setString(index++, employee.getDesignation());
+                pstmt.setDouble(index++, employee.getBasicSalary());
+                pstmt.setDouble(index++, employee.getHra());
+                pstmt.setDouble(index++, employee.getTax());
+                pstmt.setDouble(index++, employee.getNetSalary());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+    
+    private static void deleteRows(Connection connection, List<Integer> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("DELETE FROM employee_payroll WHERE id IN (");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(")");
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < rows.size(); i++) {
+                pstmt.setInt(i + 1, rows.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Opens a REPEATABLE READ, read-only transaction WITH CONSISTENT
+     * SNAPSHOT on a dedicated connection. InnoDB serves its reads from the
+     * undo log, so writers are never blocked, however long the run takes.
+     * The snapshot id is the highest history_id visible in it. A run resumed
+     * after a restart cannot get its read view back; it re-opens the same
+     * version from employee_payroll_history instead (newest version per
+     * employee with history_id <= snapshot id).
+     */
+    @Override
+    public EmployeeSnapshot openSnapshot(long snapshotId) {
+        Connection snapshotConnection = null;
+        try {
+            snapshotConnection = DatabaseConnection.openConnection();
+            if (snapshotId > 0) {
+                return new HistorySnapshot(snapshotConnection, snapshotId);
+            }
+            snapshotConnection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement stmt = snapshotConnection.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                try (ResultSet rs = stmt.executeQuery(
+                         "SELECT COALESCE(MAX(history_id), 0) FROM employee_payroll_history")) {
+                    rs.next();
+                    return new ConsistentSnapshot(snapshotConnection, rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error opening employee snapshot!");
+            e.printStackTrace();
+            closeQuietly(snapshotConnection);
+            return null;
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("✗ Error closing snapshot connection: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reads employee_payroll inside an open consistent-snapshot transaction
+     */
+    private final class ConsistentSnapshot implements EmployeeSnapshot {
+        private final Connection snapshotConnection;
+        private final long id;
+        
+        ConsistentSnapshot(Connection snapshotConnection, long id) {
+            this.snapshotConnection = snapshotConnection;
+            this.id = id;
+        }
+        
+        @Override
+        public long getId() {
+            return id;
+        }
+        
+        @Override
+        public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+            String query = "SELECT * FROM employee_payroll WHERE id BETWEEN ? AND ? ORDER BY id";
+            int visited = 0;
+            
+            try (PreparedStatement pstmt = snapshotConnection.prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(extractEmployeeFromResultSet(rs));
+                        visited++;
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("✗ Error reading employee snapshot " + id + "!");
+                e.printStackTrace();
+                return -1;
+            }
+            return visited;
+        }
+        
+        @Override
+        public void close() {
+            try (Statement stmt = snapshotConnection.createStatement()) {
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                System.err.println("✗ Error ending snapshot " + id + ": " + e.getMessage());
+            }
+            closeQuietly(snapshotConnection);
+        }
+    }
+    
+    /**
+     * Re-opened snapshot: the newest version of each employee with a
+     * history_id up to the snapshot id. A change still uncommitted when
+     * the original snapshot was taken, but with a lower history_id, is
+     * included here although the original did not see it.
+     */
+    private static final class HistorySnapshot implements EmployeeSnapshot {
+        private final Connection snapshotConnection;
+        private final long id;
+        
+        HistorySnapshot(Connection snapshotConnection, long id) {
+            this.snapshotConnection = snapshotConnection;
+            this.id = id;
+        }
+        
+        @Override
+        public long getId() {
+            return id;
+        }
+        
+        @Override
+        public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+            String query = "SELECT h.id, h.name, h.designation, h.basic_salary, h.hra, h.tax, h.net_salary, h.valid_from "
+                         + "FROM employee_payroll_history h JOIN (SELECT MAX(history_id) AS history_id "
+                         + "FROM employee_payroll_history WHERE id BETWEEN ? AND ? AND history_id <= ? GROUP BY id) v "
+                         + "ON v.history_id = h.history_id WHERE h.deleted = FALSE ORDER BY h.id";
+            int visited = 0;
+            
+            try (PreparedStatement pstmt = snapshotConnection.prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                pstmt.setLong(3, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Employee employee = new Employee(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(7));
+                        employee.setUpdatedAt(rs.getTimestamp(8).getTime());
+                        consumer.accept(employee);
+                        visited++;
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("✗ Error reading employee snapshot " + id + " from history!");
+                e.printStackTrace();
+                return -1;
+            }
+            return visited;
+        }
+        
+        @Override
+        public void close() {
+            closeQuietly(snapshotConnection);
+        }
+    }
+    
+    /**
+     * Applies a salary revision with one set-based UPDATE per id chunk.
+     * Each chunk is its own transaction on a dedicated connection, so other
+     * requests keep running while a large revision is in progress.
+     * @param revision Revision to apply
+     * @return Preview or outcome of the revision
+     */
+    @Override
+    public RevisionResult applyRevision(SalaryRevision revision) {
+        if (revision.getTaxRules() != null) {
+            return applyRevisionWithDeductions(revision);
+        }
+        long start = System.currentTimeMillis();
+        boolean byDesignation = revision.getDesignation() != null;
+        String filter = " WHERE id BETWEEN ? AND ?" + (byDesignation ? " AND designation = ?" : "");
+        String previewQuery = "SELECT COUNT(*) AS employees, MIN(id) AS first_id, MAX(id) AS last_id, "
+                            + "COALESCE(SUM(net_salary), 0) AS net_before, "
+                            + "COALESCE(SUM(ROUND(basic_salary * ? + ?, 2) + ROUND(hra * ? + ?, 2) - tax), 0) AS net_after "
+                            + "FROM employee_payroll" + filter;
+        // MySQL evaluates single-table SET assignments left to right, so
+        // net_salary is computed from the revised basic_salary and hra
+        String updateQuery = "UPDATE employee_payroll SET basic_salary = ROUND(basic_salary * ? + ?, 2), "
+                           + "hra = ROUND(hra * ? + ?, 2), net_salary = basic_salary + hra - tax" + filter;
+        
+        int employees;
+        int firstId;
+        int lastId;
+        double netBefore;
+        double netAfter;
+        try (PreparedStatement pstmt = prepare(previewQuery)) {
+            int index = bindRevision(pstmt, revision, 1);
+            bindRevisionFilter(pstmt, revision, index, revision.getFromId(), revision.getToId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                employees = rs.getInt("employees");
+                firstId = rs.getInt("first_id");
+                lastId = rs.getInt("last_id");
+                netBefore = rs.getDouble("net_before");
+                netAfter = rs.getDouble("net_after");
+            }
+        } catch (SQLException e) {
+            QueryDeadline.rethrowIfCancelled(e);
+            System.err.println("✗ Error previewing salary revision!");
+            e.printStackTrace();
+            return null;
+        }
+        
+        if (revision.isDryRun() || employees == 0) {
+            int chunks = employees == 0 ? 0 : (lastId - firstId) / SalaryRevision.CHUNK_SIZE + 1;
+            return new RevisionResult(revision.isDryRun(), employees, chunks, netBefore, netAfter,
+                System.currentTimeMillis() - start, true, employees == 0 ? revision.getToId() : 0);
+        }
+        
+        int updated = 0;
+        int chunks = 0;
+        int lastCommittedId = firstId - 1;
+        try (Connection revisionConnection = DatabaseConnection.openConnection()) {
+            revisionConnection.setAutoCommit(false);
+            try (PreparedStatement pstmt = revisionConnection.prepareStatement(updateQuery)) {
+                for (long chunkStart = firstId; chunkStart <= lastId; chunkStart += SalaryRevision.CHUNK_SIZE) {
+                    int chunkEnd = (int) Math.min(lastId, chunkStart + SalaryRevision.CHUNK_SIZE - 1);
+                    int index = bindRevision(pstmt, revision, 1);
+                    bindRevisionFilter(pstmt, revision, index, (int) chunkStart, chunkEnd);
+                    updated += pstmt.executeUpdate();
+                    revisionConnection.commit();
+                    chunks++;
+                    lastCommittedId = chunkEnd;
+                }
+            } catch (SQLException e) {
+                revisionConnection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Salary revision stopped after id " + lastCommittedId + "!");
+            e.printStackTrace();
+            return new RevisionResult(false, updated, chunks, netBefore, netAfter,
+                System.currentTimeMillis() - start, false, lastCommittedId);
+        }
+        
+        System.out.println("✓ Salary revision applied to " + updated + " employees in " + chunks + " chunks!");
+        return new RevisionResult(false, updated, chunks, netBefore, netAfter,
+            System.currentTimeMillis() - start, true, lastCommittedId);
+    }
+    
+    /**
+     * Applies a salary revision under tax rules. The slab formula lives in
+     * TaxRules, so each chunk's rows are read FOR UPDATE, revised in Java
+     * and written back with one batched UPDATE, in one transaction per
+     * chunk on a dedicated connection. A dry run reads the same rows
+     * without locking them.
+     * @param revision Revision carrying the tax rules
+     * @return Preview or outcome of the revision
+     */
+    private RevisionResult applyRevisionWithDeductions(SalaryRevision revision) {
+        long start = System.currentTimeMillis();
+        boolean byDesignation = revision.getDesignation() != null;
+        String filter = " WHERE id BETWEEN ? AND ?" + (byDesignation ? " AND designation = ?" : "");
+        String rangeQuery = "SELECT MIN(id) AS first_id, MAX(id) AS last_id FROM employee_payroll" + filter;
+        String chunkQuery = "SELECT id, basic_salary, hra, tax, net_salary FROM employee_payroll" + filter
+                          + (revision.isDryRun() ? "" : " FOR UPDATE");
+        String updateQuery = "UPDATE employee_payroll SET basic_salary = ?, hra = ?, tax = ?, net_salary = ? WHERE id = ?";
+        
+        int employees = 0;
+        int chunks = 0;
+        int lastCommittedId = 0;
+        long beforeCents = 0;
+        long afterCents = 0;
+        try (Connection revisionConnection = DatabaseConnection.openConnection()) {
+            int firstId;
+            int lastId;
+            try (PreparedStatement range = revisionConnection.prepareStatement(rangeQuery)) {
+                bindRevisionFilter(range, revision, 1, revision.getFromId(), revision.getToId());
+                try (ResultSet rs = range.executeQuery()) {
+                    rs.next();
+                    firstId = rs.getInt("first_id");
+                    lastId = rs.getInt("last_id");
+                    if (rs.wasNull()) {
+                        return new RevisionResult(revision.isDryRun(), 0, 0, 0, 0,
+                            System.currentTimeMillis() - start, true, revision.isDryRun() ? 0 : revision.getToId());
+                    }
+                }
+            }
+            lastCommittedId = firstId - 1;
+            revisionConnection.setAutoCommit(false);
+            try (PreparedStatement select = revisionConnection.prepareStatement(chunkQuery);
+                 PreparedStatement update = revisionConnection.prepareStatement(updateQuery)) {
+                for (long chunkStart = firstId; chunkStart <= lastId; chunkStart += SalaryRevision.CHUNK_SIZE) {
+                    int chunkEnd = (int) Math.min(lastId, chunkStart + SalaryRevision.CHUNK_SIZE - 1);
+                    bindRevisionFilter(select, revision, 1, (int) chunkStart, chunkEnd);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            Employee revised = new Employee(rs.getInt("id"), null, null, rs.getDouble("basic_salary"),
+                                rs.getDouble("hra"), rs.getDouble("tax"), rs.getDouble("net_salary"));
+                            beforeCents += Math.round(revised.getNetSalary() * 100);
+                            revision.revise(revised);
+                            afterCents += Math.round(revised.getNetSalary() * 100);
+                            employees++;
+                            if (!revision.isDryRun()) {
+                                update.setDouble(1, revised.getBasicSalary());
+                                update.setDouble(2, revised.getHra());
+                                update.setDouble(3, revised.getTax());
+                                update.setDouble(4, revised.getNetSalary());
+                                update.setInt(5, revised.getId());
+                                update.addBatch();
+                            }
+                        }
+                    }
+                    if (!revision.isDryRun()) {
+                        update.executeBatch();
+                    }
+                    revisionConnection.commit();
+                    chunks++;
+                    lastCommittedId = chunkEnd;
+                }
+            } catch (SQLException e) {
+                revisionConnection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Salary revision stopped after id " + lastCommittedId + "!");
+            e.printStackTrace();
+            return new RevisionResult(revision.isDryRun(), employees, chunks, beforeCents / 100.0, afterCents / 100.0,
+                System.currentTimeMillis() - start, false, lastCommittedId);
+        }
+        
+        if (!revision.isDryRun()) {
+            System.out.println("✓ Salary revision applied to " + employees + " employees in " + chunks + " chunks!");
+        }
+        return new RevisionResult(revision.isDryRun(), employees, chunks, beforeCents / 100.0, afterCents / 100.0,
+            System.currentTimeMillis() - start, true, revision.isDryRun() ? 0 : lastCommittedId);
+    }
+    
+    // Statements on the shared connection, bound to the current request's deadline
+    private PreparedStatement prepare(String query) throws SQLException {
+        return withDeadline(sharedConnection().prepareStatement(query));
+    }
+    
+    private PreparedStatement prepare(String query, int autoGeneratedKeys) throws SQLException {
+        return withDeadline(sharedConnection().prepareStatement(query, autoGeneratedKeys));
+    }
+    
+    private Statement createStatement() throws SQLException {
+        return withDeadline(sharedConnection().createStatement());
+    }
+    
+    private PreparedStatement prepareLookup(String query) throws SQLException {
+        Connection connection = DatabaseConnection.getLookupConnection();
+        if (connection == null) {
+            throw new SQLException("Lookup database connection is not available");
+        }
+        return withDeadline(connection.prepareStatement(query));
+    }
+    
+    // Opened on first use rather than at construction, so the server can bind before the database is up
+    private static Connection sharedConnection() throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection is not available");
+        }
+        return connection;
+    }
+    
+    private static <T extends Statement> T withDeadline(T stmt) throws SQLException {
+        try {
+            QueryDeadline.apply(stmt);
+            return stmt;
+        } catch (SQLException | RuntimeException e) {
+            stmt.close();
+            throw e;
+        }
+    }
+    
+    // Binds multiplier/addend pairs for basic salary and HRA
+    private int bindRevision(PreparedStatement pstmt, SalaryRevision revision, int index) throws SQLException {
+        pstmt.setDouble(index++, revision.getBasicMultiplier());
+        pstmt.setDouble(index++, revision.getBasicAddend());
+        pstmt.setDouble(index++, revision.getHraMultiplier());
+        pstmt.setDouble(index++, revision.getHraAddend());
+        return index;
+    }
+    
+    private void bindRevisionFilter(PreparedStatement pstmt, SalaryRevision revision, int index,
+                                    int fromId, int toId) throws SQLException {
+        pstmt.setInt(index++, fromId);
+        pstmt.setInt(index++, toId);
+        if (revision.getDesignation() != null) {
+            pstmt.setString(index, revision.getDesignation());
+        }
+    }
+}
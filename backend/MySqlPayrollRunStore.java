@@ -0,0 +1,457 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
+
+/**
+ * MySQL Payroll Run Store Class
+ * Keeps payroll runs in payroll_run, payroll_run_checkpoint and
+ * payroll_run_line. Each chunk is committed in one transaction on a
+ * dedicated connection: its lines and its checkpoint row land together
+ * or not at all. Dedicated connections are kept open and reused from
+ * chunk to chunk (up to payroll.runStore.idleConnections, default 8, are
+ * kept between uses), so a long run does not reconnect for every chunk.
+ */
+public class MySqlPayrollRunStore implements PayrollRunStore {
+
+    private static final String RUN_COLUMNS =
+        "SELECT r.run_id, r.period, r.status, r.chunk_size, r.max_employee_id, r.snapshot_id, "
+        + "COALESCE(MAX(c.chunk_end), 0) AS checkpointed_id, "
+        + "COALESCE(SUM(c.employees), 0) AS employees, COALESCE(SUM(c.total_net), 0) AS total_net "
+        + "FROM payroll_run r LEFT JOIN payroll_run_checkpoint c ON c.run_id = r.run_id ";
+
+    // Rows per multi-row INSERT of arrears lines
+    private static final int ARREARS_ROWS_PER_STATEMENT = 500;
+
+    private static final int MAX_IDLE_CONNECTIONS = Integer.getInteger("payroll.runStore.idleConnections", 8);
+
+    // Dedicated connections not in use, most recently returned first
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    // The shared connection, opened on first use
+    private static Connection connection() throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        if (connection == null) {
+            throw new SQLException("Database connection is not available");
+        }
+        return connection;
+    }
+
+    // A dedicated connection in auto-commit mode, reused if one is idle
+    private Connection borrowConnection() throws SQLException {
+        Connection dedicated;
+        while ((dedicated = idleConnections.pollFirst()) != null) {
+            if (!dedicated.isClosed()) {
+                return dedicated;
+            }
+        }
+        return DatabaseConnection.openConnection();
+    }
+
+    // Keeps a connection for the next chunk; one that failed is closed instead
+    private void releaseConnection(Connection dedicated, boolean healthy) {
+        try {
+            if (healthy && dedicated.getAutoCommit() && idleConnections.size() < MAX_IDLE_CONNECTIONS) {
+                idleConnections.offerFirst(dedicated);
+                return;
+            }
+            dedicated.close();
+        } catch (SQLException e) {
+            System.err.println("✗ Error closing payroll run connection: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PayrollRun createRun(String period, int chunkSize, int maxEmployeeId) {
+        String query = "INSERT INTO payroll_run (period, status, chunk_size, max_employee_id) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = connection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, period);
+            pstmt.setString(2, PayrollRun.Status.RUNNING.name());
+            pstmt.setInt(3, chunkSize);
+            pstmt.setInt(4, maxEmployeeId);
+            pstmt.executeUpdate();
+
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return new PayrollRun(keys.getInt(1), period, PayrollRun.Status.RUNNING,
+                        chunkSize, maxEmployeeId, 0, 0, 0.0);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error creating payroll run!");
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public PayrollRun findRun(int runId) {
+        List<PayrollRun> runs = queryRuns("WHERE r.run_id = ? GROUP BY r.run_id", runId);
+        return runs.isEmpty() ? null : runs.get(0);
+    }
+
+    @Override
+    public PayrollRun findRunByPeriod(String period) {
+        List<PayrollRun> runs = queryRuns("WHERE r.period = ? GROUP BY r.run_id", period);
+        return runs.isEmpty() ? null : runs.get(0);
+    }
+
+    @Override
+    public List<PayrollRun> findUnfinishedRuns() {
+        return queryRuns("WHERE r.status = ? GROUP BY r.run_id ORDER BY r.run_id", PayrollRun.Status.RUNNING.name());
+    }
+
+    @Override
+    public List<PayrollRun> findCompletedRuns(String fromPeriod, String toPeriod) {
+        return queryRuns("WHERE r.status = ? AND r.period BETWEEN ? AND ? GROUP BY r.run_id ORDER BY r.period",
+            PayrollRun.Status.COMPLETED.name(), fromPeriod, toPeriod);
+    }
+
+    private List<PayrollRun> queryRuns(String where, Object... parameters) {
+        List<PayrollRun> runs = new ArrayList<>();
+
+        try (PreparedStatement pstmt = connection().prepareStatement(RUN_COLUMNS + where)) {
+            for (int i = 0; i < parameters.length; i++) {
+                pstmt.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    PayrollRun run = new PayrollRun(
+                        rs.getInt("run_id"),
+                        rs.getString("period"),
+                        PayrollRun.Status.valueOf(rs.getString("status")),
+                        rs.getInt("chunk_size"),
+                        rs.getInt("max_employee_id"),
+                        rs.getInt("checkpointed_id"),
+                        rs.getInt("employees"),
+                        rs.getDouble("total_net")
+                    );
+                    run.setSnapshotId(rs.getLong("snapshot_id"));
+                    runs.add(run);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error fetching payroll runs!");
+            e.printStackTrace();
+        }
+        return runs;
+    }
+
+    @Override
+    public boolean commitChunk(PayrollRun run, int chunkStart, int chunkEnd, List<Employee> lines) {
+        String clearLines = "DELETE FROM payroll_run_line WHERE run_id = ? AND employee_id BETWEEN ? AND ?";
+        String insertLine = "INSERT INTO payroll_run_line (run_id, period, employee_id, name, designation, basic_salary, "
+                          + "hra, allowances, tax, net_salary) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String checkpoint = "REPLACE INTO payroll_run_checkpoint (run_id, chunk_start, chunk_end, employees, total_net) "
+                          + "VALUES (?, ?, ?, ?, ?)";
+        double chunkNet = 0;
+        for (Employee line : lines) {
+            chunkNet += line.getNetSalary();
+        }
+
+        Connection runConnection = null;
+        boolean healthy = false;
+        try {
+            runConnection = borrowConnection();
+            runConnection.setAutoCommit(false);
+            try (PreparedStatement clear = runConnection.prepareStatement(clearLines);
+                 PreparedStatement insert = runConnection.prepareStatement(insertLine);
+                 PreparedStatement mark = runConnection.prepareStatement(checkpoint)) {
+                // Clearing first makes a re-processed chunk idempotent
+                clear.setInt(1, run.getRunId());
+                clear.setInt(2, chunkStart);
+                clear.setInt(3, chunkEnd);
+                clear.executeUpdate();
+
+                for (Employee line : lines) {
+                    insert.setInt(1, run.getRunId());
+                    insert.setString(2, run.getPeriod());
+                    insert.setInt(3, line.getId());
+                    insert.setString(4, line.getName());
+                    insert.setString(5, line.getDesignation());
+                    insert.setDouble(6, line.getBasicSalary());
+                    insert.setDouble(7, line.getHra());
+                    insert.setDouble(8, line.getAllowances());
+                    insert.setDouble(9, line.getTax());
+                    insert.setDouble(10, line.getNetSalary());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+
+                mark.setInt(1, run.getRunId());
+                mark.setInt(2, chunkStart);
+                mark.setInt(3, chunkEnd);
+                mark.setInt(4, lines.size());
+                mark.setDouble(5, chunkNet);
+                mark.executeUpdate();
+
+                runConnection.commit();
+                runConnection.setAutoCommit(true);
+                healthy = true;
+            } catch (SQLException e) {
+                runConnection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error committing payroll run chunk " + chunkStart + "-" + chunkEnd + "!");
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (runConnection != null) {
+                releaseConnection(runConnection, healthy);
+            }
+        }
+
+        run.advance(chunkEnd, lines.size(), chunkNet);
+        return true;
+    }
+
+    @Override
+    public boolean recordSnapshot(PayrollRun run, long snapshotId) {
+        String query = "UPDATE payroll_run SET snapshot_id = ? WHERE run_id = ?";
+
+        try (PreparedStatement pstmt = connection().prepareStatement(query)) {
+            pstmt.setLong(1, snapshotId);
+            pstmt.setInt(2, run.getRunId());
+            if (pstmt.executeUpdate() > 0) {
+                run.setSnapshotId(snapshotId);
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error recording payroll run snapshot!");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean updateStatus(PayrollRun run, PayrollRun.Status status) {
+        String query = "UPDATE payroll_run SET status = ?, "
+                     + "finished_at = CASE WHEN ? = 'RUNNING' THEN NULL ELSE CURRENT_TIMESTAMP END WHERE run_id = ?";
+
+        try (PreparedStatement pstmt = connection().prepareStatement(query)) {
+            pstmt.setString(1, status.name());
+            pstmt.setString(2, status.name());
+            pstmt.setInt(3, run.getRunId());
+            if (pstmt.executeUpdate() > 0) {
+                run.setStatus(status);
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error updating payroll run status!");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Streams the period's lines through the (period, employee_id) key on a
+     * dedicated connection; issued arrears are summed per employee for the
+     * same range in a derived table and added on
+     */
+    @Override
+    public boolean scanHistory(String period, int fromId, int toId, boolean includeArrears, int exceptBatchId,
+                               Consumer<Employee> consumer) {
+        String query = includeArrears
+            ? "SELECT l.employee_id, l.name, l.designation, l.basic_salary + COALESCE(a.basic, 0), "
+              + "l.hra + COALESCE(a.hra, 0), l.allowances + COALESCE(a.allowances, 0), l.tax + COALESCE(a.tax, 0), "
+              + "l.net_salary + COALESCE(a.net, 0) FROM payroll_run_line l LEFT JOIN ("
+              + "SELECT employee_id, SUM(basic_delta) AS basic, SUM(hra_delta) AS hra, SUM(allowances_delta) AS allowances, "
+              + "SUM(tax_delta) AS tax, SUM(net_delta) AS net FROM payroll_arrears "
+              + "WHERE period = ? AND employee_id BETWEEN ? AND ? AND batch_id <> ? "
+              + "GROUP BY employee_id) a ON a.employee_id = l.employee_id "
+              + "WHERE l.period = ? AND l.employee_id BETWEEN ? AND ? ORDER BY l.employee_id"
+            : "SELECT employee_id, name, designation, basic_salary, hra, allowances, tax, net_salary "
+              + "FROM payroll_run_line WHERE period = ? AND employee_id BETWEEN ? AND ? ORDER BY employee_id";
+
+        Connection historyConnection = null;
+        boolean healthy = false;
+        try {
+            historyConnection = borrowConnection();
+            healthy = scanHistory(historyConnection, query, period, fromId, toId, includeArrears, exceptBatchId,
+                consumer);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("✗ Error reading payroll history for " + period + " ids " + fromId + "-" + toId + "!");
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (historyConnection != null) {
+                releaseConnection(historyConnection, healthy);
+            }
+        }
+    }
+
+    // Streams the rows; true once the result set is read to the end
+    private static boolean scanHistory(Connection historyConnection, String query, String period, int fromId, int toId,
+                                       boolean includeArrears, int exceptBatchId, Consumer<Employee> consumer)
+            throws SQLException {
+        try (PreparedStatement pstmt = historyConnection.prepareStatement(query,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            int index = 1;
+            if (includeArrears) {
+                pstmt.setString(index++, period);
+                pstmt.setInt(index++, fromId);
+                pstmt.setInt(index++, toId);
+                pstmt.setInt(index++, exceptBatchId);
+            }
+            pstmt.setString(index++, period);
+            pstmt.setInt(index++, fromId);
+            pstmt.setInt(index, toId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Employee line = new Employee(rs.getInt(1), rs.getString(2), rs.getString(3),
+                        rs.getDouble(4), rs.getDouble(5), rs.getDouble(7), 0);
+                    line.setAllowances(rs.getDouble(6));
+                    line.setNetSalary(rs.getDouble(8));
+                    consumer.accept(line);
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int createArrearsBatch(String description, String effectiveFrom, String throughPeriod, int chunkSize) {
+        String query = "INSERT INTO payroll_arrears_batch (description, effective_from, through_period, chunk_size) "
+                     + "VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = connection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, truncateDescription(description));
+            pstmt.setString(2, effectiveFrom);
+            pstmt.setString(3, throughPeriod);
+            pstmt.setInt(4, chunkSize);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error creating arrears batch!");
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public ArrearsBatch findArrearsBatch(int batchId) {
+        return queryArrearsBatch("WHERE batch_id = ?", batchId);
+    }
+
+    @Override
+    public ArrearsBatch findArrearsBatch(String description) {
+        return queryArrearsBatch("WHERE description = ? ORDER BY batch_id DESC LIMIT 1", truncateDescription(description));
+    }
+
+    private ArrearsBatch queryArrearsBatch(String where, Object parameter) {
+        String query = "SELECT batch_id, description, effective_from, through_period, chunk_size "
+                     + "FROM payroll_arrears_batch " + where;
+        String chunks = "SELECT period, from_id FROM payroll_arrears_chunk WHERE batch_id = ?";
+
+        try (PreparedStatement pstmt = connection().prepareStatement(query)) {
+            pstmt.setObject(1, parameter);
+            ArrearsBatch batch;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                batch = new ArrearsBatch(rs.getInt("batch_id"), rs.getString("description"),
+                    rs.getString("effective_from"), rs.getString("through_period"), rs.getInt("chunk_size"));
+            }
+            try (PreparedStatement committed = connection().prepareStatement(chunks)) {
+                committed.setInt(1, batch.getBatchId());
+                try (ResultSet rs = committed.executeQuery()) {
+                    while (rs.next()) {
+                        batch.markCommitted(rs.getString("period"), rs.getInt("from_id"));
+                    }
+                }
+            }
+            return batch;
+        } catch (SQLException e) {
+            System.err.println("✗ Error reading arrears batch!");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static String truncateDescription(String description) {
+        return description.length() > 255 ? description.substring(0, 255) : description;
+    }
+
+    /**
+     * Replaces the chunk's lines with multi-row INSERTs and records the
+     * chunk as committed, in one transaction on a dedicated connection
+     * (chunks of one batch commit in parallel)
+     */
+    @Override
+    public boolean commitArrears(int batchId, String period, int fromId, int toId, List<ArrearsLine> lines) {
+        String clearLines = "DELETE FROM payroll_arrears WHERE batch_id = ? AND period = ? AND employee_id BETWEEN ? AND ?";
+        String insertPrefix = "INSERT INTO payroll_arrears (batch_id, period, employee_id, basic_delta, hra_delta, "
+                            + "allowances_delta, tax_delta, net_delta) VALUES ";
+        String row = "(?,?,?,?,?,?,?,?)";
+        String markChunk = "INSERT IGNORE INTO payroll_arrears_chunk (batch_id, period, from_id, to_id) VALUES (?, ?, ?, ?)";
+
+        Connection arrearsConnection = null;
+        boolean healthy = false;
+        try {
+            arrearsConnection = borrowConnection();
+            arrearsConnection.setAutoCommit(false);
+            try (PreparedStatement clear = arrearsConnection.prepareStatement(clearLines)) {
+                clear.setInt(1, batchId);
+                clear.setString(2, period);
+                clear.setInt(3, fromId);
+                clear.setInt(4, toId);
+                clear.executeUpdate();
+
+                for (int from = 0; from < lines.size(); from += ARREARS_ROWS_PER_STATEMENT) {
+                    List<ArrearsLine> rows = lines.subList(from, Math.min(lines.size(), from + ARREARS_ROWS_PER_STATEMENT));
+                    StringBuilder sql = new StringBuilder(insertPrefix.length() + rows.size() * (row.length() + 1));
+                    sql.append(insertPrefix);
+                    for (int i = 0; i < rows.size(); i++) {
+                        sql.append(i == 0 ? "" : ",").append(row);
+                    }
+                    try (PreparedStatement insert = arrearsConnection.prepareStatement(sql.toString())) {
+                        int index = 1;
+                        for (ArrearsLine line : rows) {
+                            insert.setInt(index++, batchId);
+                            insert.setString(index++, period);
+                            insert.setInt(index++, line.getEmployeeId());
+                            insert.setDouble(index++, line.getBasicSalaryDelta());
+                            insert.setDouble(index++, line.getHraDelta());
+                            insert.setDouble(index++, line.getAllowancesDelta());
+                            insert.setDouble(index++, line.getTaxDelta());
+                            insert.setDouble(index++, line.getNetSalaryDelta());
+                        }
+                        insert.executeUpdate();
+                    }
+                }
+                try (PreparedStatement mark = arrearsConnection.prepareStatement(markChunk)) {
+                    mark.setInt(1, batchId);
+                    mark.setString(2, period);
+                    mark.setInt(3, fromId);
+                    mark.setInt(4, toId);
+                    mark.executeUpdate();
+                }
+                arrearsConnection.commit();
+                arrearsConnection.setAutoCommit(true);
+                healthy = true;
+            } catch (SQLException e) {
+                arrearsConnection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error committing arrears for " + period + " ids " + fromId + "-" + toId + "!");
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (arrearsConnection != null) {
+                releaseConnection(arrearsConnection, healthy);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,1206 @@
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * NIO HTTP Engine Class
+ * Alternative HTTP/1.1 front end for the payroll API built directly on
+ * java.nio channels instead of com.sun.net.httpserver.
+ *
+ * - A single selector thread accepts connections and watches idle ones
+ * - Readable connections are handed to a worker (a virtual thread when the
+ *   JVM supports them, otherwise a fixed pool) which serves every complete
+ *   request in the buffer, so keep-alive and pipelined requests are
+ *   answered in order on the same connection
+ * - Read and write buffers are direct buffers recycled through a pool
+ * - Routes are matched against the raw request bytes (longest prefix wins,
+ *   same rule as HttpServer contexts); the exchange object is reused per
+ *   connection and headers/URI are only materialized if a handler asks
+ * - Anything that is not an API route is served from the static root with
+ *   FileChannel.transferTo, so one process can serve both UI and API
+ * - The request head must fit the read buffer (payroll.nio.bufferSize). A
+ *   body that does not fit is streamed: the handler reads it from the
+ *   socket through the same buffer, a buffer-full at a time
+ *
+ * Handlers and filters are the same HttpHandler/Filter objects used with
+ * com.sun.net.httpserver, so the engine is selected at startup without
+ * changing any handler code.
+ */
+public class NioHttpEngine {
+
+    private static final int BUFFER_SIZE = Integer.getInteger("payroll.nio.bufferSize", 16 * 1024);
+    private static final long KEEP_ALIVE_MILLIS = Long.getLong("payroll.nio.keepAliveMs", 30_000L);
+    private static final long IO_TIMEOUT_MILLIS = 10_000L;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION = "connection".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "close".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEEP_ALIVE = "keep-alive".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HTTP_1_0 = "HTTP/1.0".getBytes(StandardCharsets.US_ASCII);
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH"};
+    private static final byte[][] METHOD_BYTES = new byte[METHODS.length][];
+
+    static {
+        for (int i = 0; i < METHODS.length; i++) {
+            METHOD_BYTES[i] = METHODS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // Per-thread selector used to wait for a congested socket to drain, or
+    // for more of a streamed request body to arrive
+    private static final ThreadLocal<Selector> WAIT_SELECTOR = new ThreadLocal<Selector>() {
+        @Override
+        protected Selector initialValue() {
+            try {
+                return Selector.open();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open write selector", e);
+            }
+        }
+    };
+
+    private final InetSocketAddress address;
+    private final int backlog;
+    private final ExecutorService workers;
+    private final List<Route> routes = new ArrayList<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Connection> resumeQueue = new ConcurrentLinkedQueue<>();
+    private Path staticRoot;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * Creates an engine that is not yet listening
+     * @param address Address to bind to
+     * @param backlog Pending connection backlog for the listen socket
+     * @param workerThreads Worker threads to use when virtual threads are unavailable
+     */
+    public NioHttpEngine(InetSocketAddress address, int backlog, int workerThreads) {
+        this.address = address;
+        this.backlog = backlog;
+        this.workers = createWorkerPool(workerThreads);
+    }
+
+    /**
+     * Registers a handler for a path prefix, like HttpServer.createContext
+     * @param path Context path; the longest matching prefix wins
+     * @param handler Handler invoked for matching requests
+     * @return Context whose filter list can be extended
+     */
+    public synchronized HttpContext createContext(String path, HttpHandler handler) {
+        Route route = new Route(path, handler);
+        routes.add(route);
+        // Longest prefix first so the first match is the most specific one
+        Collections.sort(routes, (a, b) -> b.prefix.length - a.prefix.length);
+        return route;
+    }
+
+    /**
+     * Serves files below the given directory for requests that match no route
+     * @param root Directory holding the frontend assets
+     */
+    public void setStaticRoot(Path root) {
+        this.staticRoot = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Binds the listen socket and starts the selector thread
+     * @throws IOException if the address cannot be bound
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(address, backlog);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "nio-http-selector");
+        selectorThread.start();
+    }
+
+    /**
+     * Stops accepting connections and closes all open ones
+     */
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        workers.shutdown();
+    }
+
+    // Uses Executors.newVirtualThreadPerTaskExecutor when running on a JVM that has it
+    private static ExecutorService createWorkerPool(int workerThreads) {
+        try {
+            Object pool = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("✓ NIO engine using virtual threads");
+            return (ExecutorService) pool;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("✓ NIO engine using " + workerThreads + " worker threads");
+            return Executors.newFixedThreadPool(workerThreads);
+        }
+    }
+
+    /**
+     * Tells whether the client of an exchange is still connected, so work
+     * for abandoned requests can be cancelled. The JDK engine gives no
+     * access to its sockets, so its exchanges always count as connected.
+     * @param exchange Exchange being served
+     * @return false once the client of an NIO exchange has hung up
+     */
+    public static boolean isClientConnected(HttpExchange exchange) {
+        return !(exchange instanceof NioExchange) || ((NioExchange) exchange).connection.isPeerConnected();
+    }
+
+    private void selectLoop() {
+        long lastSweep = System.currentTimeMillis();
+        try {
+            while (running) {
+                selector.select(1000);
+
+                // Connections a worker finished with go back to watching for reads
+                Connection resumed;
+                while ((resumed = resumeQueue.poll()) != null) {
+                    if (resumed.key.isValid()) {
+                        resumed.key.interestOps(SelectionKey.OP_READ);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptConnections();
+                    } else if (key.isReadable()) {
+                        // Stop watching while a worker owns the connection
+                        key.interestOps(0);
+                        dispatch((Connection) key.attachment());
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= 1000) {
+                    closeIdleConnections(now);
+                    lastSweep = now;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("✗ NIO selector loop failed!");
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    private void acceptConnections() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void dispatch(Connection connection) {
+        try {
+            workers.execute(connection);
+        } catch (RejectedExecutionException e) {
+            connection.close();
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection && key.isValid() && key.interestOps() == SelectionKey.OP_READ) {
+                Connection connection = (Connection) attachment;
+                if (now - connection.lastActive > KEEP_ALIVE_MILLIS) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Nothing useful to do
+        }
+    }
+
+    private ByteBuffer takeBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        buffer.clear();
+        bufferPool.offer(buffer);
+    }
+
+    private Route findRoute(ByteBuffer in, int pathStart, int pathEnd) {
+        for (Route route : routes) {
+            if (startsWith(in, pathStart, pathEnd, route.prefix)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Case-insensitive comparison of an ASCII header token
+    private static boolean equalsIgnoreCase(ByteBuffer buf, int start, int end, byte[] token) {
+        if (end - start != token.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            int b = buf.get(start + i);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(ByteBuffer buf, int start, int end, byte[] token) {
+        for (int i = start; i + token.length <= end; i++) {
+            if (equalsIgnoreCase(buf, i, i + token.length, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(ByteBuffer buf, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i + pattern.length <= to; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buf.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer buf, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String reasonPhrase(int code) {
+        switch (code) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+
+    private static String contentType(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".html")) return "text/html; charset=UTF-8";
+        if (name.endsWith(".css")) return "text/css; charset=UTF-8";
+        if (name.endsWith(".js")) return "application/javascript; charset=UTF-8";
+        if (name.endsWith(".json")) return "application/json; charset=UTF-8";
+        if (name.endsWith(".png")) return "image/png";
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
+        if (name.endsWith(".svg")) return "image/svg+xml";
+        if (name.endsWith(".ico")) return "image/x-icon";
+        return "application/octet-stream";
+    }
+
+    /**
+     * One client connection. Runs on a worker while it has requests to
+     * serve and is parked on the selector otherwise.
+     */
+    private final class Connection implements Runnable {
+        final SocketChannel channel;
+        final NioExchange exchange = new NioExchange(this);
+        SelectionKey key;
+        ByteBuffer in;   // kept between requests only while it holds pipelined bytes
+        ByteBuffer out;  // held only while serving
+        volatile long lastActive = System.currentTimeMillis();
+        boolean closeAfterResponse;
+        boolean http10;
+        // A handler is running; guards reads by isPeerConnected() from other threads
+        private final Object probeLock = new Object();
+        private boolean serving;
+        private boolean peerClosed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (in == null) {
+                    in = takeBuffer();
+                }
+                out = takeBuffer();
+
+                while (true) {
+                    int read = channel.read(in);
+                    if (read < 0) {
+                        close();
+                        return;
+                    }
+
+                    // Serve every complete request already buffered (pipelining)
+                    int consumed;
+                    while ((consumed = serveOne()) > 0) {
+                        in.flip();
+                        in.position(consumed);
+                        in.compact();
+                        if (closeAfterResponse) {
+                            close();
+                            return;
+                        }
+                    }
+                    if (consumed < 0) {
+                        close();
+                        return;
+                    }
+                    if (!in.hasRemaining()) {
+                        // The request head does not fit the buffer
+                        sendError(413, "{\"error\":\"Request headers too large\"}");
+                        close();
+                        return;
+                    }
+                    if (read == 0) {
+                        break;
+                    }
+                }
+
+                goIdle();
+            } catch (IOException e) {
+                close();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                close();
+            }
+        }
+
+        private void goIdle() {
+            recycle(out);
+            out = null;
+            if (in.position() == 0) {
+                recycle(in);
+                in = null;
+            }
+            lastActive = System.currentTimeMillis();
+            resumeQueue.offer(this);
+            selector.wakeup();
+        }
+
+        /**
+         * Parses and serves the request at the start of the read buffer
+         * @return Bytes consumed, 0 if the request is incomplete, -1 if malformed
+         */
+        private int serveOne() throws IOException {
+            int filled = in.position();
+            int headEnd = indexOf(in, 0, filled, HEADER_END);
+            if (headEnd < 0) {
+                return 0;
+            }
+
+            // Request line: METHOD SP target SP version CRLF
+            int lineEnd = indexOf(in, 0, headEnd + 2, CRLF);
+            int methodEnd = indexOf(in, 0, lineEnd, (byte) ' ');
+            int targetEnd = methodEnd < 0 ? -1 : indexOf(in, methodEnd + 1, lineEnd, (byte) ' ');
+            if (methodEnd <= 0 || targetEnd < 0) {
+                sendError(400, "{\"error\":\"Malformed request line\"}");
+                return -1;
+            }
+            String method = null;
+            for (int i = 0; i < METHOD_BYTES.length; i++) {
+                if (methodEnd == METHOD_BYTES[i].length && startsWith(in, 0, methodEnd, METHOD_BYTES[i])) {
+                    method = METHODS[i];
+                    break;
+                }
+            }
+            if (method == null) {
+                sendError(501, "{\"error\":\"Method not implemented\"}");
+                return -1;
+            }
+            int targetStart = methodEnd + 1;
+            int pathEnd = indexOf(in, targetStart, targetEnd, (byte) '?');
+            if (pathEnd < 0) {
+                pathEnd = targetEnd;
+            }
+            boolean http10 = startsWith(in, targetEnd + 1, lineEnd, HTTP_1_0);
+
+            // Only the headers the engine itself needs are looked at here
+            long contentLength = 0;
+            boolean keepAlive = !http10;
+            int lineStart = lineEnd + 2;
+            while (lineStart < headEnd + 2) {
+                int end = indexOf(in, lineStart, headEnd + 2, CRLF);
+                int colon = indexOf(in, lineStart, end, (byte) ':');
+                if (colon > 0) {
+                    int valueStart = colon + 1;
+                    if (equalsIgnoreCase(in, lineStart, colon, CONTENT_LENGTH)) {
+                        contentLength = parseLong(in, valueStart, end);
+                        if (contentLength < 0) {
+                            sendError(400, "{\"error\":\"Invalid Content-Length\"}");
+                            return -1;
+                        }
+                    } else if (equalsIgnoreCase(in, lineStart, colon, CONNECTION)) {
+                        if (containsIgnoreCase(in, valueStart, end, CLOSE)) {
+                            keepAlive = false;
+                        } else if (containsIgnoreCase(in, valueStart, end, KEEP_ALIVE)) {
+                            keepAlive = true;
+                        }
+                    } else if (equalsIgnoreCase(in, lineStart, colon, TRANSFER_ENCODING)) {
+                        sendError(501, "{\"error\":\"Chunked request bodies are not supported\"}");
+                        return -1;
+                    }
+                }
+                lineStart = end + 2;
+            }
+
+            int bodyStart = headEnd + 4;
+            long total = bodyStart + contentLength;
+            // A body too big for the buffer is streamed from the socket as the handler reads it
+            boolean streamed = total > in.capacity();
+            if (total > filled && !streamed) {
+                return 0; // body not fully received yet
+            }
+
+            closeAfterResponse = !keepAlive;
+            this.http10 = http10;
+            exchange.reset(method, targetStart, targetEnd, lineEnd + 2, headEnd + 2, bodyStart,
+                streamed ? filled : (int) total, streamed ? total - filled : 0);
+            if (streamed) {
+                // The buffer is about to be reused for the body, so take what the head holds now
+                exchange.getRequestHeaders();
+                exchange.getRequestURI();
+            }
+
+            Route route = findRoute(in, targetStart, pathEnd);
+            if (route != null) {
+                exchange.route = route;
+                synchronized (probeLock) {
+                    serving = true;
+                }
+                try {
+                    invoke(route);
+                } finally {
+                    synchronized (probeLock) {
+                        serving = false;
+                    }
+                }
+            } else {
+                serveStatic(targetStart, pathEnd);
+            }
+            if (streamed) {
+                // The buffer now holds only body bytes; a body not read to the
+                // end leaves the connection out of step with the client
+                if (!exchange.bodyInput.isDrained()) {
+                    closeAfterResponse = true;
+                }
+                exchange.finish();
+                return in.position();
+            }
+            exchange.finish();
+            return (int) total;
+        }
+
+        /**
+         * Checks, while a handler runs, whether the client has closed its end.
+         * Unless the body is streamed, the whole request is already buffered,
+         * so anything still arriving is a pipelined request: it is read into
+         * the free tail of the read buffer and served afterwards as usual,
+         * and end-of-stream means the client has gone. While a streamed body
+         * is still arriving, the handler's own reads notice a hang-up.
+         */
+        boolean isPeerConnected() {
+            synchronized (probeLock) {
+                if (!peerClosed && serving && !exchange.bodyInput.isStreaming() && in.hasRemaining()) {
+                    try {
+                        peerClosed = channel.read(in) < 0;
+                    } catch (IOException e) {
+                        peerClosed = true;
+                    }
+                }
+                return !peerClosed;
+            }
+        }
+
+        private void invoke(Route route) throws IOException {
+            try {
+                Authenticator authenticator = route.authenticator;
+                if (authenticator != null && !authenticate(authenticator)) {
+                    return;
+                }
+                if (route.filters.isEmpty()) {
+                    route.handler.handle(exchange);
+                } else {
+                    new Filter.Chain(route.filters, route.handler).doFilter(exchange);
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (!exchange.headersSent) {
+                    exchange.sendBytes(500, "{\"error\":\"Internal server error\"}");
+                } else {
+                    closeAfterResponse = true;
+                }
+            }
+        }
+
+        // Runs the route's authenticator; false if it already answered the request
+        private boolean authenticate(Authenticator authenticator) throws IOException {
+            Authenticator.Result result = authenticator.authenticate(exchange);
+            if (result instanceof Authenticator.Success) {
+                exchange.principal = ((Authenticator.Success) result).getPrincipal();
+                return true;
+            }
+            int code = result instanceof Authenticator.Failure
+                ? ((Authenticator.Failure) result).getResponseCode()
+                : ((Authenticator.Retry) result).getResponseCode();
+            // Headers such as WWW-Authenticate were set on the exchange by the authenticator
+            exchange.sendResponseHeaders(code, -1);
+            return false;
+        }
+
+        private void serveStatic(int pathStart, int pathEnd) throws IOException {
+            String method = exchange.method;
+            if (staticRoot == null || !("GET".equals(method) || "HEAD".equals(method))) {
+                exchange.sendBytes(404, "{\"error\":\"Not found\"}");
+                return;
+            }
+
+            byte[] raw = new byte[pathEnd - pathStart];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = in.get(pathStart + i);
+            }
+            String path = new String(raw, StandardCharsets.US_ASCII);
+            if ("/".equals(path)) {
+                path = "/index.html";
+            }
+            Path file = staticRoot.resolve(path.substring(1)).normalize();
+            if (path.contains("..") || !file.startsWith(staticRoot) || !Files.isRegularFile(file)) {
+                exchange.sendBytes(404, "{\"error\":\"Not found\"}");
+                return;
+            }
+
+            try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = fileChannel.size();
+                exchange.getResponseHeaders().set("Content-Type", contentType(file.getFileName().toString()));
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+                // For HEAD the length is announced but no body follows
+                exchange.sendResponseHeaders(200, size > 0 ? size : -1);
+                flushOut();
+
+                if (!"HEAD".equals(method)) {
+                    // Zero-copy from the page cache straight to the socket
+                    long position = 0;
+                    while (position < size) {
+                        long sent = fileChannel.transferTo(position, size - position, channel);
+                        if (sent == 0) {
+                            awaitWritable();
+                        }
+                        position += sent;
+                    }
+                    exchange.bytesWritten = size;
+                }
+            }
+        }
+
+        private void sendError(int code, String body) {
+            try {
+                closeAfterResponse = true;
+                exchange.reset("GET", 0, 0, 0, 0, 0, 0, 0);
+                exchange.sendBytes(code, body);
+                exchange.finish();
+            } catch (IOException ignored) {
+                // Connection is being closed anyway
+            }
+        }
+
+        void flushOut() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                if (channel.write(out) == 0) {
+                    awaitWritable();
+                }
+            }
+            out.clear();
+        }
+
+        // Blocks this worker until the socket can take more bytes
+        private void awaitWritable() throws IOException {
+            await(SelectionKey.OP_WRITE, "Write timed out");
+        }
+
+        // Blocks this worker until more of a streamed body has arrived
+        void awaitReadable() throws IOException {
+            await(SelectionKey.OP_READ, "Timed out reading the request body");
+        }
+
+        private void await(int operation, String timeoutMessage) throws IOException {
+            Selector waitSelector = WAIT_SELECTOR.get();
+            SelectionKey waitKey = channel.register(waitSelector, operation);
+            try {
+                if (waitSelector.select(IO_TIMEOUT_MILLIS) == 0) {
+                    throw new IOException(timeoutMessage);
+                }
+            } finally {
+                waitKey.cancel();
+                waitSelector.selectNow(); // flush the cancelled key
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            if (in != null) {
+                recycle(in);
+                in = null;
+            }
+            if (out != null) {
+                recycle(out);
+                out = null;
+            }
+        }
+    }
+
+    private static long parseLong(ByteBuffer buf, int start, int end) {
+        long value = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            byte b = buf.get(i);
+            if (b == ' ' || b == '\t') {
+                if (digits) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+            digits = true;
+        }
+        return digits ? value : -1;
+    }
+
+    /**
+     * HttpExchange view over the connection's buffers. One instance per
+     * connection, reset for every request.
+     */
+    private final class NioExchange extends HttpExchange {
+        private final Connection connection;
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        final BodyInput bodyInput = new BodyInput();
+        private final BodyOutput bodyOutput = new BodyOutput();
+        private InputStream requestBody;    // bodyInput unless a filter wrapped it
+        private OutputStream responseBody;  // bodyOutput unless a filter wrapped it
+        private Map<String, Object> attributes;
+        HttpPrincipal principal;
+
+        Route route;
+        String method;
+        private int targetStart;
+        private int targetEnd;
+        private int headersStart;
+        private int headersEnd;
+        private URI uri;
+        private boolean requestHeadersParsed;
+        boolean headersSent;
+        private boolean finished;
+        private int responseCode;
+        private long responseLength;
+        long bytesWritten;
+
+        NioExchange(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Starts a new request
+         * @param bodyStart Offset of the body in the read buffer
+         * @param bodyEnd End of the body bytes in the read buffer
+         * @param bodyUnread Body bytes still to come from the socket (streamed bodies)
+         */
+        void reset(String method, int targetStart, int targetEnd, int headersStart, int headersEnd,
+                   int bodyStart, int bodyEnd, long bodyUnread) {
+            this.route = null;
+            this.method = method;
+            this.targetStart = targetStart;
+            this.targetEnd = targetEnd;
+            this.headersStart = headersStart;
+            this.headersEnd = headersEnd;
+            this.uri = null;
+            this.principal = null;
+            this.requestBody = bodyInput;
+            this.responseBody = bodyOutput;
+            this.requestHeadersParsed = false;
+            this.headersSent = false;
+            this.finished = false;
+            this.responseCode = -1;
+            this.responseLength = 0;
+            this.bytesWritten = 0;
+            this.responseHeaders.clear();
+            if (attributes != null) {
+                attributes.clear();
+            }
+            bodyInput.position = bodyStart;
+            bodyInput.limit = bodyEnd;
+            bodyInput.unread = bodyUnread;
+        }
+
+        void sendBytes(int code, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            responseHeaders.set("Content-Type", "application/json; charset=UTF-8");
+            sendResponseHeaders(code, bytes.length);
+            bodyOutput.write(bytes, 0, bytes.length);
+        }
+
+        // Completes the response if the handler did not close it
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (!headersSent) {
+                sendResponseHeaders(500, -1);
+            }
+            if (responseLength > 0 && bytesWritten != responseLength) {
+                connection.closeAfterResponse = true; // framing is broken, do not reuse
+            }
+            connection.flushOut();
+        }
+
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = connection.in.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            if (!requestHeadersParsed) {
+                requestHeaders.clear();
+                int lineStart = headersStart;
+                while (lineStart < headersEnd) {
+                    int end = indexOf(connection.in, lineStart, headersEnd, CRLF);
+                    int colon = indexOf(connection.in, lineStart, end, (byte) ':');
+                    if (colon > 0) {
+                        requestHeaders.add(text(lineStart, colon).trim(), text(colon + 1, end).trim());
+                    }
+                    lineStart = end + 2;
+                }
+                requestHeadersParsed = true;
+            }
+            return requestHeaders;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            if (uri == null) {
+                uri = URI.create(text(targetStart, targetEnd));
+            }
+            return uri;
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return method;
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return route;
+        }
+
+        @Override
+        public void close() {
+            try {
+                finish();
+            } catch (IOException e) {
+                connection.closeAfterResponse = true;
+            }
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return requestBody;
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return responseBody;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+            if (headersSent) {
+                throw new IOException("Response headers already sent");
+            }
+            headersSent = true;
+            responseCode = rCode;
+
+            ByteBuffer out = connection.out;
+            putAscii(out, "HTTP/1.1 ");
+            putAscii(out, Integer.toString(rCode));
+            putAscii(out, " ");
+            putAscii(out, reasonPhrase(rCode));
+            out.put(CRLF);
+            for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    putAscii(out, header.getKey());
+                    putAscii(out, ": ");
+                    putAscii(out, value);
+                    out.put(CRLF);
+                }
+            }
+            if ("HEAD".equals(method)) {
+                // No body follows; a positive length is what GET would send
+                this.responseLength = 0;
+                putAscii(out, "Content-Length: ");
+                putAscii(out, Long.toString(Math.max(0, responseLength)));
+                out.put(CRLF);
+            } else if (responseLength > 0) {
+                this.responseLength = responseLength;
+                putAscii(out, "Content-Length: ");
+                putAscii(out, Long.toString(responseLength));
+                out.put(CRLF);
+            } else if (responseLength < 0) {
+                this.responseLength = 0;
+                putAscii(out, "Content-Length: 0");
+                out.put(CRLF);
+            } else {
+                // Unknown length: the body is delimited by closing the connection
+                this.responseLength = -1;
+                connection.closeAfterResponse = true;
+            }
+            if (connection.closeAfterResponse) {
+                putAscii(out, "Connection: close");
+                out.put(CRLF);
+            } else if (connection.http10) {
+                putAscii(out, "Connection: keep-alive");
+                out.put(CRLF);
+            }
+            out.put(CRLF);
+        }
+
+        private void putAscii(ByteBuffer out, String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                if (!out.hasRemaining()) {
+                    connection.flushOut();
+                }
+                out.put((byte) text.charAt(i));
+            }
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            try {
+                return (InetSocketAddress) connection.channel.getRemoteAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            try {
+                return (InetSocketAddress) connection.channel.getLocalAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes == null ? null : attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (attributes == null) {
+                attributes = new HashMap<>();
+            }
+            attributes.put(name, value);
+        }
+
+        // Filters wrap the streams; each must wrap the one it replaces, as with HttpServer
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            if (i != null) {
+                requestBody = i;
+            }
+            if (o != null) {
+                responseBody = o;
+            }
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return principal;
+        }
+
+        // Request body, read straight from the connection's read buffer. A
+        // streamed body refills the buffer from the socket, never reading
+        // past the body's end, so no pipelined bytes are mixed in.
+        final class BodyInput extends InputStream {
+            int position;   // next body byte in the read buffer
+            int limit;      // end of the body bytes in the read buffer
+            long unread;    // body bytes not yet read from the socket
+
+            boolean isStreaming() {
+                return unread > 0;
+            }
+
+            boolean isDrained() {
+                return position >= limit && unread == 0;
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (position >= limit) {
+                    if (unread == 0) {
+                        return -1;
+                    }
+                    refill();
+                }
+                int n = Math.min(len, limit - position);
+                for (int i = 0; i < n; i++) {
+                    b[off + i] = connection.in.get(position++);
+                }
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return Math.max(0, limit - position);
+            }
+
+            private void refill() throws IOException {
+                ByteBuffer in = connection.in;
+                in.clear();
+                in.limit((int) Math.min(in.capacity(), unread));
+                int n;
+                while ((n = connection.channel.read(in)) == 0) {
+                    connection.awaitReadable();
+                }
+                if (n < 0) {
+                    connection.closeAfterResponse = true;
+                    throw new EOFException("Client closed the connection before sending the whole body");
+                }
+                unread -= n;
+                position = 0;
+                limit = in.position();
+                in.limit(in.capacity());
+            }
+        }
+
+        // Response body, staged in the connection's write buffer
+        private final class BodyOutput extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (!headersSent) {
+                    throw new IOException("sendResponseHeaders must be called before writing the body");
+                }
+                if ("HEAD".equals(method)) {
+                    return; // a HEAD response has no body; anything sent would precede the next response
+                }
+                ByteBuffer out = connection.out;
+                while (len > 0) {
+                    if (!out.hasRemaining()) {
+                        connection.flushOut();
+                    }
+                    int n = Math.min(len, out.remaining());
+                    out.put(b, off, n);
+                    off += n;
+                    len -= n;
+                    bytesWritten += n;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+            }
+        }
+    }
+
+    /**
+     * Route registered through createContext. Doubles as the HttpContext
+     * handed to handlers.
+     */
+    private static final class Route extends HttpContext {
+        final String path;
+        final byte[] prefix;
+        volatile HttpHandler handler;
+        final List<Filter> filters = new ArrayList<>();
+        final Map<String, Object> attributes = new HashMap<>();
+        volatile Authenticator authenticator;
+
+        Route(String path, HttpHandler handler) {
+            this.path = path;
+            this.prefix = path.getBytes(StandardCharsets.US_ASCII);
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return null; // not backed by com.sun.net.httpserver
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        // Checked before the filters, as HttpServer does
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            Authenticator previous = authenticator;
+            authenticator = auth;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
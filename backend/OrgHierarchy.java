@@ -0,0 +1,415 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Org Hierarchy Class
+ * Payroll cost rolled up over the plant / division / department / cost
+ * center tree. Every unit keeps materialized totals (headcount, basic, HRA,
+ * deductions, net) for its own employees and for its whole subtree.
+ *
+ * A change to one employee is applied to its unit and then to each
+ * ancestor, O(depth). A unit's rolled-up cost is read straight from its
+ * subtree totals, and its path to the plant is O(depth) as well. Only
+ * startup and mass salary revisions scan the employees.
+ *
+ * Error bounds are those of SalaryStatistics: a change racing a rebuild,
+ * or two updates racing on one employee, can leave the totals off by one
+ * employee until the next rebuild.
+ */
+public class OrgHierarchy implements PayrollChangeListener {
+
+    // Employees assigned per store call when assigning an id range
+    private static final int ASSIGN_CHUNK = 5000;
+
+    // Headcount and pay components of a set of employees
+    private static final class Totals {
+        int headcount;
+        double basicSalary;
+        double hra;
+        double tax;
+        double netSalary;
+
+        void add(Employee employee, int sign) {
+            headcount += sign;
+            basicSalary += sign * employee.getBasicSalary();
+            hra += sign * employee.getHra();
+            tax += sign * employee.getTax();
+            netSalary += sign * employee.getNetSalary();
+        }
+
+        void add(Totals other) {
+            headcount += other.headcount;
+            basicSalary += other.basicSalary;
+            hra += other.hra;
+            tax += other.tax;
+            netSalary += other.netSalary;
+        }
+
+        void clear() {
+            headcount = 0;
+            basicSalary = hra = tax = netSalary = 0;
+        }
+    }
+
+    private static final class Node {
+        final OrgUnit unit;
+        final Node parent;
+        final List<Node> children = new ArrayList<>();
+        final Totals own = new Totals();
+        final Totals subtree = new Totals();
+
+        Node(OrgUnit unit, Node parent) {
+            this.unit = unit;
+            this.parent = parent;
+        }
+    }
+
+    private final PayrollService payrollService;
+    private final OrgUnitStore store;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payroll-org-rollups");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    // Guarded by this
+    private final Map<Integer, Node> nodes = new LinkedHashMap<>();
+    private final Map<String, List<Node>> byName = new HashMap<>();
+    private int[] unitOf = new int[1024];  // employee id -> unit id, 0 if unassigned
+    private final Totals unassigned = new Totals();
+    private final Totals all = new Totals();
+
+    public OrgHierarchy(PayrollService payrollService, OrgUnitStore store) {
+        this.payrollService = payrollService;
+        this.store = store;
+    }
+
+    /**
+     * Creates the store matching the payroll.repository system property
+     * @return In-memory store for "memory"/"embedded" (sample hierarchy for "demo"), else MySQL
+     */
+    public static OrgUnitStore createStore() {
+        String kind = System.getProperty("payroll.repository", "mysql");
+        if ("demo".equalsIgnoreCase(kind)) {
+            return InMemoryOrgUnitStore.withSampleData();
+        }
+        if ("memory".equalsIgnoreCase(kind) || "embedded".equalsIgnoreCase(kind)) {
+            return new InMemoryOrgUnitStore();
+        }
+        return new MySqlOrgUnitStore();
+    }
+
+    /**
+     * Reads the hierarchy and assignments from the store, then computes the
+     * rollups with one scan of the employees
+     */
+    public void load() {
+        load(consumer -> payrollService.scanEmployees(1, payrollService.getMaxEmployeeId(), consumer));
+    }
+
+    /**
+     * Reads the hierarchy and assignments from the store, then computes the
+     * rollups from a roster already in memory (warm start)
+     * @param roster Every employee
+     */
+    public void load(EmployeeRoster roster) {
+        load(roster::forEachEmployee);
+    }
+
+    private void load(ToIntFunction<Consumer<Employee>> scan) {
+        List<OrgUnit> units = store.loadUnits();
+        synchronized (this) {
+            nodes.clear();
+            byName.clear();
+            for (OrgUnit unit : units) {
+                addNode(unit);
+            }
+            unitOf = new int[unitOf.length];
+            store.loadAssignments(this::setUnitOf);
+        }
+        rebuild(scan);
+    }
+
+    /**
+     * Recomputes every unit's totals with one streaming scan of the employees
+     */
+    public void rebuild() {
+        rebuild(consumer -> payrollService.scanEmployees(1, payrollService.getMaxEmployeeId(), consumer));
+    }
+
+    private void rebuild(ToIntFunction<Consumer<Employee>> scan) {
+        long start = System.currentTimeMillis();
+        int[] assignments;
+        synchronized (this) {
+            assignments = unitOf.clone();
+        }
+        Map<Integer, Totals> own = new HashMap<>();
+        Totals freshAll = new Totals();
+        int employees = scan.applyAsInt(employee -> {
+            int unitId = employee.getId() < assignments.length ? assignments[employee.getId()] : 0;
+            own.computeIfAbsent(unitId, u -> new Totals()).add(employee, 1);
+            freshAll.add(employee, 1);
+        });
+
+        int units;
+        synchronized (this) {
+            units = nodes.size();
+            all.clear();
+            all.add(freshAll);
+            unassigned.clear();
+            for (Node node : nodes.values()) {
+                node.own.clear();
+                node.subtree.clear();
+            }
+            for (Map.Entry<Integer, Totals> entry : own.entrySet()) {
+                Node node = nodes.get(entry.getKey());
+                if (node == null) {
+                    unassigned.add(entry.getValue());
+                    continue;
+                }
+                node.own.add(entry.getValue());
+                for (Node n = node; n != null; n = n.parent) {
+                    n.subtree.add(entry.getValue());
+                }
+            }
+        }
+        System.out.println("📊 Org rollups built for " + units + " units from " + employees + " employees in "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void rebuildInBackground() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @Override
+    public void onPayrollChange(PayrollChange change) {
+        switch (change.getType()) {
+            case ADD:
+            case UPDATE:
+            case DELETE:
+                synchronized (this) {
+                    int unitId = getUnitOf(change.getEmployeeId());
+                    if (change.getBefore() != null) {
+                        apply(unitId, change.getBefore(), -1);
+                    }
+                    if (change.getAfter() != null) {
+                        apply(unitId, change.getAfter(), 1);
+                    } else {
+                        setUnitOf(change.getEmployeeId(), 0);
+                    }
+                }
+                break;
+            default:
+                // Bulk changes carry no per-employee detail
+                rebuildInBackground();
+                break;
+        }
+    }
+
+    /**
+     * Creates a unit under an existing one (or at the top)
+     * @param parentId Parent unit id, 0 for a new plant
+     * @param name Unit name
+     * @param kind Level of the unit
+     * @return The new unit, or null if the parent is unknown or it could not be stored
+     */
+    public OrgUnit addUnit(int parentId, String name, OrgUnit.Kind kind) {
+        synchronized (this) {
+            if (parentId != 0 && !nodes.containsKey(parentId)) {
+                return null;
+            }
+        }
+        OrgUnit unit = store.addUnit(parentId, name, kind);
+        if (unit != null) {
+            synchronized (this) {
+                addNode(unit);
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * Moves the employees of an id range to a unit, updating the rollups of
+     * both the old and the new units
+     * @param unitId Target unit, or 0 to unassign
+     * @param fromId First employee id (inclusive)
+     * @param toId Last employee id (inclusive)
+     * @return Number of employees moved, or -1 if the unit is unknown or a write failed
+     */
+    public int assign(int unitId, int fromId, int toId) {
+        synchronized (this) {
+            if (unitId != 0 && !nodes.containsKey(unitId)) {
+                return -1;
+            }
+        }
+        int assigned = 0;
+        int last = Math.min(toId, payrollService.getMaxEmployeeId());
+        for (long chunkStart = Math.max(1, fromId); chunkStart <= last; chunkStart += ASSIGN_CHUNK) {
+            List<Employee> employees = new ArrayList<>();
+            payrollService.scanEmployees((int) chunkStart, (int) Math.min(last, chunkStart + ASSIGN_CHUNK - 1),
+                employees::add);
+            List<Integer> ids = new ArrayList<>(employees.size());
+            for (Employee employee : employees) {
+                ids.add(employee.getId());
+            }
+            if (ids.isEmpty()) {
+                continue;
+            }
+            if (!store.assign(ids, unitId)) {
+                return -1;
+            }
+            synchronized (this) {
+                for (Employee employee : employees) {
+                    apply(getUnitOf(employee.getId()), employee, -1);
+                    setUnitOf(employee.getId(), unitId);
+                    apply(unitId, employee, 1);
+                }
+            }
+            assigned += ids.size();
+        }
+        return assigned;
+    }
+
+    /**
+     * One unit with its path from the plant, its own and rolled-up totals
+     * and those of its direct children
+     * @param unitId Unit id
+     * @return JSON object, or null if the unit is unknown
+     */
+    public synchronized String unitToJson(int unitId) {
+        Node node = nodes.get(unitId);
+        if (node == null) {
+            return null;
+        }
+        StringBuilder json = new StringBuilder(256).append("{");
+        appendUnit(json, node).append(",\"path\":[");
+        List<Node> path = new ArrayList<>();
+        for (Node n = node; n != null; n = n.parent) {
+            path.add(n);
+        }
+        Collections.reverse(path);
+        for (int i = 0; i < path.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(path.get(i).unit.getId())
+                .append(",\"name\":\"").append(escape(path.get(i).unit.getName())).append("\"}");
+        }
+        json.append("],\"own\":");
+        appendTotals(json, node.own).append(",\"children\":[");
+        for (int i = 0; i < node.children.size(); i++) {
+            appendUnit(json.append(i == 0 ? "{" : ",{"), node.children.get(i)).append("}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Units with their rolled-up totals: the whole tree, or those with a name
+     * @param name Unit name (case-insensitive), or null for every unit
+     * @return JSON object with the units in creation order, plus the company
+     *         total and the unassigned employees when listing the whole tree
+     */
+    public synchronized String unitsToJson(String name) {
+        StringBuilder json = new StringBuilder(256).append("{");
+        if (name == null) {
+            json.append("\"all\":");
+            appendTotals(json, all).append(",\"unassigned\":");
+            appendTotals(json, unassigned).append(",");
+        }
+        json.append("\"units\":[");
+        Iterable<Node> units = name == null ? nodes.values()
+            : byName.getOrDefault(name.toLowerCase(Locale.ROOT), Collections.<Node>emptyList());
+        boolean first = true;
+        for (Node node : units) {
+            appendUnit(json.append(first ? "{" : ",{"), node).append("}");
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    // Must hold the lock
+    private void apply(int unitId, Employee employee, int sign) {
+        all.add(employee, sign);
+        Node node = nodes.get(unitId);
+        if (node == null) {
+            unassigned.add(employee, sign);
+            return;
+        }
+        node.own.add(employee, sign);
+        for (Node n = node; n != null; n = n.parent) {
+            n.subtree.add(employee, sign);
+        }
+    }
+
+    private void addNode(OrgUnit unit) {
+        Node node = new Node(unit, nodes.get(unit.getParentId()));
+        if (node.parent != null) {
+            node.parent.children.add(node);
+        }
+        nodes.put(unit.getId(), node);
+        byName.computeIfAbsent(unit.getName().toLowerCase(Locale.ROOT), n -> new ArrayList<>()).add(node);
+    }
+
+    private int getUnitOf(int employeeId) {
+        return employeeId < unitOf.length ? unitOf[employeeId] : 0;
+    }
+
+    private void setUnitOf(int employeeId, int unitId) {
+        if (employeeId >= unitOf.length) {
+            if (unitId == 0) {
+                return;
+            }
+            int[] grown = new int[Math.max(employeeId + 1, unitOf.length * 2)];
+            System.arraycopy(unitOf, 0, grown, 0, unitOf.length);
+            unitOf = grown;
+        }
+        unitOf[employeeId] = unitId;
+    }
+
+    private static StringBuilder appendUnit(StringBuilder json, Node node) {
+        json.append("\"id\":").append(node.unit.getId())
+            .append(",\"parentId\":").append(node.unit.getParentId())
+            .append(",\"name\":\"").append(escape(node.unit.getName())).append("\"")
+            .append(",\"kind\":\"").append(node.unit.getKind()).append("\"")
+            .append(",\"total\":");
+        return appendTotals(json, node.subtree);
+    }
+
+    private static StringBuilder appendTotals(StringBuilder json, Totals totals) {
+        return json.append("{\"headcount\":").append(totals.headcount)
+            .append(",\"basicSalary\":").append(formatAmount(totals.basicSalary))
+            .append(",\"hra\":").append(formatAmount(totals.hra))
+            .append(",\"gross\":").append(formatAmount(totals.basicSalary + totals.hra))
+            .append(",\"tax\":").append(formatAmount(totals.tax))
+            .append(",\"netSalary\":").append(formatAmount(totals.netSalary))
+            .append("}");
+    }
+
+    private static String formatAmount(double value) {
+        // Incremental updates leave float dust; "-0.00" would look odd
+        String text = String.format(Locale.ROOT, "%.2f", value);
+        return "-0.00".equals(text) ? "0.00" : text;
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Org Unit Class
+ * One node of the organisation hierarchy: a plant, a division, a
+ * department or a cost center. Employees are assigned to one unit each and
+ * count towards it and every unit above it.
+ */
+public class OrgUnit {
+
+    public enum Kind { PLANT, DIVISION, DEPARTMENT, COST_CENTER }
+
+    private final int id;
+    private final int parentId;  // 0 for a top-level unit
+    private final String name;
+    private final Kind kind;
+
+    public OrgUnit(int id, int parentId, String name, Kind kind) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.kind = kind;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrgUnit [ID=%d, Parent=%d, Name=%s, Kind=%s]", id, parentId, name, kind);
+    }
+}
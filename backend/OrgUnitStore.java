@@ -0,0 +1,40 @@
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Org Unit Store Interface
+ * Persists the organisation hierarchy (plants, divisions, departments,
+ * cost centers) and which unit each employee belongs to. Read whole at
+ * startup by OrgHierarchy, which keeps the rollups in memory.
+ */
+public interface OrgUnitStore {
+
+    /**
+     * @return All units, parents before their children
+     */
+    List<OrgUnit> loadUnits();
+
+    /**
+     * Streams every employee-to-unit assignment
+     * @param consumer Receives employee id and unit id
+     * @return true if all assignments were read
+     */
+    boolean loadAssignments(BiConsumer<Integer, Integer> consumer);
+
+    /**
+     * Creates a unit
+     * @param parentId Parent unit id, 0 for a top-level unit
+     * @param name Unit name
+     * @param kind Level of the unit
+     * @return The stored unit with its id, or null on failure
+     */
+    OrgUnit addUnit(int parentId, String name, OrgUnit.Kind kind);
+
+    /**
+     * Assigns employees to a unit, replacing earlier assignments
+     * @param employeeIds Employees to move
+     * @param unitId Target unit, or 0 to leave them unassigned
+     * @return true if all were written
+     */
+    boolean assign(List<Integer> employeeIds, int unitId);
+}
@@ -0,0 +1,56 @@
+/**
+ * Payroll Aggregate Class
+ * Salary totals for one designation (for management reporting)
+ */
+public class PayrollAggregate {
+    private final String designation;
+    private final int employeeCount;
+    private final double totalBasicSalary;
+    private final double totalHra;
+    private final double totalTax;
+    private final double totalNetSalary;
+
+    public PayrollAggregate(String designation, int employeeCount, double totalBasicSalary,
+                            double totalHra, double totalTax, double totalNetSalary) {
+        this.designation = designation;
+        this.employeeCount = employeeCount;
+        this.totalBasicSalary = totalBasicSalary;
+        this.totalHra = totalHra;
+        this.totalTax = totalTax;
+        this.totalNetSalary = totalNetSalary;
+    }
+
+    public String getDesignation() {
+        return designation;
+    }
+
+    public int getEmployeeCount() {
+        return employeeCount;
+    }
+
+    public double getTotalBasicSalary() {
+        return totalBasicSalary;
+    }
+
+    public double getTotalHra() {
+        return totalHra;
+    }
+
+    public double getTotalTax() {
+        return totalTax;
+    }
+
+    public double getTotalNetSalary() {
+        return totalNetSalary;
+    }
+
+    public double getAverageNetSalary() {
+        return employeeCount == 0 ? 0.0 : totalNetSalary / employeeCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PayrollAggregate [Designation=%s, Employees=%d, Total Net=₹%.2f, Average Net=₹%.2f]",
+            designation, employeeCount, totalNetSalary, getAverageNetSalary());
+    }
+}
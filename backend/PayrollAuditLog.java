@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Payroll Audit Log Class
+ * Append-only trail of every change made to the payroll (who, when, and the
+ * before/after values). Request threads only enqueue a record on a lock-free
+ * queue; a single writer thread drains the queue and group-commits whole
+ * batches to an AuditSink, so one fsync or one multi-row INSERT covers many
+ * changes and the audit never adds a round trip to the request path.
+ *
+ * Durability lag is bounded: the writer flushes at least every maxLagMs,
+ * or sooner once batchSize records are waiting. The queue is bounded too;
+ * if the sink stalls and the queue fills, producers wait for space rather
+ * than drop records.
+ *
+ * Tuning: -Dpayroll.audit.sink=file|mysql|none -Dpayroll.audit.dir=audit
+ * -Dpayroll.audit.batchSize=500 -Dpayroll.audit.maxLagMs=50
+ * -Dpayroll.audit.capacity=100000
+ */
+public class PayrollAuditLog implements PayrollChangeListener {
+
+    private static final int BATCH_SIZE = Integer.getInteger("payroll.audit.batchSize", 500);
+    private static final long MAX_LAG_MILLIS = Long.getLong("payroll.audit.maxLagMs", 50);
+    private static final int CAPACITY = Integer.getInteger("payroll.audit.capacity", 100_000);
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5000;
+
+    private final AuditSink sink;
+    private final ConcurrentLinkedQueue<PayrollChange> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Thread writer;
+    private volatile long lastFlushMillis = System.currentTimeMillis();
+    private volatile boolean running = true;
+
+    public PayrollAuditLog(AuditSink sink) {
+        this.sink = sink;
+        this.writer = new Thread(this::writeLoop, "payroll-audit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Creates the audit log named by the payroll.audit.sink system property
+     * @return Audit log, or null when auditing is switched off ("none")
+     */
+    public static PayrollAuditLog create() {
+        String repository = System.getProperty("payroll.repository", "mysql");
+        boolean noDatabase = "memory".equalsIgnoreCase(repository) || "demo".equalsIgnoreCase(repository)
+            || "embedded".equalsIgnoreCase(repository);
+        String kind = System.getProperty("payroll.audit.sink", noDatabase ? "file" : "mysql");
+        try {
+            if ("none".equalsIgnoreCase(kind)) {
+                return null;
+            }
+            if ("mysql".equalsIgnoreCase(kind)) {
+                return new PayrollAuditLog(new MySqlAuditSink());
+            }
+            return new PayrollAuditLog(new FileAuditSink(System.getProperty("payroll.audit.dir", "audit")));
+        } catch (Exception e) {
+            System.out.println("✗ Audit log could not be opened: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void onPayrollChange(PayrollChange change) {
+        // Backpressure only when the sink has fallen far behind
+        while (pending.get() >= CAPACITY && running) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        queue.offer(change);
+        enqueued.incrementAndGet();
+        if (pending.incrementAndGet() >= BATCH_SIZE) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        List<PayrollChange> batch = new ArrayList<>(BATCH_SIZE);
+        long backoffMillis = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty()) {
+                long dueMillis = lastFlushMillis + MAX_LAG_MILLIS - System.currentTimeMillis();
+                if (pending.get() < BATCH_SIZE && dueMillis > 0 && running) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(dueMillis));
+                    continue;
+                }
+                PayrollChange change;
+                while (batch.size() < BATCH_SIZE && (change = queue.poll()) != null) {
+                    batch.add(change);
+                }
+                if (batch.isEmpty()) {
+                    lastFlushMillis = System.currentTimeMillis();
+                    continue;
+                }
+            }
+            try {
+                sink.write(batch);
+                pending.addAndGet(-batch.size());
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+                batch.clear();
+                backoffMillis = 0;
+                lastFlushMillis = System.currentTimeMillis();
+            } catch (Exception e) {
+                // Keep the batch and retry it, so records are never lost or reordered
+                failures.incrementAndGet();
+                System.out.println("✗ Audit write failed, retrying: " + e.getMessage());
+                backoffMillis = Math.min(MAX_RETRY_BACKOFF_MILLIS, Math.max(100, backoffMillis * 2));
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+            }
+        }
+    }
+
+    /**
+     * Flushes everything queued so far and stops the writer (shutdown hook)
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    /**
+     * Audit counters in JSON form, for monitoring
+     * @return JSON object
+     */
+    public String toJson() {
+        return "{\"sink\":\"" + sink.getClass().getSimpleName() + "\","
+            + "\"enqueued\":" + enqueued.get() + ","
+            + "\"written\":" + written.get() + ","
+            + "\"pending\":" + pending.get() + ","
+            + "\"batches\":" + batches.get() + ","
+            + "\"failures\":" + failures.get() + ","
+            + "\"maxLagMs\":" + MAX_LAG_MILLIS + "}";
+    }
+}
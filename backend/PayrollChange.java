@@ -0,0 +1,109 @@
+/**
+ * Payroll Change Class
+ * One change to the payroll: an employee added, updated or deleted, or a
+ * bulk operation such as a salary revision. Carries the before/after
+ * state of the employee (null where not applicable), who made the change
+ * and when.
+ */
+public class PayrollChange {
+
+    public enum Type { ADD, UPDATE, DELETE, REVISION }
+
+    private final Type type;
+    private final int employeeId;       // 0 for bulk changes
+    private final Employee before;
+    private final Employee after;
+    private final String actor;
+    private final long timestamp;       // epoch millis
+    private final String details;
+    private final SalaryRevision revision;  // REVISION only
+
+    public PayrollChange(Type type, int employeeId, Employee before, Employee after, String actor, String details) {
+        this(type, employeeId, before, after, actor, details, null);
+    }
+
+    public PayrollChange(Type type, int employeeId, Employee before, Employee after, String actor, String details,
+                         SalaryRevision revision) {
+        this.type = type;
+        this.employeeId = employeeId;
+        this.before = before;
+        this.after = after;
+        this.actor = actor;
+        this.timestamp = System.currentTimeMillis();
+        this.details = details;
+        this.revision = revision;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public Employee getBefore() {
+        return before;
+    }
+
+    public Employee getAfter() {
+        return after;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public SalaryRevision getRevision() {
+        return revision;
+    }
+
+    /**
+     * Single-line JSON form, used by the append-only audit segment files
+     * @return JSON object on one line
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256)
+            .append("{\"type\":\"").append(type).append("\"")
+            .append(",\"employeeId\":").append(employeeId)
+            .append(",\"actor\":\"").append(escape(actor)).append("\"")
+            .append(",\"timestamp\":").append(timestamp);
+        appendEmployee(json, "before", before);
+        appendEmployee(json, "after", after);
+        if (details != null) {
+            json.append(",\"details\":\"").append(escape(details)).append("\"");
+        }
+        return json.append("}").toString();
+    }
+
+    private static void appendEmployee(StringBuilder json, String field, Employee e) {
+        if (e == null) {
+            return;
+        }
+        json.append(",\"").append(field).append("\":{")
+            .append("\"name\":\"").append(escape(e.getName())).append("\",")
+            .append("\"designation\":\"").append(escape(e.getDesignation())).append("\",")
+            .append("\"basicSalary\":").append(e.getBasicSalary()).append(",")
+            .append("\"hra\":").append(e.getHra()).append(",")
+            .append("\"tax\":").append(e.getTax()).append(",")
+            .append("\"netSalary\":").append(e.getNetSalary())
+            .append("}");
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Payroll Change Listener Interface
+ * Notified by PayrollService after every successful change to the payroll.
+ * Called on the request thread, so implementations must be quick and must
+ * not throw.
+ */
+public interface PayrollChangeListener {
+
+    /**
+     * @param change The change that was just committed
+     */
+    void onPayrollChange(PayrollChange change);
+}
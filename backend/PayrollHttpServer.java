@@ -0,0 +1,1664 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class PayrollHttpServer {
+    private static final int PORT = 8080;
+    // Pending TCP connections the OS may queue before refusing new ones
+    private static final int BACKLOG = Integer.getInteger("payroll.http.backlog", 64);
+    // -Dpayroll.http.quiet=true turns off per-request console logging (used for load tests)
+    private static final boolean LOG_REQUESTS = !Boolean.getBoolean("payroll.http.quiet");
+
+    private static PayrollService payrollService = new PayrollService();
+    private static AdmissionController admissionController = new AdmissionController();
+    private static AttendanceStore attendanceStore = AttendanceIngestor.createStore();
+    private static AttendanceIngestor attendanceIngestor = new AttendanceIngestor(attendanceStore);
+    private static PayrollRunStore payrollRunStore = PayrollRunService.createStore();
+    private static PayrollRunService payrollRunService =
+        new PayrollRunService(payrollService, payrollRunStore, attendanceStore);
+    private static ArrearsService arrearsService = new ArrearsService(payrollService, payrollRunStore, attendanceStore);
+    private static PeriodDiff periodDiff = new PeriodDiff(payrollRunStore);
+    private static PayrollAuditLog auditLog = PayrollAuditLog.create();
+    private static SalaryStatistics salaryStatistics = new SalaryStatistics(payrollService);
+    private static OrgHierarchy orgHierarchy = new OrgHierarchy(payrollService, OrgHierarchy.createStore());
+    private static ChangeJournal changeJournal = new ChangeJournal(payrollService);
+    
+    // False until the repository is reached and the caches are built; until
+    // then only reads a warm-start snapshot can answer are let through
+    private static volatile boolean ready;
+    
+    // Fast start: how often to retry an unreachable database
+    private static final long STARTUP_RETRY_MS = Long.getLong("payroll.fastStart.retryMs", 2000L);
+    
+    public static void main(String[] args) throws IOException {
+        // Engine is chosen at startup: -Dpayroll.http.engine=nio or --engine=nio
+        String engine = System.getProperty("payroll.http.engine", "jdk");
+        // Fast start binds first and connects in the background: -Dpayroll.fastStart=true or --fast-start
+        boolean fastStart = Boolean.getBoolean("payroll.fastStart");
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.equals("--fast-start")) {
+                fastStart = true;
+            }
+        }
+        
+        WarmStartSnapshot warmStart = null;
+        if (fastStart) {
+            long start = System.currentTimeMillis();
+            warmStart = WarmStartSnapshot.read(WarmStartSnapshot.defaultPath());
+            if (warmStart != null) {
+                payrollService.serveWarmRoster(warmStart.getRoster());
+                System.out.println("↻ Warm-start snapshot: " + warmStart.getRoster().size()
+                    + " employees at change version " + warmStart.getChangeVersion() + ", loaded in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            }
+        } else {
+            // Test database connection first (always passes for the in-memory repository)
+            if (!payrollService.isRepositoryAvailable()) {
+                System.out.println("❌ Database connection failed. Server cannot start.");
+                return;
+            }
+            initialize(null);
+            ready = true;
+        }
+        
+        final boolean saveWarmStart = fastStart;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(saveWarmStart), "payroll-shutdown"));
+        
+        // One thread per admitted or queued request, plus a few spare
+        // threads to turn away overflow quickly with 503
+        int workerThreads = admissionController.workerThreadsRequired() + 4;
+        
+        if ("nio".equalsIgnoreCase(engine)) {
+            NioHttpEngine nioEngine = new NioHttpEngine(new InetSocketAddress(PORT), BACKLOG, workerThreads);
+            registerContexts(nioEngine::createContext);
+            // Serve the UI from the same process
+            nioEngine.setStaticRoot(Paths.get(System.getProperty("payroll.http.staticRoot", "../frontend")));
+            nioEngine.start();
+        } else {
+            HttpServer server = HttpServer.create(new InetSocketAddress(PORT), BACKLOG);
+            registerContexts(server::createContext);
+            server.setExecutor(Executors.newFixedThreadPool(workerThreads));
+            server.start();
+        }
+        // Attendance terminals may also stream punches to a loopback port (0 = off)
+        int attendancePort = Integer.getInteger("payroll.attendance.port", 0);
+        if (attendancePort > 0) {
+            attendanceIngestor.startSocketFeed(attendancePort);
+        }
+        
+        if (fastStart) {
+            final WarmStartSnapshot warm = warmStart;
+            Thread startup = new Thread(() -> finishFastStart(warm), "payroll-startup");
+            startup.setDaemon(true);
+            startup.start();
+        } else {
+            // Pick up month-end runs cut off by the previous shutdown
+            payrollRunService.resumeUnfinishedRuns();
+        }
+        
+        System.out.println("✅ Payroll HTTP Server (" + engine + " engine) started on http://localhost:" + PORT);
+        System.out.println("📊 Available endpoints:");
+        System.out.println("   GET    /employees");
+        System.out.println("   POST   /employees");
+        System.out.println("   GET    /employees/{id}");
+        System.out.println("   PUT    /employees/{id}");
+        System.out.println("   DELETE /employees/{id}");
+        System.out.println("   GET    /employees/search?designation=XXX");
+        System.out.println("   GET    /employees/summary   (/employees, /employees/{id} and this take ?asOf=YYYY-MM-DD)");
+        System.out.println("   GET    /employees/delta?since=VERSION");
+        System.out.println("   POST   /payroll/revisions");
+        System.out.println("   POST   /payroll/runs");
+        System.out.println("   GET    /payroll/runs/{id}  or  /payroll/runs?period=YYYY-MM");
+        System.out.println("   POST   /payroll/projections");
+        System.out.println("   POST   /payroll/arrears");
+        System.out.println("   GET    /payroll/diff?from=YYYY-MM&to=YYYY-MM&format=ndjson|csv&arrears=true");
+        System.out.println("   POST   /payroll/attendance  (CSV or NDJSON punches)");
+        System.out.println("   GET    /payroll/attendance");
+        System.out.println("   GET    /reports/percentiles?designation=XXX&q=0.5,0.9,0.99&above=50000");
+        System.out.println("   GET    /reports/top?limit=100&designation=XXX");
+        System.out.println("   GET    /org/units  or  /org/units?name=XXX  or  /org/units/{id}");
+        System.out.println("   POST   /org/units");
+        System.out.println("   POST   /org/assignments");
+        System.out.println("   GET    /debug/admission");
+        System.out.println("   GET    /debug/audit");
+        System.out.println("   GET    /debug/traces?limit=20  or  /debug/traces?traceId=XXX");
+        System.out.println("   GET    /debug/slow-queries?limit=20");
+        
+    }
+    
+    // Listeners and caches that need the repository; warmStart, if its change
+    // version is still current, replaces the initial scans
+    private static void initialize(WarmStartSnapshot warmStart) {
+        // Every change is audited; what is still queued is flushed on shutdown
+        if (auditLog != null) {
+            payrollService.addChangeListener(auditLog);
+        }
+        
+        // Reports are maintained from change events after one initial scan
+        if (warmStart != null) {
+            salaryStatistics.rebuild(warmStart.getRoster());
+            orgHierarchy.load(warmStart.getRoster());
+        } else {
+            salaryStatistics.rebuild();
+            orgHierarchy.load();
+        }
+        payrollService.addChangeListener(salaryStatistics);
+        payrollService.addChangeListener(orgHierarchy);
+        // Client caches catch up from the journal instead of refetching everyone
+        payrollService.addChangeListener(changeJournal);
+        
+        // EXPLAIN the worst statements now and then (nothing to sample without MySQL)
+        if ("mysql".equalsIgnoreCase(System.getProperty("payroll.repository", "mysql"))) {
+            SlowQueryLog.getInstance().startExplainSampling();
+        }
+    }
+    
+    // Fast start, on the startup thread: waits for the repository, checks the
+    // warm-start snapshot against it, then opens the server to everything
+    private static void finishFastStart(WarmStartSnapshot warmStart) {
+        long start = System.currentTimeMillis();
+        boolean reported = false;
+        while (!payrollService.isRepositoryAvailable()) {
+            if (!reported) {
+                System.out.println("ℹ Database not reachable yet; retrying every " + STARTUP_RETRY_MS + " ms");
+                reported = true;
+            }
+            try {
+                Thread.sleep(STARTUP_RETRY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        
+        if (warmStart != null) {
+            long current = payrollService.getChangeVersion();
+            if (current != warmStart.getChangeVersion()) {
+                // Changed while we were down: stop serving it and scan instead
+                System.out.println("↻ Warm-start snapshot is stale (change version " + warmStart.getChangeVersion()
+                    + ", database " + current + "); rebuilding from the database");
+                payrollService.serveWarmRoster(null);
+                warmStart = null;
+            }
+        }
+        initialize(warmStart);
+        // Back on the repository before writes are let in, so none is missed by a read
+        payrollService.serveWarmRoster(null);
+        ready = true;
+        System.out.println("✅ Payroll HTTP Server ready in " + (System.currentTimeMillis() - start) + " ms");
+        
+        // Pick up month-end runs cut off by the previous shutdown
+        payrollRunService.resumeUnfinishedRuns();
+    }
+    
+    // The one shutdown hook, so its steps run in order: the warm-start
+    // snapshot is read (flushing write-behind) before the audit log and the
+    // repository are closed
+    private static void shutdown(boolean saveWarmStart) {
+        if (saveWarmStart) {
+            saveWarmStart();
+        }
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        payrollService.close();
+    }
+    
+    // Saves the roster for the next fast start
+    private static void saveWarmStart() {
+        if (!ready) {
+            return;  // never reached the repository; the snapshot we started from is still the latest
+        }
+        try {
+            long start = System.currentTimeMillis();
+            WarmStartSnapshot snapshot = WarmStartSnapshot.capture(payrollService);
+            if (snapshot == null) {
+                return;
+            }
+            snapshot.write(WarmStartSnapshot.defaultPath());
+            System.out.println("✓ Warm-start snapshot of " + snapshot.getRoster().size() + " employees saved in "
+                + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.err.println("✗ Error saving warm-start snapshot: " + e.getMessage());
+        }
+    }
+    
+    // Create contexts - All endpoints the frontend needs, on either engine
+    private static void registerContexts(BiFunction<String, HttpHandler, HttpContext> createContext) {
+        traced(createContext.apply("/employees", new EmployeesHandler()));
+        traced(createContext.apply("/employees/search", new SearchHandler()));
+        traced(createContext.apply("/employees/summary", new SummaryHandler()));
+        traced(createContext.apply("/employees/delta", new DeltaHandler()));
+        traced(createContext.apply("/employees/", new EmployeeByIdHandler()));
+        traced(createContext.apply("/payroll/revisions", new RevisionHandler()));
+        traced(createContext.apply("/payroll/runs", new PayrollRunHandler()));
+        traced(createContext.apply("/payroll/projections", new ProjectionHandler()));
+        traced(createContext.apply("/payroll/arrears", new ArrearsHandler()));
+        traced(createContext.apply("/payroll/diff", new PeriodDiffHandler()));
+        traced(createContext.apply("/payroll/attendance", new AttendanceHandler()));
+        traced(createContext.apply("/reports/", new ReportsHandler()));
+        traced(createContext.apply("/org/units", new OrgUnitsHandler()));
+        traced(createContext.apply("/org/assignments", new OrgAssignmentsHandler()));
+        createContext.apply("/debug/admission", new AdmissionStatsHandler());
+        createContext.apply("/debug/audit", new AuditStatsHandler());
+        createContext.apply("/debug/traces", new TracesHandler());
+        createContext.apply("/debug/slow-queries", new SlowQueriesHandler());
+    }
+    
+    // API contexts are traced from the moment a request arrives, then admission-controlled
+    private static void traced(HttpContext context) {
+        context.getFilters().add(new TracingFilter());
+        context.getFilters().add(new AdmissionFilter());
+    }
+    // Who made a change, for the audit log: X-User header, else the client address
+    private static String actorOf(HttpExchange exchange) {
+        String user = exchange.getRequestHeaders().getFirst("X-User");
+        if (user != null && !user.trim().isEmpty()) {
+            return user.trim();
+        }
+        return exchange.getRemoteAddress() != null
+            ? exchange.getRemoteAddress().getAddress().getHostAddress() : "unknown";
+    }
+    
+    private static void logRequest(HttpExchange exchange) {
+    if (!LOG_REQUESTS) {
+        return;
+    }
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getPath();
+    String query = exchange.getRequestURI().getQuery();
+    String fullUrl = path + (query != null ? "?" + query : "");
+    
+    System.out.println("📥 " + method + " " + fullUrl);
+    System.out.println("   Headers: " + exchange.getRequestHeaders().entrySet());
+}
+    
+    // Tracing - opens the root span of each API request and tags the response with its trace id
+    static class TracingFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            PayrollTracer.Span root = PayrollTracer.startTrace(
+                exchange.getRequestMethod() + " " + exchange.getHttpContext().getPath());
+            try {
+                if (root.isRecording()) {
+                    root.setAttribute("http.method", exchange.getRequestMethod());
+                    root.setAttribute("http.target", exchange.getRequestURI().toString());
+                    exchange.getResponseHeaders().set("X-Trace-Id", root.getTraceId());
+                }
+                chain.doFilter(exchange);
+                root.setAttribute("http.status", exchange.getResponseCode());
+            } catch (IOException | RuntimeException e) {
+                root.setError(e);
+                throw e;
+            } finally {
+                root.close();
+                PayrollTracer.endTrace();
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "Request tracing";
+        }
+    }
+    
+    // Admission control - sorts requests into lanes and turns away overflow with 503
+    static class AdmissionFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            // CORS preflights are trivial, never hold them back
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                chain.doFilter(exchange);
+                return;
+            }
+            
+            // Until startup finishes, only reads the warm-start snapshot can answer get through
+            if (!ready && !answeredWhileStarting(exchange)) {
+                setupCORS(exchange);
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendResponse(exchange, 503, "{\"error\":\"Server is starting, please retry shortly\"}");
+                return;
+            }
+            
+            long arrival = System.nanoTime();
+            AdmissionController.Lane lane = classify(exchange);
+            boolean admitted;
+            try (PayrollTracer.Span span = PayrollTracer.startSpan("admission", "internal")) {
+                span.setAttribute("lane", lane.name().toLowerCase());
+                admitted = admissionController.tryAdmit(lane);
+                span.setAttribute("admitted", admitted);
+            }
+            if (!admitted) {
+                setupCORS(exchange);
+                exchange.getResponseHeaders().set("Retry-After",
+                    String.valueOf(admissionController.retryAfterSeconds(lane)));
+                sendResponse(exchange, 503, "{\"error\":\"Server busy, please retry later\"}");
+                return;
+            }
+            
+            long start = System.nanoTime();
+            // Deadline covers queueing too; statements get whatever time is left
+            QueryDeadline deadline = QueryDeadline.begin(
+                exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(),
+                arrival, admissionController.timeoutMillis(lane),
+                () -> NioHttpEngine.isClientConnected(exchange));
+            try {
+                chain.doFilter(exchange);
+            } catch (QueryCancelledException e) {
+                admissionController.recordTimeout(lane);
+                if (e.isClientGone()) {
+                    // Nobody is listening; the engine closes the connection
+                    throw new IOException(e.getMessage());
+                }
+                setupCORS(exchange);
+                sendResponse(exchange, 504, "{\"error\":\"Request timed out, please retry later\"}");
+            } finally {
+                deadline.end();
+                admissionController.release(lane, System.nanoTime() - start);
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "Per-endpoint admission control";
+        }
+        
+        // Listings, lookups by id and the designation summary, as of now
+        private static boolean answeredWhileStarting(HttpExchange exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) || !payrollService.isServingWarmRoster()
+                    || getParameterValue(exchange.getRequestURI().getQuery(), "asOf") != null) {
+                return false;
+            }
+            String path = exchange.getRequestURI().getPath();
+            return path.equals("/employees") || path.equals("/employees/")
+                || path.equals("/employees/summary") || path.matches("/employees/\\d+");
+        }
+        
+        private static AdmissionController.Lane classify(HttpExchange exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            
+            if (path.startsWith("/payroll/")) {
+                if (path.startsWith("/payroll/diff") || path.startsWith("/payroll/projections")
+                        || (path.startsWith("/payroll/attendance") && !"GET".equals(method))) {
+                    return AdmissionController.Lane.JOB;
+                }
+                // Run progress and ingestion counters are cheap status reads
+                return "GET".equals(method) ? AdmissionController.Lane.LOOKUP : AdmissionController.Lane.BULK;
+            }
+            if (path.startsWith("/employees/search")) {
+                return AdmissionController.Lane.SEARCH;
+            }
+            // As-of summaries and reset deltas may read everyone, so they queue with listings
+            boolean collection = path.equals("/employees") || path.equals("/employees/")
+                || path.startsWith("/employees/summary") || path.startsWith("/employees/delta");
+            if (!"GET".equals(method)) {
+                return AdmissionController.Lane.MUTATION;
+            }
+            return collection ? AdmissionController.Lane.LIST : AdmissionController.Lane.LOOKUP;
+        }
+    }
+    
+    // Handler for /payroll/revisions (POST mass salary revision, optionally dry-run)
+    static class RevisionHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            SalaryRevision revision = parseRevisionFromJson(getRequestBody(exchange));
+            if (revision == null) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid revision: give basicSalary and/or hra, "
+                    + "and a designation or fromId/toId range\"}");
+                return;
+            }
+            
+            try {
+                RevisionResult result = payrollService.applyRevision(revision, actorOf(exchange));
+                if (result == null) {
+                    sendResponse(exchange, 500, "{\"error\":\"Failed to apply salary revision\"}");
+                } else {
+                    sendResponse(exchange, result.isCompleted() ? 200 : 500, convertRevisionResultToJson(result));
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+    }
+    
+    // Handler for /payroll/runs (POST start/resume a run, GET run progress)
+    static class PayrollRunHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            
+            try {
+                switch (exchange.getRequestMethod()) {
+                    case "POST":
+                        handleSubmitRun(exchange);
+                        break;
+                    case "GET":
+                        handleGetRun(exchange);
+                        break;
+                    default:
+                        sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                }
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid run ID\"}");
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+        
+        private void handleSubmitRun(HttpExchange exchange) throws IOException {
+            String period = getJsonValue(getRequestBody(exchange), "period");
+            if (period == null || !period.matches("\\d{4}-\\d{2}")) {
+                sendResponse(exchange, 400, "{\"error\":\"period is required as YYYY-MM\"}");
+                return;
+            }
+            
+            PayrollRun run = payrollRunService.submitRun(period);
+            if (run == null) {
+                sendResponse(exchange, 500, "{\"error\":\"Failed to start payroll run\"}");
+            } else {
+                sendResponse(exchange, run.getStatus() == PayrollRun.Status.COMPLETED ? 200 : 202,
+                    convertPayrollRunToJson(run));
+            }
+        }
+        
+        private void handleGetRun(HttpExchange exchange) throws IOException {
+            String[] pathParts = exchange.getRequestURI().getPath().split("/");
+            PayrollRun run;
+            if (pathParts.length > 3) {
+                run = payrollRunService.getRun(Integer.parseInt(pathParts[3]));
+            } else {
+                String period = getParameterValue(exchange.getRequestURI().getQuery(), "period");
+                if (period == null) {
+                    sendResponse(exchange, 400, "{\"error\":\"Run ID or period parameter is required\"}");
+                    return;
+                }
+                run = payrollRunService.getRunByPeriod(period);
+            }
+            
+            if (run != null) {
+                sendResponse(exchange, 200, convertPayrollRunToJson(run));
+            } else {
+                sendResponse(exchange, 404, "{\"error\":\"Payroll run not found\"}");
+            }
+        }
+    }
+    
+    // Handler for /payroll/projections (POST multi-month what-if cost forecast)
+    static class ProjectionHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            YearMonth firstMonth;
+            int months;
+            List<ProjectionScenario> scenarios = new ArrayList<>();
+            try {
+                Map<String, Object> request = JsonParser.parseObject(getRequestBody(exchange));
+                Object start = request.get("startPeriod");
+                firstMonth = start != null ? YearMonth.parse((String) start) : YearMonth.now().plusMonths(1);
+                Object count = request.get("months");
+                months = count != null ? ((Double) count).intValue() : 12;
+                Object list = request.get("scenarios");
+                if (!(list instanceof List)) {
+                    throw new IllegalArgumentException("scenarios must be an array");
+                }
+                for (Object item : (List<?>) list) {
+                    if (!(item instanceof Map)) {
+                        throw new IllegalArgumentException("scenarios must be objects");
+                    }
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> scenario = (Map<String, Object>) item;
+                    scenarios.add(ProjectionScenario.fromJson(scenario, "scenario-" + (scenarios.size() + 1)));
+                }
+            } catch (IllegalArgumentException | ClassCastException | DateTimeParseException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid projection request: "
+                    + escapeJson(String.valueOf(e.getMessage())) + "\"}");
+                return;
+            }
+            
+            try {
+                ProjectionResult result = new PayrollProjection(payrollService.loadRoster())
+                    .run(firstMonth, months, scenarios);
+                sendResponse(exchange, 200, result.toJson());
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendResponse(exchange, 500, "{\"error\":\"Projection interrupted\"}");
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+    }
+    
+    // Handler for /payroll/attendance (POST punch upload streamed into the ingestor, GET ingestion counters)
+    static class AttendanceHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            switch (exchange.getRequestMethod()) {
+                case "OPTIONS":
+                    exchange.sendResponseHeaders(204, -1);
+                    break;
+                case "GET":
+                    sendResponse(exchange, 200, attendanceIngestor.statsToJson());
+                    break;
+                case "POST":
+                    // Read line by line; large punch files are never buffered whole
+                    AttendanceIngestor.Counts counts = attendanceIngestor.ingest(
+                        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                    sendResponse(exchange, counts.isWritten() ? 200 : 202, counts.toJson());
+                    break;
+                default:
+                    sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    // Handler for /payroll/arrears (POST back-dated revision: recompute paid periods, record arrears)
+    static class ArrearsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            String body = getRequestBody(exchange);
+            SalaryRevision revision = parseRevisionFromJson(body);
+            String effectiveFrom = getJsonValue(body, "effectiveFrom");
+            String throughPeriod = getJsonValue(body, "throughPeriod");
+            String batchId = getJsonValue(body, "batchId");
+            if (revision == null || effectiveFrom == null || !effectiveFrom.matches("\\d{4}-\\d{2}")
+                    || (throughPeriod != null && !throughPeriod.matches("\\d{4}-\\d{2}"))
+                    || (batchId != null && (!batchId.matches("\\d{1,9}") || revision.isDryRun()))) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid arrears request: give a revision as for "
+                    + "/payroll/revisions plus effectiveFrom (and optionally throughPeriod) as YYYY-MM, "
+                    + "and batchId only to resume a recorded batch\"}");
+                return;
+            }
+            
+            try {
+                ArrearsResult result = batchId != null
+                    ? arrearsService.resumeArrears(Integer.parseInt(batchId), revision, effectiveFrom)
+                    : arrearsService.computeArrears(revision, effectiveFrom, throughPeriod != null ? throughPeriod : "9999-12");
+                if (result == null) {
+                    sendResponse(exchange, 500, "{\"error\":\"Failed to start arrears computation\"}");
+                } else {
+                    sendResponse(exchange, result.isCompleted() ? 200 : 500, convertArrearsResultToJson(result));
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 404, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            } catch (IllegalStateException e) {
+                sendResponse(exchange, 409, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendResponse(exchange, 500, "{\"error\":\"Arrears computation interrupted\"}");
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+    }
+    
+    // Handler for /payroll/diff (GET changed employees between two completed runs, streamed)
+    static class PeriodDiffHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            String query = exchange.getRequestURI().getQuery();
+            String from = getParameterValue(query, "from");
+            String to = getParameterValue(query, "to");
+            String format = getParameterValue(query, "format");
+            boolean csv = "csv".equalsIgnoreCase(format);
+            if (from == null || to == null || !from.matches("\\d{4}-\\d{2}") || !to.matches("\\d{4}-\\d{2}")
+                    || (format != null && !csv && !"ndjson".equalsIgnoreCase(format))) {
+                sendResponse(exchange, 400, "{\"error\":\"Give from and to as YYYY-MM, and format as ndjson or csv\"}");
+                return;
+            }
+            String problem = periodDiff.checkPeriod(from);
+            if (problem == null) {
+                problem = periodDiff.checkPeriod(to);
+            }
+            if (problem != null) {
+                sendResponse(exchange, 409, "{\"error\":\"" + escapeJson(problem) + "\"}");
+                return;
+            }
+            
+            // Streamed: the diff is written window by window, never held whole
+            exchange.getResponseHeaders().set("Content-Type",
+                csv ? "text/csv; charset=UTF-8" : "application/x-ndjson; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                int changed = periodDiff.write(from, to, !"false".equals(getParameterValue(query, "arrears")),
+                    csv ? PeriodDiff.Format.CSV : PeriodDiff.Format.NDJSON, out);
+                if (changed < 0) {
+                    // Too late for an error status; end the stream with an error record instead
+                    out.write(csv ? "error,,,,Payroll history could not be read\n"
+                        : "{\"type\":\"error\",\"error\":\"Payroll history could not be read\"}\n");
+                }
+            }
+        }
+    }
+    
+    // Handler for /reports/percentiles and /reports/top (GET, answered from in-memory statistics)
+    static class ReportsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            String designation = getParameterValue(query, "designation");
+            try {
+                if (path.equals("/reports/percentiles")) {
+                    String q = getParameterValue(query, "q");
+                    String above = getParameterValue(query, "above");
+                    double[] quantiles = parseQuantiles(q != null ? q : "0.5,0.9,0.99");
+                    sendResponse(exchange, 200, salaryStatistics.percentilesToJson(quantiles, designation,
+                        above != null ? Double.valueOf(above) : null));
+                } else if (path.equals("/reports/top")) {
+                    String limit = getParameterValue(query, "limit");
+                    int n = limit != null ? Integer.parseInt(limit) : SalaryStatistics.TOP_LIMIT;
+                    if (n < 1 || n > SalaryStatistics.TOP_LIMIT) {
+                        sendResponse(exchange, 400, "{\"error\":\"limit must be between 1 and "
+                            + SalaryStatistics.TOP_LIMIT + "\"}");
+                        return;
+                    }
+                    sendResponse(exchange, 200, salaryStatistics.topToJson(n, designation));
+                } else {
+                    sendResponse(exchange, 404, "{\"error\":\"Unknown report\"}");
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid report parameters\"}");
+            }
+        }
+        
+        // "0.5,0.9,99" -> {0.5, 0.9, 0.99}; values above 1 are read as percentages
+        private static double[] parseQuantiles(String text) {
+            String[] parts = text.split(",");
+            double[] quantiles = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                double value = Double.parseDouble(parts[i].trim());
+                quantiles[i] = value > 1 ? value / 100 : value;
+                if (quantiles[i] < 0 || quantiles[i] > 1) {
+                    throw new IllegalArgumentException("quantile out of range");
+                }
+            }
+            return quantiles;
+        }
+    }
+    
+    // Handler for /org/units (GET rolled-up cost of the hierarchy or one unit, POST new unit)
+    static class OrgUnitsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            String path = exchange.getRequestURI().getPath();
+            String[] pathParts = path.split("/");
+            try {
+                switch (exchange.getRequestMethod()) {
+                    case "OPTIONS":
+                        exchange.sendResponseHeaders(204, -1);
+                        break;
+                    case "GET":
+                        if (pathParts.length > 3) {
+                            String json = orgHierarchy.unitToJson(Integer.parseInt(pathParts[3]));
+                            if (json == null) {
+                                sendResponse(exchange, 404, "{\"error\":\"Org unit not found\"}");
+                            } else {
+                                sendResponse(exchange, 200, json);
+                            }
+                        } else {
+                            String name = getParameterValue(exchange.getRequestURI().getQuery(), "name");
+                            sendResponse(exchange, 200, orgHierarchy.unitsToJson(name));
+                        }
+                        break;
+                    case "POST":
+                        String body = getRequestBody(exchange);
+                        String name = getJsonValue(body, "name");
+                        String kind = getJsonValue(body, "kind");
+                        String parentId = getJsonValue(body, "parentId");
+                        if (name == null || name.trim().isEmpty() || kind == null) {
+                            sendResponse(exchange, 400, "{\"error\":\"name and kind (PLANT, DIVISION, DEPARTMENT "
+                                + "or COST_CENTER) are required\"}");
+                            return;
+                        }
+                        OrgUnit unit = orgHierarchy.addUnit(parentId != null ? Integer.parseInt(parentId) : 0,
+                            name.trim(), OrgUnit.Kind.valueOf(kind.toUpperCase()));
+                        if (unit == null) {
+                            sendResponse(exchange, 400, "{\"error\":\"Parent unit not found or unit could not be stored\"}");
+                        } else {
+                            sendResponse(exchange, 201, orgHierarchy.unitToJson(unit.getId()));
+                        }
+                        break;
+                    default:
+                        sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid org unit id or kind\"}");
+            }
+        }
+    }
+    
+    // Handler for /org/assignments (POST move an employee or id range to a unit)
+    static class OrgAssignmentsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            String body = getRequestBody(exchange);
+            String unitId = getJsonValue(body, "unitId");
+            String employeeId = getJsonValue(body, "employeeId");
+            String fromId = getJsonValue(body, "fromId");
+            String toId = getJsonValue(body, "toId");
+            try {
+                if (unitId == null || (employeeId == null && (fromId == null || toId == null))) {
+                    throw new IllegalArgumentException("unitId and employeeId (or fromId and toId) are required");
+                }
+                int from = Integer.parseInt(employeeId != null ? employeeId : fromId);
+                int to = Integer.parseInt(employeeId != null ? employeeId : toId);
+                int assigned = orgHierarchy.assign(Integer.parseInt(unitId), from, to);
+                if (assigned < 0) {
+                    sendResponse(exchange, 400, "{\"error\":\"Org unit not found or assignments could not be stored\"}");
+                } else {
+                    sendResponse(exchange, 200, "{\"assigned\":" + assigned + ",\"unit\":"
+                        + (Integer.parseInt(unitId) == 0 ? "null" : orgHierarchy.unitToJson(Integer.parseInt(unitId))) + "}");
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Give unitId (0 to unassign) and employeeId, or fromId and toId\"}");
+            }
+        }
+    }
+    
+    // Handler for /debug/admission (GET lane counters)
+    static class AdmissionStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            setupCORS(exchange);
+            if ("GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 200, admissionController.toJson());
+            } else {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    // Handler for /debug/audit (GET audit writer counters)
+    static class AuditStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            setupCORS(exchange);
+            if ("GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 200, auditLog != null ? auditLog.toJson() : "{\"sink\":\"none\"}");
+            } else {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    // Handler for /debug/traces (GET recent traces from the in-process ring buffer)
+    static class TracesHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            setupCORS(exchange);
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String query = exchange.getRequestURI().getQuery();
+                String limit = getParameterValue(query, "limit");
+                String traceId = getParameterValue(query, "traceId");
+                try {
+                    int max = limit != null ? Integer.parseInt(limit) : 20;
+                    sendResponse(exchange, 200, PayrollTracer.toJson(Math.max(1, max), traceId));
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, 400, "{\"error\":\"Invalid limit\"}");
+                }
+            } else {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    // Handler for /debug/slow-queries (GET the costliest statement shapes)
+    static class SlowQueriesHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            setupCORS(exchange);
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String limit = getParameterValue(exchange.getRequestURI().getQuery(), "limit");
+                try {
+                    int max = limit != null ? Integer.parseInt(limit) : 20;
+                    sendResponse(exchange, 200, SlowQueryLog.getInstance().toJson(Math.max(1, max)));
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, 400, "{\"error\":\"Invalid limit\"}");
+                }
+            } else {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    // Handler for /employees (GET all, POST new)
+    static class EmployeesHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+             logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            
+            try {
+                switch (exchange.getRequestMethod()) {
+                    case "GET":
+                        handleGetEmployees(exchange);
+                        break;
+                    case "POST":
+                        handleAddEmployee(exchange);
+                        break;
+                    default:
+                        sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+        
+        private void handleGetEmployees(HttpExchange exchange) throws IOException {
+            String query = exchange.getRequestURI().getQuery();
+            Long asOf;
+            try {
+                asOf = parseTime(getParameterValue(query, "asOf"), true);
+            } catch (RuntimeException e) {
+                sendResponse(exchange, 400, INVALID_AS_OF);
+                return;
+            }
+            // Compact roster: no Employee object per row, even for very large payrolls
+            EmployeeRoster roster = asOf != null ? payrollService.loadRosterAsOf(asOf) : payrollService.loadRoster();
+            String format = getParameterValue(query, "format");
+            if ("csv".equalsIgnoreCase(format)) {
+                exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"employees.csv\"");
+                sendResponse(exchange, 200, convertRosterToCsv(roster), "text/csv; charset=UTF-8");
+                return;
+            }
+            sendResponse(exchange, 200, convertRosterToJson(roster));
+        }
+        
+        private void handleAddEmployee(HttpExchange exchange) throws IOException {
+            String requestBody = getRequestBody(exchange);
+            
+            try {
+                // Parse JSON manually
+                Employee employee = parseEmployeeFromJson(requestBody);
+                
+                if (employee == null) {
+                    sendResponse(exchange, 400, "{\"error\":\"Invalid employee data\"}");
+                    return;
+                }
+                
+                boolean success = payrollService.addEmployee(employee, actorOf(exchange));
+                if (success) {
+                    sendResponse(exchange, 201, "{\"status\":\"success\", \"message\":\"Employee added successfully\"}");
+                } else {
+                    sendResponse(exchange, 500, "{\"error\":\"Failed to add employee to database\"}");
+                }
+            } catch (Exception e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid JSON format\"}");
+            }
+        }
+    }
+    
+    // Handler for /employees/delta (GET rows changed since ?since=VERSION, plus tombstones)
+    static class DeltaHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            String since = getParameterValue(exchange.getRequestURI().getQuery(), "since");
+            long sinceVersion;
+            try {
+                sinceVersion = since != null ? Long.parseLong(since.trim()) : 0L;
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"error\":\"since must be a version returned by an earlier delta\"}");
+                return;
+            }
+            
+            EmployeeDelta delta = changeJournal.changesSince(sinceVersion);
+            StringBuilder json = new StringBuilder(256)
+                .append("{\"version\":").append(delta.getVersion()).append(",")
+                .append("\"reset\":").append(delta.isReset()).append(",")
+                .append("\"employees\":");
+            if (delta.isReset()) {
+                // Unknown or expired version: everyone, read after the version was taken
+                json.append(convertRosterToJson(payrollService.loadRoster()));
+            } else {
+                json.append("[");
+                for (Employee employee : delta.getEmployees()) {
+                    json.append(json.charAt(json.length() - 1) == '[' ? "" : ",").append(convertEmployeeToJson(employee));
+                }
+                json.append("]");
+            }
+            json.append(",\"deleted\":[");
+            int[] deleted = delta.getDeletedIds();
+            for (int i = 0; i < deleted.length; i++) {
+                json.append(i == 0 ? "" : ",").append(deleted[i]);
+            }
+            sendResponse(exchange, 200, json.append("]}").toString());
+        }
+    }
+    
+    // Handler for /employees/summary (GET payroll totals by designation, now or ?asOf=)
+    static class SummaryHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+            
+            Long asOf;
+            try {
+                asOf = parseTime(getParameterValue(exchange.getRequestURI().getQuery(), "asOf"), true);
+            } catch (RuntimeException e) {
+                sendResponse(exchange, 400, INVALID_AS_OF);
+                return;
+            }
+            List<PayrollAggregate> aggregates = asOf != null
+                ? payrollService.aggregateByDesignationAsOf(asOf)
+                : payrollService.aggregateByDesignation();
+            
+            int employees = 0;
+            double basic = 0, hra = 0, tax = 0, net = 0;
+            StringBuilder byDesignation = new StringBuilder("[");
+            for (PayrollAggregate aggregate : aggregates) {
+                employees += aggregate.getEmployeeCount();
+                basic += aggregate.getTotalBasicSalary();
+                hra += aggregate.getTotalHra();
+                tax += aggregate.getTotalTax();
+                net += aggregate.getTotalNetSalary();
+                byDesignation.append(byDesignation.length() > 1 ? "," : "")
+                    .append("{\"designation\":\"").append(escapeJson(aggregate.getDesignation())).append("\",")
+                    .append("\"employees\":").append(aggregate.getEmployeeCount()).append(",")
+                    .append(String.format(Locale.ROOT, "\"totalBasicSalary\":%.2f,\"totalHra\":%.2f,"
+                        + "\"totalTax\":%.2f,\"totalNetSalary\":%.2f}", aggregate.getTotalBasicSalary(),
+                        aggregate.getTotalHra(), aggregate.getTotalTax(), aggregate.getTotalNetSalary()));
+            }
+            byDesignation.append("]");
+            
+            String json = "{\"asOf\":" + (asOf != null ? asOf : "null") + ","
+                + "\"employees\":" + employees + ","
+                + String.format(Locale.ROOT, "\"totalBasicSalary\":%.2f,\"totalHra\":%.2f,\"totalTax\":%.2f,"
+                    + "\"totalNetSalary\":%.2f,", basic, hra, tax, net)
+                + "\"byDesignation\":" + byDesignation + "}";
+            sendResponse(exchange, 200, json);
+        }
+    }
+    
+    // Handler for /employees/{id} (GET, PUT, DELETE)
+    static class EmployeeByIdHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+             logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            
+            try {
+                String path = exchange.getRequestURI().getPath();
+                String[] pathParts = path.split("/");
+                
+                if (pathParts.length < 3) {
+                    sendResponse(exchange, 400, "{\"error\":\"Employee ID is required\"}");
+                    return;
+                }
+                
+                int employeeId = Integer.parseInt(pathParts[2]);
+                
+                switch (exchange.getRequestMethod()) {
+                    case "GET":
+                        handleGetEmployeeById(exchange, employeeId);
+                        break;
+                    case "PUT":
+                        handleUpdateEmployee(exchange, employeeId);
+                        break;
+                    case "DELETE":
+                        handleDeleteEmployee(exchange, employeeId);
+                        break;
+                    default:
+                        sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                }
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid employee ID\"}");
+            } catch (Exception e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "{\"error\":\"Internal server error: " + e.getMessage() + "\"}");
+            }
+        }
+        
+        private void handleGetEmployeeById(HttpExchange exchange, int employeeId) throws IOException {
+            Long asOf;
+            try {
+                asOf = parseTime(getParameterValue(exchange.getRequestURI().getQuery(), "asOf"), true);
+            } catch (RuntimeException e) {
+                sendResponse(exchange, 400, INVALID_AS_OF);
+                return;
+            }
+            Employee employee = asOf != null
+                ? payrollService.getEmployeeAsOf(employeeId, asOf)
+                : payrollService.getEmployeeById(employeeId);
+            
+            if (employee != null) {
+                String jsonResponse = convertEmployeeToJson(employee);
+                sendResponse(exchange, 200, jsonResponse);
+            } else {
+                sendResponse(exchange, 404, "{\"error\":\"Employee not found\"}");
+            }
+        }
+        
+        private void handleUpdateEmployee(HttpExchange exchange, int employeeId) throws IOException {
+            Employee existingEmployee = payrollService.getEmployeeById(employeeId);
+            if (existingEmployee == null) {
+                sendResponse(exchange, 404, "{\"error\":\"Employee not found\"}");
+                return;
+            }
+            
+            String requestBody = getRequestBody(exchange);
+            
+            try {
+                Employee updatedEmployee = parseEmployeeFromJson(requestBody);
+                if (updatedEmployee == null) {
+                    sendResponse(exchange, 400, "{\"error\":\"Invalid employee data\"}");
+                    return;
+                }
+                
+                // Set the ID for the update
+                updatedEmployee.setId(employeeId);
+                
+                boolean success = payrollService.updateEmployee(updatedEmployee, actorOf(exchange));
+                if (success) {
+                    sendResponse(exchange, 200, "{\"status\":\"success\", \"message\":\"Employee updated successfully\"}");
+                } else {
+                    sendResponse(exchange, 500, "{\"error\":\"Failed to update employee\"}");
+                }
+            } catch (Exception e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid JSON format\"}");
+            }
+        }
+        
+        private void handleDeleteEmployee(HttpExchange exchange, int employeeId) throws IOException {
+            Employee existingEmployee = payrollService.getEmployeeById(employeeId);
+            if (existingEmployee == null) {
+                sendResponse(exchange, 404, "{\"error\":\"Employee not found\"}");
+                return;
+            }
+            
+            boolean success = payrollService.deleteEmployee(employeeId, actorOf(exchange));
+            if (success) {
+                sendResponse(exchange, 200, "{\"status\":\"success\", \"message\":\"Employee deleted successfully\"}");
+            } else {
+                sendResponse(exchange, 500, "{\"error\":\"Failed to delete employee\"}");
+            }
+        }
+    }
+    
+    // Handler for /employees/search
+    static class SearchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logRequest(exchange);
+            setupCORS(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String query = exchange.getRequestURI().getQuery();
+                String designation = getParameterValue(query, "designation");
+                
+                if (isCompositeSearch(query)) {
+                    EmployeeSearch search;
+                    try {
+                        search = parseSearch(query);
+                    } catch (IllegalArgumentException | DateTimeParseException e) {
+                        sendResponse(exchange, 400, "{\"error\":\"Invalid search parameters\"}");
+                        return;
+                    }
+                    SearchResult result = payrollService.search(search);
+                    exchange.getResponseHeaders().set("X-Search-Plan", result.getPlan());
+                    exchange.getResponseHeaders().set("X-Search-Examined", String.valueOf(result.getExamined()));
+                    sendResponse(exchange, 200, convertEmployeesToJson(result.getEmployees()));
+                    return;
+                }
+                
+                if (designation == null || designation.isEmpty()) {
+                    sendResponse(exchange, 400, "{\"error\":\"Designation parameter is required\"}");
+                    return;
+                }
+                
+                List<Employee> employees = payrollService.searchByDesignation(designation);
+                String jsonResponse = convertEmployeesToJson(employees);
+                sendResponse(exchange, 200, jsonResponse);
+            } else {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        }
+    }
+    
+    private static final String[] COMPOSITE_SEARCH_PARAMETERS = {
+        "name", "minSalary", "maxSalary", "minTax", "maxTax",
+        "createdFrom", "createdTo", "updatedFrom", "updatedTo", "limit"
+    };
+    
+    // designation alone keeps the old "contains" search; anything else is composite
+    private static boolean isCompositeSearch(String query) {
+        for (String name : COMPOSITE_SEARCH_PARAMETERS) {
+            if (getParameterValue(query, name) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static EmployeeSearch parseSearch(String query) {
+        String limit = getParameterValue(query, "limit");
+        return new EmployeeSearch()
+            .setNamePrefix(getParameterValue(query, "name"))
+            .setDesignation(getParameterValue(query, "designation"))
+            .setNetSalaryRange(parseAmount(getParameterValue(query, "minSalary")),
+                parseAmount(getParameterValue(query, "maxSalary")))
+            .setTaxRange(parseAmount(getParameterValue(query, "minTax")),
+                parseAmount(getParameterValue(query, "maxTax")))
+            .setCreatedRange(parseTime(getParameterValue(query, "createdFrom"), false),
+                parseTime(getParameterValue(query, "createdTo"), true))
+            .setUpdatedRange(parseTime(getParameterValue(query, "updatedFrom"), false),
+                parseTime(getParameterValue(query, "updatedTo"), true))
+            .setLimit(limit != null ? Integer.parseInt(limit) : EmployeeSearch.DEFAULT_LIMIT);
+    }
+    
+    private static Double parseAmount(String value) {
+        return value != null ? Double.valueOf(value) : null;
+    }
+    
+    private static final String INVALID_AS_OF =
+        "{\"error\":\"asOf must be epoch millis, YYYY-MM-DD (end of that day) or YYYY-MM-DDTHH:MM[:SS]\"}";
+    
+    // Epoch millis, YYYY-MM-DD (a whole day, so "to" means end of that day) or YYYY-MM-DDTHH:MM[:SS]
+    private static Long parseTime(String value, boolean endOfRange) {
+        if (value == null) {
+            return null;
+        }
+        if (value.matches("\\d+")) {
+            return Long.valueOf(value);
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        if (value.length() == 10) {
+            LocalDate day = LocalDate.parse(value);
+            return endOfRange
+                ? day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1
+                : day.atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return LocalDateTime.parse(value).atZone(zone).toInstant().toEpochMilli();
+    }
+    
+    // Utility methods
+    private static void setupCORS(HttpExchange exchange) {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization, X-User");
+    }
+    
+private static String getRequestBody(HttpExchange exchange) throws IOException {
+    InputStream inputStream = exchange.getRequestBody();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    
+    try {
+        return reader.lines().collect(Collectors.joining("\n"));
+    } finally {
+        // Don't close the reader here - the HttpExchange will handle closing the stream
+        // Closing it here can cause "stream closed" errors
+    }
+}
+private static Employee parseEmployeeFromJson(String json) {
+    try {
+        if (LOG_REQUESTS) {
+            System.out.println("Raw JSON received: " + json);
+        }
+        
+        // Remove whitespace and braces
+        json = json.trim();
+        if (json.startsWith("{") && json.endsWith("}")) {
+            json = json.substring(1, json.length() - 1);
+        }
+        
+        String[] pairs = json.split(",");
+        
+        String name = null;
+        String designation = null;
+        double basicSalary = 0;
+        double hra = 0;
+        double tax = 0;
+        
+        for (String pair : pairs) {
+            String[] keyValue = pair.split(":", 2);
+            if (keyValue.length == 2) {
+                String key = keyValue[0].trim().replace("\"", "");
+                String value = keyValue[1].trim().replace("\"", "");
+                
+                if (LOG_REQUESTS) {
+                    System.out.println("Parsing key: " + key + ", value: " + value);
+                }
+                
+                switch (key) {
+                    case "name":
+                        name = value;
+                        break;
+                    case "designation":
+                        designation = value;
+                        break;
+                    case "basicSalary":
+                        basicSalary = Double.parseDouble(value);
+                        break;
+                    case "hra":
+                        hra = Double.parseDouble(value);
+                        break;
+                    case "tax":
+                        tax = Double.parseDouble(value);
+                        break;
+                }
+            }
+        }
+        
+        // Validate required fields
+        if (name == null || name.isEmpty() || designation == null || designation.isEmpty()) {
+            System.out.println("Missing required fields: name=" + name + ", designation=" + designation);
+            return null;
+        }
+        
+        if (LOG_REQUESTS) {
+            System.out.println("Successfully parsed employee: " + name + ", " + designation);
+        }
+        return new Employee(name, designation, basicSalary, hra, tax);
+        
+    } catch (Exception e) {
+        System.out.println("JSON parsing error: " + e.getMessage());
+        e.printStackTrace();
+        return null;
+    }
+}
+    
+    private static SalaryRevision parseRevisionFromJson(String json) {
+        try {
+            json = json.trim();
+            if (json.startsWith("{") && json.endsWith("}")) {
+                json = json.substring(1, json.length() - 1);
+            }
+            
+            SalaryRevision.Type type = SalaryRevision.Type.PERCENT;
+            double basicSalary = 0;
+            double hra = 0;
+            String designation = null;
+            int fromId = 1;
+            int toId = Integer.MAX_VALUE;
+            boolean hasRange = false;
+            boolean dryRun = false;
+            
+            for (String pair : json.split(",")) {
+                String[] keyValue = pair.split(":", 2);
+                if (keyValue.length != 2) {
+                    continue;
+                }
+                String key = keyValue[0].trim().replace("\"", "");
+                String value = keyValue[1].trim().replace("\"", "");
+                
+                switch (key) {
+                    case "type":
+                        type = SalaryRevision.Type.valueOf(value.toUpperCase());
+                        break;
+                    case "basicSalary":
+                        basicSalary = Double.parseDouble(value);
+                        break;
+                    case "hra":
+                        hra = Double.parseDouble(value);
+                        break;
+                    case "designation":
+                        designation = value.isEmpty() ? null : value;
+                        break;
+                    case "fromId":
+                        fromId = Integer.parseInt(value);
+                        hasRange = true;
+                        break;
+                    case "toId":
+                        toId = Integer.parseInt(value);
+                        hasRange = true;
+                        break;
+                    case "dryRun":
+                        dryRun = Boolean.parseBoolean(value);
+                        break;
+                }
+            }
+            
+            // Refuse accidental whole-payroll revisions and no-ops
+            if ((designation == null && !hasRange) || fromId > toId || (basicSalary == 0 && hra == 0)) {
+                return null;
+            }
+            return new SalaryRevision(type, basicSalary, hra, designation, fromId, toId, dryRun);
+        } catch (Exception e) {
+            System.out.println("Revision parsing error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private static String convertRevisionResultToJson(RevisionResult result) {
+        return new StringBuilder()
+            .append("{")
+            .append("\"dryRun\":").append(result.isDryRun()).append(",")
+            .append("\"completed\":").append(result.isCompleted()).append(",")
+            .append("\"affectedEmployees\":").append(result.getAffectedEmployees()).append(",")
+            .append("\"chunks\":").append(result.getChunks()).append(",")
+            .append("\"lastCommittedId\":").append(result.getLastCommittedId()).append(",")
+            .append("\"netSalaryBefore\":").append(result.getNetSalaryBefore()).append(",")
+            .append("\"netSalaryAfter\":").append(result.getNetSalaryAfter()).append(",")
+            .append("\"monthlyCostDelta\":").append(result.getMonthlyCostDelta()).append(",")
+            .append("\"elapsedMillis\":").append(result.getElapsedMillis())
+            .append("}")
+            .toString();
+    }
+    
+    private static String convertArrearsResultToJson(ArrearsResult result) {
+        return new StringBuilder()
+            .append("{")
+            .append("\"batchId\":").append(result.getBatchId()).append(",")
+            .append("\"dryRun\":").append(result.isDryRun()).append(",")
+            .append("\"completed\":").append(result.isCompleted()).append(",")
+            .append("\"effectiveFrom\":\"").append(result.getEffectiveFrom()).append("\",")
+            .append("\"periods\":").append(result.getPeriods()).append(",")
+            .append("\"employeePeriods\":").append(result.getEmployeePeriods()).append(",")
+            .append("\"arrearsLines\":").append(result.getArrearsLines()).append(",")
+            .append("\"totalNetArrears\":").append(result.getTotalNetArrears()).append(",")
+            .append("\"chunks\":").append(result.getChunks()).append(",")
+            .append("\"skippedChunks\":").append(result.getSkippedChunks()).append(",")
+            .append("\"failedChunks\":").append(result.getFailedChunks()).append(",")
+            .append("\"elapsedMillis\":").append(result.getElapsedMillis())
+            .append("}")
+            .toString();
+    }
+    
+    private static String convertPayrollRunToJson(PayrollRun run) {
+        return new StringBuilder()
+            .append("{")
+            .append("\"runId\":").append(run.getRunId()).append(",")
+            .append("\"period\":\"").append(escapeJson(run.getPeriod())).append("\",")
+            .append("\"status\":\"").append(run.getStatus()).append("\",")
+            .append("\"chunkSize\":").append(run.getChunkSize()).append(",")
+            .append("\"maxEmployeeId\":").append(run.getMaxEmployeeId()).append(",")
+            .append("\"checkpointedId\":").append(run.getCheckpointedId()).append(",")
+            .append("\"snapshotId\":").append(run.getSnapshotId()).append(",")
+            .append("\"employeesProcessed\":").append(run.getEmployeesProcessed()).append(",")
+            .append("\"totalNetSalary\":").append(run.getTotalNetSalary())
+            .append("}")
+            .toString();
+    }
+    
+    // Reads one top-level value from a flat JSON object
+    private static String getJsonValue(String json, String key) {
+        json = json.trim();
+        if (json.startsWith("{") && json.endsWith("}")) {
+            json = json.substring(1, json.length() - 1);
+        }
+        for (String pair : json.split(",")) {
+            String[] keyValue = pair.split(":", 2);
+            if (keyValue.length == 2 && keyValue[0].trim().replace("\"", "").equals(key)) {
+                return keyValue[1].trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+    
+    private static String convertEmployeesToJson(List<Employee> employees) {
+        try (PayrollTracer.Span span = PayrollTracer.startSpan("serialize employees", "internal")) {
+            span.setAttribute("employees", employees.size());
+            StringBuilder jsonBuilder = new StringBuilder("[");
+            
+            for (int i = 0; i < employees.size(); i++) {
+                Employee emp = employees.get(i);
+                jsonBuilder.append(convertEmployeeToJson(emp));
+                
+                if (i < employees.size() - 1) {
+                    jsonBuilder.append(",");
+                }
+            }
+            jsonBuilder.append("]");
+            
+            return jsonBuilder.toString();
+        }
+    }
+    
+    // Same JSON as convertEmployeesToJson, written straight from the roster columns
+    private static String convertRosterToJson(EmployeeRoster roster) {
+        try (PayrollTracer.Span span = PayrollTracer.startSpan("serialize employees", "internal")) {
+            span.setAttribute("employees", roster.size());
+            StringBuilder json = new StringBuilder(roster.size() * 160 + 2).append("[");
+            for (int row = 0; row < roster.size(); row++) {
+                if (row > 0) {
+                    json.append(",");
+                }
+                json.append("{")
+                    .append("\"id\":").append(roster.getId(row)).append(",")
+                    .append("\"name\":\"").append(escapeJson(roster.getName(row))).append("\",")
+                    .append("\"designation\":\"").append(escapeJson(roster.getDesignation(row))).append("\",")
+                    .append("\"basicSalary\":").append(roster.getBasicSalary(row)).append(",")
+                    .append("\"hra\":").append(roster.getHra(row)).append(",")
+                    .append("\"tax\":").append(roster.getTax(row)).append(",")
+                    .append("\"netSalary\":").append(roster.getNetSalary(row))
+                    .append("}");
+            }
+            return json.append("]").toString();
+        }
+    }
+    
+    private static String convertRosterToCsv(EmployeeRoster roster) {
+        try (PayrollTracer.Span span = PayrollTracer.startSpan("serialize employees", "internal")) {
+            span.setAttribute("employees", roster.size());
+            StringBuilder csv = new StringBuilder(roster.size() * 100 + 64)
+                .append("id,name,designation,basic_salary,hra,tax,net_salary\n");
+            for (int row = 0; row < roster.size(); row++) {
+                csv.append(roster.getId(row)).append(",")
+                    .append(escapeCsv(roster.getName(row))).append(",")
+                    .append(escapeCsv(roster.getDesignation(row))).append(",");
+                appendAmount(csv, roster.getBasicSalary(row)).append(",");
+                appendAmount(csv, roster.getHra(row)).append(",");
+                appendAmount(csv, roster.getTax(row)).append(",");
+                appendAmount(csv, roster.getNetSalary(row)).append("\n");
+            }
+            return csv.toString();
+        }
+    }
+    
+    // Two decimals without String.format, which dominates a large export
+    private static StringBuilder appendAmount(StringBuilder out, double amount) {
+        long paise = Math.round(amount * 100.0);
+        if (paise < 0) {
+            out.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % 100;
+        return out.append(paise / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+    
+    private static String escapeCsv(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+    
+    private static String convertEmployeeToJson(Employee emp) {
+        return new StringBuilder()
+            .append("{")
+            .append("\"id\":").append(emp.getId()).append(",")
+            .append("\"name\":\"").append(escapeJson(emp.getName())).append("\",")
+            .append("\"designation\":\"").append(escapeJson(emp.getDesignation())).append("\",")
+            .append("\"basicSalary\":").append(emp.getBasicSalary()).append(",")
+            .append("\"hra\":").append(emp.getHra()).append(",")
+            .append("\"tax\":").append(emp.getTax()).append(",")
+            .append("\"netSalary\":").append(emp.getNetSalary())
+            .append("}")
+            .toString();
+    }
+    
+    private static String escapeJson(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                  .replace("\"", "\\\"")
+                  .replace("\n", "\\n")
+                  .replace("\r", "\\r")
+                  .replace("\t", "\\t");
+    }
+    
+    private static String getParameterValue(String query, String paramName) {
+        if (query == null) return null;
+        String[] pairs = query.split("&");
+        for (String pair : pairs) {
+            String[] keyValue = pair.split("=");
+            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
+                return keyValue[1];
+            }
+        }
+        return null;
+    }
+    
+    private static void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
+        sendResponse(exchange, statusCode, response, "application/json; charset=UTF-8");
+    }
+    
+    private static void sendResponse(HttpExchange exchange, int statusCode, String response, String contentType)
+            throws IOException {
+        try (PayrollTracer.Span span = PayrollTracer.startSpan("write response", "internal")) {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            span.setAttribute("bytes", bytes.length);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            os.write(bytes);
+            os.close();
+        }
+    }
+}
\ No newline at end of file
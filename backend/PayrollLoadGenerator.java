@@ -0,0 +1,323 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Payroll Load Generator Class
+ * Drives the payroll REST API with a configurable mix of list, get, search,
+ * create, update and delete requests and reports latency percentiles.
+ *
+ * Load is open-loop: requests are scheduled at a fixed arrival rate, not
+ * sent "as soon as the previous one returns". Latency is measured from the
+ * time a request was scheduled to start, so time spent waiting behind a
+ * stalled server is counted (no coordinated omission). Pure service time
+ * is reported alongside for comparison.
+ *
+ * Usage:
+ *   java -cp ".;mysql-connector-j-9.4.0.jar" PayrollLoadGenerator --embedded
+ *        [--url=http://localhost:8080] [--rate=500] [--duration=30] [--warmup=5]
+ *        [--mix=list:5,get:60,search:15,create:10,update:8,delete:2]
+ *        [--seed=1000] [--connections=64] [--engine=nio]
+ *
+ * --embedded starts PayrollHttpServer in this JVM on the in-memory
+ * repository, so server throughput can be measured with no MySQL installed.
+ */
+public class PayrollLoadGenerator {
+
+    enum Operation { LIST, GET, SEARCH, CREATE, UPDATE, DELETE }
+
+    private static final String[] DESIGNATIONS = {
+        "Senior Engineer", "HR Manager", "Production Supervisor", "Safety Officer",
+        "Maintenance Technician", "Quality Analyst", "Finance Controller", "Operations Manager"
+    };
+
+    private String baseUrl = "http://localhost:8080";
+    private int rate = 500;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int seed = 1000;
+    private int connections = 64;
+    private boolean embedded;
+    private String engine = "jdk";
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    // Latency from intended start (corrected) and from actual start (service time)
+    private final Map<Operation, LatencyHistogram> corrected = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> service = new EnumMap<>(Operation.class);
+    private final Map<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger maxKnownId = new AtomicInteger();
+    private volatile boolean recording;
+
+    public static void main(String[] args) throws Exception {
+        PayrollLoadGenerator generator = new PayrollLoadGenerator();
+        generator.parseArgs(args);
+        generator.run();
+        System.exit(0);
+    }
+
+    private void parseArgs(String[] args) {
+        parseMix("list:5,get:60,search:15,create:10,update:8,delete:2");
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            String value = kv.length == 2 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--url": baseUrl = value; break;
+                case "--rate": rate = Integer.parseInt(value); break;
+                case "--duration": durationSeconds = Integer.parseInt(value); break;
+                case "--warmup": warmupSeconds = Integer.parseInt(value); break;
+                case "--seed": seed = Integer.parseInt(value); break;
+                case "--connections": connections = Integer.parseInt(value); break;
+                case "--mix": parseMix(value); break;
+                case "--embedded": embedded = true; break;
+                case "--engine": engine = value; break;
+                default:
+                    System.err.println("✗ Unknown option: " + arg);
+                    System.exit(2);
+            }
+        }
+        for (Operation op : Operation.values()) {
+            corrected.put(op, new LatencyHistogram());
+            service.put(op, new LatencyHistogram());
+        }
+    }
+
+    private void parseMix(String spec) {
+        mix.clear();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            mix.put(Operation.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+    }
+
+    private void run() throws Exception {
+        if (embedded) {
+            startEmbeddedServer();
+        }
+
+        System.out.println("🔧 Seeding " + seed + " employees...");
+        for (int i = 0; i < seed; i++) {
+            execute(Operation.CREATE);
+        }
+        refreshMaxId();
+
+        System.out.printf("🚀 Open-loop load: %d req/s, %ds warmup + %ds measured, mix=%s%n",
+            rate, warmupSeconds, durationSeconds, mix);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        List<Operation> schedule = buildSchedule();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long totalRequests = (long) rate * (warmupSeconds + durationSeconds);
+        long warmupRequests = (long) rate * warmupSeconds;
+        long startNanos = System.nanoTime();
+        long measureStartNanos = startNanos + warmupRequests * intervalNanos;
+
+        for (long i = 0; i < totalRequests; i++) {
+            final long intendedStart = startNanos + i * intervalNanos;
+            final Operation op = schedule.get((int) (i % schedule.size()));
+            sleepUntil(intendedStart);
+            if (i == warmupRequests) {
+                recording = true;
+            }
+            pool.execute(() -> {
+                long actualStart = System.nanoTime();
+                execute(op);
+                long end = System.nanoTime();
+                if (recording) {
+                    corrected.get(op).record((end - intendedStart) / 1000);
+                    service.get(op).record((end - actualStart) / 1000);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - measureStartNanos;
+
+        printReport(elapsedNanos);
+    }
+
+    private void startEmbeddedServer() throws Exception {
+        System.setProperty("payroll.repository", "memory");
+        System.setProperty("payroll.http.quiet", "true");
+        PayrollHttpServer.main(new String[]{"--engine=" + engine});
+        baseUrl = "http://localhost:8080";
+    }
+
+    // Shuffled sequence of operations matching the configured weights
+    private List<Operation> buildSchedule() {
+        List<Operation> schedule = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                schedule.add(entry.getKey());
+            }
+        }
+        Collections.shuffle(schedule, new Random(42));
+        return schedule;
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            if (remaining > 2_000_000) {
+                Thread.sleep(1);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void execute(Operation op) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = 1 + random.nextInt(Math.max(1, maxKnownId.get()));
+        try {
+            int status;
+            switch (op) {
+                case LIST:
+                    status = send("GET", "/employees", null);
+                    break;
+                case GET:
+                    status = send("GET", "/employees/" + id, null);
+                    break;
+                case SEARCH:
+                    String designation = DESIGNATIONS[random.nextInt(DESIGNATIONS.length)].split(" ")[0];
+                    status = send("GET", "/employees/search?designation=" + designation, null);
+                    break;
+                case CREATE:
+                    status = send("POST", "/employees", randomEmployeeJson(random));
+                    if (status == 201) {
+                        maxKnownId.incrementAndGet();
+                    }
+                    break;
+                case UPDATE:
+                    status = send("PUT", "/employees/" + id, randomEmployeeJson(random));
+                    break;
+                default:
+                    status = send("DELETE", "/employees/" + id, null);
+                    break;
+            }
+            if (recording) {
+                statusCounts.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+            }
+        } catch (IOException e) {
+            if (recording) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private static String randomEmployeeJson(ThreadLocalRandom random) {
+        double basic = 20000 + random.nextInt(60000);
+        return "{\"name\":\"Load Test " + random.nextInt(1_000_000) + "\","
+            + "\"designation\":\"" + DESIGNATIONS[random.nextInt(DESIGNATIONS.length)] + "\","
+            + "\"basicSalary\":" + basic + ","
+            + "\"hra\":" + Math.round(basic * 0.3) + ","
+            + "\"tax\":" + Math.round(basic * 0.15) + "}";
+    }
+
+    private int send(String method, String path, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(30000);
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+        }
+        int status = conn.getResponseCode();
+        // Drain the body so the connection goes back to the keep-alive pool
+        InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) > 0) {
+                // discard
+            }
+            in.close();
+        }
+        return status;
+    }
+
+    private void refreshMaxId() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + "/employees").openConnection();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = conn.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        int max = 0;
+        int index = 0;
+        while ((index = json.indexOf("\"id\":", index)) >= 0) {
+            index += 5;
+            int end = index;
+            while (end < json.length() && Character.isDigit(json.charAt(end))) {
+                end++;
+            }
+            max = Math.max(max, Integer.parseInt(json.substring(index, end)));
+        }
+        maxKnownId.set(max);
+    }
+
+    private void printReport(long elapsedNanos) {
+        LatencyHistogram allCorrected = new LatencyHistogram();
+        LatencyHistogram allService = new LatencyHistogram();
+        for (Operation op : Operation.values()) {
+            allCorrected.add(corrected.get(op));
+            allService.add(service.get(op));
+        }
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println("\n╔══════════════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                      PAYROLL API LOAD TEST REPORT                        ║");
+        System.out.println("╚══════════════════════════════════════════════════════════════════════════╝");
+        System.out.printf("Target rate: %d req/s   Achieved: %.1f req/s   Failures: %d%n",
+            rate, allCorrected.getCount() / seconds, failures.get());
+        System.out.println("Status codes: " + statusCounts);
+        System.out.println("\nLatency (ms) measured from intended start (coordinated-omission corrected)");
+        printHeader();
+        for (Operation op : Operation.values()) {
+            printRow(op.name(), corrected.get(op));
+        }
+        printRow("ALL", allCorrected);
+        System.out.println("\nService time (ms) measured from actual send");
+        printHeader();
+        printRow("ALL", allService);
+    }
+
+    private static void printHeader() {
+        System.out.printf("%-8s %10s %10s %10s %10s %10s%n", "op", "count", "p50", "p99", "p99.9", "max");
+    }
+
+    private static void printRow(String name, LatencyHistogram h) {
+        if (h.getCount() == 0) {
+            return;
+        }
+        System.out.printf("%-8s %10d %10.2f %10.2f %10.2f %10.2f%n", name, h.getCount(),
+            h.getPercentile(50) / 1000.0, h.getPercentile(99) / 1000.0,
+            h.getPercentile(99.9) / 1000.0, h.getMax() / 1000.0);
+    }
+}
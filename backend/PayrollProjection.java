@@ -0,0 +1,279 @@
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Payroll Projection Class
+ * Forecasts monthly payroll cost for the coming months under several
+ * what-if scenarios (see ProjectionScenario).
+ *
+ * The payroll is snapshotted once into primitive arrays (designation index,
+ * basic, HRA, tax per employee). Each (scenario, chunk of employees) pair
+ * is one task on a pool sized to the CPU count; a task walks its employees
+ * month by month and adds into its own month x designation cost arrays, so
+ * tasks share nothing until their partial sums are added up. Hiring cohorts
+ * and attrition are applied per designation afterwards, since they do not
+ * depend on individual employees.
+ *
+ * One instance holds one snapshot; run() may be called repeatedly on it.
+ *
+ * Tuning: -Dpayroll.projection.chunkSize=32768 -Dpayroll.projection.threads=<cores>
+ */
+public class PayrollProjection {
+
+    public static final int MAX_MONTHS = 60;
+    public static final int MAX_SCENARIOS = 64;
+
+    private static final int CHUNK_SIZE = Integer.getInteger("payroll.projection.chunkSize", 32768);
+    private static final int THREADS = Integer.getInteger("payroll.projection.threads",
+        Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "payroll-projection-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Snapshot
+    private final int size;
+    private final int[] designations;       // index into designationNames
+    private final double[] basicSalaries;
+    private final double[] hras;
+    private final double[] taxes;
+    private final List<String> designationNames = new ArrayList<>();
+    private final Map<String, Integer> designationIndex = new HashMap<>();
+    private final long snapshotMillis;
+
+    /**
+     * Snapshots the payroll for projection
+     * @param roster Current employees
+     */
+    public PayrollProjection(EmployeeRoster roster) {
+        long start = System.currentTimeMillis();
+        size = roster.size();
+        designations = new int[size];
+        basicSalaries = new double[size];
+        hras = new double[size];
+        taxes = new double[size];
+        // Dictionary codes are global; renumber densely for this snapshot
+        Map<Integer, Integer> byCode = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int code = roster.getDesignationCode(i);
+            Integer index = byCode.get(code);
+            if (index == null) {
+                index = indexOf(roster.getDesignation(i));
+                byCode.put(code, index);
+            }
+            designations[i] = index;
+            basicSalaries[i] = roster.getBasicSalary(i);
+            hras[i] = roster.getHra(i);
+            taxes[i] = roster.getTax(i);
+        }
+        snapshotMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Runs every scenario over the snapshot
+     * @param firstMonth First projected month
+     * @param months Number of months (1 to MAX_MONTHS)
+     * @param scenarios Scenarios to compare (1 to MAX_SCENARIOS)
+     * @return Per-month cost curves by designation, one set per scenario
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public synchronized ProjectionResult run(YearMonth firstMonth, int months, List<ProjectionScenario> scenarios)
+            throws InterruptedException {
+        if (months < 1 || months > MAX_MONTHS) {
+            throw new IllegalArgumentException("months must be between 1 and " + MAX_MONTHS);
+        }
+        if (scenarios.isEmpty() || scenarios.size() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("give between 1 and " + MAX_SCENARIOS + " scenarios");
+        }
+        long start = System.currentTimeMillis();
+        // Hires may bring designations nobody has yet
+        for (ProjectionScenario scenario : scenarios) {
+            for (ProjectionScenario.Hire hire : scenario.getHires()) {
+                indexOf(hire.getDesignation());
+            }
+        }
+        int width = designationNames.size();
+        int chunks = Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        List<Rules> rules = new ArrayList<>();
+        List<Future<double[][]>> futures = new ArrayList<>();
+        for (ProjectionScenario scenario : scenarios) {
+            Rules scenarioRules = new Rules(scenario, firstMonth, months);
+            rules.add(scenarioRules);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int from = chunk * CHUNK_SIZE;
+                int to = Math.min(size, from + CHUNK_SIZE);
+                futures.add(POOL.submit((Callable<double[][]>) () -> projectChunk(scenarioRules, from, to, width)));
+            }
+        }
+
+        List<ProjectionResult.Curve> curves = new ArrayList<>();
+        try {
+            for (int s = 0; s < scenarios.size(); s++) {
+                double[] gross = new double[months * width];
+                double[] net = new double[months * width];
+                double[] headcount = new double[months * width];
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    double[][] partial = futures.get(s * chunks + chunk).get();
+                    for (int i = 0; i < gross.length; i++) {
+                        gross[i] += partial[0][i];
+                        net[i] += partial[1][i];
+                        headcount[i] += partial[2][i];
+                    }
+                }
+                applyAttrition(rules.get(s), gross, net, headcount, width);
+                addHires(rules.get(s), gross, net, headcount, width);
+                curves.add(new ProjectionResult.Curve(scenarios.get(s).getName(), gross, net, headcount));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Projection task failed", e.getCause());
+        } finally {
+            // Only does something when we stopped early (failure or interrupt)
+            for (Future<double[][]> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        List<String> periods = new ArrayList<>();
+        for (int m = 0; m < months; m++) {
+            periods.add(firstMonth.plusMonths(m).toString());
+        }
+        return new ProjectionResult(size, new ArrayList<>(designationNames), periods, curves,
+            futures.size(), snapshotMillis, System.currentTimeMillis() - start);
+    }
+
+    // Existing employees [from, to): cost per month and designation before attrition
+    private double[][] projectChunk(Rules rules, int from, int to, int width) {
+        int months = rules.months;
+        boolean[] incrementAt = rules.incrementAt;
+        double[] taxFactor = rules.taxFactor;
+        double cap = rules.cap;
+        double[] gross = new double[months * width];
+        double[] net = new double[months * width];
+        double[] headcount = new double[months * width];
+        for (int i = from; i < to; i++) {
+            int d = designations[i];
+            double rate = rules.incrementRate[d];
+            double basic = basicSalaries[i];
+            double hra = hras[i];
+            double tax = taxes[i];
+            for (int m = 0; m < months; m++) {
+                if (incrementAt[m] && basic > 0) {
+                    double raise = basic * rate;
+                    if (cap > 0 && raise > cap) {
+                        raise = cap;
+                    }
+                    double ratio = (basic + raise) / basic;
+                    basic += raise;
+                    hra *= ratio;
+                    tax *= ratio;
+                }
+                int cell = m * width + d;
+                gross[cell] += basic + hra;
+                net[cell] += basic + hra - tax * taxFactor[m];
+                headcount[cell] += 1;
+            }
+        }
+        return new double[][]{gross, net, headcount};
+    }
+
+    private static void applyAttrition(Rules rules, double[] gross, double[] net, double[] headcount, int width) {
+        for (int m = 0; m < rules.months; m++) {
+            double survival = rules.survival[m];
+            for (int d = 0; d < width; d++) {
+                int cell = m * width + d;
+                gross[cell] *= survival;
+                net[cell] *= survival;
+                headcount[cell] *= survival;
+            }
+        }
+    }
+
+    // One cohort per hire rule and month of joining; it gets later increments and attrition
+    private void addHires(Rules rules, double[] gross, double[] net, double[] headcount, int width) {
+        for (ProjectionScenario.Hire hire : rules.scenario.getHires()) {
+            int d = designationIndex.get(hire.getDesignation());
+            for (int joined = 0; joined < rules.months; joined++) {
+                double basic = hire.getBasicSalary();
+                double hra = hire.getHra();
+                double tax = hire.getTax();
+                for (int m = joined; m < rules.months; m++) {
+                    if (m > joined && rules.incrementAt[m] && basic > 0) {
+                        double raise = basic * rules.incrementRate[d];
+                        if (rules.cap > 0 && raise > rules.cap) {
+                            raise = rules.cap;
+                        }
+                        double ratio = (basic + raise) / basic;
+                        basic += raise;
+                        hra *= ratio;
+                        tax *= ratio;
+                    }
+                    double people = hire.getPerMonth() * rules.survival[m - joined];
+                    int cell = m * width + d;
+                    gross[cell] += people * (basic + hra);
+                    net[cell] += people * (basic + hra - tax * rules.taxFactor[m]);
+                    headcount[cell] += people;
+                }
+            }
+        }
+    }
+
+    private int indexOf(String designation) {
+        Integer index = designationIndex.get(designation);
+        if (index == null) {
+            index = designationNames.size();
+            designationNames.add(designation);
+            designationIndex.put(designation, index);
+        }
+        return index;
+    }
+
+    // A scenario resolved against the snapshot's designations and the projected months
+    private final class Rules {
+        final ProjectionScenario scenario;
+        final int months;
+        final double[] incrementRate;   // by designation index
+        final boolean[] incrementAt;    // by month
+        final double[] taxFactor;       // by month
+        final double[] survival;        // by months elapsed
+        final double cap;
+
+        Rules(ProjectionScenario scenario, YearMonth firstMonth, int months) {
+            this.scenario = scenario;
+            this.months = months;
+            this.cap = scenario.getIncrementCap();
+            incrementRate = new double[designationNames.size()];
+            for (int d = 0; d < incrementRate.length; d++) {
+                incrementRate[d] = scenario.incrementPercentFor(designationNames.get(d)) / 100.0;
+            }
+            incrementAt = new boolean[months];
+            taxFactor = new double[months];
+            survival = new double[months];
+            double monthlyRetention = Math.pow(1 - scenario.getAttritionPercent() / 100.0, 1.0 / 12);
+            for (int m = 0; m < months; m++) {
+                YearMonth month = firstMonth.plusMonths(m);
+                incrementAt[m] = month.getMonthValue() == scenario.getIncrementMonth();
+                boolean taxChanged = scenario.getTaxChangeFrom() == null || !month.isBefore(scenario.getTaxChangeFrom());
+                taxFactor[m] = taxChanged ? 1 + scenario.getTaxChangePercent() / 100.0 : 1;
+                survival[m] = Math.pow(monthlyRetention, m);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Payroll Repository Interface
+ * Storage abstraction behind PayrollService. The MySQL implementation is
+ * the default; the in-memory one serves unit tests, benchmarks and the
+ * embedded demo mode without a database.
+ */
+public interface PayrollRepository {
+    
+    /**
+     * Checks that the underlying store can be used
+     * @return true if the store is reachable
+     */
+    boolean isAvailable();
+    
+    /**
+     * Adds a new employee
+     * @param employee Employee to add; the store assigns its id and sets it on this object
+     * @return true if added successfully
+     */
+    boolean addEmployee(Employee employee);
+    
+    /**
+     * Updates an existing employee, matched by id
+     * @param employee Employee with updated details
+     * @return true if a matching employee was updated
+     */
+    boolean updateEmployee(Employee employee);
+    
+    /**
+     * Deletes an employee
+     * @param employeeId ID of the employee to delete
+     * @return true if a matching employee was deleted
+     */
+    boolean deleteEmployee(int employeeId);
+    
+    /**
+     * Retrieves a single employee by ID
+     * @param employeeId ID of the employee
+     * @return Employee if found, null otherwise
+     */
+    Employee getEmployeeById(int employeeId);
+    
+    /**
+     * Retrieves all employees ordered by id
+     * @return List of all employees
+     */
+    List<Employee> getAllEmployees();
+    
+    /**
+     * Searches employees whose designation contains the given text
+     * @param designation Designation text to search for
+     * @return Matching employees
+     */
+    List<Employee> searchByDesignation(String designation);
+    
+    /**
+     * Composite search over name prefix, designation, net salary, tax and
+     * created/updated times; the store picks the most selective index
+     * @param search Search criteria
+     * @return Up to search.getLimit() matching employees in id order, with the plan used
+     */
+    SearchResult search(EmployeeSearch search);
+    
+    /**
+     * Sums net salary over all employees
+     * @return Total payroll expense
+     */
+    double calculateTotalPayrollExpense();
+    
+    /**
+     * Counts all employees
+     * @return Number of employees
+     */
+    int countEmployees();
+    
+    /**
+     * Highest employee id currently in use
+     * @return Largest id, 0 if there are no employees
+     */
+    int getMaxEmployeeId();
+    
+    /**
+     * Salary totals grouped by designation, ordered by designation
+     * @return One aggregate per designation
+     */
+    List<PayrollAggregate> aggregateByDesignation();
+    
+    /**
+     * Streams employees with ids in [fromId, toId] in id order, without
+     * materializing the whole range in memory
+     * @param fromId First id (inclusive)
+     * @param toId Last id (inclusive)
+     * @param consumer Receives each employee
+     * @return Number of employees visited
+     */
+    int scanEmployees(int fromId, int toId, Consumer<Employee> consumer);
+    
+    /**
+     * Loads every employee, in id order, into a compact column-wise roster
+     * (listing and export)
+     * @return Roster of all employees
+     */
+    EmployeeRoster loadRoster();
+    
+    /**
+     * Retrieves an employee as they were at a point in time, from the
+     * salary history kept on every change
+     * @param employeeId ID of the employee
+     * @param asOf Point in time (epoch millis)
+     * @return Employee as of then (updatedAt is when that version took
+     *         effect), or null if not on the payroll then
+     */
+    Employee getEmployeeAsOf(int employeeId, long asOf);
+    
+    /**
+     * Loads everyone on the payroll at a point in time, in id order
+     * @param asOf Point in time (epoch millis)
+     * @return Roster as of then
+     */
+    EmployeeRoster loadRosterAsOf(long asOf);
+    
+    /**
+     * Opens a consistent, read-only view of the employee records for a
+     * long operation; writes are not blocked while it is open
+     * @param snapshotId Id of an earlier snapshot to re-open (a resumed
+     *        payroll run), or 0 for the current version
+     * @return Snapshot (the caller closes it), or null if none could be opened
+     */
+    EmployeeSnapshot openSnapshot(long snapshotId);
+    
+    /**
+     * Writes many updates and deletes in one transaction (write-behind
+     * flushes). Updates of employees that no longer exist are skipped.
+     * @param updates New state of employees to update (net salary set)
+     * @param deletedIds Employees to delete
+     * @return true if everything was committed
+     */
+    boolean writeBatch(List<Employee> updates, List<Integer> deletedIds);
+    
+    /**
+     * Version of the employee data, advanced by every change; the same
+     * number an EmployeeSnapshot opened now would report as its id
+     * @return Change version, or -1 if it cannot be read
+     */
+    long getChangeVersion();
+    
+    /**
+     * Applies (or previews, when dry-run) a mass salary revision as
+     * set-based updates committed in id-range chunks
+     * @param revision Revision to apply
+     * @return Affected employees and payroll cost before/after
+     */
+    RevisionResult applyRevision(SalaryRevision revision);
+    
+    /**
+     * Writes out whatever is buffered and releases the storage; called once
+     * at shutdown, after the last read
+     */
+    void close();
+}
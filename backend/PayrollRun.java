@@ -0,0 +1,91 @@
+/**
+ * Payroll Run Class
+ * One month-end payroll run. Employees are processed in id-range chunks
+ * up to maxEmployeeId (fixed when the run starts); checkpointedId is the
+ * last id covered by a committed chunk, so a restarted run continues from
+ * checkpointedId + 1. Every chunk reads the same employee snapshot,
+ * identified by snapshotId (0 until the run has opened one).
+ */
+public class PayrollRun {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private int runId;
+    private String period;
+    private Status status;
+    private int chunkSize;
+    private int maxEmployeeId;
+    private int checkpointedId;
+    private int employeesProcessed;
+    private double totalNetSalary;
+    private long snapshotId;
+
+    public PayrollRun(int runId, String period, Status status, int chunkSize, int maxEmployeeId,
+                      int checkpointedId, int employeesProcessed, double totalNetSalary) {
+        this.runId = runId;
+        this.period = period;
+        this.status = status;
+        this.chunkSize = chunkSize;
+        this.maxEmployeeId = maxEmployeeId;
+        this.checkpointedId = checkpointedId;
+        this.employeesProcessed = employeesProcessed;
+        this.totalNetSalary = totalNetSalary;
+    }
+
+    public int getRunId() {
+        return runId;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getMaxEmployeeId() {
+        return maxEmployeeId;
+    }
+
+    public int getCheckpointedId() {
+        return checkpointedId;
+    }
+
+    public int getEmployeesProcessed() {
+        return employeesProcessed;
+    }
+
+    public double getTotalNetSalary() {
+        return totalNetSalary;
+    }
+
+    public long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(long snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    // Records a committed chunk
+    public void advance(int chunkEnd, int employees, double netSalary) {
+        this.checkpointedId = chunkEnd;
+        this.employeesProcessed += employees;
+        this.totalNetSalary += netSalary;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PayrollRun [ID=%d, Period=%s, Status=%s, Checkpoint=%d/%d, Employees=%d, Total Net=₹%.2f, Snapshot=%d]",
+            runId, period, status, checkpointedId, maxEmployeeId, employeesProcessed, totalNetSalary, snapshotId);
+    }
+}
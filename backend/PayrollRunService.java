@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Payroll Run Service Class
+ * Runs month-end payroll over employee_payroll in id-range chunks.
+ * Every committed chunk writes a checkpoint, so a run that dies halfway
+ * (database blip, deploy) resumes from its last checkpoint instead of
+ * starting over. Chunks are idempotent: re-processing one replaces its
+ * payslip lines rather than duplicating them.
+ *
+ * All chunks of a run read one employee snapshot, so HR edits made while
+ * the run is in progress go to the next run instead of splitting this one
+ * between old and new values. Edits are not blocked meanwhile.
+ */
+public class PayrollRunService {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("payroll.run.chunkSize", 1000);
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final PayrollService payrollService;
+    private final PayrollRunStore store;
+    private final AttendanceStore attendanceStore;
+    private final Set<String> activePeriods = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payroll-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PayrollRunService(PayrollService payrollService, PayrollRunStore store, AttendanceStore attendanceStore) {
+        this.payrollService = payrollService;
+        this.store = store;
+        this.attendanceStore = attendanceStore;
+    }
+
+    /**
+     * Creates the run store matching the payroll.repository system property
+     * @return In-memory store for "memory"/"demo"/"embedded", MySQL otherwise
+     */
+    public static PayrollRunStore createStore() {
+        String kind = System.getProperty("payroll.repository", "mysql");
+        if ("memory".equalsIgnoreCase(kind) || "demo".equalsIgnoreCase(kind)
+                || "embedded".equalsIgnoreCase(kind)) {
+            return new InMemoryPayrollRunStore();
+        }
+        return new MySqlPayrollRunStore();
+    }
+
+    /**
+     * Starts a run for the period, or resumes it if it was interrupted or
+     * failed, and processes it in the background
+     * @param period Pay period, e.g. "2026-10"
+     * @return Current state of the run, or null if it could not be created
+     */
+    public PayrollRun submitRun(String period) {
+        PayrollRun run = store.findRunByPeriod(period);
+        if (run == null) {
+            run = store.createRun(period, CHUNK_SIZE, payrollService.getMaxEmployeeId());
+            if (run == null) {
+                return null;
+            }
+        }
+        if (run.getStatus() != PayrollRun.Status.COMPLETED) {
+            final PayrollRun toProcess = run;
+            executor.execute(() -> processRun(toProcess));
+        }
+        return run;
+    }
+
+    /**
+     * Resumes every run left RUNNING by a previous process (call at startup)
+     * @return Runs that were resumed
+     */
+    public List<PayrollRun> resumeUnfinishedRuns() {
+        List<PayrollRun> resumed = new ArrayList<>();
+        for (PayrollRun run : store.findUnfinishedRuns()) {
+            System.out.println("↻ Resuming " + run);
+            executor.execute(() -> processRun(run));
+            resumed.add(run);
+        }
+        return resumed;
+    }
+
+    public PayrollRun getRun(int runId) {
+        return store.findRun(runId);
+    }
+
+    public PayrollRun getRunByPeriod(String period) {
+        return store.findRunByPeriod(period);
+    }
+
+    /**
+     * Processes the remaining chunks of a run on the calling thread
+     * @param run Run to process (its checkpoint decides where to start)
+     * @return The run with its final status
+     */
+    public PayrollRun processRun(PayrollRun run) {
+        if (!activePeriods.add(run.getPeriod())) {
+            System.out.println("ℹ Payroll run for " + run.getPeriod() + " is already in progress.");
+            return run;
+        }
+        try {
+            if (run.getStatus() != PayrollRun.Status.RUNNING) {
+                store.updateStatus(run, PayrollRun.Status.RUNNING);
+            }
+
+            // A resumed run re-opens the snapshot its committed chunks were read from
+            try (EmployeeSnapshot snapshot = payrollService.openSnapshot(run.getSnapshotId())) {
+                if (snapshot == null || (snapshot.getId() != run.getSnapshotId()
+                        && !store.recordSnapshot(run, snapshot.getId()))) {
+                    System.err.println("✗ Payroll run " + run.getRunId() + " could not open an employee snapshot.");
+                    store.updateStatus(run, PayrollRun.Status.FAILED);
+                    return run;
+                }
+
+                long chunkStart = run.getCheckpointedId() + 1L;
+                while (chunkStart <= run.getMaxEmployeeId()) {
+                    int chunkEnd = (int) Math.min(run.getMaxEmployeeId(), chunkStart + run.getChunkSize() - 1);
+                    if (!processChunk(run, snapshot, (int) chunkStart, chunkEnd)) {
+                        System.err.println("✗ Payroll run " + run.getRunId() + " stopped at checkpoint "
+                            + run.getCheckpointedId() + "; submit the period again to resume.");
+                        store.updateStatus(run, PayrollRun.Status.FAILED);
+                        return run;
+                    }
+                    chunkStart = chunkEnd + 1L;
+                }
+            }
+
+            store.updateStatus(run, PayrollRun.Status.COMPLETED);
+            System.out.println("✓ Payroll run completed: " + run);
+            return run;
+        } finally {
+            activePeriods.remove(run.getPeriod());
+        }
+    }
+
+    // Builds the payslip lines for one chunk and commits them with a checkpoint
+    private boolean processChunk(PayrollRun run, EmployeeSnapshot snapshot, int chunkStart, int chunkEnd) {
+        // Overtime and night shifts of the period come from the attendance summaries
+        Map<Integer, AttendanceSummary> attendance = attendanceStore.findSummaries(run.getPeriod(), chunkStart, chunkEnd);
+        if (attendance == null) {
+            return false;
+        }
+        List<Employee> lines = new ArrayList<>();
+        TaxRules taxRules = payrollService.getTaxRules();
+        int scanned = snapshot.scanEmployees(chunkStart, chunkEnd, employee -> {
+            AttendanceSummary summary = attendance.get(employee.getId());
+            if (summary != null) {
+                employee.setAllowances(summary.allowanceFor(employee.getBasicSalary()));
+            }
+            // Payslips always carry deductions under the rules in force for the run
+            if (taxRules != null) {
+                employee.applyTaxRules(taxRules);
+            } else {
+                employee.setNetSalary(employee.calculateNetSalary());
+            }
+            lines.add(employee);
+        });
+        if (scanned < 0) {
+            return false;
+        }
+
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+            if (store.commitChunk(run, chunkStart, chunkEnd, lines)) {
+                return true;
+            }
+            try {
+                Thread.sleep(500L * attempt); // back off before retrying a transient failure
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+}
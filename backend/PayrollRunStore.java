@@ -0,0 +1,129 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Payroll Run Store Interface
+ * Durable state of payroll runs: the run header, one checkpoint per
+ * committed chunk and the payslip lines written by each chunk. The lines
+ * of completed runs are the payroll history (one line per period and
+ * employee), against which arrears are computed.
+ */
+public interface PayrollRunStore {
+
+    /**
+     * Creates a new run in RUNNING state
+     * @param period Pay period, e.g. "2026-10"
+     * @param chunkSize Employee ids per chunk
+     * @param maxEmployeeId Highest employee id the run covers
+     * @return Created run, or null on failure
+     */
+    PayrollRun createRun(String period, int chunkSize, int maxEmployeeId);
+
+    /**
+     * Finds a run by id, with its checkpoint progress
+     * @param runId Run id
+     * @return Run, or null if unknown
+     */
+    PayrollRun findRun(int runId);
+
+    /**
+     * Finds the run for a pay period
+     * @param period Pay period
+     * @return Run, or null if the period has not been run
+     */
+    PayrollRun findRunByPeriod(String period);
+
+    /**
+     * Lists runs that were still RUNNING (e.g. interrupted by a restart)
+     * @return Unfinished runs
+     */
+    List<PayrollRun> findUnfinishedRuns();
+
+    /**
+     * Atomically replaces the payslip lines of one chunk and records its
+     * checkpoint. Re-committing the same chunk is harmless, so a chunk cut
+     * off by a crash can simply be processed again.
+     * @param run Run the chunk belongs to
+     * @param chunkStart First employee id of the chunk
+     * @param chunkEnd Last employee id of the chunk
+     * @param lines Payslip lines for employees in the chunk
+     * @return true if the chunk was committed
+     */
+    boolean commitChunk(PayrollRun run, int chunkStart, int chunkEnd, List<Employee> lines);
+
+    /**
+     * Records the employee snapshot a run reads, so a resumed run re-opens it
+     * @param run Run to update
+     * @param snapshotId Snapshot id
+     * @return true if recorded
+     */
+    boolean recordSnapshot(PayrollRun run, long snapshotId);
+
+    /**
+     * Changes a run's status (RUNNING again when a failed run is resumed)
+     * @param run Run to update
+     * @param status New status
+     * @return true if updated
+     */
+    boolean updateStatus(PayrollRun run, PayrollRun.Status status);
+
+    /**
+     * Lists completed runs in a range of periods (the paid payroll history)
+     * @param fromPeriod First period (inclusive)
+     * @param toPeriod Last period (inclusive)
+     * @return Runs in period order
+     */
+    List<PayrollRun> findCompletedRuns(String fromPeriod, String toPeriod);
+
+    /**
+     * Streams the paid payslip lines of a period for an id range
+     * @param period Pay period
+     * @param fromId First employee id (inclusive)
+     * @param toId Last employee id (inclusive)
+     * @param includeArrears true to add arrears already issued for the period
+     *        to each line (what the employee is now owed in total for it)
+     * @param exceptBatchId Batch whose arrears are left out (the one being
+     *        computed again), 0 for none
+     * @param consumer Receives lines in employee id order
+     * @return true if the whole range was read
+     */
+    boolean scanHistory(String period, int fromId, int toId, boolean includeArrears, int exceptBatchId,
+                        Consumer<Employee> consumer);
+
+    /**
+     * Registers a new arrears batch
+     * @param description What the batch is for (the revision and effective month)
+     * @param effectiveFrom First period the revision applies to
+     * @param throughPeriod Last period it recomputes
+     * @param chunkSize Employee ids per chunk
+     * @return Batch id, or 0 on failure
+     */
+    int createArrearsBatch(String description, String effectiveFrom, String throughPeriod, int chunkSize);
+
+    /**
+     * Finds a batch with its committed chunks
+     * @param batchId Batch id
+     * @return Batch, or null if unknown or unreadable
+     */
+    ArrearsBatch findArrearsBatch(int batchId);
+
+    /**
+     * Finds the latest batch recorded for a revision
+     * @param description Description the batch was created with
+     * @return Batch, or null if there is none (or it could not be read)
+     */
+    ArrearsBatch findArrearsBatch(String description);
+
+    /**
+     * Atomically replaces a batch's arrears lines for one period and id
+     * range and marks the chunk committed, so a chunk can safely be
+     * computed again
+     * @param batchId Arrears batch
+     * @param period Pay period of the lines
+     * @param fromId First employee id of the chunk
+     * @param toId Last employee id of the chunk
+     * @param lines Arrears lines of the chunk
+     * @return true if committed
+     */
+    boolean commitArrears(int batchId, String period, int fromId, int toId, List<ArrearsLine> lines);
+}
@@ -1,19 +1,152 @@
-import java.sql.*;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Payroll Service Class
  * Handles all CRUD operations for employee payroll management
+ * Storage is delegated to a PayrollRepository (MySQL or in-memory)
  * Inspired by real-world payroll processing at SAIL Salem Steel Plant
  */
 public class PayrollService {
     
-    private Connection connection;
+    // Actor recorded for changes made without an explicit user (console menu)
+    public static final String DEFAULT_ACTOR = "console";
     
-    // Constructor initializes database connection
+    private final PayrollRepository repository;
+    private final TaxRules taxRules;  // null when tax is entered per employee
+    private final List<PayrollChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile EmployeeRoster warmRoster;  // answers reads until the repository is ready (fast start)
+    // Updates and deletes of one id hold its lock from reading the previous
+    // state until listeners have seen the change, so every event's "before"
+    // is the state its write replaced and events of an id arrive in order
+    private static final int ID_LOCKS = 64;
+    private final Object[] idLocks = new Object[ID_LOCKS];
+    
+    // Constructor uses the repository selected by -Dpayroll.repository (MySQL by default)
     public PayrollService() {
-        this.connection = DatabaseConnection.getConnection();
+        this(createRepository());
+    }
+    
+    // Constructor for an explicitly chosen storage backend
+    public PayrollService(PayrollRepository repository) {
+        this(repository, TaxRules.fromSystemProperties());
+    }
+    
+    // Constructor with explicit tax rules (null keeps manually entered tax)
+    public PayrollService(PayrollRepository repository, TaxRules taxRules) {
+        this.repository = repository;
+        this.taxRules = taxRules;
+        for (int i = 0; i < ID_LOCKS; i++) {
+            idLocks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Statutory deduction rules applied on every add and update
+     * @return Rules from payroll.tax.regime, null in manual mode
+     */
+    public TaxRules getTaxRules() {
+        return taxRules;
+    }
+    
+    /**
+     * Creates the repository named by the payroll.repository system property
+     * @return "memory" gives an empty in-memory store, "demo" one seeded with
+     *         the sample employees, "embedded" the memory-mapped store in
+     *         payroll.embedded.dir, anything else MySQL; wrapped in a
+     *         WriteBehindPayrollRepository when payroll.writeBehind is set
+     */
+    public static PayrollRepository createRepository() {
+        PayrollRepository repository = createStorage();
+        if (!Boolean.getBoolean("payroll.writeBehind")) {
+            return repository;
+        }
+        try {
+            return new WriteBehindPayrollRepository(repository,
+                System.getProperty("payroll.writeBehind.dir", "write-behind"));
+        } catch (IOException e) {
+            System.err.println("✗ Write-behind journal unavailable, writing through: " + e.getMessage());
+            return repository;
+        }
+    }
+    
+    private static PayrollRepository createStorage() {
+        String kind = System.getProperty("payroll.repository", "mysql");
+        if ("demo".equalsIgnoreCase(kind)) {
+            System.out.println("ℹ Using in-memory demo repository with sample employees (no database)");
+            return InMemoryPayrollRepository.withSampleData();
+        }
+        if ("memory".equalsIgnoreCase(kind)) {
+            System.out.println("ℹ Using in-memory payroll repository (no database)");
+            return new InMemoryPayrollRepository();
+        }
+        if ("embedded".equalsIgnoreCase(kind)) {
+            String directory = System.getProperty("payroll.embedded.dir", "payroll-data");
+            try {
+                return new MappedPayrollRepository(directory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Embedded payroll store in " + directory + " could not be opened: "
+                    + e.getMessage(), e);
+            }
+        }
+        return new MySqlPayrollRepository();
+    }
+    
+    /**
+     * Flushes buffered writes and closes the repository. Entry points call
+     * it last in their single shutdown hook, after anything that still
+     * reads (the JVM runs separate hooks in no particular order).
+     */
+    public void close() {
+        repository.close();
+    }
+    
+    /**
+     * Checks that the storage backend is reachable
+     * @return true if the repository can be used
+     */
+    public boolean isRepositoryAvailable() {
+        return traced("isRepositoryAvailable", repository::isAvailable);
+    }
+    
+    /**
+     * Version of the employee data; changes with every add, update, delete
+     * and revision (warm-start snapshots are checked against it)
+     * @return Change version, or -1 if it cannot be read
+     */
+    public long getChangeVersion() {
+        return traced("getChangeVersion", repository::getChangeVersion);
+    }
+    
+    /**
+     * Answers roster, lookup-by-id and designation-summary reads from a
+     * roster restored at startup instead of the repository (fast start)
+     * @param roster Warm roster, or null to go back to the repository
+     */
+    public void serveWarmRoster(EmployeeRoster roster) {
+        warmRoster = roster;
+    }
+    
+    /**
+     * @return true while reads are answered from a warm roster
+     */
+    public boolean isServingWarmRoster() {
+        return warmRoster != null;
+    }
+    
+    /**
+     * Registers a listener notified after every successful change
+     * @param listener Listener to add (e.g. the audit log)
+     */
+    public void addChangeListener(PayrollChangeListener listener) {
+        changeListeners.add(listener);
     }
     
     /**
@@ -22,32 +155,24 @@ public class PayrollService {
      * @return true if employee added successfully, false otherwise
      */
     public boolean addEmployee(Employee employee) {
-        String query = "INSERT INTO employee_payroll (name, designation, basic_salary, hra, tax, net_salary) VALUES (?, ?, ?, ?, ?, ?)";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            // Calculate net salary before inserting
-            double netSalary = employee.calculateNetSalary();
-            
-            // Set parameters
-            pstmt.setString(1, employee.getName());
-            pstmt.setString(2, employee.getDesignation());
-            pstmt.setDouble(3, employee.getBasicSalary());
-            pstmt.setDouble(4, employee.getHra());
-            pstmt.setDouble(5, employee.getTax());
-            pstmt.setDouble(6, netSalary);
-            
-            // Execute update
-            int rowsAffected = pstmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                System.out.println("✓ Employee added successfully to payroll system!");
-                return true;
-            }
-        } catch (SQLException e) {
-            System.err.println("✗ Error adding employee to database!");
-            e.printStackTrace();
+        return addEmployee(employee, DEFAULT_ACTOR);
+    }
+    
+    /**
+     * Adds a new employee on behalf of a user
+     * @param employee Employee object to be added
+     * @param actor User making the change
+     * @return true if employee added successfully, false otherwise
+     */
+    public boolean addEmployee(Employee employee, String actor) {
+        if (taxRules != null) {
+            employee.applyTaxRules(taxRules);
+        }
+        boolean added = traced("addEmployee", () -> repository.addEmployee(employee));
+        if (added) {
+            fireChange(new PayrollChange(PayrollChange.Type.ADD, employee.getId(), null, employee, actor, null));
         }
-        return false;
+        return added;
     }
     
     /**
@@ -56,35 +181,30 @@ public class PayrollService {
      * @return true if update successful, false otherwise
      */
     public boolean updateEmployee(Employee employee) {
-        String query = "UPDATE employee_payroll SET name=?, designation=?, basic_salary=?, hra=?, tax=?, net_salary=? WHERE id=?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            // Calculate net salary before updating
-            double netSalary = employee.calculateNetSalary();
-            
-            // Set parameters
-            pstmt.setString(1, employee.getName());
-            pstmt.setString(2, employee.getDesignation());
-            pstmt.setDouble(3, employee.getBasicSalary());
-            pstmt.setDouble(4, employee.getHra());
-            pstmt.setDouble(5, employee.getTax());
-            pstmt.setDouble(6, netSalary);
-            pstmt.setInt(7, employee.getId());
-            
-            // Execute update
-            int rowsAffected = pstmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                System.out.println("✓ Employee details updated successfully!");
-                return true;
-            } else {
-                System.out.println("✗ Employee ID not found in database!");
-            }
-        } catch (SQLException e) {
-            System.err.println("✗ Error updating employee details!");
-            e.printStackTrace();
+        return updateEmployee(employee, DEFAULT_ACTOR);
+    }
+    
+    /**
+     * Updates existing employee details on behalf of a user
+     * @param employee Employee object with updated information
+     * @param actor User making the change
+     * @return true if update successful, false otherwise
+     */
+    public boolean updateEmployee(Employee employee, String actor) {
+        if (taxRules != null) {
+            employee.applyTaxRules(taxRules);
         }
-        return false;
+        return traced("updateEmployee", () -> {
+            synchronized (lockFor(employee.getId())) {
+                // The previous state is only needed when someone is listening
+                Employee before = changeListeners.isEmpty() ? null : repository.getEmployeeById(employee.getId());
+                boolean done = repository.updateEmployee(employee);
+                if (done) {
+                    fireChange(new PayrollChange(PayrollChange.Type.UPDATE, employee.getId(), before, employee, actor, null));
+                }
+                return done;
+            }
+        });
     }
     
     /**
@@ -93,24 +213,26 @@ public class PayrollService {
      * @return true if deletion successful, false otherwise
      */
     public boolean deleteEmployee(int employeeId) {
-        String query = "DELETE FROM employee_payroll WHERE id=?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, employeeId);
-            
-            int rowsAffected = pstmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                System.out.println("✓ Employee removed from payroll system!");
-                return true;
-            } else {
-                System.out.println("✗ Employee ID not found in database!");
+        return deleteEmployee(employeeId, DEFAULT_ACTOR);
+    }
+    
+    /**
+     * Deletes an employee on behalf of a user
+     * @param employeeId ID of the employee to be deleted
+     * @param actor User making the change
+     * @return true if deletion successful, false otherwise
+     */
+    public boolean deleteEmployee(int employeeId, String actor) {
+        return traced("deleteEmployee", () -> {
+            synchronized (lockFor(employeeId)) {
+                Employee before = changeListeners.isEmpty() ? null : repository.getEmployeeById(employeeId);
+                boolean done = repository.deleteEmployee(employeeId);
+                if (done) {
+                    fireChange(new PayrollChange(PayrollChange.Type.DELETE, employeeId, before, null, actor, null));
+                }
+                return done;
             }
-        } catch (SQLException e) {
-            System.err.println("✗ Error deleting employee from database!");
-            e.printStackTrace();
-        }
-        return false;
+        });
     }
     
     /**
@@ -119,22 +241,12 @@ public class PayrollService {
      * @return Employee object if found, null otherwise
      */
     public Employee getEmployeeById(int employeeId) {
-        String query = "SELECT * FROM employee_payroll WHERE id=?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, employeeId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return extractEmployeeFromResultSet(rs);
-            } else {
-                System.out.println("✗ Employee ID not found!");
-            }
-        } catch (SQLException e) {
-            System.err.println("✗ Error fetching employee details!");
-            e.printStackTrace();
+        EmployeeRoster warm = warmRoster;
+        if (warm != null) {
+            int row = warm.indexOf(employeeId);
+            return row >= 0 ? warm.toEmployee(row) : null;
         }
-        return null;
+        return traced("getEmployeeById", () -> repository.getEmployeeById(employeeId));
     }
     
     /**
@@ -142,33 +254,49 @@ public class PayrollService {
      * @return List of all employees
      */
     public List<Employee> getAllEmployees() {
-        List<Employee> employees = new ArrayList<>();
-        String query = "SELECT * FROM employee_payroll ORDER BY id";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                employees.add(extractEmployeeFromResultSet(rs));
-            }
-            
-            if (employees.isEmpty()) {
-                System.out.println("ℹ No employees found in the payroll system.");
-            }
-        } catch (SQLException e) {
-            System.err.println("✗ Error fetching employee list!");
-            e.printStackTrace();
+        return traced("getAllEmployees", repository::getAllEmployees);
+    }
+    
+    /**
+     * Retrieves all employees as a compact roster (listing and export);
+     * uses far less memory than getAllEmployees on large payrolls
+     * @return Roster of all employees in id order
+     */
+    public EmployeeRoster loadRoster() {
+        EmployeeRoster warm = warmRoster;
+        if (warm != null) {
+            return warm;
         }
-        return employees;
+        return traced("loadRoster", repository::loadRoster);
+    }
+    
+    /**
+     * Retrieves an employee as they were at a point in time
+     * @param employeeId ID of the employee
+     * @param asOf Point in time (epoch millis)
+     * @return Employee as of then, null if not on the payroll then
+     */
+    public Employee getEmployeeAsOf(int employeeId, long asOf) {
+        return traced("getEmployeeAsOf", () -> repository.getEmployeeAsOf(employeeId, asOf));
+    }
+    
+    /**
+     * Retrieves everyone on the payroll at a point in time as a compact roster
+     * @param asOf Point in time (epoch millis)
+     * @return Roster as of then, in id order
+     */
+    public EmployeeRoster loadRosterAsOf(long asOf) {
+        return traced("loadRosterAsOf", () -> repository.loadRosterAsOf(asOf));
     }
     
     /**
      * Displays all employees in tabular format
      */
     public void displayAllEmployees() {
-        List<Employee> employees = getAllEmployees();
+        EmployeeRoster employees = loadRoster();
         
-        if (employees.isEmpty()) {
+        if (employees.size() == 0) {
+            System.out.println("ℹ No employees found in the payroll system.");
             return;
         }
         
@@ -178,15 +306,15 @@ public class PayrollService {
         System.out.println("║ ID ║       Name            ║     Designation       ║ Basic Salary  ║      HRA      ║      Tax      ║  Net Salary   ║");
         System.out.println("╠════╬═══════════════════════╬═══════════════════════╬═══════════════╬═══════════════╬═══════════════╬═══════════════╣");
         
-        for (Employee emp : employees) {
+        for (int row = 0; row < employees.size(); row++) {
             System.out.printf("║ %-2d ║ %-21s ║ %-21s ║ ₹%-12.2f ║ ₹%-12.2f ║ ₹%-12.2f ║ ₹%-12.2f ║%n",
-                emp.getId(),
-                emp.getName(),
-                emp.getDesignation(),
-                emp.getBasicSalary(),
-                emp.getHra(),
-                emp.getTax(),
-                emp.getNetSalary()
+                employees.getId(row),
+                employees.getName(row),
+                employees.getDesignation(row),
+                employees.getBasicSalary(row),
+                employees.getHra(row),
+                employees.getTax(row),
+                employees.getNetSalary(row)
             );
         }
         
@@ -201,7 +329,7 @@ public class PayrollService {
         Employee employee = getEmployeeById(employeeId);
         
         if (employee != null) {
-            employee.displayPayslip();
+            employee.displayPayslip(taxRules);
         }
     }
     
@@ -211,43 +339,16 @@ public class PayrollService {
      * @return List of employees with matching designation
      */
     public List<Employee> searchByDesignation(String designation) {
-        List<Employee> employees = new ArrayList<>();
-        String query = "SELECT * FROM employee_payroll WHERE designation LIKE ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, "%" + designation + "%");
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                employees.add(extractEmployeeFromResultSet(rs));
-            }
-            
-            if (employees.isEmpty()) {
-                System.out.println("ℹ No employees found with designation: " + designation);
-            }
-        } catch (SQLException e) {
-            System.err.println("✗ Error searching employees!");
-            e.printStackTrace();
-        }
-        return employees;
+        return traced("searchByDesignation", () -> repository.searchByDesignation(designation));
     }
     
     /**
-     * Helper method to extract Employee object from ResultSet
-     * @param rs ResultSet from database query
-     * @return Employee object
-     * @throws SQLException if database access error occurs
+     * Composite employee search (name prefix, designation, salary, tax, dates)
+     * @param search Search criteria
+     * @return Matching employees with the plan the repository chose
      */
-    private Employee extractEmployeeFromResultSet(ResultSet rs) throws SQLException {
-        return new Employee(
-            rs.getInt("id"),
-            rs.getString("name"),
-            rs.getString("designation"),
-            rs.getDouble("basic_salary"),
-            rs.getDouble("hra"),
-            rs.getDouble("tax"),
-            rs.getDouble("net_salary")
-        );
+    public SearchResult search(EmployeeSearch search) {
+        return traced("search", () -> repository.search(search));
     }
     
     /**
@@ -255,20 +356,140 @@ public class PayrollService {
      * @return Total net salary of all employees
      */
     public double calculateTotalPayrollExpense() {
-        String query = "SELECT SUM(net_salary) as total FROM employee_payroll";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            if (rs.next()) {
-                double total = rs.getDouble("total");
-                System.out.printf("💰 Total Monthly Payroll Expense: ₹%.2f%n", total);
-                return total;
+        double total = traced("calculateTotalPayrollExpense", repository::calculateTotalPayrollExpense);
+        System.out.printf("💰 Total Monthly Payroll Expense: ₹%.2f%n", total);
+        return total;
+    }
+    
+    /**
+     * Counts employees on the payroll
+     * @return Number of employees
+     */
+    public int countEmployees() {
+        return traced("countEmployees", repository::countEmployees);
+    }
+    
+    /**
+     * Highest employee id in use (upper bound for id-range processing)
+     * @return Largest id, 0 if there are no employees
+     */
+    public int getMaxEmployeeId() {
+        return traced("getMaxEmployeeId", repository::getMaxEmployeeId);
+    }
+    
+    /**
+     * Salary totals per designation (for management reporting)
+     * @return One aggregate per designation
+     */
+    public List<PayrollAggregate> aggregateByDesignation() {
+        EmployeeRoster warm = warmRoster;
+        if (warm != null) {
+            return aggregate(warm);
+        }
+        return traced("aggregateByDesignation", repository::aggregateByDesignation);
+    }
+    
+    /**
+     * Salary totals per designation as they were at a point in time
+     * @param asOf Point in time (epoch millis)
+     * @return One aggregate per designation with employees then, by name
+     */
+    public List<PayrollAggregate> aggregateByDesignationAsOf(long asOf) {
+        return aggregate(loadRosterAsOf(asOf));
+    }
+    
+    // Totals per designation, by name
+    private static List<PayrollAggregate> aggregate(EmployeeRoster roster) {
+        Map<String, double[]> totals = new TreeMap<>();
+        for (int row = 0; row < roster.size(); row++) {
+            double[] sums = totals.computeIfAbsent(roster.getDesignation(row), d -> new double[5]);
+            sums[0]++;
+            sums[1] += roster.getBasicSalary(row);
+            sums[2] += roster.getHra(row);
+            sums[3] += roster.getTax(row);
+            sums[4] += roster.getNetSalary(row);
+        }
+        List<PayrollAggregate> aggregates = new ArrayList<>(totals.size());
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            double[] sums = entry.getValue();
+            aggregates.add(new PayrollAggregate(entry.getKey(), (int) sums[0], sums[1], sums[2], sums[3], sums[4]));
+        }
+        return aggregates;
+    }
+    
+    /**
+     * Streams employees in an id range without loading them all at once
+     * @param fromId First id (inclusive)
+     * @param toId Last id (inclusive)
+     * @param consumer Receives each employee in id order
+     * @return Number of employees visited
+     */
+    public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+        return traced("scanEmployees", () -> repository.scanEmployees(fromId, toId, consumer));
+    }
+    
+    /**
+     * Opens a consistent read-only view for a long operation such as a
+     * payroll run
+     * @param snapshotId Earlier snapshot to re-open, or 0 for a new one
+     * @return Snapshot to close when done, or null if none could be opened
+     */
+    public EmployeeSnapshot openSnapshot(long snapshotId) {
+        return traced("openSnapshot", () -> repository.openSnapshot(snapshotId));
+    }
+    
+    /**
+     * Applies or previews a mass salary revision (annual wage revisions)
+     * @param revision Revision to apply
+     * @return Outcome of the revision, null if it could not be started
+     */
+    public RevisionResult applyRevision(SalaryRevision revision) {
+        return applyRevision(revision, DEFAULT_ACTOR);
+    }
+    
+    /**
+     * Applies or previews a mass salary revision on behalf of a user
+     * @param revision Revision to apply
+     * @param actor User making the change
+     * @return Outcome of the revision, null if it could not be started
+     */
+    public RevisionResult applyRevision(SalaryRevision revision, String actor) {
+        // Deductions follow the revised pay, as on every add and update
+        SalaryRevision revisionUnderRules = revision.withTaxRules(taxRules);
+        RevisionResult result = traced("applyRevision", () -> repository.applyRevision(revisionUnderRules));
+        if (result != null) {
+            System.out.printf("📈 %s: %d employees, monthly payroll ₹%.2f → ₹%.2f%n",
+                result.isDryRun() ? "Revision preview" : "Revision applied",
+                result.getAffectedEmployees(), result.getNetSalaryBefore(), result.getNetSalaryAfter());
+            if (!result.isDryRun() && result.getAffectedEmployees() > 0) {
+                String details = String.format(Locale.ROOT, "%s, %d employees, net %.2f -> %.2f",
+                    revision, result.getAffectedEmployees(), result.getNetSalaryBefore(), result.getNetSalaryAfter());
+                fireChange(new PayrollChange(PayrollChange.Type.REVISION, 0, null, null, actor, details, revision));
             }
-        } catch (SQLException e) {
-            System.err.println("✗ Error calculating payroll expense!");
-            e.printStackTrace();
         }
-        return 0.0;
+        return result;
+    }
+    
+    // Runs a repository call inside a "PayrollService.<name>" tracing span
+    private static <T> T traced(String name, Supplier<T> call) {
+        PayrollTracer.Span span = PayrollTracer.startSpan("PayrollService." + name, "service");
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.close();
+        }
+    }
+    
+    private Object lockFor(int employeeId) {
+        return idLocks[employeeId & (ID_LOCKS - 1)];
+    }
+    
+    private void fireChange(PayrollChange change) {
+        for (PayrollChangeListener listener : changeListeners) {
+            listener.onPayrollChange(change);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+import java.sql.Connection;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.telemetry.NoopTelemetryScope;
+import com.mysql.cj.telemetry.NoopTelemetrySpan;
+import com.mysql.cj.telemetry.TelemetryAttribute;
+import com.mysql.cj.telemetry.TelemetryHandler;
+import com.mysql.cj.telemetry.TelemetryScope;
+import com.mysql.cj.telemetry.TelemetrySpan;
+import com.mysql.cj.telemetry.TelemetrySpanName;
+
+/**
+ * Payroll Telemetry Handler Class
+ * Bridges Connector/J's telemetry hooks to PayrollTracer. Statement
+ * executions, prepares and commits therefore show up as "db" spans under
+ * the request and service spans that caused them. The trace context is
+ * also sent to the server as the traceparent query attribute. Work done
+ * outside a traced request (e.g. the driver's cancel timer) is not recorded.
+ */
+public class PayrollTelemetryHandler implements TelemetryHandler {
+
+    private static final PayrollTelemetryHandler INSTANCE = new PayrollTelemetryHandler();
+
+    /**
+     * Routes a connection's driver spans into PayrollTracer
+     * @param connection Connector/J connection (anything else is left alone)
+     */
+    public static void instrument(Connection connection) {
+        try {
+            if (connection != null && connection.isWrapperFor(MysqlConnection.class)) {
+                connection.unwrap(MysqlConnection.class).getSession().setTelemetryHandler(INSTANCE);
+            }
+        } catch (Exception e) {
+            System.out.println("ℹ Driver tracing unavailable: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public TelemetrySpan startSpan(TelemetrySpanName spanName, Object... args) {
+        if (PayrollTracer.currentSpan() == null) {
+            return NoopTelemetrySpan.getInstance();
+        }
+        return new DriverSpan(PayrollTracer.startSpan(spanName.getName(args), "db"));
+    }
+
+    @Override
+    public void propagateContext(BiConsumer<String, String> traceparentConsumer) {
+        PayrollTracer.Span current = PayrollTracer.currentSpan();
+        if (current != null) {
+            traceparentConsumer.accept(getContextPropagationKey(), current.traceparent());
+        }
+    }
+
+    // Driver span backed by a tracer span, which is already current when created
+    private static final class DriverSpan implements TelemetrySpan {
+        private final PayrollTracer.Span span;
+
+        DriverSpan(PayrollTracer.Span span) {
+            this.span = span;
+        }
+
+        @Override
+        public TelemetryScope makeCurrent() {
+            return NoopTelemetryScope.getInstance();
+        }
+
+        @Override
+        public void setAttribute(TelemetryAttribute key, String value) {
+            span.setAttribute(key.getKey(), value);
+        }
+
+        @Override
+        public void setAttribute(TelemetryAttribute key, long value) {
+            span.setAttribute(key.getKey(), value);
+        }
+
+        @Override
+        public <T> void setAttribute(TelemetryAttribute key, Supplier<T> valueSupplier) {
+            // Thread attributes are the same as the request's; skip the lookups
+            if (key != TelemetryAttribute.THREAD_ID && key != TelemetryAttribute.THREAD_NAME) {
+                span.setAttribute(key.getKey(), valueSupplier.get());
+            }
+        }
+
+        @Override
+        public void setError(Throwable cause) {
+            span.setError(cause);
+        }
+
+        @Override
+        public void end() {
+            span.close();
+        }
+
+        @Override
+        public void close() {
+            span.close();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Payroll Tracer Class
+ * Minimal in-process request tracing. An HTTP request opens a root span,
+ * service calls open child spans, and the MySQL driver's own spans (via
+ * PayrollTelemetryHandler) nest under those, so one trace shows where a
+ * request spent its time: admission, service logic, each statement on the
+ * wire, JSON serialization and writing the response.
+ *
+ * The current span is tracked per thread. Finished spans go into a
+ * fixed-size ring buffer, which is served at /debug/traces. No collector
+ * or agent is needed.
+ *
+ * Tuning: -Dpayroll.trace.enabled=false -Dpayroll.trace.capacity=4096
+ * -Dpayroll.trace.sampleRate=1.0
+ */
+public final class PayrollTracer {
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("payroll.trace.enabled", "true"));
+    private static final int CAPACITY = Integer.getInteger("payroll.trace.capacity", 4096);
+    private static final double SAMPLE_RATE =
+        Double.parseDouble(System.getProperty("payroll.trace.sampleRate", "1.0"));
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final AtomicReferenceArray<Span> finished = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong finishedCount = new AtomicLong();
+
+    // Used when a request is not sampled or tracing is off; records nothing
+    private static final Span NOOP = new Span(null, 0, 0, 0, "noop", "none");
+
+    private PayrollTracer() {
+    }
+
+    /**
+     * Span of one unit of work. Closing it ends the span and makes its
+     * parent current again.
+     */
+    public static final class Span implements AutoCloseable {
+        private final Span parent;
+        final long traceIdHigh;
+        final long traceIdLow;
+        final long spanId;
+        final String name;
+        final String kind;
+        final long startEpochMicros;
+        private final long startNanos;
+        private long durationNanos = -1;
+        private Map<String, Object> attributes;
+        private String error;
+
+        private Span(Span parent, long traceIdHigh, long traceIdLow, long spanId, String name, String kind) {
+            this.parent = parent;
+            this.traceIdHigh = traceIdHigh;
+            this.traceIdLow = traceIdLow;
+            this.spanId = spanId;
+            this.name = name;
+            this.kind = kind;
+            this.startEpochMicros = System.currentTimeMillis() * 1000;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * @return true if this span is recorded (false for unsampled requests)
+         */
+        public boolean isRecording() {
+            return this != NOOP;
+        }
+
+        /**
+         * Adds a key/value attribute such as http.status or db.statement
+         */
+        public Span setAttribute(String key, Object value) {
+            if (this != NOOP && durationNanos < 0) {
+                if (attributes == null) {
+                    attributes = new LinkedHashMap<>();
+                }
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * Marks the span as failed
+         * @param cause Error that ended the work
+         */
+        public void setError(Throwable cause) {
+            if (this != NOOP) {
+                error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            }
+        }
+
+        /**
+         * @return W3C trace id (32 hex digits)
+         */
+        public String getTraceId() {
+            return String.format("%016x%016x", traceIdHigh, traceIdLow);
+        }
+
+        /**
+         * @return W3C traceparent header value for this span
+         */
+        public String traceparent() {
+            return "00-" + getTraceId() + "-" + String.format("%016x", spanId) + "-01";
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP || durationNanos >= 0) {
+                return;
+            }
+            durationNanos = System.nanoTime() - startNanos;
+            if (CURRENT.get() == this) {
+                if (parent != null && parent != NOOP) {
+                    CURRENT.set(parent);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+            long slot = finishedCount.getAndIncrement();
+            finished.set((int) (slot % CAPACITY), this);
+        }
+    }
+
+    /**
+     * Starts a span under the current one, or a new trace if there is none.
+     * The new span becomes current until it is closed.
+     * @param name Operation name, e.g. "PayrollService.getAllEmployees"
+     * @param kind Category: http, service, db or internal
+     * @return Span to close when the work is done
+     */
+    public static Span startSpan(String name, String kind) {
+        Span parent = CURRENT.get();
+        if (parent == NOOP) {
+            return NOOP;
+        }
+        Span span;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (parent != null) {
+            span = new Span(parent, parent.traceIdHigh, parent.traceIdLow, random.nextLong(), name, kind);
+        } else {
+            if (!sampled(random)) {
+                return NOOP;
+            }
+            span = new Span(null, random.nextLong(), random.nextLong(), random.nextLong(), name, kind);
+        }
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Starts a root span for a request, dropping whatever a previous
+     * request on this thread left behind
+     * @param name Operation name, e.g. "GET /employees"
+     * @return Root span to close when the response has been sent
+     */
+    public static Span startTrace(String name) {
+        CURRENT.remove();
+        if (!sampled(ThreadLocalRandom.current())) {
+            // Unsampled: nothing else in this request records either, until endTrace()
+            CURRENT.set(NOOP);
+            return NOOP;
+        }
+        return startSpan(name, "http");
+    }
+
+    private static boolean sampled(ThreadLocalRandom random) {
+        return ENABLED && (SAMPLE_RATE >= 1.0 || random.nextDouble() < SAMPLE_RATE);
+    }
+
+    /**
+     * Ends tracing for the request on this thread (an unsampled request
+     * leaves a marker that must be cleared)
+     */
+    public static void endTrace() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return Span currently active on this thread, null if none is recording
+     */
+    public static Span currentSpan() {
+        Span span = CURRENT.get();
+        return span == NOOP ? null : span;
+    }
+
+    /**
+     * Recent traces in JSON form, newest first, for /debug/traces
+     * @param limit Maximum number of traces
+     * @param traceId Only this trace if not null
+     * @return JSON object with a "traces" array
+     */
+    public static String toJson(int limit, String traceId) {
+        // Snapshot the ring buffer and group spans by trace
+        Map<String, List<Span>> traces = new LinkedHashMap<>();
+        long end = finishedCount.get();
+        for (long i = end - 1; i >= Math.max(0, end - CAPACITY); i--) {
+            Span span = finished.get((int) (i % CAPACITY));
+            if (span == null) {
+                continue;
+            }
+            String id = span.getTraceId();
+            if (traceId != null && !traceId.equals(id)) {
+                continue;
+            }
+            List<Span> spans = traces.get(id);
+            if (spans == null) {
+                if (traces.size() >= limit) {
+                    continue;
+                }
+                spans = new ArrayList<>();
+                traces.put(id, spans);
+            }
+            spans.add(span);
+        }
+
+        StringBuilder json = new StringBuilder("{\"traces\":[");
+        boolean firstTrace = true;
+        for (Map.Entry<String, List<Span>> entry : traces.entrySet()) {
+            List<Span> spans = entry.getValue();
+            Collections.sort(spans, (a, b) -> Long.compare(a.startNanos, b.startNanos));
+            Span root = spans.get(0);
+            json.append(firstTrace ? "" : ",")
+                .append("{\"traceId\":\"").append(entry.getKey()).append("\",")
+                .append("\"root\":\"").append(escape(root.name)).append("\",")
+                .append("\"durationMs\":").append(root.durationNanos / 1000 / 1000.0).append(",")
+                .append("\"spans\":[");
+            for (int i = 0; i < spans.size(); i++) {
+                appendSpan(json.append(i == 0 ? "" : ","), spans.get(i), root.startNanos);
+            }
+            json.append("]}");
+            firstTrace = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendSpan(StringBuilder json, Span span, long traceStartNanos) {
+        json.append("{\"spanId\":\"").append(String.format("%016x", span.spanId)).append("\",");
+        if (span.parent != null) {
+            json.append("\"parentId\":\"").append(String.format("%016x", span.parent.spanId)).append("\",");
+        }
+        json.append("\"name\":\"").append(escape(span.name)).append("\",")
+            .append("\"kind\":\"").append(span.kind).append("\",")
+            .append("\"startUs\":").append(span.startEpochMicros).append(",")
+            .append("\"offsetMs\":").append((span.startNanos - traceStartNanos) / 1000 / 1000.0).append(",")
+            .append("\"durationMs\":").append(span.durationNanos / 1000 / 1000.0);
+        if (span.error != null) {
+            json.append(",\"error\":\"").append(escape(span.error)).append("\"");
+        }
+        if (span.attributes != null) {
+            json.append(",\"attributes\":{");
+            boolean first = true;
+            for (Map.Entry<String, Object> attribute : span.attributes.entrySet()) {
+                json.append(first ? "" : ",").append("\"").append(escape(attribute.getKey())).append("\":");
+                Object value = attribute.getValue();
+                if (value instanceof Number || value instanceof Boolean) {
+                    json.append(value);
+                } else {
+                    json.append("\"").append(escape(String.valueOf(value))).append("\"");
+                }
+                first = false;
+            }
+            json.append("}");
+        }
+        json.append("}");
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Period Diff Class
+ * Compares the payslip lines of two completed payroll runs (e.g. last
+ * month and the run awaiting approval) and writes only the employees whose
+ * pay or designation changed, with the delta of every component, followed
+ * by rollups per designation and a summary.
+ *
+ * Both periods are read in id windows of payroll.diff.window (20000) ids.
+ * Each window is two streamed history reads ordered by employee id, which
+ * are sort-merge joined, written out and dropped. Memory is bounded by one
+ * window plus the rollups, whatever the size of the periods.
+ *
+ * Output is NDJSON (one "employee" object per changed employee, then
+ * "designation" and "summary" objects) or CSV with a record column.
+ */
+public class PeriodDiff {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final int WINDOW = Integer.getInteger("payroll.diff.window", 20000);
+
+    private static final String CSV_HEADER = "record,employee_id,name,designation,status,employees,"
+        + "previous_net,net,basic_delta,hra_delta,allowances_delta,tax_delta,net_delta\n";
+
+    /**
+     * Component deltas summed over the changed employees of a designation
+     * (or over all of them for the summary)
+     */
+    private static class Rollup {
+        int changed;
+        int added;
+        int removed;
+        double previousNet;
+        double net;
+        final double[] deltas = new double[5];
+
+        int employees() {
+            return changed + added + removed;
+        }
+    }
+
+    private final PayrollRunStore store;
+
+    public PeriodDiff(PayrollRunStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Checks that a period can be diffed
+     * @param period Pay period
+     * @return null if it has a completed run, else the reason it cannot be used
+     */
+    public String checkPeriod(String period) {
+        PayrollRun run = store.findRunByPeriod(period);
+        if (run == null) {
+            return "No payroll run for " + period;
+        }
+        if (run.getStatus() != PayrollRun.Status.COMPLETED) {
+            return "Payroll run for " + period + " is " + run.getStatus();
+        }
+        return null;
+    }
+
+    /**
+     * Writes the differences between two periods
+     * @param fromPeriod Base period, e.g. "2026-09"
+     * @param toPeriod Compared period, e.g. "2026-10"
+     * @param includeArrears Whether arrears issued for a period count as paid in it
+     * @param format Output format
+     * @param out Destination (not closed)
+     * @return Number of changed employees written, or -1 if history could not be read
+     * @throws IOException if writing fails
+     */
+    public int write(String fromPeriod, String toPeriod, boolean includeArrears, Format format, Writer out)
+            throws IOException {
+        PayrollRun fromRun = store.findRunByPeriod(fromPeriod);
+        PayrollRun toRun = store.findRunByPeriod(toPeriod);
+        if (fromRun == null || toRun == null) {
+            return -1;
+        }
+        int maxId = Math.max(fromRun.getMaxEmployeeId(), toRun.getMaxEmployeeId());
+        boolean csv = format == Format.CSV;
+        StringBuilder buffer = new StringBuilder(64 * 1024);
+        if (csv) {
+            buffer.append(CSV_HEADER);
+        }
+
+        Map<String, Rollup> byDesignation = new TreeMap<>();
+        Rollup total = new Rollup();
+        int unchanged = 0;
+        int previousHeadcount = 0;
+        int headcount = 0;
+        double previousTotalNet = 0;
+        double totalNet = 0;
+        List<Employee> before = new ArrayList<>();
+        List<Employee> after = new ArrayList<>();
+
+        for (long windowStart = 1; windowStart <= maxId; windowStart += WINDOW) {
+            int from = (int) windowStart;
+            int to = (int) Math.min(maxId, windowStart + WINDOW - 1);
+            before.clear();
+            after.clear();
+            if (!store.scanHistory(fromPeriod, from, to, includeArrears, 0, before::add)
+                    || !store.scanHistory(toPeriod, from, to, includeArrears, 0, after::add)) {
+                out.write(buffer.toString());
+                return -1;
+            }
+            previousHeadcount += before.size();
+            headcount += after.size();
+
+            // Both sides are ordered by employee id
+            int i = 0;
+            int j = 0;
+            while (i < before.size() || j < after.size()) {
+                Employee previous = i < before.size() ? before.get(i) : null;
+                Employee current = j < after.size() ? after.get(j) : null;
+                if (current == null || (previous != null && previous.getId() < current.getId())) {
+                    current = null;
+                    i++;
+                } else if (previous == null || current.getId() < previous.getId()) {
+                    previous = null;
+                    j++;
+                } else {
+                    i++;
+                    j++;
+                }
+                if (previous != null) {
+                    previousTotalNet += previous.getNetSalary();
+                }
+                if (current != null) {
+                    totalNet += current.getNetSalary();
+                }
+
+                double[] deltas = deltas(previous, current);
+                String status;
+                if (previous == null) {
+                    status = "added";
+                } else if (current == null) {
+                    status = "removed";
+                } else if (deltas != null || !previous.getDesignation().equals(current.getDesignation())) {
+                    status = "changed";
+                } else {
+                    unchanged++;
+                    continue;
+                }
+                if (deltas == null) {
+                    deltas = new double[5];
+                }
+
+                Employee line = current != null ? current : previous;
+                Rollup rollup = byDesignation.computeIfAbsent(line.getDesignation(), d -> new Rollup());
+                count(rollup, status, previous, current, deltas);
+                count(total, status, previous, current, deltas);
+                if (csv) {
+                    appendCsvEmployee(buffer, line, status, previous, current, deltas);
+                } else {
+                    appendJsonEmployee(buffer, line, status, previous, current, deltas);
+                }
+                if (buffer.length() >= 60 * 1024) {
+                    out.write(buffer.toString());
+                    buffer.setLength(0);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Rollup> entry : byDesignation.entrySet()) {
+            if (csv) {
+                appendCsvRollup(buffer, "designation", entry.getKey(), entry.getValue());
+            } else {
+                appendJsonRollup(buffer.append("{\"type\":\"designation\",\"designation\":\"")
+                    .append(escapeJson(entry.getKey())).append("\","), entry.getValue()).append("}\n");
+            }
+        }
+        if (csv) {
+            appendCsvRollup(buffer, "summary", "", total);
+        } else {
+            buffer.append("{\"type\":\"summary\",\"from\":\"").append(fromPeriod)
+                .append("\",\"to\":\"").append(toPeriod).append("\",")
+                .append("\"previousHeadcount\":").append(previousHeadcount).append(",")
+                .append("\"headcount\":").append(headcount).append(",")
+                .append("\"unchanged\":").append(unchanged).append(",")
+                .append("\"previousTotalNet\":");
+            appendAmount(buffer, previousTotalNet).append(",\"totalNet\":");
+            appendAmount(buffer, totalNet).append(",");
+            appendJsonRollup(buffer, total).append("}\n");
+        }
+        out.write(buffer.toString());
+        out.flush();
+        return total.employees();
+    }
+
+    // Basic, HRA, allowances, tax and net deltas in paise precision, or null if all are zero
+    private static double[] deltas(Employee previous, Employee current) {
+        double[] deltas = {
+            amount(current, 0) - amount(previous, 0),
+            amount(current, 1) - amount(previous, 1),
+            amount(current, 2) - amount(previous, 2),
+            amount(current, 3) - amount(previous, 3),
+            amount(current, 4) - amount(previous, 4)
+        };
+        boolean changed = false;
+        for (int k = 0; k < deltas.length; k++) {
+            deltas[k] = Math.round(deltas[k] * 100) / 100.0;
+            changed |= deltas[k] != 0;
+        }
+        return changed ? deltas : null;
+    }
+
+    private static double amount(Employee line, int component) {
+        if (line == null) {
+            return 0;
+        }
+        switch (component) {
+            case 0: return line.getBasicSalary();
+            case 1: return line.getHra();
+            case 2: return line.getAllowances();
+            case 3: return line.getTax();
+            default: return line.getNetSalary();
+        }
+    }
+
+    private static void count(Rollup rollup, String status, Employee previous, Employee current, double[] deltas) {
+        switch (status) {
+            case "added": rollup.added++; break;
+            case "removed": rollup.removed++; break;
+            default: rollup.changed++;
+        }
+        rollup.previousNet += previous != null ? previous.getNetSalary() : 0;
+        rollup.net += current != null ? current.getNetSalary() : 0;
+        for (int k = 0; k < deltas.length; k++) {
+            rollup.deltas[k] += deltas[k];
+        }
+    }
+
+    private static void appendJsonEmployee(StringBuilder json, Employee line, String status,
+                                           Employee previous, Employee current, double[] deltas) {
+        json.append("{\"type\":\"employee\",\"employeeId\":").append(line.getId())
+            .append(",\"name\":\"").append(escapeJson(line.getName()))
+            .append("\",\"designation\":\"").append(escapeJson(line.getDesignation())).append("\"");
+        if (previous != null && current != null && !previous.getDesignation().equals(current.getDesignation())) {
+            json.append(",\"previousDesignation\":\"").append(escapeJson(previous.getDesignation())).append("\"");
+        }
+        json.append(",\"status\":\"").append(status).append("\",\"previousNet\":");
+        appendAmount(json, previous != null ? previous.getNetSalary() : 0).append(",\"net\":");
+        appendAmount(json, current != null ? current.getNetSalary() : 0).append(",");
+        appendJsonDeltas(json, deltas).append("}\n");
+    }
+
+    private static StringBuilder appendJsonRollup(StringBuilder json, Rollup rollup) {
+        json.append("\"changed\":").append(rollup.changed)
+            .append(",\"added\":").append(rollup.added)
+            .append(",\"removed\":").append(rollup.removed)
+            .append(",\"previousNet\":");
+        appendAmount(json, rollup.previousNet).append(",\"net\":");
+        appendAmount(json, rollup.net).append(",");
+        return appendJsonDeltas(json, rollup.deltas);
+    }
+
+    private static StringBuilder appendJsonDeltas(StringBuilder json, double[] deltas) {
+        json.append("\"basicSalaryDelta\":");
+        appendAmount(json, deltas[0]).append(",\"hraDelta\":");
+        appendAmount(json, deltas[1]).append(",\"allowancesDelta\":");
+        appendAmount(json, deltas[2]).append(",\"taxDelta\":");
+        appendAmount(json, deltas[3]).append(",\"netSalaryDelta\":");
+        return appendAmount(json, deltas[4]);
+    }
+
+    private static void appendCsvEmployee(StringBuilder csv, Employee line, String status,
+                                          Employee previous, Employee current, double[] deltas) {
+        csv.append("employee,").append(line.getId()).append(',');
+        appendCsvField(csv, line.getName()).append(',');
+        appendCsvField(csv, line.getDesignation()).append(',').append(status).append(",1,");
+        appendAmount(csv, previous != null ? previous.getNetSalary() : 0).append(',');
+        appendAmount(csv, current != null ? current.getNetSalary() : 0);
+        appendCsvDeltas(csv, deltas);
+    }
+
+    private static void appendCsvRollup(StringBuilder csv, String record, String designation, Rollup rollup) {
+        csv.append(record).append(",,,");
+        appendCsvField(csv, designation).append(",,").append(rollup.employees()).append(',');
+        appendAmount(csv, rollup.previousNet).append(',');
+        appendAmount(csv, rollup.net);
+        appendCsvDeltas(csv, rollup.deltas);
+    }
+
+    private static void appendCsvDeltas(StringBuilder csv, double[] deltas) {
+        for (double delta : deltas) {
+            appendAmount(csv.append(','), delta);
+        }
+        csv.append('\n');
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder csv, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return csv.append(value);
+        }
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    // Two decimals without String.format, which dominates the cost on large diffs
+    private static StringBuilder appendAmount(StringBuilder text, double value) {
+        long paise = Math.round(value * 100);
+        if (paise < 0) {
+            text.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % 100;
+        return text.append(paise / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    private static String escapeJson(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
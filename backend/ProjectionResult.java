@@ -0,0 +1,148 @@
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Projection Result Class
+ * Output of PayrollProjection: for each scenario, projected gross pay
+ * (basic + HRA), net pay and headcount per month, overall and by
+ * designation. Headcounts are expected values, so attrition makes them
+ * fractional.
+ */
+public class ProjectionResult {
+
+    /**
+     * Cost curves of one scenario, stored as [month * designations + designation]
+     */
+    public static class Curve {
+        private final String scenario;
+        private final double[] gross;
+        private final double[] net;
+        private final double[] headcount;
+
+        public Curve(String scenario, double[] gross, double[] net, double[] headcount) {
+            this.scenario = scenario;
+            this.gross = gross;
+            this.net = net;
+            this.headcount = headcount;
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+    }
+
+    private final int employees;
+    private final List<String> designations;
+    private final List<String> periods;
+    private final List<Curve> curves;
+    private final int tasks;
+    private final long snapshotMillis;
+    private final long elapsedMillis;
+
+    public ProjectionResult(int employees, List<String> designations, List<String> periods, List<Curve> curves,
+                            int tasks, long snapshotMillis, long elapsedMillis) {
+        this.employees = employees;
+        this.designations = designations;
+        this.periods = periods;
+        this.curves = curves;
+        this.tasks = tasks;
+        this.snapshotMillis = snapshotMillis;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<Curve> getCurves() {
+        return curves;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return JSON with the periods and, per scenario, totals and per-designation curves
+     */
+    public String toJson() {
+        int width = designations.size();
+        StringBuilder json = new StringBuilder("{")
+            .append("\"employees\":").append(employees).append(",")
+            .append("\"tasks\":").append(tasks).append(",")
+            .append("\"snapshotMillis\":").append(snapshotMillis).append(",")
+            .append("\"elapsedMillis\":").append(elapsedMillis).append(",")
+            .append("\"periods\":[");
+        for (int m = 0; m < periods.size(); m++) {
+            json.append(m > 0 ? "," : "").append("\"").append(periods.get(m)).append("\"");
+        }
+        json.append("],\"scenarios\":[");
+        for (int c = 0; c < curves.size(); c++) {
+            Curve curve = curves.get(c);
+            double cumulativeGross = 0;
+            double[] totalGross = new double[periods.size()];
+            double[] totalNet = new double[periods.size()];
+            double[] totalHeadcount = new double[periods.size()];
+            for (int m = 0; m < periods.size(); m++) {
+                totalGross[m] = sum(curve.gross, m);
+                totalNet[m] = sum(curve.net, m);
+                totalHeadcount[m] = sum(curve.headcount, m);
+                cumulativeGross += totalGross[m];
+            }
+            json.append(c > 0 ? "," : "").append("{")
+                .append("\"name\":\"").append(escape(curve.scenario)).append("\",")
+                .append("\"cumulativeGross\":").append(formatAmount(cumulativeGross)).append(",")
+                .append("\"gross\":").append(array(totalGross, 0, 1, totalGross.length)).append(",")
+                .append("\"net\":").append(array(totalNet, 0, 1, totalNet.length)).append(",")
+                .append("\"headcount\":").append(array(totalHeadcount, 0, 1, totalHeadcount.length)).append(",")
+                .append("\"byDesignation\":[");
+            boolean first = true;
+            for (int d = 0; d < width; d++) {
+                if (!hasData(curve.headcount, d, width)) {
+                    continue;
+                }
+                json.append(first ? "" : ",").append("{")
+                    .append("\"designation\":\"").append(escape(designations.get(d))).append("\",")
+                    .append("\"gross\":").append(array(curve.gross, d, width, periods.size())).append(",")
+                    .append("\"net\":").append(array(curve.net, d, width, periods.size())).append(",")
+                    .append("\"headcount\":").append(array(curve.headcount, d, width, periods.size()))
+                    .append("}");
+                first = false;
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private double sum(double[] values, int month) {
+        int width = designations.size();
+        double total = 0;
+        for (int d = 0; d < width; d++) {
+            total += values[month * width + d];
+        }
+        return total;
+    }
+
+    // Designations nobody has in this scenario are left out of the output
+    private boolean hasData(double[] headcount, int d, int width) {
+        for (int i = d; i < headcount.length; i += width) {
+            if (headcount[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String array(double[] values, int offset, int stride, int count) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            out.append(i > 0 ? "," : "").append(formatAmount(values[offset + i * stride]));
+        }
+        return out.append("]").toString();
+    }
+
+    // Plain notation; totals of large payrolls would otherwise print as 3.9E10
+    private static String formatAmount(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
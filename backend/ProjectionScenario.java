@@ -0,0 +1,188 @@
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection Scenario Class
+ * One what-if case for PayrollProjection: an annual increment (optionally
+ * per designation and capped per employee), a tax change from a given
+ * month, annual attrition and a hiring plan.
+ *
+ * Increments apply to basic salary every year in incrementMonth; HRA and
+ * tax keep their current ratio to basic. Attrition is spread evenly over
+ * the year and applied as an expected value.
+ */
+public class ProjectionScenario {
+
+    /**
+     * Planned hiring: perMonth new employees every month at the given pay
+     */
+    public static class Hire {
+        private final String designation;
+        private final double perMonth;
+        private final double basicSalary;
+        private final double hra;
+        private final double tax;
+
+        public Hire(String designation, double perMonth, double basicSalary, double hra, double tax) {
+            this.designation = DesignationDictionary.intern(designation);
+            this.perMonth = perMonth;
+            this.basicSalary = basicSalary;
+            this.hra = hra;
+            this.tax = tax;
+        }
+
+        public String getDesignation() {
+            return designation;
+        }
+
+        public double getPerMonth() {
+            return perMonth;
+        }
+
+        public double getBasicSalary() {
+            return basicSalary;
+        }
+
+        public double getHra() {
+            return hra;
+        }
+
+        public double getTax() {
+            return tax;
+        }
+    }
+
+    private final String name;
+    private final double incrementPercent;
+    private final Map<String, Double> designationIncrements;
+    private final double incrementCap;      // max raise of monthly basic per increment, 0 = none
+    private final int incrementMonth;       // 1-12
+    private final double taxChangePercent;
+    private final YearMonth taxChangeFrom;  // null = from the first projected month
+    private final double attritionPercent;  // per year
+    private final List<Hire> hires;
+
+    public ProjectionScenario(String name, double incrementPercent, Map<String, Double> designationIncrements,
+                              double incrementCap, int incrementMonth, double taxChangePercent,
+                              YearMonth taxChangeFrom, double attritionPercent, List<Hire> hires) {
+        if (incrementMonth < 1 || incrementMonth > 12) {
+            throw new IllegalArgumentException("incrementMonth must be 1-12");
+        }
+        if (attritionPercent < 0 || attritionPercent >= 100) {
+            throw new IllegalArgumentException("attritionPercent must be in [0, 100)");
+        }
+        this.name = name;
+        this.incrementPercent = incrementPercent;
+        this.designationIncrements = Collections.unmodifiableMap(new LinkedHashMap<>(designationIncrements));
+        this.incrementCap = incrementCap;
+        this.incrementMonth = incrementMonth;
+        this.taxChangePercent = taxChangePercent;
+        this.taxChangeFrom = taxChangeFrom;
+        this.attritionPercent = attritionPercent;
+        this.hires = Collections.unmodifiableList(new ArrayList<>(hires));
+    }
+
+    /**
+     * Builds a scenario from a parsed JSON object, e.g.
+     * {"name":"base","incrementPercent":6,"designationIncrements":{"Senior Engineer":8},
+     *  "incrementCap":5000,"incrementMonth":4,"taxChangePercent":2,"taxChangeFrom":"2027-04",
+     *  "attritionPercent":8,"hires":[{"designation":"Safety Officer","perMonth":2,
+     *  "basicSalary":35000,"hra":10500,"tax":5000}]}
+     * @param json Parsed scenario object
+     * @param defaultName Name used when none is given
+     * @return Scenario
+     * @throws IllegalArgumentException on missing or invalid values
+     */
+    @SuppressWarnings("unchecked")
+    public static ProjectionScenario fromJson(Map<String, Object> json, String defaultName) {
+        Map<String, Double> designationIncrements = new LinkedHashMap<>();
+        Object increments = json.get("designationIncrements");
+        if (increments instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) increments).entrySet()) {
+                designationIncrements.put(entry.getKey(), toDouble(entry.getValue(), entry.getKey()));
+            }
+        }
+        List<Hire> hires = new ArrayList<>();
+        Object hireList = json.get("hires");
+        if (hireList instanceof List) {
+            for (Object item : (List<Object>) hireList) {
+                if (!(item instanceof Map)) {
+                    throw new IllegalArgumentException("hires must be objects");
+                }
+                Map<String, Object> hire = (Map<String, Object>) item;
+                Object designation = hire.get("designation");
+                if (!(designation instanceof String) || ((String) designation).isEmpty()) {
+                    throw new IllegalArgumentException("hire designation is required");
+                }
+                hires.add(new Hire((String) designation, number(hire, "perMonth", 0),
+                    number(hire, "basicSalary", 0), number(hire, "hra", 0), number(hire, "tax", 0)));
+            }
+        }
+        Object name = json.get("name");
+        Object taxFrom = json.get("taxChangeFrom");
+        return new ProjectionScenario(
+            name instanceof String ? (String) name : defaultName,
+            number(json, "incrementPercent", 0),
+            designationIncrements,
+            number(json, "incrementCap", 0),
+            (int) number(json, "incrementMonth", 4),
+            number(json, "taxChangePercent", 0),
+            taxFrom instanceof String ? YearMonth.parse((String) taxFrom) : null,
+            number(json, "attritionPercent", 0),
+            hires);
+    }
+
+    private static double number(Map<String, Object> json, String key, double defaultValue) {
+        Object value = json.get(key);
+        return value == null ? defaultValue : toDouble(value, key);
+    }
+
+    private static double toDouble(Object value, String key) {
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(key + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Increment percent of a designation (its override, else the general one)
+     * @param designation Designation
+     * @return Percent per increment
+     */
+    public double incrementPercentFor(String designation) {
+        Double override = designationIncrements.get(designation);
+        return override != null ? override : incrementPercent;
+    }
+
+    public double getIncrementCap() {
+        return incrementCap;
+    }
+
+    public int getIncrementMonth() {
+        return incrementMonth;
+    }
+
+    public double getTaxChangePercent() {
+        return taxChangePercent;
+    }
+
+    public YearMonth getTaxChangeFrom() {
+        return taxChangeFrom;
+    }
+
+    public double getAttritionPercent() {
+        return attritionPercent;
+    }
+
+    public List<Hire> getHires() {
+        return hires;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Query Cancelled Exception Class
+ * Raised by the repository when a statement was stopped because the
+ * request ran out of time or its client disconnected
+ */
+public class QueryCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean clientGone;
+
+    public QueryCancelledException(String request, boolean clientGone) {
+        super((clientGone ? "Client disconnected during " : "Deadline exceeded for ") + request);
+        this.clientGone = clientGone;
+    }
+
+    /**
+     * @return true if the client hung up, false if the deadline passed
+     */
+    public boolean isClientGone() {
+        return clientGone;
+    }
+}
@@ -0,0 +1,160 @@
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Query Deadline Class
+ * Time budget of the request being served on the current thread, passed
+ * down to JDBC. The repository calls apply() on each statement before
+ * executing it. That sets the statement's query timeout to the time left,
+ * so the driver's own cancel timer (KILL QUERY) stops a runaway query
+ * instead of letting it pin a connection.
+ *
+ * A watchdog thread also checks whether each request's client is still
+ * connected while a statement is running. Statements of abandoned requests
+ * are cancelled straight away. Either way the repository raises
+ * QueryCancelledException, so the caller can answer 504 (or just drop the
+ * connection) instead of returning an empty result.
+ *
+ * Tuning: -Dpayroll.query.watchdogMs=200
+ */
+public final class QueryDeadline {
+
+    private static final long WATCHDOG_MILLIS = Long.getLong("payroll.query.watchdogMs", 200);
+    private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+    private static final Set<QueryDeadline> ACTIVE = ConcurrentHashMap.newKeySet();
+    private static volatile Thread watchdog;
+
+    private final String name;
+    private final long deadlineNanos;
+    private final BooleanSupplier clientConnected;
+    private volatile Statement statement;
+    private volatile boolean clientGone;
+
+    private QueryDeadline(String name, long deadlineNanos, BooleanSupplier clientConnected) {
+        this.name = name;
+        this.deadlineNanos = deadlineNanos;
+        this.clientConnected = clientConnected;
+    }
+
+    /**
+     * Starts a deadline for the request served on this thread
+     * @param name Label used in log messages, e.g. "GET /employees"
+     * @param startNanos When the request arrived (System.nanoTime)
+     * @param timeoutMillis Time budget; 0 means no timeout, only disconnect checks
+     * @param clientConnected Tells whether the client is still waiting for the answer
+     * @return The deadline; pass it to end() when the request is done
+     */
+    public static QueryDeadline begin(String name, long startNanos, long timeoutMillis, BooleanSupplier clientConnected) {
+        long deadline = timeoutMillis > 0 ? startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        QueryDeadline queryDeadline = new QueryDeadline(name, deadline, clientConnected);
+        CURRENT.set(queryDeadline);
+        ACTIVE.add(queryDeadline);
+        startWatchdog();
+        return queryDeadline;
+    }
+
+    /**
+     * Ends the deadline started by begin()
+     */
+    public void end() {
+        statement = null;
+        ACTIVE.remove(this);
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Binds a statement to the current request's deadline. Call right
+     * before executing; does nothing on threads without a deadline (such
+     * as background payroll runs).
+     * @param stmt Statement about to be executed
+     * @throws SQLException if the timeout cannot be set
+     * @throws QueryCancelledException if the deadline has already passed
+     */
+    public static void apply(Statement stmt) throws SQLException {
+        QueryDeadline current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        if (current.clientGone) {
+            throw new QueryCancelledException(current.name, true);
+        }
+        if (current.deadlineNanos != 0) {
+            long remainingNanos = current.deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new QueryCancelledException(current.name, false);
+            }
+            // JDBC timeouts are whole seconds; round up so a query is never cut short
+            stmt.setQueryTimeout((int) Math.max(1, (remainingNanos + 999_999_999L) / 1_000_000_000L));
+        }
+        current.statement = stmt;
+    }
+
+    /**
+     * Turns a failure caused by a timeout or a cancellation into
+     * QueryCancelledException. Any other error is left to the caller's
+     * usual handling.
+     * @param e Error raised by the statement
+     * @throws QueryCancelledException if the statement was timed out or cancelled
+     */
+    public static void rethrowIfCancelled(SQLException e) {
+        QueryDeadline current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        if (current.clientGone) {
+            throw new QueryCancelledException(current.name, true);
+        }
+        boolean timedOut = e instanceof SQLTimeoutException
+            || (current.deadlineNanos != 0 && System.nanoTime() - current.deadlineNanos >= 0);
+        if (timedOut) {
+            throw new QueryCancelledException(current.name, false);
+        }
+    }
+
+    private static void startWatchdog() {
+        if (watchdog != null) {
+            return;
+        }
+        synchronized (QueryDeadline.class) {
+            if (watchdog == null) {
+                Thread thread = new Thread(QueryDeadline::watch, "payroll-query-watchdog");
+                thread.setDaemon(true);
+                thread.start();
+                watchdog = thread;
+            }
+        }
+    }
+
+    // Cancels statements whose client has hung up; timeouts are left to the driver
+    private static void watch() {
+        while (true) {
+            try {
+                Thread.sleep(WATCHDOG_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (QueryDeadline deadline : ACTIVE) {
+                Statement running = deadline.statement;
+                if (running == null || deadline.clientGone || deadline.clientConnected.getAsBoolean()) {
+                    continue;
+                }
+                deadline.clientGone = true;
+                try {
+                    // Connector/J sends KILL QUERY on a side connection, and only
+                    // if this statement is still executing
+                    running.cancel();
+                    System.out.println("⏹ Cancelled query for abandoned request " + deadline.name);
+                } catch (SQLException e) {
+                    // Statement already finished or closed
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Revision Result Class
+ * Outcome (or dry-run preview) of a SalaryRevision
+ */
+public class RevisionResult {
+    private final boolean dryRun;
+    private final int affectedEmployees;
+    private final int chunks;
+    private final double netSalaryBefore;
+    private final double netSalaryAfter;
+    private final long elapsedMillis;
+    private final boolean completed;
+    private final int lastCommittedId;
+
+    public RevisionResult(boolean dryRun, int affectedEmployees, int chunks,
+                          double netSalaryBefore, double netSalaryAfter, long elapsedMillis,
+                          boolean completed, int lastCommittedId) {
+        this.dryRun = dryRun;
+        this.affectedEmployees = affectedEmployees;
+        this.chunks = chunks;
+        this.netSalaryBefore = netSalaryBefore;
+        this.netSalaryAfter = netSalaryAfter;
+        this.elapsedMillis = elapsedMillis;
+        this.completed = completed;
+        this.lastCommittedId = lastCommittedId;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public int getAffectedEmployees() {
+        return affectedEmployees;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public double getNetSalaryBefore() {
+        return netSalaryBefore;
+    }
+
+    public double getNetSalaryAfter() {
+        return netSalaryAfter;
+    }
+
+    // Change in monthly payroll cost caused by the revision
+    public double getMonthlyCostDelta() {
+        return netSalaryAfter - netSalaryBefore;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // False if a chunk failed; chunks up to lastCommittedId are already applied
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    // Highest id covered by a committed chunk (re-issue from lastCommittedId + 1 to finish)
+    public int getLastCommittedId() {
+        return lastCommittedId;
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Salary Histogram Class
+ * Lock-free, log-linear histogram of salaries in paise that, unlike a
+ * t-digest or KLL sketch, also supports removal. This lets it follow
+ * updates and deletes exactly, with no rebuilds.
+ *
+ * Values below ₹2.56 are counted exactly. Larger values land in one of
+ * 128 sub-buckets per power of two, so a reported quantile (the bucket
+ * midpoint) is within 0.4% of the true value. Memory is fixed
+ * (4,608 counters). Queries scan the counters, so they cost the same for
+ * a hundred employees or a million.
+ */
+public class SalaryHistogram {
+
+    /** Worst-case relative error of quantile(): half a bucket's width */
+    public static final double RELATIVE_ERROR = 1.0 / 256;
+
+    private static final int SUB_BUCKETS = 128;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + 34 * SUB_BUCKETS; // salaries up to ~₹2,000 crore
+    private static final long MAX_PAISE = (1L << 41) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * @param salary Salary in rupees (negative counts as 0)
+     */
+    public void add(double salary) {
+        counts.incrementAndGet(indexOf(toPaise(salary)));
+        total.incrementAndGet();
+    }
+
+    /**
+     * Removes a salary previously added
+     * @param salary Salary in rupees
+     */
+    public void remove(double salary) {
+        counts.decrementAndGet(indexOf(toPaise(salary)));
+        total.decrementAndGet();
+    }
+
+    /**
+     * @return Number of salaries in the histogram
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Salary at the given quantile, within RELATIVE_ERROR of the exact value
+     * @param quantile Quantile between 0 and 1, e.g. 0.9
+     * @return Salary in rupees, 0 if the histogram is empty
+     */
+    public double quantile(double quantile) {
+        long count = total.get();
+        if (count <= 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return midpointOf(i) / 100.0;
+            }
+        }
+        return midpointOf(BUCKET_COUNT - 1) / 100.0;
+    }
+
+    /**
+     * Counts salaries above a threshold. Salaries in the bucket holding the
+     * threshold cannot be placed exactly, so they are returned separately.
+     * @param salary Threshold in rupees
+     * @return {count certainly above, count that may or may not be above}
+     */
+    public long[] countAbove(double salary) {
+        int bucket = indexOf(toPaise(salary));
+        long above = 0;
+        for (int i = bucket + 1; i < BUCKET_COUNT; i++) {
+            above += counts.get(i);
+        }
+        // Exact buckets hold a single value, so nothing there is uncertain
+        long uncertain = bucket < LINEAR_BUCKETS ? 0 : counts.get(bucket);
+        return new long[]{above, uncertain};
+    }
+
+    private static long toPaise(double salary) {
+        return Math.max(0, Math.min(MAX_PAISE, Math.round(salary * 100)));
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // Shift so that the top 8 bits land in [128, 255]
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - 7;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long midpointOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return (mantissa << shift) + (1L << (shift - 1));
+    }
+}
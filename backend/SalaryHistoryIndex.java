@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Salary History Index Class
+ * In-memory interval index over employee versions. Each version holds an
+ * employee's pay as it was from its validFrom time until the next version
+ * of the same employee (or a deletion, which is stored as a version
+ * without a name). Versions live in primitive columns. Each one links to
+ * the employee's previous version, and latest[] points at the newest per
+ * employee id. An as-of lookup walks back from the newest version to the
+ * first that started at or before the given time, so recent dates, which
+ * are the common case, cost one or two steps.
+ *
+ * Lookups earlier than the horizon are not answered: the index may hold
+ * only the versions in effect since then.
+ */
+public final class SalaryHistoryIndex {
+
+    private final long horizon;
+    private int size;
+    private int[] employeeIds = new int[1024];
+    private long[] validFrom = new long[1024];
+    private int[] previous = new int[1024];
+    private String[] names = new String[1024];  // null for a deletion
+    private int[] designationCodes = new int[1024];
+    private double[] basicSalaries = new double[1024];
+    private double[] hras = new double[1024];
+    private double[] taxes = new double[1024];
+    private double[] netSalaries = new double[1024];
+    private int[] latest = new int[1024];       // employee id -> newest version, -1 if none
+
+    /**
+     * @param horizon Earliest time (epoch millis) as-of lookups may ask for;
+     *                Long.MIN_VALUE if the index holds the complete history
+     */
+    public SalaryHistoryIndex(long horizon) {
+        this.horizon = horizon;
+        Arrays.fill(latest, -1);
+    }
+
+    /**
+     * @param asOf Epoch millis
+     * @return true if lookups at this time can be answered from the index
+     */
+    public boolean covers(long asOf) {
+        return asOf >= horizon;
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Version count so far. Versions are numbered in the order they were
+     * recorded, so every state the index has been in is identified by its
+     * count at the time; scanAtVersion reads such a state back.
+     * @return Number of versions recorded
+     */
+    public synchronized int version() {
+        return size;
+    }
+
+    /**
+     * Appends a version; versions of one employee must arrive in time order
+     * @param employeeId Employee id
+     * @param from Time the version took effect (epoch millis)
+     * @param state Employee as of that time, or null if it was deleted then
+     */
+    public synchronized void record(int employeeId, long from, Employee state) {
+        if (size == employeeIds.length) {
+            grow();
+        }
+        if (employeeId >= latest.length) {
+            int length = latest.length;
+            latest = Arrays.copyOf(latest, Math.max(employeeId + 1, length * 2));
+            Arrays.fill(latest, length, latest.length, -1);
+        }
+        int before = latest[employeeId];
+        employeeIds[size] = employeeId;
+        // A clock step backwards must not reorder an employee's versions
+        validFrom[size] = before >= 0 ? Math.max(from, validFrom[before]) : from;
+        previous[size] = before;
+        if (state != null) {
+            // Most versions only change pay; share the previous name
+            String name = state.getName() != null ? state.getName() : "";
+            names[size] = before >= 0 && name.equals(names[before]) ? names[before] : name;
+            designationCodes[size] = DesignationDictionary.code(state.getDesignation() != null ? state.getDesignation() : "");
+            basicSalaries[size] = state.getBasicSalary();
+            hras[size] = state.getHra();
+            taxes[size] = state.getTax();
+            netSalaries[size] = state.getNetSalary();
+        } else {
+            names[size] = null;
+        }
+        latest[employeeId] = size;
+        size++;
+    }
+
+    /**
+     * Finds an employee as of a time
+     * @param employeeId Employee id
+     * @param asOf Epoch millis, not before the horizon
+     * @return Employee as it was then (updatedAt set to when that version
+     *         took effect), or null if it did not exist then
+     */
+    public synchronized Employee find(int employeeId, long asOf) {
+        int version = versionAt(employeeId, asOf);
+        return version >= 0 ? toEmployee(version) : null;
+    }
+
+    /**
+     * Everyone employed at a time, in id order
+     * @param asOf Epoch millis, not before the horizon
+     * @return Roster as of that time
+     */
+    public synchronized EmployeeRoster rosterAsOf(long asOf) {
+        EmployeeRoster.Builder roster = new EmployeeRoster.Builder(latest.length / 2);
+        for (int id = 0; id < latest.length; id++) {
+            int version = versionAt(id, asOf);
+            if (version >= 0) {
+                roster.add(id, names[version], DesignationDictionary.name(designationCodes[version]),
+                    basicSalaries[version], hras[version], taxes[version], netSalaries[version]);
+            }
+        }
+        return roster.build();
+    }
+
+    /**
+     * Employees with ids in [fromId, toId] as they were when the index held
+     * a given number of versions
+     * @param version Earlier result of version()
+     * @param fromId First id (inclusive)
+     * @param toId Last id (inclusive)
+     * @return Employees in id order
+     */
+    public List<Employee> scanAtVersion(int version, int fromId, int toId) {
+        List<Employee> employees = new ArrayList<>();
+        // Copied out under the lock; the caller's work on them does not hold up writers
+        synchronized (this) {
+            int last = Math.min(toId, latest.length - 1);
+            for (int id = Math.max(fromId, 0); id <= last; id++) {
+                int current = latest[id];
+                while (current >= version) {
+                    current = previous[current];
+                }
+                if (current >= 0 && names[current] != null) {
+                    employees.add(toEmployee(current));
+                }
+            }
+        }
+        return employees;
+    }
+
+    // Version in effect at asOf, or -1 if none or a deletion
+    private int versionAt(int employeeId, long asOf) {
+        if (employeeId >= latest.length) {
+            return -1;
+        }
+        int version = latest[employeeId];
+        while (version >= 0 && validFrom[version] > asOf) {
+            version = previous[version];
+        }
+        return version >= 0 && names[version] != null ? version : -1;
+    }
+
+    private Employee toEmployee(int version) {
+        Employee employee = new Employee(employeeIds[version], names[version],
+            DesignationDictionary.name(designationCodes[version]), basicSalaries[version], hras[version],
+            taxes[version], netSalaries[version]);
+        employee.setUpdatedAt(validFrom[version]);
+        return employee;
+    }
+
+    private void grow() {
+        int capacity = employeeIds.length * 2;
+        employeeIds = Arrays.copyOf(employeeIds, capacity);
+        validFrom = Arrays.copyOf(validFrom, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        names = Arrays.copyOf(names, capacity);
+        designationCodes = Arrays.copyOf(designationCodes, capacity);
+        basicSalaries = Arrays.copyOf(basicSalaries, capacity);
+        hras = Arrays.copyOf(hras, capacity);
+        taxes = Arrays.copyOf(taxes, capacity);
+        netSalaries = Arrays.copyOf(netSalaries, capacity);
+    }
+}
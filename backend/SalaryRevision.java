@@ -0,0 +1,131 @@
+/**
+ * Salary Revision Class
+ * Describes a mass revision of basic salary and HRA, either by a percentage
+ * or by a flat amount, for one designation and/or an id range.
+ * Net salary is always recomputed as Basic + HRA - Tax; under tax rules
+ * the deductions are recomputed from the revised pay first.
+ */
+public class SalaryRevision {
+
+    public enum Type { PERCENT, FLAT }
+
+    // Ids per committed chunk; keeps row locks and undo log small on big revisions
+    public static final int CHUNK_SIZE = Integer.getInteger("payroll.revision.chunkSize", 5000);
+
+    private final Type type;
+    private final double basicSalaryChange;
+    private final double hraChange;
+    private final String designation;   // exact match, null for any
+    private final int fromId;
+    private final int toId;
+    private final boolean dryRun;
+    private final TaxRules taxRules;    // null keeps each employee's stored tax
+
+    public SalaryRevision(Type type, double basicSalaryChange, double hraChange,
+                          String designation, int fromId, int toId, boolean dryRun) {
+        this(type, basicSalaryChange, hraChange, designation, fromId, toId, dryRun, null);
+    }
+
+    private SalaryRevision(Type type, double basicSalaryChange, double hraChange,
+                           String designation, int fromId, int toId, boolean dryRun, TaxRules taxRules) {
+        this.type = type;
+        this.basicSalaryChange = basicSalaryChange;
+        this.hraChange = hraChange;
+        this.designation = designation;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.dryRun = dryRun;
+        this.taxRules = taxRules;
+    }
+
+    /**
+     * Same revision, recomputing deductions under the given rules
+     * @param rules Tax rules, null to keep the stored tax
+     * @return Revision
+     */
+    public SalaryRevision withTaxRules(TaxRules rules) {
+        return new SalaryRevision(type, basicSalaryChange, hraChange, designation, fromId, toId, dryRun, rules);
+    }
+
+    public TaxRules getTaxRules() {
+        return taxRules;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getDesignation() {
+        return designation;
+    }
+
+    public int getFromId() {
+        return fromId;
+    }
+
+    public int getToId() {
+        return toId;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    // Revised value = old value * multiplier + addend
+    public double getBasicMultiplier() {
+        return type == Type.PERCENT ? 1.0 + basicSalaryChange / 100.0 : 1.0;
+    }
+
+    public double getBasicAddend() {
+        return type == Type.FLAT ? basicSalaryChange : 0.0;
+    }
+
+    public double getHraMultiplier() {
+        return type == Type.PERCENT ? 1.0 + hraChange / 100.0 : 1.0;
+    }
+
+    public double getHraAddend() {
+        return type == Type.FLAT ? hraChange : 0.0;
+    }
+
+    public double revisedBasicSalary(double basicSalary) {
+        return round2(basicSalary * getBasicMultiplier() + getBasicAddend());
+    }
+
+    public double revisedHra(double hra) {
+        return round2(hra * getHraMultiplier() + getHraAddend());
+    }
+
+    /**
+     * Revises an employee's pay in place: basic, HRA and, under tax rules,
+     * deductions; net salary follows
+     * @param employee Employee to revise
+     */
+    public void revise(Employee employee) {
+        employee.setBasicSalary(revisedBasicSalary(employee.getBasicSalary()));
+        employee.setHra(revisedHra(employee.getHra()));
+        if (taxRules != null) {
+            employee.applyTaxRules(taxRules);
+        }
+    }
+
+    /**
+     * Checks whether an employee falls under this revision
+     * @param employee Employee to test
+     * @return true if id range and designation both match
+     */
+    public boolean appliesTo(Employee employee) {
+        return employee.getId() >= fromId && employee.getId() <= toId
+            && (designation == null || designation.equalsIgnoreCase(employee.getDesignation()));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SalaryRevision [Type=%s, Basic=%s, HRA=%s, Designation=%s, IDs=%d-%d, DryRun=%s]",
+            type, basicSalaryChange, hraChange, designation, fromId, toId, dryRun);
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Salary Statistics Class
+ * Net salary percentiles and top earners, overall and per designation,
+ * maintained incrementally from PayrollService change events. Reports
+ * never touch the repository. A full scan happens only at startup, after a
+ * mass salary revision, or when a top-earner list runs dry.
+ *
+ * Error bounds: percentiles are within SalaryHistogram.RELATIVE_ERROR
+ * (0.4%) of the exact value. "Earning above X" counts are exact except for
+ * the salaries sharing X's bucket, which are reported separately. Top
+ * earners are exact. Two updates racing on the same employee, or a change
+ * racing a rebuild, can leave the counts off by one until the next rebuild.
+ *
+ * Tuning: -Dpayroll.reports.topLimit=100
+ */
+public class SalaryStatistics implements PayrollChangeListener {
+
+    public static final int TOP_LIMIT = Integer.getInteger("payroll.reports.topLimit", 100);
+
+    // Histogram and top earners of one designation (or of everyone)
+    static final class Group {
+        final SalaryHistogram histogram = new SalaryHistogram();
+        final TopEarners top = new TopEarners(TOP_LIMIT);
+
+        void add(Employee employee) {
+            histogram.add(employee.getNetSalary());
+            top.offer(employee);
+        }
+
+        void remove(Employee employee) {
+            histogram.remove(employee.getNetSalary());
+            top.remove(employee);
+        }
+    }
+
+    // Everything derived from one scan; replaced as a whole on rebuild
+    private static final class State {
+        final Group all = new Group();
+        final Map<String, Group> byDesignation = new ConcurrentHashMap<>();
+
+        Group designation(String designation) {
+            return byDesignation.computeIfAbsent(designation, d -> new Group());
+        }
+    }
+
+    private final PayrollService payrollService;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payroll-statistics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private volatile State state = new State();
+
+    public SalaryStatistics(PayrollService payrollService) {
+        this.payrollService = payrollService;
+    }
+
+    /**
+     * Recomputes everything with one streaming scan of the repository
+     */
+    public void rebuild() {
+        rebuild(consumer -> payrollService.scanEmployees(1, payrollService.getMaxEmployeeId(), consumer));
+    }
+
+    /**
+     * Recomputes everything from a roster already in memory (warm start)
+     * @param roster Every employee
+     */
+    public void rebuild(EmployeeRoster roster) {
+        rebuild(roster::forEachEmployee);
+    }
+
+    private void rebuild(ToIntFunction<Consumer<Employee>> scan) {
+        long start = System.currentTimeMillis();
+        State fresh = new State();
+        int employees = scan.applyAsInt(employee -> {
+            fresh.all.add(employee);
+            fresh.designation(employee.getDesignation()).add(employee);
+        });
+        state = fresh;
+        System.out.println("📊 Salary statistics built from " + employees + " employees in "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void rebuildInBackground() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @Override
+    public void onPayrollChange(PayrollChange change) {
+        State current = state;
+        Employee before = change.getBefore();
+        Employee after = change.getAfter();
+        switch (change.getType()) {
+            case ADD:
+            case UPDATE:
+            case DELETE:
+                if (before != null) {
+                    current.all.remove(before);
+                    current.designation(before.getDesignation()).remove(before);
+                }
+                if (after != null) {
+                    current.all.add(after);
+                    current.designation(after.getDesignation()).add(after);
+                }
+                if (current.all.top.needsRebuild()
+                        || (before != null && current.designation(before.getDesignation()).top.needsRebuild())) {
+                    rebuildInBackground();
+                }
+                break;
+            default:
+                // Bulk changes carry no per-employee detail
+                rebuildInBackground();
+                break;
+        }
+    }
+
+    /**
+     * Percentiles in JSON form, overall and for every designation (or one)
+     * @param quantiles Quantiles between 0 and 1
+     * @param designation Only this designation if not null
+     * @param above Also count salaries above this amount if not null
+     * @return JSON object
+     */
+    public String percentilesToJson(double[] quantiles, String designation, Double above) {
+        State current = state;
+        StringBuilder json = new StringBuilder("{\"relativeError\":").append(SalaryHistogram.RELATIVE_ERROR);
+        if (designation != null) {
+            Group group = current.byDesignation.get(designation);
+            json.append(",\"designation\":\"").append(escape(designation)).append("\",");
+            appendPercentiles(json, group != null ? group.histogram : new SalaryHistogram(), quantiles, above);
+            return json.append("}").toString();
+        }
+        json.append(",\"all\":{");
+        appendPercentiles(json, current.all.histogram, quantiles, above);
+        json.append("},\"byDesignation\":{");
+        boolean first = true;
+        for (Map.Entry<String, Group> entry : new TreeMap<>(current.byDesignation).entrySet()) {
+            if (entry.getValue().histogram.getCount() == 0) {
+                continue;
+            }
+            json.append(first ? "" : ",").append("\"").append(escape(entry.getKey())).append("\":{");
+            appendPercentiles(json, entry.getValue().histogram, quantiles, above);
+            json.append("}");
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendPercentiles(StringBuilder json, SalaryHistogram histogram, double[] quantiles, Double above) {
+        json.append("\"count\":").append(histogram.getCount()).append(",\"percentiles\":{");
+        for (int i = 0; i < quantiles.length; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("\"p").append(formatQuantile(quantiles[i])).append("\":")
+                .append(String.format(Locale.ROOT, "%.2f", histogram.quantile(quantiles[i])));
+        }
+        json.append("}");
+        if (above != null) {
+            long[] counts = histogram.countAbove(above);
+            json.append(",\"above\":{\"salary\":").append(above)
+                .append(",\"count\":").append(counts[0])
+                .append(",\"uncertain\":").append(counts[1]).append("}");
+        }
+    }
+
+    // 0.5 -> "50", 0.999 -> "99.9"
+    private static String formatQuantile(double quantile) {
+        String text = String.valueOf(Math.round(quantile * 100_000) / 1000.0);
+        return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    }
+
+    /**
+     * Highest net salaries in JSON form
+     * @param n Number of employees (capped at TOP_LIMIT)
+     * @param designation Only this designation if not null
+     * @return JSON array, best paid first
+     */
+    public String topToJson(int n, String designation) {
+        State current = state;
+        Group group = designation == null ? current.all : current.byDesignation.get(designation);
+        List<TopEarners.Earner> earners = group != null
+            ? group.top.top(Math.min(n, TOP_LIMIT)) : new ArrayList<TopEarners.Earner>();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < earners.size(); i++) {
+            TopEarners.Earner earner = earners.get(i);
+            json.append(i == 0 ? "" : ",")
+                .append("{\"rank\":").append(i + 1).append(",")
+                .append("\"id\":").append(earner.getId()).append(",")
+                .append("\"name\":\"").append(escape(earner.getName())).append("\",")
+                .append("\"designation\":\"").append(escape(earner.getDesignation())).append("\",")
+                .append("\"netSalary\":").append(earner.getNetSalary()).append("}");
+        }
+        return json.append("]").toString();
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.List;
+
+/**
+ * Search Result Class
+ * Employees found by an EmployeeSearch, with the access path the planner
+ * chose and how many candidate rows it had to examine (the optimizer's
+ * estimate, on MySQL)
+ */
+public class SearchResult {
+    private final List<Employee> employees;
+    private final String plan;
+    private final int examined;
+    private final long elapsedMicros;
+
+    public SearchResult(List<Employee> employees, String plan, int examined, long elapsedMicros) {
+        this.employees = employees;
+        this.plan = plan;
+        this.examined = examined;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public int getExamined() {
+        return examined;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+}
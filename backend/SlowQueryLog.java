@@ -0,0 +1,326 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Slow Query Log Class
+ * Bounded, in-memory record of the payroll statements that ran slower
+ * than the threshold, or that MySQL executed without a usable index.
+ * Entries are keyed by statement shape (SQL with placeholders) and keep
+ * count, total and max time, rows and the last bind values. Binds are
+ * shown redacted, as type and length only, since they hold names and
+ * salaries. Only the worst offenders are kept.
+ *
+ * A background task periodically runs EXPLAIN on the top entries, using
+ * their last bind values, and flags full table scans. This shows which
+ * indexes belong in payroll_db_setup.sql. Results are served at
+ * /debug/slow-queries.
+ *
+ * Tuning: -Dpayroll.slowQuery.enabled=false -Dpayroll.slowQuery.thresholdMs=200
+ * -Dpayroll.slowQuery.capacity=100 -Dpayroll.slowQuery.explainIntervalSec=60
+ * -Dpayroll.slowQuery.explainTop=5
+ */
+public class SlowQueryLog {
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("payroll.slowQuery.enabled", "true"));
+    private static final int THRESHOLD_MILLIS = Integer.getInteger("payroll.slowQuery.thresholdMs", 200);
+    private static final int CAPACITY = Integer.getInteger("payroll.slowQuery.capacity", 100);
+    private static final int EXPLAIN_INTERVAL_SECONDS = Integer.getInteger("payroll.slowQuery.explainIntervalSec", 60);
+    private static final int EXPLAIN_TOP = Integer.getInteger("payroll.slowQuery.explainTop", 5);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final SlowQueryLog INSTANCE = new SlowQueryLog();
+
+    // Aggregated statistics of one statement shape
+    private static final class Entry {
+        final String sql;
+        long slowCount;
+        long noIndexCount;
+        long totalMillis;
+        long maxMillis;
+        long lastRows = -1;
+        long lastSeenMillis;
+        String lastTraceId;
+        Object[] lastBinds;          // kept for EXPLAIN only, never serialized
+        String lastText;             // plain statements: last literal text, for EXPLAIN only
+        List<String> explain;
+        long explainedAtMillis;
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private ScheduledExecutorService explainer;
+
+    private SlowQueryLog() {
+    }
+
+    public static SlowQueryLog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Connection properties that route the driver's slow-query events here
+     * @return Query string fragment to append to the JDBC URL, empty if disabled
+     */
+    public static String connectionProperties() {
+        if (!ENABLED) {
+            return "";
+        }
+        return "&logSlowQueries=true&slowQueryThresholdMillis=" + THRESHOLD_MILLIS
+            + "&profilerEventHandler=" + SlowQueryProfilerEventHandler.class.getName();
+    }
+
+    /**
+     * Records one event reported by the driver
+     * @param sql Statement text, with placeholders for prepared statements
+     * @param binds Bind values, null for plain statements
+     * @param millis Execution time in milliseconds (0 for index-only warnings)
+     * @param rows Rows returned or affected, -1 if unknown
+     * @param slow true if the statement exceeded the threshold
+     * @param noIndex true if MySQL reported that no (good) index was used
+     */
+    public void record(String sql, Object[] binds, long millis, long rows, boolean slow, boolean noIndex) {
+        // Prepared statements already have placeholders; plain ones get them here
+        String shape = binds != null ? WHITESPACE.matcher(sql).replaceAll(" ").trim() : normalize(sql);
+        if (shape.regionMatches(true, 0, "EXPLAIN", 0, 7)) {
+            return; // our own sampling
+        }
+        Entry entry = entries.get(shape);
+        if (entry == null) {
+            if (entries.size() >= CAPACITY) {
+                evictLeastCostly();
+            }
+            entry = entries.computeIfAbsent(shape, Entry::new);
+        }
+        PayrollTracer.Span span = PayrollTracer.currentSpan();
+        synchronized (entry) {
+            if (slow) {
+                entry.slowCount++;
+                entry.totalMillis += millis;
+                entry.maxMillis = Math.max(entry.maxMillis, millis);
+            }
+            if (noIndex) {
+                entry.noIndexCount++;
+            }
+            if (rows >= 0) {
+                entry.lastRows = rows;
+            }
+            if (binds != null) {
+                entry.lastBinds = binds;
+            } else {
+                entry.lastText = sql;
+            }
+            if (span != null) {
+                entry.lastTraceId = span.getTraceId();
+            }
+            entry.lastSeenMillis = System.currentTimeMillis();
+        }
+    }
+
+    // Keeps the log bounded: the entry that cost the least time goes
+    private void evictLeastCostly() {
+        Entry victim = null;
+        for (Entry entry : entries.values()) {
+            if (victim == null || cost(entry) < cost(victim)) {
+                victim = entry;
+            }
+        }
+        if (victim != null) {
+            entries.remove(victim.sql);
+        }
+    }
+
+    // Ranking: total slow time first, then how often no index was used
+    private static long cost(Entry entry) {
+        synchronized (entry) {
+            return entry.totalMillis * 1000 + Math.min(999, entry.noIndexCount);
+        }
+    }
+
+    private List<Entry> topEntries(int limit) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted, Comparator.comparingLong(SlowQueryLog::cost).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Starts periodic EXPLAIN sampling of the top entries (MySQL only)
+     */
+    public synchronized void startExplainSampling() {
+        if (!ENABLED || explainer != null || EXPLAIN_INTERVAL_SECONDS <= 0) {
+            return;
+        }
+        explainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "payroll-slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        explainer.scheduleWithFixedDelay(this::explainTopEntries,
+            EXPLAIN_INTERVAL_SECONDS, EXPLAIN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void explainTopEntries() {
+        List<Entry> candidates = new ArrayList<>();
+        long staleBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(EXPLAIN_INTERVAL_SECONDS) * 10;
+        for (Entry entry : topEntries(EXPLAIN_TOP)) {
+            synchronized (entry) {
+                if (explainable(entry.sql) && (entry.explain == null || entry.explainedAtMillis < staleBefore)) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        try (Connection connection = DatabaseConnection.openConnection()) {
+            for (Entry entry : candidates) {
+                List<String> plan = explain(connection, entry);
+                synchronized (entry) {
+                    entry.explain = plan;
+                    entry.explainedAtMillis = System.currentTimeMillis();
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Slow query EXPLAIN sampling failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean explainable(String sql) {
+        String head = sql.length() > 6 ? sql.substring(0, 6).toUpperCase() : sql.toUpperCase();
+        return head.startsWith("SELECT") || head.startsWith("UPDATE") || head.startsWith("DELETE");
+    }
+
+    // One line per plan row: table, access type, key, estimated rows, extra
+    private static List<String> explain(Connection connection, Entry entry) {
+        List<String> plan = new ArrayList<>();
+        Object[] binds;
+        String text;
+        synchronized (entry) {
+            binds = entry.lastBinds;
+            text = entry.lastText != null ? entry.lastText : entry.sql;
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN " + text)) {
+            int placeholders = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 0; i < placeholders; i++) {
+                pstmt.setObject(i + 1, binds != null && i < binds.length ? binds[i] : null);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = rs.getString("type");
+                    String line = "table=" + rs.getString("table")
+                        + " type=" + type
+                        + " key=" + rs.getString("key")
+                        + " rows=" + rs.getString("rows")
+                        + " extra=" + rs.getString("Extra");
+                    if ("ALL".equalsIgnoreCase(type)) {
+                        line += "  <- full table scan, consider an index";
+                    }
+                    plan.add(line);
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("EXPLAIN failed: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    /**
+     * Replaces literals with ? and collapses whitespace, so statements
+     * differing only in values share one entry
+     * @param sql Statement text
+     * @return Statement shape
+     */
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    // Type and size of a bind value, never the value itself
+    private static String redact(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence) {
+            return "string(" + ((CharSequence) value).length() + ")";
+        }
+        if (value instanceof byte[]) {
+            return "bytes(" + ((byte[]) value).length + ")";
+        }
+        return value.getClass().getSimpleName().toLowerCase();
+    }
+
+    /**
+     * Top entries in JSON form, for /debug/slow-queries
+     * @param limit Maximum number of entries
+     * @return JSON object with settings and an "entries" array
+     */
+    public String toJson(int limit) {
+        StringBuilder json = new StringBuilder()
+            .append("{\"enabled\":").append(ENABLED).append(",")
+            .append("\"thresholdMs\":").append(THRESHOLD_MILLIS).append(",")
+            .append("\"tracked\":").append(entries.size()).append(",")
+            .append("\"entries\":[");
+        boolean first = true;
+        for (Entry entry : topEntries(limit)) {
+            synchronized (entry) {
+                json.append(first ? "" : ",")
+                    .append("{\"sql\":\"").append(escape(entry.sql)).append("\",")
+                    .append("\"slowCount\":").append(entry.slowCount).append(",")
+                    .append("\"totalMs\":").append(entry.totalMillis).append(",")
+                    .append("\"maxMs\":").append(entry.maxMillis).append(",")
+                    .append("\"avgMs\":").append(entry.slowCount == 0 ? 0 : entry.totalMillis / entry.slowCount).append(",")
+                    .append("\"noIndexCount\":").append(entry.noIndexCount).append(",")
+                    .append("\"lastRows\":").append(entry.lastRows).append(",")
+                    .append("\"lastSeen\":").append(entry.lastSeenMillis);
+                if (entry.lastTraceId != null) {
+                    json.append(",\"lastTraceId\":\"").append(entry.lastTraceId).append("\"");
+                }
+                if (entry.lastBinds != null) {
+                    json.append(",\"binds\":[");
+                    for (int i = 0; i < entry.lastBinds.length; i++) {
+                        json.append(i == 0 ? "" : ",").append("\"").append(redact(entry.lastBinds[i])).append("\"");
+                    }
+                    json.append("]");
+                }
+                if (entry.explain != null) {
+                    json.append(",\"explain\":[");
+                    for (int i = 0; i < entry.explain.size(); i++) {
+                        json.append(i == 0 ? "" : ",").append("\"").append(escape(entry.explain.get(i))).append("\"");
+                    }
+                    json.append("]");
+                }
+                json.append("}");
+            }
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
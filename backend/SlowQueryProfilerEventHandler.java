@@ -0,0 +1,83 @@
+import com.mysql.cj.BindValue;
+import com.mysql.cj.PreparedQuery;
+import com.mysql.cj.Query;
+import com.mysql.cj.Session;
+import com.mysql.cj.log.Log;
+import com.mysql.cj.log.ProfilerEvent;
+import com.mysql.cj.log.ProfilerEventHandler;
+import com.mysql.cj.protocol.Resultset;
+
+/**
+ * Slow Query Profiler Event Handler Class
+ * Connector/J profiler hook, installed through the connection properties
+ * logSlowQueries and profilerEventHandler (see SlowQueryLog). It turns the
+ * driver's slow-query and "no index used" events into SlowQueryLog
+ * entries. Prepared statements are recorded as their original SQL with
+ * placeholders, so each statement shape is aggregated as one entry.
+ */
+public class SlowQueryProfilerEventHandler implements ProfilerEventHandler {
+
+    private static final String SLOW_QUERY_PREFIX = "Slow query";
+    private static final String NO_INDEX_MARKER = "using no index";
+    private static final String BAD_INDEX_MARKER = "with a bad index";
+
+    @Override
+    public void init(Log log) {
+        // Nothing to set up; all state lives in SlowQueryLog
+    }
+
+    @Override
+    public void destroy() {
+        // Shared state outlives any one connection
+    }
+
+    @Override
+    public void consumeEvent(ProfilerEvent evt) {
+        // Only reached through processEvent in other handlers; events are handled there
+    }
+
+    @Override
+    public void processEvent(byte eventType, Session session, Query query, Resultset resultSet, long eventDuration,
+                             Throwable eventCreationPoint, String message) {
+        if (eventType != ProfilerEvent.TYPE_SLOW_QUERY || message == null) {
+            return;
+        }
+        boolean slow = !message.contains(NO_INDEX_MARKER) && !message.contains(BAD_INDEX_MARKER);
+        boolean noIndex = message.contains(NO_INDEX_MARKER) || message.contains(BAD_INDEX_MARKER);
+
+        String sql;
+        Object[] binds = null;
+        if (query instanceof PreparedQuery && ((PreparedQuery) query).getOriginalSql() != null) {
+            PreparedQuery prepared = (PreparedQuery) query;
+            sql = prepared.getOriginalSql();
+            BindValue[] values = prepared.getQueryBindings() != null ? prepared.getQueryBindings().getBindValues() : null;
+            if (values != null) {
+                binds = new Object[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    binds[i] = values[i] == null || values[i].isNull() ? null : values[i].getValue();
+                }
+            }
+        } else {
+            sql = sqlFromMessage(message);
+        }
+
+        long rows = -1;
+        if (resultSet != null) {
+            rows = resultSet.getRows() != null ? resultSet.getRows().size() : resultSet.getUpdateCount();
+        }
+        // The driver reports milliseconds unless useNanosForElapsedTime is set
+        long millis = "ns".equals(session == null ? null : session.getQueryTimingUnits())
+            ? eventDuration / 1_000_000 : eventDuration;
+
+        SlowQueryLog.getInstance().record(sql, binds, slow ? millis : 0, rows, slow, noIndex);
+    }
+
+    // The driver's messages end with the SQL text after "): " (slow) or "details: " (index warnings)
+    private static String sqlFromMessage(String message) {
+        int start = message.startsWith(SLOW_QUERY_PREFIX) ? message.indexOf("): ") : message.indexOf("details: ");
+        if (start < 0) {
+            return message;
+        }
+        return message.substring(start + (message.startsWith(SLOW_QUERY_PREFIX) ? 3 : 9)).trim();
+    }
+}
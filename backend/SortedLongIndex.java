@@ -0,0 +1,355 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted Long Index Class
+ * Secondary index from a long key (salary in paise, a timestamp, an encoded
+ * name prefix) to employee ids, answering range queries.
+ *
+ * The bulk of the index is an immutable pair of parallel arrays sorted by
+ * key, so a range is found with two binary searches and read sequentially.
+ * Writes never touch those arrays: they go to a small concurrent map of
+ * pending changes (id -> new key, or REMOVED) that queries overlay on top.
+ * Once the pending map passes payroll.search.deltaLimit entries, a
+ * background thread merges it into fresh arrays and a fresh pending map.
+ * A query takes the arrays and map as one consistent set and then reads
+ * without any lock; a merge never modifies the set a query may hold, only
+ * replaces it.
+ */
+public class SortedLongIndex {
+
+    /**
+     * Receives ids in key order
+     */
+    public interface Visitor {
+        /**
+         * @param id Employee id
+         * @return false to stop the scan
+         */
+        boolean visit(int id);
+    }
+
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final int DELTA_LIMIT = Integer.getInteger("payroll.search.deltaLimit", 16384);
+
+    // One merge thread for all indexes; a merge folds everything pending at
+    // once, so falling behind during a bulk load just makes merges bigger
+    private static final ExecutorService MERGER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payroll-index-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    // Writers and queries take the read lock just long enough to use or pick
+    // up the current pending map; a merge swaps it under the write lock, so no
+    // change can land in a map it has already copied
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long[] keys = new long[0];
+    private volatile int[] ids = new int[0];
+    private volatile ConcurrentHashMap<Integer, Long> pending = new ConcurrentHashMap<>();
+
+    public SortedLongIndex(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the current key of an employee
+     * @param id Employee id
+     * @param key Index key (must not be Long.MIN_VALUE)
+     */
+    public void put(int id, long key) {
+        lock.readLock().lock();
+        try {
+            pending.put(id, key);
+        } finally {
+            lock.readLock().unlock();
+        }
+        maybeMerge();
+    }
+
+    /**
+     * Drops an employee from the index
+     * @param id Employee id
+     */
+    public void remove(int id) {
+        put(id, REMOVED);
+    }
+
+    /**
+     * Upper bound on the number of ids with a key in [from, to]; exact for
+     * the merged arrays, plus every pending change
+     * @param from Lowest key (inclusive)
+     * @param to Highest key (inclusive)
+     * @return Estimated candidate count
+     */
+    public int estimate(long from, long to) {
+        long[] k = keys;
+        return Math.max(0, upperBound(k, to) - lowerBound(k, from)) + pending.size();
+    }
+
+    /**
+     * Ids whose current key lies in [from, to], in no particular order
+     * @param from Lowest key (inclusive)
+     * @param to Highest key (inclusive)
+     * @return Matching ids
+     */
+    public int[] range(long from, long to) {
+        long[] k;
+        int[] v;
+        ConcurrentHashMap<Integer, Long> pending;
+        lock.readLock().lock();
+        try {
+            k = keys;
+            v = ids;
+            pending = this.pending;
+        } finally {
+            lock.readLock().unlock();
+        }
+        int start = lowerBound(k, from);
+        int end = upperBound(k, to);
+        int[] out = new int[Math.max(0, end - start) + pending.size()];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            // A pending entry overrides the merged key (moved or removed)
+            if (pending.isEmpty() || !pending.containsKey(v[i])) {
+                out[count++] = v[i];
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : pending.entrySet()) {
+            long key = entry.getValue();
+            if (key != REMOVED && key >= from && key <= to) {
+                if (count == out.length) {
+                    out = Arrays.copyOf(out, count * 2 + 1);
+                }
+                out[count++] = entry.getKey();
+            }
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Visits the ids with a key in [from, to] in key order (ties by id)
+     * until the visitor stops, so a caller that only needs the first few
+     * matches never reads the whole range
+     * @param from Lowest key (inclusive)
+     * @param to Highest key (inclusive)
+     * @param visitor Receives each id
+     */
+    public void scan(long from, long to, Visitor visitor) {
+        long[] k;
+        int[] v;
+        ConcurrentHashMap<Integer, Long> pending;
+        lock.readLock().lock();
+        try {
+            k = keys;
+            v = ids;
+            pending = this.pending;
+        } finally {
+            lock.readLock().unlock();
+        }
+        long[] pendingKeys = new long[16];
+        int[] pendingIds = new int[16];
+        int pendingCount = 0;
+        for (Map.Entry<Integer, Long> entry : pending.entrySet()) {
+            long key = entry.getValue();
+            if (key != REMOVED && key >= from && key <= to) {
+                if (pendingCount == pendingKeys.length) {
+                    pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+                    pendingIds = Arrays.copyOf(pendingIds, pendingCount * 2);
+                }
+                pendingKeys[pendingCount] = key;
+                pendingIds[pendingCount++] = entry.getKey();
+            }
+        }
+        sortPairs(pendingKeys, pendingIds, 0, pendingCount - 1);
+
+        int p = 0;
+        int end = upperBound(k, to);
+        for (int i = lowerBound(k, from); i < end; i++) {
+            if (!pending.isEmpty() && pending.containsKey(v[i])) {
+                continue;
+            }
+            while (p < pendingCount && less(pendingKeys[p], pendingIds[p], k[i], v[i])) {
+                if (!visitor.visit(pendingIds[p++])) {
+                    return;
+                }
+            }
+            if (!visitor.visit(v[i])) {
+                return;
+            }
+        }
+        while (p < pendingCount) {
+            if (!visitor.visit(pendingIds[p++])) {
+                return;
+            }
+        }
+    }
+
+    private void maybeMerge() {
+        if (pending.size() >= DELTA_LIMIT && mergeScheduled.compareAndSet(false, true)) {
+            MERGER.execute(this::merge);
+        }
+    }
+
+    // Folds a copy of the pending changes into new sorted arrays. Changes that
+    // arrive meanwhile stay pending, because only entries still holding the
+    // copied value are dropped from the new map.
+    private void merge() {
+        try {
+            int[] foldedIds = new int[pending.size() + 16];
+            long[] foldedKeys = new long[foldedIds.length];
+            int folded = 0;
+            BitSet touched = new BitSet();
+            for (Map.Entry<Integer, Long> entry : pending.entrySet()) {
+                if (folded == foldedIds.length) {
+                    foldedIds = Arrays.copyOf(foldedIds, folded * 2);
+                    foldedKeys = Arrays.copyOf(foldedKeys, folded * 2);
+                }
+                foldedIds[folded] = entry.getKey();
+                foldedKeys[folded++] = entry.getValue();
+                touched.set(entry.getKey());
+            }
+
+            long[] addedKeys = new long[folded];
+            int[] addedIds = new int[folded];
+            int added = 0;
+            for (int i = 0; i < folded; i++) {
+                if (foldedKeys[i] != REMOVED) {
+                    addedKeys[added] = foldedKeys[i];
+                    addedIds[added++] = foldedIds[i];
+                }
+            }
+            sortPairs(addedKeys, addedIds, 0, added - 1);
+
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            long[] newKeys = new long[oldKeys.length + added];
+            int[] newIds = new int[newKeys.length];
+            int n = 0;
+            int a = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (touched.get(oldIds[i])) {
+                    continue;
+                }
+                while (a < added && less(addedKeys[a], addedIds[a], oldKeys[i], oldIds[i])) {
+                    newKeys[n] = addedKeys[a];
+                    newIds[n++] = addedIds[a++];
+                }
+                newKeys[n] = oldKeys[i];
+                newIds[n++] = oldIds[i];
+            }
+            while (a < added) {
+                newKeys[n] = addedKeys[a];
+                newIds[n++] = addedIds[a++];
+            }
+
+            lock.writeLock().lock();
+            try {
+                keys = n == newKeys.length ? newKeys : Arrays.copyOf(newKeys, n);
+                ids = n == newIds.length ? newIds : Arrays.copyOf(newIds, n);
+                // Changes made since the copy was taken carry over. A new map
+                // also keeps iteration cheap: a ConcurrentHashMap never shrinks.
+                ConcurrentHashMap<Integer, Long> remaining = new ConcurrentHashMap<>(pending);
+                for (int i = 0; i < folded; i++) {
+                    remaining.remove(foldedIds[i], foldedKeys[i]);
+                }
+                pending = remaining;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            mergeScheduled.set(false);
+        }
+        maybeMerge();
+    }
+
+    private static boolean less(long keyA, int idA, long keyB, int idB) {
+        return keyA < keyB || (keyA == keyB && idA < idB);
+    }
+
+    // In-place quicksort of parallel key/id arrays over [low, high]
+    private static void sortPairs(long[] k, int[] v, int low, int high) {
+        while (high - low > 16) {
+            int mid = (low + high) >>> 1;
+            long pivotKey = k[mid];
+            int pivotId = v[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (less(k[i], v[i], pivotKey, pivotId)) {
+                    i++;
+                }
+                while (less(pivotKey, pivotId, k[j], v[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(k, v, i++, j--);
+                }
+            }
+            // Recurse into the smaller half, loop on the larger
+            if (j - low < high - i) {
+                sortPairs(k, v, low, j);
+                low = i;
+            } else {
+                sortPairs(k, v, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && less(k[j], v[j], k[j - 1], v[j - 1]); j--) {
+                swap(k, v, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] k, int[] v, int a, int b) {
+        long key = k[a];
+        k[a] = k[b];
+        k[b] = key;
+        int id = v[a];
+        v[a] = v[b];
+        v[b] = id;
+    }
+
+    // First position with key >= value
+    private static int lowerBound(long[] k, long value) {
+        int low = 0;
+        int high = k.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (k[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position with key > value
+    private static int upperBound(long[] k, long value) {
+        int low = 0;
+        int high = k.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (k[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
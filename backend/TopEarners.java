@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Top Earners Class
+ * Bounded, ordered set of the highest net salaries, kept up to date on
+ * every change. It holds up to twice the number of entries ever asked for.
+ * Whenever an employee has been left out, everyone left out earns no more
+ * than the lowest entry kept, so the kept entries are always the exact top.
+ * Deletes and pay cuts can shrink that set. Once it falls below the
+ * reporting limit, needsRebuild() says so and the owner refills it from
+ * the repository.
+ */
+public class TopEarners {
+
+    /**
+     * One employee's position in the ranking
+     */
+    public static final class Earner {
+        final int id;
+        final String name;
+        final String designation;
+        final double netSalary;
+
+        Earner(Employee employee) {
+            this.id = employee.getId();
+            this.name = employee.getName();
+            this.designation = employee.getDesignation();
+            this.netSalary = employee.getNetSalary();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDesignation() {
+            return designation;
+        }
+
+        public double getNetSalary() {
+            return netSalary;
+        }
+    }
+
+    private static final Comparator<Earner> HIGHEST_FIRST = (a, b) -> {
+        int bySalary = Double.compare(b.netSalary, a.netSalary);
+        return bySalary != 0 ? bySalary : Integer.compare(a.id, b.id);
+    };
+
+    private final int limit;
+    private final int capacity;
+    private final TreeSet<Earner> earners = new TreeSet<>(HIGHEST_FIRST);
+    private boolean leftOut;   // someone was not kept, so the set is not everyone
+
+    /**
+     * @param limit Largest top-N that will be asked for
+     */
+    public TopEarners(int limit) {
+        this.limit = limit;
+        this.capacity = limit * 2;
+    }
+
+    /**
+     * Considers an added employee, or the new state of an updated one
+     * @param employee Employee to rank
+     */
+    public synchronized void offer(Employee employee) {
+        Earner earner = new Earner(employee);
+        // With someone left out, only entries above the lowest kept are known to rank
+        if (leftOut && !earners.isEmpty() && HIGHEST_FIRST.compare(earner, earners.last()) > 0) {
+            return;
+        }
+        earners.add(earner);
+        if (earners.size() > capacity) {
+            earners.pollLast();
+            leftOut = true;
+        }
+    }
+
+    /**
+     * Drops a deleted employee, or the old state of an updated one
+     * @param employee Employee as it was ranked
+     */
+    public synchronized void remove(Employee employee) {
+        earners.remove(new Earner(employee));
+    }
+
+    /**
+     * @return true if too few entries are left to answer a full top-N
+     */
+    public synchronized boolean needsRebuild() {
+        return leftOut && earners.size() < limit;
+    }
+
+    /**
+     * Highest earners, best first
+     * @param n Number wanted (at most the limit)
+     * @return Up to n entries
+     */
+    public synchronized List<Earner> top(int n) {
+        List<Earner> result = new ArrayList<>(Math.min(n, earners.size()));
+        for (Earner earner : earners) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(earner);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Warm Start Snapshot Class
+ * Every employee as of one change version, saved to a local file when a
+ * fast-starting server shuts down (-Dpayroll.fastStart=true). On the next
+ * start the roster is read back before the database is reached, so
+ * listings, lookups by id and designation summaries are answered right
+ * away, and the report caches are rebuilt from it instead of a full scan
+ * if the database is still at the same change version.
+ *
+ * File layout (big-endian): magic, format, repository kind, change version,
+ * save time, row count, then per row id, name, designation and the four
+ * salary components; a CRC32 of everything before it ends the file. A file
+ * that is missing, truncated, corrupt or from another repository kind is
+ * ignored.
+ *
+ * Location: -Dpayroll.warmStart.file=warm-start.snapshot
+ */
+public final class WarmStartSnapshot {
+
+    private static final int MAGIC = 0x50575353;  // "PWSS"
+    private static final int FORMAT = 1;
+
+    private final long changeVersion;
+    private final long savedAt;
+    private final EmployeeRoster roster;
+
+    private WarmStartSnapshot(long changeVersion, long savedAt, EmployeeRoster roster) {
+        this.changeVersion = changeVersion;
+        this.savedAt = savedAt;
+        this.roster = roster;
+    }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public EmployeeRoster getRoster() {
+        return roster;
+    }
+
+    /**
+     * @return File named by payroll.warmStart.file
+     */
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("payroll.warmStart.file", "warm-start.snapshot"));
+    }
+
+    /**
+     * Reads every employee from one consistent snapshot of the repository
+     * @param payrollService Service to read from
+     * @return Snapshot tagged with the snapshot's change version, or null
+     *         if the repository could not be read
+     */
+    public static WarmStartSnapshot capture(PayrollService payrollService) {
+        try (EmployeeSnapshot snapshot = payrollService.openSnapshot(0)) {
+            if (snapshot == null) {
+                return null;
+            }
+            // Read after the snapshot opened, so it covers every id the snapshot sees
+            int maxId = payrollService.getMaxEmployeeId();
+            EmployeeRoster.Builder roster = new EmployeeRoster.Builder(Math.max(16, maxId));
+            if (snapshot.scanEmployees(1, maxId, roster::add) < 0) {
+                return null;
+            }
+            return new WarmStartSnapshot(snapshot.getId(), System.currentTimeMillis(), roster.build());
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it into place, so a
+     * crash while saving leaves the previous snapshot intact
+     * @param file Target file
+     */
+    public void write(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temp), crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeUTF(repositoryKind());
+            out.writeLong(changeVersion);
+            out.writeLong(savedAt);
+            out.writeInt(roster.size());
+            for (int row = 0; row < roster.size(); row++) {
+                out.writeInt(roster.getId(row));
+                out.writeUTF(roster.getName(row));
+                out.writeUTF(roster.getDesignation(row));
+                out.writeDouble(roster.getBasicSalary(row));
+                out.writeDouble(roster.getHra(row));
+                out.writeDouble(roster.getTax(row));
+                out.writeDouble(roster.getNetSalary(row));
+            }
+            out.flush();
+            // The checksum covers everything written so far
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by write()
+     * @param file Snapshot file
+     * @return Snapshot, or null if there is no usable one
+     */
+    public static WarmStartSnapshot read(Path file) {
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                System.out.println("ℹ Ignoring warm-start snapshot " + file + ": unknown format");
+                return null;
+            }
+            String kind = in.readUTF();
+            if (!kind.equals(repositoryKind())) {
+                System.out.println("ℹ Ignoring warm-start snapshot " + file + ": saved from the " + kind + " repository");
+                return null;
+            }
+            long changeVersion = in.readLong();
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("negative row count");
+            }
+            EmployeeRoster.Builder roster = new EmployeeRoster.Builder(Math.max(16, count));
+            for (int row = 0; row < count; row++) {
+                roster.add(in.readInt(), in.readUTF(), in.readUTF(),
+                    in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                System.out.println("ℹ Ignoring warm-start snapshot " + file + ": checksum mismatch");
+                return null;
+            }
+            return new WarmStartSnapshot(changeVersion, savedAt, roster.build());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (EOFException e) {
+            System.out.println("ℹ Ignoring warm-start snapshot " + file + ": file is truncated");
+            return null;
+        } catch (IOException e) {
+            System.err.println("✗ Error reading warm-start snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String repositoryKind() {
+        return System.getProperty("payroll.repository", "mysql").toLowerCase();
+    }
+}
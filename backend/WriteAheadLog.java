@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Write-Ahead Log Class
+ * Redo log of the embedded store. Every change is one fixed-width entry:
+ * its change version, the full new record image and a CRC32 of both.
+ * Appends only fill a buffer. sync() writes and fsyncs it, and callers
+ * waiting at the same time share one fsync (group commit). One caller
+ * writes while the others wait without holding the lock, so threads that
+ * are done can append the next batch meanwhile.
+ *
+ * A record slot is only overwritten once its entry is synced, so after a
+ * crash the entries newer than the last checkpoint are replayed over the
+ * record file, and every acknowledged change is restored. An entry cut
+ * short or damaged by the crash ends the replay; it was never acknowledged.
+ *
+ * If a write or fsync fails, the unwritten entries are kept and every
+ * pending and later sync() fails, so no change behind the gap is ever
+ * reported durable.
+ */
+public final class WriteAheadLog {
+
+    public static final int ENTRY_SIZE = 8 + MappedEmployeeFile.RECORD_SIZE + 4;
+
+    /**
+     * Receives replayed entries in log order
+     */
+    public interface Replayer {
+        void replay(long version, byte[] image);
+    }
+
+    private final FileChannel channel;
+    private final Object syncLock = new Object();
+    private boolean writing;                        // a caller is writing and fsyncing; guarded by syncLock
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * ENTRY_SIZE);
+    private volatile long lastVersion;              // version of the last append
+    private volatile long synced;                   // version known to be on disk
+    private volatile long size;                     // bytes on disk; changed only while writing
+    private volatile IOException failure;           // first failed write or fsync; no sync succeeds after it
+
+    /**
+     * @param file Log file
+     * @param checkpointVersion Change version of the last checkpoint; new
+     *                          entries continue after it
+     */
+    public WriteAheadLog(Path file, long checkpointVersion) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lastVersion = checkpointVersion;
+        synced = checkpointVersion;
+    }
+
+    /**
+     * Replays the entries newer than the checkpoint, oldest first, and cuts
+     * off whatever follows the last intact entry
+     * @param replayer Receives each entry
+     * @return Number of entries replayed
+     */
+    public int replay(Replayer replayer) throws IOException {
+        ByteBuffer entries = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+        CRC32 crc = new CRC32();
+        long position = 0;
+        int replayed = 0;
+        long fileSize = channel.size();
+        boolean intact = true;
+        while (intact && position + ENTRY_SIZE <= fileSize) {
+            entries.clear();
+            int read = 0;
+            while (entries.hasRemaining() && position + read < fileSize) {
+                int n = channel.read(entries, position + read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            entries.flip();
+            while (entries.remaining() >= ENTRY_SIZE) {
+                int start = entries.position();
+                crc.reset();
+                crc.update(entries.array(), start, ENTRY_SIZE - 4);
+                long version = entries.getLong();
+                byte[] image = new byte[MappedEmployeeFile.RECORD_SIZE];
+                entries.get(image);
+                int checksum = entries.getInt();
+                if (checksum != (int) crc.getValue() || (replayed > 0 && version != lastVersion + 1)) {
+                    intact = false;
+                    break;
+                }
+                position += ENTRY_SIZE;
+                // Entries up to the checkpoint are already in the record file
+                if (version > lastVersion) {
+                    replayer.replay(version, image);
+                    lastVersion = version;
+                    replayed++;
+                }
+            }
+        }
+        if (position < fileSize) {
+            System.out.println("ℹ Write-ahead log: dropping " + (fileSize - position) + " bytes after the last intact entry");
+            channel.truncate(position);
+        }
+        size = position;
+        synced = lastVersion;
+        return replayed;
+    }
+
+    /**
+     * Adds one change to the buffer; not durable until sync()
+     * @param image New record image
+     * @return The change's version, to pass to sync()
+     */
+    public synchronized long append(byte[] image) {
+        if (buffer.remaining() < ENTRY_SIZE) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        long version = lastVersion + 1;
+        int start = buffer.position();
+        buffer.putLong(version);
+        buffer.put(image);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, ENTRY_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+        lastVersion = version;
+        return version;
+    }
+
+    /**
+     * @return Version of the last change appended
+     */
+    public long lastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * Makes every change up to a version durable, writing and fsyncing
+     * whatever has been appended by then
+     * @param version Result of append()
+     */
+    public void sync(long version) throws IOException {
+        if (synced >= version) {
+            return;
+        }
+        synchronized (syncLock) {
+            while (writing && synced < version) {
+                awaitWriter();
+            }
+            if (synced >= version) {
+                return;  // another caller's fsync covered this one
+            }
+            if (failure != null) {
+                throw new IOException("write-ahead log failed earlier: " + failure.getMessage(), failure);
+            }
+            writing = true;
+        }
+        try {
+            writeBuffered();
+        } finally {
+            endWriting();
+        }
+    }
+
+    /**
+     * @return Bytes in the log
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Empties the log after a checkpoint; nothing may be appended meanwhile
+     */
+    public void truncate() throws IOException {
+        beginWriting();
+        try {
+            writeBuffered();
+            channel.truncate(0);
+            channel.force(true);
+            size = 0;
+        } finally {
+            endWriting();
+        }
+    }
+
+    public void close() {
+        try {
+            beginWriting();
+            try {
+                writeBuffered();
+                channel.close();
+            } finally {
+                endWriting();
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Error closing write-ahead log: " + e.getMessage());
+        }
+    }
+
+    private void beginWriting() throws IOException {
+        synchronized (syncLock) {
+            while (writing) {
+                awaitWriter();
+            }
+            writing = true;
+        }
+    }
+
+    private void endWriting() {
+        synchronized (syncLock) {
+            writing = false;
+            syncLock.notifyAll();
+        }
+    }
+
+    // Caller holds syncLock
+    private void awaitWriter() throws IOException {
+        try {
+            syncLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for the write-ahead log");
+        }
+    }
+
+    // Only one caller at a time, the one that set writing
+    private void writeBuffered() throws IOException {
+        if (failure != null) {
+            throw new IOException("write-ahead log failed earlier: " + failure.getMessage(), failure);
+        }
+        ByteBuffer entries;
+        long upTo;
+        synchronized (this) {
+            if (buffer.position() == 0) {
+                synced = lastVersion;
+                return;
+            }
+            entries = buffer;
+            upTo = lastVersion;
+            buffer = ByteBuffer.allocate(entries.capacity());
+        }
+        long start = size;
+        entries.flip();
+        try {
+            while (entries.hasRemaining()) {
+                size += channel.write(entries, size);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            size = start;
+            // Back in front of anything appended since, so the log stays in version order
+            entries.rewind();
+            synchronized (this) {
+                ByteBuffer restored = ByteBuffer.allocate(entries.remaining() + buffer.capacity());
+                buffer.flip();
+                restored.put(entries).put(buffer);
+                buffer = restored;
+            }
+            throw e;
+        }
+        synced = upTo;
+    }
+}
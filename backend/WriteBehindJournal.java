@@ -0,0 +1,204 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Write-Behind Journal Class
+ * Durable local journal of acknowledged but not yet flushed mutations, as
+ * NDJSON segment files named wb-<number>.ndjson. Appends only fill a
+ * buffer. sync() writes and fsyncs it, and callers waiting at the same
+ * time share one fsync (group commit). If that fails, the lines are kept
+ * and no sync counts them as written until a later sync writes them. The repository rolls to a new
+ * segment whenever it takes a batch to flush, and deletes the older
+ * segments once that batch is committed to the database.
+ */
+public class WriteBehindJournal {
+
+    private final Path directory;
+    private final Object syncLock = new Object();  // one writer/fsync at a time
+    private StringBuilder buffer = new StringBuilder(8192);
+    private long appended;                          // sequence of the last append
+    private volatile long synced;                   // sequence known to be on disk
+    private FileChannel segment;
+    private long segmentNumber;
+
+    public WriteBehindJournal(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        List<Long> existing = segmentNumbers();
+        // Never append to an old segment: its last line may be torn, and a new
+        // record written after it would be lost with it on the next replay
+        segmentNumber = existing.isEmpty() ? 0 : existing.get(existing.size() - 1) + 1;
+    }
+
+    /**
+     * Replays every segment left by an earlier process, oldest first. A
+     * torn last line (cut off by a crash before its fsync) ends its segment;
+     * it was never acknowledged. Each process writes its own segments, so
+     * nothing acknowledged follows a torn line.
+     * @param consumer Receives each journaled mutation as a parsed object
+     * @return Number of mutations replayed
+     */
+    public int replay(Consumer<Map<String, Object>> consumer) throws IOException {
+        int replayed = 0;
+        for (long number : segmentNumbers()) {
+            try (BufferedReader reader = Files.newBufferedReader(segmentPath(number), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Map<String, Object> entry;
+                    try {
+                        entry = JsonParser.parseObject(line);
+                    } catch (RuntimeException e) {
+                        System.out.println("ℹ Write-behind journal: skipping torn record in " + segmentPath(number));
+                        break;
+                    }
+                    consumer.accept(entry);
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Adds one mutation to the buffer; not durable until sync()
+     * @param line Single-line JSON record
+     * @return Sequence number to pass to sync()
+     */
+    public synchronized long append(String line) {
+        buffer.append(line).append('\n');
+        return ++appended;
+    }
+
+    /**
+     * Makes every mutation up to a sequence number durable, writing and
+     * fsyncing whatever has been appended by then
+     * @param sequence Result of append()
+     */
+    public void sync(long sequence) throws IOException {
+        if (synced >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;  // another caller's fsync covered this one
+            }
+            writeBuffered();
+        }
+    }
+
+    /**
+     * Closes the current segment (durably) and starts a new one; later
+     * appends go to the new segment
+     * @return Number of the segment just closed
+     */
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            writeBuffered();
+            long closed = segmentNumber;
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+            segmentNumber++;
+            return closed;
+        }
+    }
+
+    /**
+     * Deletes segments whose mutations are all committed to the database
+     * @param upTo Last segment number to delete (a result of roll())
+     */
+    public void release(long upTo) throws IOException {
+        for (long number : segmentNumbers()) {
+            if (number <= upTo) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    public void close() {
+        synchronized (syncLock) {
+            try {
+                writeBuffered();
+                if (segment != null) {
+                    segment.close();
+                    segment = null;
+                }
+            } catch (IOException e) {
+                System.out.println("✗ Error closing write-behind journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // Caller holds syncLock
+    private void writeBuffered() throws IOException {
+        String lines;
+        long upTo;
+        synchronized (this) {
+            if (buffer.length() == 0) {
+                synced = appended;
+                return;
+            }
+            lines = buffer.toString();
+            upTo = appended;
+            buffer = new StringBuilder(Math.max(8192, lines.length()));
+        }
+        try {
+            if (segment == null) {
+                segment = FileChannel.open(segmentPath(segmentNumber),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                segment.write(bytes);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            // The lines stay buffered, ahead of later appends, for the next sync to
+            // write. That goes to a new segment, as this one may end in a partial line.
+            synchronized (this) {
+                buffer.insert(0, lines);
+            }
+            if (segment != null) {
+                try {
+                    segment.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                segment = null;
+            }
+            segmentNumber++;
+            throw e;
+        }
+        synced = upTo;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("wb-%012d.ndjson", number));
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wb-*.ndjson")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(3, name.length() - ".ndjson".length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
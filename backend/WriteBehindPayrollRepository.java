@@ -0,0 +1,373 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-Behind Payroll Repository Class
+ * Optional mode (-Dpayroll.writeBehind=true) for upstream systems that
+ * push the same employees many times in quick succession. Updates and
+ * deletes are acknowledged once they are fsynced to a local
+ * WriteBehindJournal, instead of after a database round trip and commit.
+ * They are coalesced per employee id (only the newest state of each is
+ * written) and flushed by a background writer every
+ * payroll.writeBehind.flushMs (50) ms, one transaction per batch.
+ *
+ * Read-your-writes: lookups by id are answered from the pending writes.
+ * Reads over many employees (lists, searches, aggregates, scans, runs,
+ * revisions) first wait for a flush, so they see every acknowledged write;
+ * if the flush fails they throw UncheckedIOException rather than answer
+ * without those writes.
+ * Adds still go straight to the database, because the caller needs the
+ * generated id. Journal segments left by a crash are replayed on startup.
+ * If the journal cannot be written, the mutation is flushed right away
+ * instead.
+ *
+ * Tuning: -Dpayroll.writeBehind.dir=write-behind
+ *         -Dpayroll.writeBehind.maxPending=100000 (callers flush beyond this)
+ */
+public class WriteBehindPayrollRepository implements PayrollRepository {
+
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("payroll.writeBehind.flushMs", 50L);
+    private static final int MAX_PENDING = Integer.getInteger("payroll.writeBehind.maxPending", 100_000);
+
+    // Pending state of a deleted employee
+    private static final Employee DELETED = new Employee(0, "", "", 0, 0, 0, 0);
+
+    private final PayrollRepository delegate;
+    private final WriteBehindJournal journal;
+    private final ReentrantLock flushLock = new ReentrantLock();  // one flush at a time
+    private Map<Integer, Employee> pending = new HashMap<>();    // guarded by this; newest state per id
+    private volatile Map<Integer, Employee> flushing = Collections.emptyMap();  // batch being written
+    private long flushingSegment;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payroll-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the journal, replays what an earlier process left in it and
+     * starts the background writer
+     * @param delegate Repository the writes are flushed to
+     * @param directory Journal directory
+     */
+    public WriteBehindPayrollRepository(PayrollRepository delegate, String directory) throws IOException {
+        this.delegate = delegate;
+        this.journal = new WriteBehindJournal(directory);
+        int replayed = journal.replay(entry -> {
+            int id = ((Number) entry.get("id")).intValue();
+            pending.put(id, "D".equals(entry.get("op")) ? DELETED : fromJournal(id, entry));
+        });
+        if (replayed > 0) {
+            System.out.println("↻ Write-behind journal: replaying " + replayed + " mutations of "
+                + pending.size() + " employees");
+            if (!flush()) {
+                throw new IOException("journaled mutations could not be written to the database");
+            }
+        } else {
+            // Segments holding nothing to replay (e.g. only a torn record) can go
+            journal.release(journal.roll());
+        }
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("✗ Write-behind flush failed: " + e.getMessage());
+            }
+        }, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("ℹ Write-behind mode: updates and deletes are journaled in " + directory
+            + " and flushed every " + FLUSH_INTERVAL_MS + " ms");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public boolean addEmployee(Employee employee) {
+        return delegate.addEmployee(employee);
+    }
+
+    @Override
+    public boolean updateEmployee(Employee employee) {
+        if (getEmployeeById(employee.getId()) == null) {
+            return false;
+        }
+        Employee stored = copyOf(employee);
+        stored.setNetSalary(stored.calculateNetSalary());
+        stored.setUpdatedAt(System.currentTimeMillis());
+        return enqueue(stored.getId(), stored, toJournal(stored));
+    }
+
+    @Override
+    public boolean deleteEmployee(int employeeId) {
+        if (getEmployeeById(employeeId) == null) {
+            return false;
+        }
+        return enqueue(employeeId, DELETED, "{\"op\":\"D\",\"id\":" + employeeId + "}");
+    }
+
+    // Journals a mutation, makes it visible to reads and waits for its fsync
+    private boolean enqueue(int id, Employee state, String line) {
+        long sequence;
+        int size;
+        synchronized (this) {
+            Employee current = pending.get(id);
+            if (current == null) {
+                current = flushing.get(id);
+            }
+            if (current == DELETED) {
+                return false;  // deleted by a mutation not yet flushed
+            }
+            sequence = journal.append(line);
+            pending.put(id, state);
+            size = pending.size();
+        }
+        try {
+            journal.sync(sequence);
+        } catch (IOException e) {
+            System.err.println("✗ Write-behind journal failed, writing through: " + e.getMessage());
+            return flush();
+        }
+        if (size >= MAX_PENDING) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Writes every mutation acknowledged so far to the database
+     * @return true if all of them are committed
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            // A batch that failed before is retried first, so writes stay in order
+            if (!flushing.isEmpty() && !writeFlushing()) {
+                return false;
+            }
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                flushing = pending;
+                pending = new HashMap<>();
+                try {
+                    flushingSegment = journal.roll();
+                } catch (IOException e) {
+                    // The segment stays; it is released with a later batch
+                    System.err.println("✗ Error rolling write-behind journal: " + e.getMessage());
+                    flushingSegment = -1;
+                }
+            }
+            return writeFlushing();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // A failed flush fails the read rather than answer without acknowledged writes
+    private void flushForRead() {
+        if (!flush()) {
+            throw new UncheckedIOException(
+                new IOException("acknowledged payroll writes could not be flushed to the database"));
+        }
+    }
+
+    // Caller holds flushLock
+    private boolean writeFlushing() {
+        List<Employee> updates = new ArrayList<>(flushing.size());
+        List<Integer> deletedIds = new ArrayList<>();
+        for (Map.Entry<Integer, Employee> entry : flushing.entrySet()) {
+            if (entry.getValue() == DELETED) {
+                deletedIds.add(entry.getKey());
+            } else {
+                updates.add(entry.getValue());
+            }
+        }
+        // Id order keeps row locks in a fixed order against other writers
+        updates.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        Collections.sort(deletedIds);
+        if (!delegate.writeBatch(updates, deletedIds)) {
+            return false;
+        }
+        flushing = Collections.emptyMap();
+        if (flushingSegment >= 0) {
+            try {
+                journal.release(flushingSegment);
+            } catch (IOException e) {
+                // Replaying an already written batch is harmless
+                System.err.println("✗ Error releasing write-behind journal: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flushes what is pending, closes the journal and then the repository
+     * behind it (call at shutdown)
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flush();
+        journal.close();
+        delegate.close();
+    }
+
+    @Override
+    public Employee getEmployeeById(int employeeId) {
+        Employee state;
+        synchronized (this) {
+            state = pending.get(employeeId);
+        }
+        if (state == null) {
+            state = flushing.get(employeeId);
+        }
+        if (state == DELETED) {
+            return null;
+        }
+        return state != null ? copyOf(state) : delegate.getEmployeeById(employeeId);
+    }
+
+    @Override
+    public List<Employee> getAllEmployees() {
+        flushForRead();
+        return delegate.getAllEmployees();
+    }
+
+    @Override
+    public List<Employee> searchByDesignation(String designation) {
+        flushForRead();
+        return delegate.searchByDesignation(designation);
+    }
+
+    @Override
+    public SearchResult search(EmployeeSearch search) {
+        flushForRead();
+        return delegate.search(search);
+    }
+
+    @Override
+    public double calculateTotalPayrollExpense() {
+        flushForRead();
+        return delegate.calculateTotalPayrollExpense();
+    }
+
+    @Override
+    public int countEmployees() {
+        flushForRead();
+        return delegate.countEmployees();
+    }
+
+    @Override
+    public int getMaxEmployeeId() {
+        // Ids are only allocated by adds, which are not deferred
+        return delegate.getMaxEmployeeId();
+    }
+
+    @Override
+    public List<PayrollAggregate> aggregateByDesignation() {
+        flushForRead();
+        return delegate.aggregateByDesignation();
+    }
+
+    @Override
+    public int scanEmployees(int fromId, int toId, Consumer<Employee> consumer) {
+        flushForRead();
+        return delegate.scanEmployees(fromId, toId, consumer);
+    }
+
+    @Override
+    public EmployeeRoster loadRoster() {
+        flushForRead();
+        return delegate.loadRoster();
+    }
+
+    @Override
+    public Employee getEmployeeAsOf(int employeeId, long asOf) {
+        flushForRead();
+        return delegate.getEmployeeAsOf(employeeId, asOf);
+    }
+
+    @Override
+    public EmployeeRoster loadRosterAsOf(long asOf) {
+        flushForRead();
+        return delegate.loadRosterAsOf(asOf);
+    }
+
+    @Override
+    public EmployeeSnapshot openSnapshot(long snapshotId) {
+        flushForRead();
+        return delegate.openSnapshot(snapshotId);
+    }
+
+    @Override
+    public RevisionResult applyRevision(SalaryRevision revision) {
+        // A pending update written after the revision would undo it
+        flushForRead();
+        return delegate.applyRevision(revision);
+    }
+
+    @Override
+    public boolean writeBatch(List<Employee> updates, List<Integer> deletedIds) {
+        if (!flush()) {
+            return false;
+        }
+        return delegate.writeBatch(updates, deletedIds);
+    }
+
+    @Override
+    public long getChangeVersion() {
+        flushForRead();
+        return delegate.getChangeVersion();
+    }
+
+    private static String toJournal(Employee employee) {
+        return new StringBuilder(160)
+            .append("{\"op\":\"U\",\"id\":").append(employee.getId())
+            .append(",\"name\":\"").append(escape(employee.getName())).append("\"")
+            .append(",\"designation\":\"").append(escape(employee.getDesignation())).append("\"")
+            .append(",\"basicSalary\":").append(employee.getBasicSalary())
+            .append(",\"hra\":").append(employee.getHra())
+            .append(",\"tax\":").append(employee.getTax())
+            .append(",\"netSalary\":").append(employee.getNetSalary())
+            .append(",\"updatedAt\":").append(employee.getUpdatedAt())
+            .append("}").toString();
+    }
+
+    private static Employee fromJournal(int id, Map<String, Object> entry) {
+        Employee employee = new Employee(id, (String) entry.get("name"), (String) entry.get("designation"),
+            ((Number) entry.get("basicSalary")).doubleValue(), ((Number) entry.get("hra")).doubleValue(),
+            ((Number) entry.get("tax")).doubleValue(), ((Number) entry.get("netSalary")).doubleValue());
+        employee.setUpdatedAt(((Number) entry.get("updatedAt")).longValue());
+        return employee;
+    }
+
+    private static Employee copyOf(Employee employee) {
+        Employee copy = new Employee(employee.getId(), employee.getName(), employee.getDesignation(),
+            employee.getBasicSalary(), employee.getHra(), employee.getTax(), employee.getNetSalary());
+        copy.setCreatedAt(employee.getCreatedAt());
+        copy.setUpdatedAt(employee.getUpdatedAt());
+        return copy;
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+}
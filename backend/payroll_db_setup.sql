@@ -5,7 +5,8 @@
 CREATE DATABASE IF NOT EXISTS employee_payroll_system;
 USE employee_payroll_system;
 
--- Drop table if exists (for fresh setup)
+-- Drop table if exists (for fresh setup); employee_org_unit references it
+DROP TABLE IF EXISTS employee_org_unit;
 DROP TABLE IF EXISTS employee_payroll;
 
 -- Create employee_payroll table
@@ -21,6 +22,200 @@ CREATE TABLE employee_payroll (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
+-- Indexes below follow the queries the server issues. Each one serves a
+-- search criterion or a designation filter. /debug/slow-queries shows any
+-- statement that still scans the whole table.
+-- Designation lookups (searches, mass salary revisions by designation);
+-- the salary column lets a designation + salary range search use one range
+CREATE INDEX idx_employee_designation_net ON employee_payroll (designation, net_salary);
+
+-- Composite search (/employees/search): one index per searchable criterion,
+-- the server restricts each query to the indexes of the criteria it uses
+CREATE INDEX idx_employee_name ON employee_payroll (name);
+CREATE INDEX idx_employee_net_salary ON employee_payroll (net_salary);
+CREATE INDEX idx_employee_tax ON employee_payroll (tax);
+CREATE INDEX idx_employee_created ON employee_payroll (created_at);
+CREATE INDEX idx_employee_updated ON employee_payroll (updated_at);
+
+-- System-versioned salary history: every insert, update and delete of
+-- employee_payroll (including mass revisions and edits outside the server)
+-- appends the row as it is from then on. A version is valid until the next
+-- one of the same id; a delete appends a version with deleted = TRUE.
+-- As-of lookups read the latest version with valid_from <= asOf.
+DROP TABLE IF EXISTS employee_payroll_history;
+
+CREATE TABLE employee_payroll_history (
+    history_id BIGINT AUTO_INCREMENT PRIMARY KEY,   -- append order; the server tails new rows by it
+    id INT NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    designation VARCHAR(50) NOT NULL,
+    basic_salary DECIMAL(10, 2) NOT NULL,
+    hra DECIMAL(10, 2) NOT NULL,
+    tax DECIMAL(10, 2) NOT NULL,
+    net_salary DECIMAL(10, 2) NOT NULL,
+    valid_from TIMESTAMP(3) NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    INDEX idx_history_id_valid_from (id, valid_from),
+    INDEX idx_history_valid_from (valid_from)
+);
+
+CREATE TRIGGER trg_employee_payroll_history_insert AFTER INSERT ON employee_payroll FOR EACH ROW
+    INSERT INTO employee_payroll_history (id, name, designation, basic_salary, hra, tax, net_salary, valid_from)
+    VALUES (NEW.id, NEW.name, NEW.designation, NEW.basic_salary, NEW.hra, NEW.tax, NEW.net_salary, NOW(3));
+
+CREATE TRIGGER trg_employee_payroll_history_update AFTER UPDATE ON employee_payroll FOR EACH ROW
+    INSERT INTO employee_payroll_history (id, name, designation, basic_salary, hra, tax, net_salary, valid_from)
+    VALUES (NEW.id, NEW.name, NEW.designation, NEW.basic_salary, NEW.hra, NEW.tax, NEW.net_salary, NOW(3));
+
+CREATE TRIGGER trg_employee_payroll_history_delete AFTER DELETE ON employee_payroll FOR EACH ROW
+    INSERT INTO employee_payroll_history (id, name, designation, basic_salary, hra, tax, net_salary, valid_from, deleted)
+    VALUES (OLD.id, OLD.name, OLD.designation, OLD.basic_salary, OLD.hra, OLD.tax, OLD.net_salary, NOW(3), TRUE);
+
+-- Month-end payroll runs, processed in checkpointed id-range chunks
+DROP TABLE IF EXISTS payroll_run_line;
+DROP TABLE IF EXISTS payroll_run_checkpoint;
+DROP TABLE IF EXISTS payroll_run;
+
+CREATE TABLE payroll_run (
+    run_id INT PRIMARY KEY AUTO_INCREMENT,
+    period CHAR(7) NOT NULL,                -- YYYY-MM
+    status VARCHAR(20) NOT NULL,            -- RUNNING, COMPLETED, FAILED
+    chunk_size INT NOT NULL,
+    max_employee_id INT NOT NULL,           -- id range fixed when the run starts
+    snapshot_id BIGINT NOT NULL DEFAULT 0,  -- history_id high-water mark of the employee snapshot it reads
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP NULL,
+    UNIQUE KEY uq_payroll_run_period (period)
+);
+
+-- One row per committed chunk; a restarted run resumes after MAX(chunk_end)
+CREATE TABLE payroll_run_checkpoint (
+    run_id INT NOT NULL,
+    chunk_start INT NOT NULL,
+    chunk_end INT NOT NULL,
+    employees INT NOT NULL,
+    total_net DECIMAL(14, 2) NOT NULL,
+    committed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (run_id, chunk_start)
+);
+
+-- Payslip lines written by each run
+CREATE TABLE payroll_run_line (
+    run_id INT NOT NULL,
+    period CHAR(7) NOT NULL,                -- same as the run's; lines of completed runs are the payroll history
+    employee_id INT NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    designation VARCHAR(50) NOT NULL,
+    basic_salary DECIMAL(10, 2) NOT NULL,
+    hra DECIMAL(10, 2) NOT NULL,
+    allowances DECIMAL(10, 2) NOT NULL DEFAULT 0,  -- overtime and night shift pay
+    tax DECIMAL(10, 2) NOT NULL,
+    net_salary DECIMAL(10, 2) NOT NULL,
+    PRIMARY KEY (run_id, employee_id),
+    UNIQUE KEY uq_payroll_run_line_period (period, employee_id)
+);
+
+-- Back-dated revisions: one batch per arrears computation, one line per changed employee-period
+DROP TABLE IF EXISTS payroll_arrears_chunk;
+DROP TABLE IF EXISTS payroll_arrears;
+DROP TABLE IF EXISTS payroll_arrears_batch;
+
+CREATE TABLE payroll_arrears_batch (
+    batch_id INT PRIMARY KEY AUTO_INCREMENT,
+    description VARCHAR(255) NOT NULL,      -- the revision; a repeat of it resumes this batch instead
+    effective_from CHAR(7) NOT NULL,        -- YYYY-MM
+    through_period CHAR(7) NOT NULL,
+    chunk_size INT NOT NULL,                -- kept so a resumed batch splits the same way
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_arrears_batch_description (description)
+);
+
+-- Period/id-range chunks of a batch whose lines have been committed
+CREATE TABLE payroll_arrears_chunk (
+    batch_id INT NOT NULL,
+    period CHAR(7) NOT NULL,
+    from_id INT NOT NULL,
+    to_id INT NOT NULL,
+    PRIMARY KEY (batch_id, period, from_id)
+);
+
+CREATE TABLE payroll_arrears (
+    batch_id INT NOT NULL,
+    period CHAR(7) NOT NULL,
+    employee_id INT NOT NULL,
+    basic_delta DECIMAL(10, 2) NOT NULL,
+    hra_delta DECIMAL(10, 2) NOT NULL,
+    allowances_delta DECIMAL(10, 2) NOT NULL,
+    tax_delta DECIMAL(10, 2) NOT NULL,
+    net_delta DECIMAL(10, 2) NOT NULL,
+    PRIMARY KEY (batch_id, period, employee_id),
+    INDEX idx_arrears_period (period, employee_id)
+);
+
+-- Shift attendance per period, summarized from punch events by the attendance ingestor
+DROP TABLE IF EXISTS employee_attendance;
+
+CREATE TABLE employee_attendance (
+    period CHAR(7) NOT NULL,                -- YYYY-MM
+    employee_id INT NOT NULL,
+    days_present INT NOT NULL DEFAULT 0,
+    regular_minutes INT NOT NULL DEFAULT 0,
+    overtime_minutes INT NOT NULL DEFAULT 0,
+    night_shifts INT NOT NULL DEFAULT 0,
+    punches INT NOT NULL DEFAULT 0,
+    last_punch_at DATETIME NOT NULL,        -- plant-local; later punches only are counted
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (period, employee_id)
+);
+
+-- Organisation hierarchy (plant > division > department > cost center) and
+-- which unit each employee belongs to. The server loads both at startup
+-- and keeps rolled-up payroll cost per unit in memory.
+DROP TABLE IF EXISTS employee_org_unit;
+DROP TABLE IF EXISTS org_unit;
+
+CREATE TABLE org_unit (
+    unit_id INT PRIMARY KEY AUTO_INCREMENT,
+    parent_id INT NULL,                     -- NULL for a plant
+    name VARCHAR(100) NOT NULL,
+    kind VARCHAR(20) NOT NULL,              -- PLANT, DIVISION, DEPARTMENT, COST_CENTER
+    FOREIGN KEY (parent_id) REFERENCES org_unit(unit_id),
+    INDEX idx_org_unit_parent (parent_id)
+);
+
+CREATE TABLE employee_org_unit (
+    employee_id INT PRIMARY KEY,
+    unit_id INT NOT NULL,
+    FOREIGN KEY (employee_id) REFERENCES employee_payroll(id) ON DELETE CASCADE,
+    FOREIGN KEY (unit_id) REFERENCES org_unit(unit_id),
+    INDEX idx_employee_org_unit (unit_id)
+);
+
+-- Append-only audit trail of every change (group-committed by the server)
+DROP TABLE IF EXISTS payroll_audit;
+
+CREATE TABLE payroll_audit (
+    audit_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_id INT NOT NULL,
+    change_type VARCHAR(10) NOT NULL,
+    actor VARCHAR(100) NOT NULL,
+    changed_at TIMESTAMP(3) NOT NULL,
+    old_name VARCHAR(100),
+    old_designation VARCHAR(50),
+    old_basic_salary DECIMAL(10, 2),
+    old_hra DECIMAL(10, 2),
+    old_tax DECIMAL(10, 2),
+    old_net_salary DECIMAL(10, 2),
+    new_name VARCHAR(100),
+    new_designation VARCHAR(50),
+    new_basic_salary DECIMAL(10, 2),
+    new_hra DECIMAL(10, 2),
+    new_tax DECIMAL(10, 2),
+    new_net_salary DECIMAL(10, 2),
+    details VARCHAR(255),
+    INDEX idx_audit_employee (employee_id, changed_at)
+);
+
 -- Insert sample data (inspired by typical SAIL employee structure)
 INSERT INTO employee_payroll (name, designation, basic_salary, hra, tax, net_salary) VALUES
 ('Rajesh Kumar', 'Senior Engineer', 50000.00, 15000.00, 8000.00, 57000.00),
@@ -29,6 +224,23 @@ INSERT INTO employee_payroll (name, designation, basic_salary, hra, tax, net_sal
 ('Sneha Reddy', 'Safety Officer', 35000.00, 10500.00, 5000.00, 40500.00),
 ('Vikram Patel', 'Maintenance Technician', 28000.00, 8400.00, 3500.00, 32900.00);
 
+-- Sample hierarchy for the sample employees (same as the demo repository)
+INSERT INTO org_unit (unit_id, parent_id, name, kind) VALUES
+(1, NULL, 'Salem Steel Plant', 'PLANT'),
+(2, 1, 'Steel Melting Shop', 'DIVISION'),
+(3, 1, 'Cold Rolling Mill', 'DIVISION'),
+(4, 1, 'Services', 'DIVISION'),
+(5, 3, 'Production', 'DEPARTMENT'),
+(6, 3, 'Maintenance', 'DEPARTMENT'),
+(7, 4, 'Human Resources', 'DEPARTMENT'),
+(8, 4, 'Safety', 'DEPARTMENT'),
+(9, 2, 'Design Engineering', 'DEPARTMENT'),
+(10, 5, 'CC-3110 Z-Mill Operations', 'COST_CENTER'),
+(11, 6, 'CC-3150 Mechanical Maintenance', 'COST_CENTER');
+
+INSERT INTO employee_org_unit (employee_id, unit_id) VALUES
+(1, 9), (2, 7), (3, 10), (4, 8), (5, 11);
+
 -- Display all records
 SELECT * FROM employee_payroll;
 
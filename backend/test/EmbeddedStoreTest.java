@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Embedded Store Test Class
+ * Behaviour tests for the embedded store (MappedPayrollRepository and its
+ * WriteAheadLog): replay of torn and damaged log tails, checkpoints
+ * emptying the log, crash recovery and snapshot isolation under
+ * concurrent writers. Plain main method, no test framework:
+ *
+ *     cd backend
+ *     javac -encoding UTF-8 -cp mysql-connector-j-9.4.0.jar -d out *.java test/EmbeddedStoreTest.java
+ *     java -cp out EmbeddedStoreTest
+ *
+ * Exits with status 1 if any check fails.
+ */
+public class EmbeddedStoreTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        walReplaysUpToTornTail();
+        walReplaysUpToDamagedEntry();
+        checkpointEmptiesLog();
+        reopenReplaysChangesAfterCheckpoint();
+        snapshotKeepsItsVersion();
+        snapshotStableUnderConcurrentWriters();
+
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("✓ All embedded store checks passed");
+    }
+
+    private static void walReplaysUpToTornTail() throws IOException {
+        Path file = Files.createTempDirectory("wal-torn").resolve("employees.wal");
+        writeLog(file, 3);
+        // A crash in the middle of writing the third entry
+        truncate(file, 2L * WriteAheadLog.ENTRY_SIZE + WriteAheadLog.ENTRY_SIZE / 2);
+
+        WriteAheadLog log = new WriteAheadLog(file, 0);
+        List<Long> versions = new ArrayList<>();
+        int replayed = log.replay((version, image) -> versions.add(version));
+        check(replayed == 2 && versions.get(1) == 2, "torn tail: replays the intact entries only");
+        check(Files.size(file) == 2L * WriteAheadLog.ENTRY_SIZE, "torn tail: cut off after the last intact entry");
+        check(log.append(image(3, "Third")) == 3, "torn tail: next change continues the versions");
+        log.close();
+    }
+
+    private static void walReplaysUpToDamagedEntry() throws IOException {
+        Path file = Files.createTempDirectory("wal-crc").resolve("employees.wal");
+        writeLog(file, 4);
+        // Flip one byte of the third entry's image; its CRC no longer matches
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 2L * WriteAheadLog.ENTRY_SIZE + 20;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) (one.get(0) ^ 0x5A));
+            one.rewind();
+            channel.write(one, position);
+        }
+
+        WriteAheadLog log = new WriteAheadLog(file, 0);
+        int replayed = log.replay((version, image) -> { });
+        check(replayed == 2, "bad CRC: replay stops before the damaged entry");
+        check(Files.size(file) == 2L * WriteAheadLog.ENTRY_SIZE, "bad CRC: damaged entry and later ones dropped");
+        log.close();
+    }
+
+    private static void checkpointEmptiesLog() throws IOException {
+        Path dir = Files.createTempDirectory("embedded-checkpoint");
+        MappedPayrollRepository repository = new MappedPayrollRepository(dir.toString());
+        for (int i = 0; i < 10; i++) {
+            repository.addEmployee(employee("Employee " + i, 30000 + i));
+        }
+        check(Files.size(dir.resolve("employees.wal")) == 10L * WriteAheadLog.ENTRY_SIZE,
+            "checkpoint: each change is logged");
+        repository.checkpoint();
+        check(Files.size(dir.resolve("employees.wal")) == 0, "checkpoint: log is emptied");
+        long version = repository.getChangeVersion();
+        repository.close();
+
+        MappedPayrollRepository reopened = new MappedPayrollRepository(dir.toString());
+        check(reopened.countEmployees() == 10, "checkpoint: records survive a reopen");
+        check(reopened.getChangeVersion() == version, "checkpoint: change version survives a reopen");
+        check(reopened.addEmployee(employee("After", 1)) && reopened.getEmployeeById(11) != null,
+            "checkpoint: ids continue after a reopen");
+        reopened.close();
+    }
+
+    private static void reopenReplaysChangesAfterCheckpoint() throws IOException {
+        Path dir = Files.createTempDirectory("embedded-replay");
+        MappedPayrollRepository repository = new MappedPayrollRepository(dir.toString());
+        repository.addEmployee(employee("Kept", 40000));
+        repository.addEmployee(employee("Removed", 40000));
+        repository.checkpoint();
+        Employee kept = repository.getEmployeeById(1);
+        kept.setBasicSalary(50000);
+        repository.updateEmployee(kept);
+        repository.deleteEmployee(2);
+        // No close: the process "crashes" with two changes only in the log
+
+        MappedPayrollRepository recovered = new MappedPayrollRepository(dir.toString());
+        check(recovered.getEmployeeById(1).getBasicSalary() == 50000, "replay: logged update restored");
+        check(recovered.getEmployeeById(2) == null && recovered.countEmployees() == 1,
+            "replay: logged delete restored");
+        check(Files.size(dir.resolve("employees.wal")) == 0, "replay: log checkpointed after recovery");
+        recovered.close();
+    }
+
+    private static void snapshotKeepsItsVersion() throws Exception {
+        Path dir = Files.createTempDirectory("embedded-snapshot");
+        MappedPayrollRepository repository = new MappedPayrollRepository(dir.toString());
+        repository.addEmployee(employee("Updated", 30000));
+        repository.addEmployee(employee("Deleted", 30000));
+
+        try (EmployeeSnapshot snapshot = repository.openSnapshot(0)) {
+            Employee updated = repository.getEmployeeById(1);
+            updated.setBasicSalary(99000);
+            repository.updateEmployee(updated);
+            repository.deleteEmployee(2);
+            repository.addEmployee(employee("Added", 30000));
+
+            List<Employee> seen = new ArrayList<>();
+            snapshot.scanEmployees(1, Integer.MAX_VALUE, seen::add);
+            check(seen.size() == 2, "snapshot: later add and delete not visible");
+            check(seen.get(0).getBasicSalary() == 30000, "snapshot: later update not visible");
+            check(repository.getEmployeeById(1).getBasicSalary() == 99000, "snapshot: current reads see the update");
+        }
+        repository.close();
+    }
+
+    private static void snapshotStableUnderConcurrentWriters() throws Exception {
+        Path dir = Files.createTempDirectory("embedded-snapshot-concurrent");
+        MappedPayrollRepository repository = new MappedPayrollRepository(dir.toString());
+        int employees = 200;
+        for (int i = 0; i < employees; i++) {
+            repository.addEmployee(employee("Employee " + i, 30000));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            final int offset = w;
+            Thread writer = new Thread(() -> {
+                int round = 0;
+                while (running.get()) {
+                    int id = 1 + (round++ * 4 + offset) % employees;
+                    Employee employee = repository.getEmployeeById(id);
+                    employee.setBasicSalary(employee.getBasicSalary() + 1);
+                    repository.updateEmployee(employee);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        boolean stable = true;
+        for (int i = 0; i < 500 && stable; i++) {
+            try (EmployeeSnapshot snapshot = repository.openSnapshot(0)) {
+                double first = totalBasic(snapshot);
+                Thread.sleep(1);
+                stable = totalBasic(snapshot) == first;
+            }
+        }
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        check(stable, "snapshot: repeated scans agree while writers run");
+        repository.close();
+    }
+
+    private static double totalBasic(EmployeeSnapshot snapshot) {
+        double[] total = new double[1];
+        snapshot.scanEmployees(1, Integer.MAX_VALUE, employee -> total[0] += employee.getBasicSalary());
+        return total[0];
+    }
+
+    private static void writeLog(Path file, int entries) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file, 0);
+        long version = 0;
+        for (int i = 1; i <= entries; i++) {
+            version = log.append(image(i, "Employee " + i));
+        }
+        log.sync(version);
+        log.close();
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static byte[] image(int id, String name) {
+        Employee employee = employee(name, 30000);
+        employee.setId(id);
+        return MappedEmployeeFile.encode(employee, MappedEmployeeFile.LIVE);
+    }
+
+    private static Employee employee(String name, double basicSalary) {
+        return new Employee(0, name, "Engineer", basicSalary, 5000, 1000, 0);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("✓ " + description);
+        } else {
+            System.out.println("✗ " + description);
+            failures++;
+        }
+    }
+}
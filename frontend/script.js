@@ -5,6 +5,10 @@ const API_BASE_URL = 'http://localhost:8080';
 let employees = [];
 let currentEmployeeId = null;
 
+// Local employee cache, kept current with /employees/delta
+const EMPLOYEE_CACHE_KEY = 'payroll.employeeCache';
+let employeeCache = loadEmployeeCache();
+
 // Initialize application
 document.addEventListener('DOMContentLoaded', function() {
     loadDashboardData();
@@ -99,9 +103,50 @@ async function apiCall(endpoint, options = {}) {
     }
 }
 
+// Employee cache functions
+function loadEmployeeCache() {
+    try {
+        const stored = JSON.parse(localStorage.getItem(EMPLOYEE_CACHE_KEY));
+        if (stored && stored.version) {
+            return { version: stored.version, byId: new Map(stored.employees.map(emp => [emp.id, emp])) };
+        }
+    } catch (error) {
+        console.warn('Ignoring unreadable employee cache:', error);
+    }
+    return { version: 0, byId: new Map() };
+}
+
+function saveEmployeeCache() {
+    try {
+        localStorage.setItem(EMPLOYEE_CACHE_KEY, JSON.stringify({
+            version: employeeCache.version,
+            employees: Array.from(employeeCache.byId.values())
+        }));
+    } catch (error) {
+        console.warn('Could not store employee cache:', error);
+    }
+}
+
+// Fetches only what changed since the cached version; falls back to the cache when offline
+async function syncEmployees() {
+    const delta = await apiCall(`/employees/delta?since=${employeeCache.version}`);
+    if (delta) {
+        if (delta.reset) {
+            employeeCache.byId.clear();
+        }
+        delta.employees.forEach(emp => employeeCache.byId.set(emp.id, emp));
+        delta.deleted.forEach(id => employeeCache.byId.delete(id));
+        employeeCache.version = delta.version;
+        saveEmployeeCache();
+    } else if (employeeCache.version === 0) {
+        return null;
+    }
+    return Array.from(employeeCache.byId.values()).sort((a, b) => a.id - b.id);
+}
+
 // Dashboard functions
 async function loadDashboardData() {
-    const employees = await apiCall('/employees');
+    const employees = await syncEmployees();
     if (employees) {
         updateDashboardStats(employees);
     }
@@ -119,7 +164,7 @@ function updateDashboardStats(employees) {
 
 // Employee management functions
 async function loadEmployees() {
-    const employees = await apiCall('/employees');
+    const employees = await syncEmployees();
     if (employees) {
         displayEmployees(employees);
     }
@@ -266,7 +311,7 @@ async function deleteEmployee(employeeId) {
 
 // Payslip functions
 async function loadEmployeeDropdown() {
-    const employees = await apiCall('/employees');
+    const employees = await syncEmployees();
     if (employees) {
         const select = document.getElementById('employeeSelect');
         select.innerHTML = '<option value="">Select an employee</option>';
@@ -384,7 +429,7 @@ function printPayslip() {
 
 // Report functions
 async function loadReports() {
-    const employees = await apiCall('/employees');
+    const employees = await syncEmployees();
     if (employees) {
         updateReportStats(employees);
         renderDesignationChart(employees);